@@ -2,6 +2,7 @@ package org.mozilla.javascript.benchmarks;
 
 import java.util.concurrent.TimeUnit;
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScopeTemplate;
 import org.openjdk.jmh.annotations.*;
 
 @OutputTimeUnit(TimeUnit.MICROSECONDS)
@@ -12,4 +13,23 @@ public class StartupBenchmark {
             return cx.initStandardObjects();
         }
     }
+
+    @State(Scope.Benchmark)
+    public static class TemplateState {
+        ScopeTemplate template;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            try (Context cx = Context.enter()) {
+                template = ScopeTemplate.create(cx, false);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object startUpFromTemplate(TemplateState state) {
+        try (Context cx = Context.enter()) {
+            return state.template.newScope();
+        }
+    }
 }
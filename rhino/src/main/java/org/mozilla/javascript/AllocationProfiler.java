@@ -0,0 +1,285 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A profiler that finds out which lines of scripts allocate the most objects, arrays, functions,
+ * activations and concatenated strings. The JVM's own allocation profiling only shows the classes
+ * of the runtime that allocated them, not the script that asked for them.
+ *
+ * <p>The profiler records the allocations of scripts run by the contexts of the factories it is
+ * attached to that are entered while it is attached. It takes a sample of one allocation out of
+ * every {@code sampleInterval} on average, chosen at random so that allocations in loops are not
+ * missed, and counts the samples of each source position:
+ *
+ * <pre>
+ * AllocationProfiler profiler = new AllocationProfiler(64);
+ * profiler.attach(ContextFactory.getGlobal());
+ * ...
+ * for (Map.Entry&lt;AllocationProfiler.Site, Long&gt; e : profiler.getHistogram().entrySet()) {
+ *     System.out.println(e.getKey() + ": " + e.getValue() * profiler.getSampleInterval());
+ * }
+ * </pre>
+ *
+ * <p>When no context is being profiled, each allocation only pays for the read of a static field.
+ * A sample of a compiled script walks the Java stack until it finds the frame of the script, which
+ * is done with {@link StackWalker} where it is available, so that the rest of the stack is not
+ * captured.
+ */
+public class AllocationProfiler implements ContextFactory.Listener {
+
+    /** The kinds of allocations that are recorded. */
+    public enum Kind {
+        /**
+         * An object created by calling a function as a constructor, by an object literal, or by a
+         * standard function such as "JSON.parse".
+         */
+        OBJECT,
+        /** An array. */
+        ARRAY,
+        /** A function created by a function expression or declaration. */
+        FUNCTION,
+        /** The activation object that holds the variables of a function call. */
+        ACTIVATION,
+        /** A string created by concatenation. */
+        STRING
+    }
+
+    /** The source position of the allocations of one kind. */
+    public static final class Site {
+        private final String sourceName;
+        private final int lineNumber;
+        private final Kind kind;
+
+        Site(String sourceName, int lineNumber, Kind kind) {
+            this.sourceName = sourceName;
+            this.lineNumber = lineNumber;
+            this.kind = kind;
+        }
+
+        /** Return the name of the script, as it was given when the script was compiled. */
+        public String getSourceName() {
+            return sourceName;
+        }
+
+        /** Return the line of the allocations, or 0 if it is not known. */
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Site)) {
+                return false;
+            }
+            Site other = (Site) o;
+            return lineNumber == other.lineNumber
+                    && kind == other.kind
+                    && sourceName.equals(other.sourceName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sourceName, lineNumber, kind);
+        }
+
+        @Override
+        public String toString() {
+            return sourceName + ':' + lineNumber + ' ' + kind;
+        }
+    }
+
+    /** The number of contexts that are being profiled, by any profiler. */
+    private static final AtomicInteger profiledContexts = new AtomicInteger();
+
+    private final int sampleInterval;
+    private final Map<Site, LongAdder> samples = new ConcurrentHashMap<>();
+    private final Set<Context> contexts = ConcurrentHashMap.newKeySet();
+    private final LongAdder sampleCount = new LongAdder();
+
+    /**
+     * Create a profiler that takes a sample of one allocation out of every {@code sampleInterval}
+     * on average. An interval of 1 records every allocation.
+     */
+    public AllocationProfiler(int sampleInterval) {
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("interval: " + sampleInterval);
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    /** Record the allocations of the contexts of the factory that are entered from now on. */
+    public void attach(ContextFactory factory) {
+        factory.addListener(this);
+    }
+
+    /**
+     * Stop recording the allocations of the contexts of the factory, including those that are
+     * entered now.
+     */
+    public void detach(ContextFactory factory) {
+        factory.removeListener(this);
+        for (Context cx : contexts) {
+            if (cx.getFactory() == factory) {
+                // The field of the context belongs to its thread, which clears it at its next
+                // sample once it finds that the context is no longer profiled
+                untrack(cx);
+            }
+        }
+    }
+
+    @Override
+    public void contextCreated(Context cx) {}
+
+    @Override
+    public void contextEntered(Context cx) {
+        AllocationProfiler previous = cx.allocationProfiler;
+        if (previous != null && previous != this) {
+            previous.untrack(cx);
+        }
+        if (contexts.add(cx)) {
+            profiledContexts.incrementAndGet();
+        }
+        cx.allocationProfiler = this;
+        cx.allocationCountdown = nextCountdown();
+    }
+
+    @Override
+    public void contextReleased(Context cx) {
+        if (cx.allocationProfiler == this) {
+            cx.allocationProfiler = null;
+            untrack(cx);
+        }
+    }
+
+    /** Stop profiling the context, unless that was done already. */
+    private void untrack(Context cx) {
+        if (contexts.remove(cx)) {
+            profiledContexts.decrementAndGet();
+        }
+    }
+
+    /** Return the average number of allocations for each sample. */
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /** Discard all the samples taken so far. */
+    public void reset() {
+        samples.clear();
+        sampleCount.reset();
+    }
+
+    /** Return the number of samples taken, including those of allocations outside of scripts. */
+    public long getSampleCount() {
+        return sampleCount.sum();
+    }
+
+    /**
+     * Return the number of samples of each source position, starting with the position with the
+     * most. Multiply them by the {@link #getSampleInterval() sample interval} to estimate the
+     * number of allocations.
+     */
+    public Map<Site, Long> getHistogram() {
+        List<Map.Entry<Site, Long>> entries = new ArrayList<>();
+        for (Map.Entry<Site, LongAdder> entry : samples.entrySet()) {
+            entries.add(Map.entry(entry.getKey(), entry.getValue().sum()));
+        }
+        entries.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        Map<Site, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<Site, Long> entry : entries) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /** Return the number of samples of each source position of allocations of one kind. */
+    public Map<Site, Long> getHistogram(Kind kind) {
+        Map<Site, Long> result = getHistogram();
+        result.keySet().removeIf(site -> site.kind != kind);
+        return result;
+    }
+
+    private int nextCountdown() {
+        if (sampleInterval == 1) {
+            return 1;
+        }
+        return ThreadLocalRandom.current().nextInt(2 * sampleInterval - 1) + 1;
+    }
+
+    /** Called by the runtime for each allocation made on behalf of a script. */
+    static void allocated(Kind kind) {
+        if (profiledContexts.get() != 0) {
+            Context cx = Context.getCurrentContext();
+            if (cx != null && cx.allocationProfiler != null && --cx.allocationCountdown <= 0) {
+                cx.allocationProfiler.sample(cx, kind);
+            }
+        }
+    }
+
+    private void sample(Context cx, Kind kind) {
+        if (!contexts.contains(cx)) {
+            // Detached while the context was entered
+            cx.allocationProfiler = null;
+            return;
+        }
+        cx.allocationCountdown = nextCountdown();
+        sampleCount.increment();
+        int[] linep = {0};
+        String sourceName;
+        if (cx.lastInterpreterFrame == null && ScriptRuntime.androidApi == 0) {
+            sourceName = getSourcePositionFromJavaStack(linep);
+        } else {
+            sourceName = Context.getSourcePositionFromStack(cx, linep);
+        }
+        if (sourceName == null) {
+            return;
+        }
+        samples.computeIfAbsent(new Site(sourceName, linep[0], kind), k -> new LongAdder())
+                .increment();
+    }
+
+    /**
+     * Find the source position of the innermost compiled script like {@link
+     * Context#getSourcePositionFromJavaStack}, but stop walking the stack at the frame of the
+     * script. Must only be called when {@link StackWalker} is available.
+     */
+    @SuppressWarnings("AndroidJdkLibsChecker")
+    private static String getSourcePositionFromJavaStack(int[] linep) {
+        StackWalker.StackFrame frame =
+                StackWalker.getInstance()
+                        .walk(s -> s.filter(AllocationProfiler::isScriptFrame).findFirst())
+                        .orElse(null);
+        if (frame == null) {
+            return null;
+        }
+        linep[0] = frame.getLineNumber();
+        return frame.getFileName();
+    }
+
+    @SuppressWarnings("AndroidJdkLibsChecker")
+    private static boolean isScriptFrame(StackWalker.StackFrame f) {
+        return (f.getFileName() == null || !f.getFileName().endsWith(".java"))
+                && f.getLineNumber() > 0;
+    }
+}
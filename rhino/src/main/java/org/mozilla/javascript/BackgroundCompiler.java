@@ -0,0 +1,113 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+// API class
+
+package org.mozilla.javascript;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of threads that compiles hot functions to bytecode for tiered compilation, see
+ * {@link Context#setTierUpThreshold(int)}. It may be installed on a {@link ContextFactory} using
+ * {@link ContextFactory#setBackgroundCompiler(BackgroundCompiler)}. Without it, a function that
+ * gets hot is compiled on the thread that runs it, which then waits for the compiler.
+ *
+ * <p>With a background compiler, the function keeps running in the interpreter while its script is
+ * compiled, and switches to the compiled code once it is ready. When the queue is full, the
+ * function stays interpreted and is queued again after it has run for another threshold.
+ *
+ * <p>The compiler threads are daemon threads that exit when they have been idle for a minute. Each
+ * compilation runs in a Context entered from the factory of the Context that requested it.
+ */
+public final class BackgroundCompiler implements AutoCloseable {
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder compiledCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder compileTime = new LongAdder();
+
+    /**
+     * Create a compiler that uses up to "threads" threads and queues at most "queueCapacity"
+     * scripts that wait for a thread.
+     */
+    public BackgroundCompiler(int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException();
+        }
+        executor =
+                new ThreadPoolExecutor(
+                        threads,
+                        threads,
+                        60,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity),
+                        r -> {
+                            Thread t =
+                                    new Thread(
+                                            r,
+                                            "Rhino compiler " + threadCounter.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Return the number of scripts that wait for a compiler thread. */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /** Return the number of scripts that were compiled. */
+    public long getCompiledCount() {
+        return compiledCount.sum();
+    }
+
+    /** Return the number of scripts that could not be compiled and stay interpreted. */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /** Return the number of times that a script was not queued because the queue was full. */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /** Return the time spent compiling scripts, in nanoseconds, including failed compilations. */
+    public long getCompileTimeNanos() {
+        return compileTime.sum();
+    }
+
+    /** Stop accepting scripts. Scripts that are already queued are still compiled. */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /** Queue the compilation of a script, returning false if the queue is full or closed. */
+    boolean submit(ContextFactory factory, TieredCompiler tieredCompiler) {
+        try {
+            executor.execute(() -> factory.call(cx -> compile(cx, tieredCompiler)));
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            return false;
+        }
+    }
+
+    private Object compile(Context cx, TieredCompiler tieredCompiler) {
+        long start = System.nanoTime();
+        boolean compiled = tieredCompiler.compileQueued(cx);
+        compileTime.add(System.nanoTime() - start);
+        (compiled ? compiledCount : failedCount).increment();
+        return null;
+    }
+}
@@ -592,6 +592,7 @@ public class BaseFunction extends ScriptableObject implements Function {
      * #call} unless they are already set.
      */
     public Scriptable createObject(Context cx, Scriptable scope) {
+        AllocationProfiler.allocated(AllocationProfiler.Kind.OBJECT);
         Scriptable newInstance = new NativeObject();
         newInstance.setPrototype(getClassPrototype());
         newInstance.setParentScope(getParentScope());
@@ -9,6 +9,7 @@ package org.mozilla.javascript;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -122,6 +123,7 @@ class CodeGenerator<T extends ScriptOrFn<T>> extends Icode {
         if (builder.functionType == 0) {
             addToken(Token.RETURN_RESULT);
         }
+        fuseInstructions();
 
         if (itsData.itsICode.length != iCodeTop) {
             // Make builder.itsICode length exactly iCodeTop to save memory
@@ -177,6 +179,148 @@ class CodeGenerator<T extends ScriptOrFn<T>> extends Icode {
         if (Token.printICode) Interpreter.dumpICode(itsData, builder);
     }
 
+    /**
+     * Write superinstructions over common sequences of instructions, such as a comparison and the
+     * jump that follows it. Only the first opcode of a sequence is replaced, so the lengths of
+     * instructions stay the same. A sequence is not fused if anything other than the instruction
+     * before it may continue with one of its later instructions, such as a jump or an exception
+     * handler.
+     */
+    private void fuseInstructions() {
+        byte[] iCode = itsData.itsICode;
+        BitSet targets = getJumpTargets();
+        for (int pc = 0; pc < iCodeTop; ) {
+            pc = fuseInstructions(iCode, pc, targets);
+        }
+    }
+
+    /** Fuse the instructions at pc if possible, and return the pc after them. */
+    private int fuseInstructions(byte[] iCode, int pc, BitSet targets) {
+        int op = iCode[pc];
+        int next = pc + Interpreter.bytecodeSpan(op);
+        if (next >= iCodeTop || targets.get(next)) {
+            return next;
+        }
+        int nextOp = iCode[next];
+        switch (op) {
+            case Icode_SETVAR1:
+                if (nextOp == Icode_POP) {
+                    iCode[pc] = (byte) Icode_SETVAR1_POP;
+                    return next + 1;
+                }
+                break;
+            case Icode_VAR_INC_DEC:
+                if (nextOp == Icode_POP) {
+                    iCode[pc] = (byte) Icode_VAR_INC_DEC_POP;
+                    return next + 1;
+                }
+                break;
+            case Icode_GETVAR1:
+                {
+                    int end = getPropEnd(iCode, next, targets);
+                    if (end >= 0) {
+                        iCode[pc] = (byte) Icode_GETVAR1_GETPROP;
+                        return end;
+                    }
+                    // Leave the second variable to be fused with a GETPROP that follows it
+                    if (nextOp == Icode_GETVAR1 && getPropEnd(iCode, next + 2, targets) < 0) {
+                        iCode[pc] = (byte) Icode_GETVAR1_GETVAR1;
+                        return next + 2;
+                    }
+                    break;
+                }
+            case Token.LT:
+            case Token.LE:
+            case Token.GT:
+            case Token.GE:
+                if (nextOp == Token.IFEQ || nextOp == Token.IFNE) {
+                    iCode[pc] = (byte) getCompareAndJump(op, nextOp == Token.IFEQ);
+                    return next + 3;
+                }
+                break;
+        }
+        return next;
+    }
+
+    /**
+     * Return the pc after a string register load and a GETPROP at pc that may be fused with the
+     * GETVAR1 before them, or -1 if there are none.
+     */
+    private int getPropEnd(byte[] iCode, int pc, BitSet targets) {
+        if (pc >= iCodeTop) {
+            return -1;
+        }
+        int op = iCode[pc];
+        int getPropPC;
+        if (op == Icode_REG_STR1) {
+            getPropPC = pc + 2;
+        } else if (Icode_REG_STR_C3 <= op && op <= Icode_REG_STR_C0) {
+            getPropPC = pc + 1;
+        } else {
+            return -1;
+        }
+        if (getPropPC >= iCodeTop
+                || iCode[getPropPC] != Token.GETPROP
+                || targets.get(pc)
+                || targets.get(getPropPC)) {
+            return -1;
+        }
+        return getPropPC + 1;
+    }
+
+    private static int getCompareAndJump(int compareOp, boolean ifEQ) {
+        switch (compareOp) {
+            case Token.LT:
+                return ifEQ ? Icode_LT_IFEQ : Icode_LT_IFNE;
+            case Token.LE:
+                return ifEQ ? Icode_LE_IFEQ : Icode_LE_IFNE;
+            case Token.GT:
+                return ifEQ ? Icode_GT_IFEQ : Icode_GT_IFNE;
+            case Token.GE:
+                return ifEQ ? Icode_GE_IFEQ : Icode_GE_IFNE;
+        }
+        throw Kit.codeBug();
+    }
+
+    /**
+     * Return the pcs that are reached other than from the instruction before them: the targets of
+     * jumps, the returns from GOSUB, and the bounds of exception handlers.
+     */
+    private BitSet getJumpTargets() {
+        byte[] iCode = itsData.itsICode;
+        BitSet targets = new BitSet(iCodeTop);
+        int pc = 0;
+        while (pc < iCodeTop) {
+            int op = iCode[pc];
+            switch (op) {
+                case Icode_GOSUB:
+                    targets.set(pc + 3);
+                    // fallthrough
+                case Token.GOTO:
+                case Token.IFEQ:
+                case Token.IFNE:
+                case Icode_IFEQ_POP:
+                case Icode_IF_NULL_UNDEF:
+                case Icode_IF_NOT_NULL_UNDEF:
+                case Icode_LEAVEDQ:
+                    {
+                        int offset = Interpreter.getShort(iCode, pc + 1);
+                        targets.set(offset != 0 ? pc + offset : itsData.longJumps.get(pc + 1));
+                        break;
+                    }
+            }
+            pc += Interpreter.bytecodeSpan(op);
+        }
+        if (pc != iCodeTop) throw Kit.codeBug();
+        int[] table = itsData.itsExceptionTable;
+        for (int i = 0; i < exceptionTableTop; i += Interpreter.EXCEPTION_SLOT_SIZE) {
+            targets.set(table[i + Interpreter.EXCEPTION_TRY_START_SLOT]);
+            targets.set(table[i + Interpreter.EXCEPTION_TRY_END_SLOT]);
+            targets.set(table[i + Interpreter.EXCEPTION_HANDLER_SLOT]);
+        }
+        return targets;
+    }
+
     private void generateNestedFunctions() {
         int functionCount = scriptOrFn.getFunctionCount();
         if (functionCount == 0) return;
@@ -1425,6 +1569,7 @@ class CodeGenerator<T extends ScriptOrFn<T>> extends Icode {
                 if (((Node) propertyId).type == Token.DOTDOTDOT) {
                     // It's actually a spread! We need to do a "continue" to avoid setting it as key
                     addIcode(Icode_SPREAD);
+                    addUint8(0);
                     stackChange(-1);
                     child = child.getNext();
                     i++;
@@ -1534,9 +1679,8 @@ class CodeGenerator<T extends ScriptOrFn<T>> extends Icode {
             if (child.getType() == Token.DOTDOTDOT) {
                 visitExpression(child.getFirstChild(), 0);
                 addIcode(Icode_SPREAD);
-                if (skipIndexes != null) {
-                    addUint8(sourcePositions[childIdx]);
-                }
+                // Always present, so that the instruction has a fixed length
+                addUint8(skipIndexes != null ? sourcePositions[childIdx] : 0);
                 stackChange(-1);
             } else {
                 visitLiteralValue(child);
@@ -23,6 +23,7 @@ public class CompilerEnvirons {
         warningAsError = false;
         generateObserverCount = false;
         allowSharpComments = false;
+        tierUpThreshold = -1;
     }
 
     public void initFromContext(Context cx) {
@@ -36,6 +37,7 @@ public class CompilerEnvirons {
         xmlAvailable = cx.hasFeature(Context.FEATURE_E4X);
 
         interpretedMode = cx.isInterpretedMode();
+        tierUpThreshold = cx.getTierUpThreshold();
 
         generatingSource = cx.isGeneratingSource();
         activationNames = cx.activationNames;
@@ -125,6 +127,20 @@ public class CompilerEnvirons {
         this.interpretedMode = interpretedMode;
     }
 
+    /**
+     * Return the number of calls and loop iterations after which an interpreted function is
+     * compiled to bytecode, or a negative number if tiered compilation is disabled.
+     *
+     * @see Context#setTierUpThreshold(int)
+     */
+    public final int getTierUpThreshold() {
+        return tierUpThreshold;
+    }
+
+    public void setTierUpThreshold(int threshold) {
+        this.tierUpThreshold = threshold;
+    }
+
     public final boolean isGeneratingSource() {
         return generatingSource;
     }
@@ -302,6 +318,7 @@ public class CompilerEnvirons {
     private boolean allowMemberExprAsFunctionName;
     private boolean xmlAvailable;
     private boolean interpretedMode;
+    private int tierUpThreshold;
     private boolean generatingSource;
     private boolean strictMode;
     private boolean warningAsError;
@@ -0,0 +1,383 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe slot map whose reads never lock, wait or retry, for objects that many threads read
+ * at once. The thread-safe maps that use a {@link java.util.concurrent.locks.StampedLock} make
+ * every reader write to, or at least validate, the lock, which makes the cache line of the lock
+ * bounce between the processors that read the object.
+ *
+ * <p>The slots are kept in an open-addressed hash table that is never more than half full, and in
+ * an array that keeps the order in which they were added. New slots are stored into free entries of
+ * both in place, and become visible to readers through release stores. Anything else, such as
+ * growing the table or removing or replacing a slot, builds a new table that replaces the old one
+ * when it is complete, so that a reader always sees a complete table. Writers take a lock, which
+ * readers never touch; the lock is reentrant, because a {@link SlotComputer} may change the map
+ * that it was called for.
+ *
+ * <p>The map never needs to be promoted to another kind of map, except for the shared {@link
+ * #EMPTY} map, which replaces itself with a new map on the first change.
+ */
+@SuppressWarnings("AndroidJdkLibsChecker")
+// https://developer.android.com/reference/java/lang/invoke/VarHandle added in API level 33
+class ConcurrentSlotMap implements SlotMap {
+
+    /** The map of objects that have no slots yet. */
+    static final SlotMap EMPTY = new Empty();
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Slot[].class);
+
+    private static final int MIN_CAPACITY = 8;
+
+    private static final class Table {
+        // Open-addressed with linear probing, so that a probe never follows a "next" link that
+        // a writer may be changing
+        final Slot[] buckets;
+        // The slots in the order they were added, of which the first "count" are used
+        final Slot[] ordered;
+        volatile int count;
+
+        Table(int capacity) {
+            buckets = new Slot[capacity];
+            ordered = new Slot[capacity / 2];
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Table table;
+
+    ConcurrentSlotMap() {
+        this(0);
+    }
+
+    ConcurrentSlotMap(int size) {
+        table = new Table(capacityFor(size));
+    }
+
+    /** Return the number of buckets that holds "size" slots while at most half full. */
+    private static int capacityFor(int size) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < size * 2) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    private static int bucket(int indexOrHash, int mask) {
+        // Spread the high bits of string hashes to the low bits that the mask keeps
+        return (indexOrHash ^ (indexOrHash >>> 16)) & mask;
+    }
+
+    private static Slot find(Table t, Object key, int indexOrHash) {
+        Slot[] buckets = t.buckets;
+        int mask = buckets.length - 1;
+        for (int i = bucket(indexOrHash, mask); ; i = (i + 1) & mask) {
+            Slot slot = (Slot) SLOTS.getAcquire(buckets, i);
+            if (slot == null) {
+                return null;
+            }
+            if (indexOrHash == slot.indexOrHash && Objects.equals(slot.name, key)) {
+                return slot;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return table.count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return table.count == 0;
+    }
+
+    @Override
+    public Slot query(Object key, int index) {
+        return find(table, key, key != null ? key.hashCode() : index);
+    }
+
+    @Override
+    public Iterator<Slot> iterator() {
+        Table t = table;
+        return new Iter(t, t.count);
+    }
+
+    @Override
+    public Slot modify(SlotMapOwner owner, Object key, int index, int attributes) {
+        final int indexOrHash = (key != null ? key.hashCode() : index);
+        lock.lock();
+        try {
+            Slot slot = find(table, key, indexOrHash);
+            if (slot == null) {
+                slot = new Slot(key, index, attributes);
+                append(slot);
+            }
+            return slot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void add(SlotMapOwner owner, Slot newSlot) {
+        lock.lock();
+        try {
+            put(newSlot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public <S extends Slot> S compute(
+            SlotMapOwner owner,
+            CompoundOperationMap compoundOp,
+            Object key,
+            int index,
+            SlotComputer<S> c) {
+        final int indexOrHash = (key != null ? key.hashCode() : index);
+        lock.lock();
+        try {
+            Slot existing = find(table, key, indexOrHash);
+            S newSlot = c.compute(key, index, existing, compoundOp, owner);
+            // The computer may have changed the map, so look for the slot again
+            Slot current = find(table, key, indexOrHash);
+            if (newSlot == null) {
+                if (current != null) {
+                    replace(current, null);
+                }
+            } else if (current == null) {
+                append(newSlot);
+            } else if (current != newSlot) {
+                replace(current, newSlot);
+            }
+            return newSlot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CompoundOperationMap startCompoundOp(SlotMapOwner owner, boolean forWriting) {
+        return new Operation(owner, forWriting);
+    }
+
+    /** Add a slot, or replace the slot that has the same key. Called with the lock held. */
+    private void put(Slot newSlot) {
+        Slot current = find(table, newSlot.name, newSlot.indexOrHash);
+        if (current == null) {
+            append(newSlot);
+        } else if (current != newSlot) {
+            replace(current, newSlot);
+        }
+    }
+
+    /** Add a slot that is not in the map. Called with the lock held. */
+    private void append(Slot newSlot) {
+        Table t = table;
+        int count = t.count;
+        if (count == t.ordered.length) {
+            Table grown = copy(t, t.buckets.length * 2, null, null);
+            insert(grown, newSlot, count);
+            table = grown;
+        } else {
+            insert(t, newSlot, count);
+        }
+    }
+
+    /**
+     * Add a slot to a table with room for it. The slot is stored before the count is increased, so
+     * readers that see the new count also see the slot.
+     */
+    private static void insert(Table t, Slot newSlot, int count) {
+        Slot[] buckets = t.buckets;
+        int mask = buckets.length - 1;
+        int i = bucket(newSlot.indexOrHash, mask);
+        while (buckets[i] != null) {
+            i = (i + 1) & mask;
+        }
+        SLOTS.setRelease(buckets, i, newSlot);
+        t.ordered[count] = newSlot;
+        t.count = count + 1;
+    }
+
+    /**
+     * Replace a slot with another, or remove it if the other is null, by building a new table.
+     * Called with the lock held.
+     */
+    private void replace(Slot oldSlot, Slot newSlot) {
+        Table t = table;
+        table = copy(t, t.buckets.length, oldSlot, newSlot);
+    }
+
+    private static Table copy(Table t, int capacity, Slot oldSlot, Slot newSlot) {
+        Table result = new Table(capacity);
+        int count = 0;
+        for (int i = 0, n = t.count; i < n; i++) {
+            Slot slot = t.ordered[i];
+            if (slot == oldSlot) {
+                if (newSlot == null) {
+                    continue;
+                }
+                slot = newSlot;
+            }
+            insert(result, slot, count++);
+        }
+        return result;
+    }
+
+    private static final class Iter implements Iterator<Slot> {
+        private final Slot[] ordered;
+        private final int count;
+        private int next;
+
+        Iter(Table t, int count) {
+            this.ordered = t.ordered;
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < count;
+        }
+
+        @Override
+        public Slot next() {
+            if (next >= count) {
+                throw new NoSuchElementException();
+            }
+            return ordered[next++];
+        }
+    }
+
+    /**
+     * A compound operation. Operations for writing hold the lock of the map until they are closed.
+     * Operations for reading take no lock, and see the slots that the map had when they started,
+     * and perhaps some that were added since.
+     */
+    private final class Operation extends CompoundOperationMap {
+        private final Table snapshot;
+        private final int count;
+        private boolean locked;
+
+        Operation(SlotMapOwner owner, boolean forWriting) {
+            super(owner);
+            if (forWriting) {
+                lock.lock();
+                locked = true;
+            }
+            snapshot = table;
+            count = snapshot.count;
+        }
+
+        @Override
+        public Slot query(Object key, int index) {
+            if (locked) {
+                return super.query(key, index);
+            }
+            return find(snapshot, key, key != null ? key.hashCode() : index);
+        }
+
+        @Override
+        public int size() {
+            return locked ? super.size() : count;
+        }
+
+        @Override
+        public int dirtySize() {
+            return size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        @Override
+        public Iterator<Slot> iterator() {
+            return locked ? super.iterator() : new Iter(snapshot, count);
+        }
+
+        @Override
+        public void close() {
+            if (locked) {
+                locked = false;
+                lock.unlock();
+            }
+        }
+    }
+
+    /** The map of an object with no slots, which replaces itself with a new map when changed. */
+    private static final class Empty implements SlotMap {
+
+        private SlotMap replace(SlotMapOwner owner) {
+            var map = new ConcurrentSlotMap();
+            var currentMap = SlotMapOwner.ThreadedAccess.checkAndReplaceMap(owner, this, map);
+            return currentMap == this ? map : currentMap;
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return true;
+        }
+
+        @Override
+        public Slot query(Object key, int index) {
+            return null;
+        }
+
+        @Override
+        public Iterator<Slot> iterator() {
+            return Collections.emptyIterator();
+        }
+
+        @Override
+        public Slot modify(SlotMapOwner owner, Object key, int index, int attributes) {
+            return replace(owner).modify(owner, key, index, attributes);
+        }
+
+        @Override
+        public void add(SlotMapOwner owner, Slot newSlot) {
+            if (newSlot != null) {
+                replace(owner).add(owner, newSlot);
+            }
+        }
+
+        @Override
+        public <S extends Slot> S compute(
+                SlotMapOwner owner,
+                CompoundOperationMap compoundOp,
+                Object key,
+                int index,
+                SlotComputer<S> c) {
+            return replace(owner).compute(owner, compoundOp, key, index, c);
+        }
+
+        @Override
+        public CompoundOperationMap startCompoundOp(SlotMapOwner owner, boolean forWriting) {
+            if (!forWriting) {
+                return new CompoundOperationMap(owner);
+            }
+            return replace(owner).startCompoundOp(owner, forWriting);
+        }
+    }
+}
@@ -16,7 +16,8 @@ import java.util.ArrayDeque;
  * <p>This string representation is optimized for concatenation using the "+" operator. Instead of
  * immediately copying both components to a new character array, ConsString keeps references to the
  * original components and only converts them to a String if either toString() is called or a
- * certain depth level is reached.
+ * certain depth level is reached. Searching, indexing and slicing work on the parts directly
+ * while the tree is shallow, so that those operations do not copy the whole string.
  *
  * <p>Note that instances of this class are only immutable if both parts are immutable, i.e. either
  * Strings or ConsStrings that are ultimately composed of Strings.
@@ -27,21 +28,40 @@ public class ConsString implements CharSequence, Serializable {
 
     private static final long serialVersionUID = -8432806714471372570L;
 
-    private CharSequence left, right;
+    /**
+     * Ropes that are deeper than this are flattened by the operations below instead of being
+     * walked, since each step of a walk visits one level of the tree.
+     */
+    private static final int MAX_WALK_DEPTH = 32;
+
+    // Once the string is flattened, "flat" is set before the components are cleared, so code that
+    // reads "left" and "right" and then finds "flat" still null has read valid components.
+    private volatile CharSequence left, right;
+    private volatile String flat;
     private final int length;
-    private boolean isFlat;
+    private final int depth;
 
     public ConsString(CharSequence str1, CharSequence str2) {
-        if (!(str1 instanceof String) && !(str1 instanceof ConsString)) {
-            str1 = str1.toString();
-        }
-        if (!(str2 instanceof String) && !(str2 instanceof ConsString)) {
-            str2 = str2.toString();
-        }
+        AllocationProfiler.allocated(AllocationProfiler.Kind.STRING);
+        str1 = component(str1);
+        str2 = component(str2);
         left = str1;
         right = str2;
-        length = left.length() + right.length();
-        isFlat = false;
+        length = str1.length() + str2.length();
+        depth = Math.max(depthOf(str1), depthOf(str2)) + 1;
+    }
+
+    private static CharSequence component(CharSequence str) {
+        if (str instanceof ConsString) {
+            // Keep the tree shallow when a part was already flattened
+            String f = ((ConsString) str).flat;
+            return f == null ? str : f;
+        }
+        return str instanceof String ? str : str.toString();
+    }
+
+    private static int depthOf(CharSequence str) {
+        return str instanceof ConsString ? ((ConsString) str).depth : 0;
     }
 
     // Replace with string representation when serializing
@@ -51,41 +71,54 @@ public class ConsString implements CharSequence, Serializable {
 
     @Override
     public String toString() {
-        return isFlat ? (String) left : flatten();
+        String f = flat;
+        return f != null ? f : flatten();
     }
 
-    private synchronized String flatten() {
-        if (!isFlat) {
-            final char[] chars = new char[length];
-            int charPos = length;
-
-            ArrayDeque<CharSequence> stack = new ArrayDeque<>();
-            stack.addFirst(left);
-
-            CharSequence next = right;
-            do {
-                if (next instanceof ConsString) {
-                    ConsString casted = (ConsString) next;
-                    if (casted.isFlat) {
-                        next = casted.left;
-                    } else {
-                        stack.addFirst(casted.left);
-                        next = casted.right;
-                        continue;
-                    }
+    /**
+     * Copy all the parts into a new String. This does not lock: threads that flatten the same
+     * string at the same time produce equal results, and any of them may be kept.
+     */
+    private String flatten() {
+        final char[] chars = new char[length];
+        int charPos = length;
+
+        ArrayDeque<CharSequence> stack = new ArrayDeque<>();
+        CharSequence next = this;
+        do {
+            if (next instanceof ConsString) {
+                ConsString casted = (ConsString) next;
+                CharSequence l = casted.left;
+                CharSequence r = casted.right;
+                String f = casted.flat;
+                if (f == null) {
+                    stack.addFirst(l);
+                    next = r;
+                    continue;
                 }
+                next = f;
+            }
 
-                final String str = (String) next;
-                charPos -= str.length();
-                str.getChars(0, str.length(), chars, charPos);
-                next = stack.isEmpty() ? null : stack.removeFirst();
-            } while (next != null);
+            final String str = (String) next;
+            charPos -= str.length();
+            str.getChars(0, str.length(), chars, charPos);
+            next = stack.pollFirst();
+        } while (next != null);
 
-            left = new String(chars);
-            right = "";
-            isFlat = true;
+        String result = new String(chars);
+        flat = result;
+        left = null;
+        right = null;
+        return result;
+    }
+
+    /** Return the flat string, or null if the rope should be walked instead. */
+    private String flatForWalk() {
+        String f = flat;
+        if (f == null && depth > MAX_WALK_DEPTH) {
+            f = flatten();
         }
-        return (String) left;
+        return f;
     }
 
     @Override
@@ -95,13 +128,174 @@ public class ConsString implements CharSequence, Serializable {
 
     @Override
     public char charAt(int index) {
-        String str = isFlat ? (String) left : flatten();
-        return str.charAt(index);
+        if (index < 0 || index >= length) {
+            throw new StringIndexOutOfBoundsException(index);
+        }
+        String f = flatForWalk();
+        if (f != null) {
+            return f.charAt(index);
+        }
+        CharSequence node = this;
+        while (node instanceof ConsString) {
+            ConsString casted = (ConsString) node;
+            CharSequence l = casted.left;
+            CharSequence r = casted.right;
+            f = casted.flat;
+            if (f != null) {
+                return f.charAt(index);
+            }
+            int leftLength = l.length();
+            if (index < leftLength) {
+                node = l;
+            } else {
+                node = r;
+                index -= leftLength;
+            }
+        }
+        return node.charAt(index);
     }
 
     @Override
     public CharSequence subSequence(int start, int end) {
-        String str = isFlat ? (String) left : flatten();
-        return str.substring(start, end);
+        if (start < 0 || end > length || start > end) {
+            throw new StringIndexOutOfBoundsException(
+                    "begin " + start + ", end " + end + ", length " + length);
+        }
+        String f = flatForWalk();
+        if (f != null) {
+            return f.substring(start, end);
+        }
+        char[] chars = new char[end - start];
+        getChars(this, start, end, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Return the index of the first occurrence of "str" at or after "fromIndex", with the same
+     * result as {@link String#indexOf(String, int)} on the flattened string.
+     */
+    int indexOf(String str, int fromIndex) {
+        String f = flatForWalk();
+        if (f != null) {
+            return f.indexOf(str, fromIndex);
+        }
+        if (fromIndex < 0) {
+            fromIndex = 0;
+        }
+        if (str.isEmpty()) {
+            return Math.min(fromIndex, length);
+        }
+        return indexOf(this, str, fromIndex);
+    }
+
+    /**
+     * Return true if "str" occurs at "offset", with the same result as {@link
+     * String#startsWith(String, int)} on the flattened string.
+     */
+    boolean startsWith(String str, int offset) {
+        String f = flatForWalk();
+        if (f != null) {
+            return f.startsWith(str, offset);
+        }
+        if (offset < 0 || offset > length - str.length()) {
+            return false;
+        }
+        return regionMatches(this, offset, str, 0, str.length());
+    }
+
+    private static void getChars(CharSequence cs, int begin, int end, char[] dst, int dstBegin) {
+        while (cs instanceof ConsString) {
+            ConsString casted = (ConsString) cs;
+            CharSequence l = casted.left;
+            CharSequence r = casted.right;
+            String f = casted.flat;
+            if (f != null) {
+                cs = f;
+                break;
+            }
+            int leftLength = l.length();
+            if (end <= leftLength) {
+                cs = l;
+            } else {
+                if (begin < leftLength) {
+                    getChars(l, begin, leftLength, dst, dstBegin);
+                    dstBegin += leftLength - begin;
+                    begin = leftLength;
+                }
+                cs = r;
+                begin -= leftLength;
+                end -= leftLength;
+            }
+        }
+        ((String) cs).getChars(begin, end, dst, dstBegin);
+    }
+
+    private static boolean regionMatches(
+            CharSequence cs, int offset, String other, int otherOffset, int len) {
+        while (cs instanceof ConsString) {
+            ConsString casted = (ConsString) cs;
+            CharSequence l = casted.left;
+            CharSequence r = casted.right;
+            String f = casted.flat;
+            if (f != null) {
+                cs = f;
+                break;
+            }
+            int leftLength = l.length();
+            if (offset + len <= leftLength) {
+                cs = l;
+            } else {
+                if (offset < leftLength) {
+                    int n = leftLength - offset;
+                    if (!regionMatches(l, offset, other, otherOffset, n)) {
+                        return false;
+                    }
+                    otherOffset += n;
+                    len -= n;
+                    offset = leftLength;
+                }
+                cs = r;
+                offset -= leftLength;
+            }
+        }
+        return ((String) cs).regionMatches(offset, other, otherOffset, len);
+    }
+
+    private static int indexOf(CharSequence cs, String str, int fromIndex) {
+        ConsString casted = (ConsString) cs;
+        CharSequence l = casted.left;
+        CharSequence r = casted.right;
+        String f = casted.flat;
+        if (f != null) {
+            return f.indexOf(str, fromIndex);
+        }
+        int leftLength = l.length();
+        int strLength = str.length();
+        if (fromIndex < leftLength) {
+            int found =
+                    l instanceof ConsString
+                            ? indexOf(l, str, fromIndex)
+                            : ((String) l).indexOf(str, fromIndex);
+            if (found >= 0) {
+                return found;
+            }
+            // Look for a match that spans both parts, using only the chars around the split
+            int start = Math.max(fromIndex, leftLength - strLength + 1);
+            int end = Math.min(leftLength + strLength - 1, casted.length);
+            if (end - start >= strLength) {
+                char[] window = new char[end - start];
+                getChars(casted, start, end, window, 0);
+                found = new String(window).indexOf(str);
+                if (found >= 0 && start + found < leftLength) {
+                    return start + found;
+                }
+            }
+        }
+        int rightFrom = Math.max(fromIndex - leftLength, 0);
+        int found =
+                r instanceof ConsString
+                        ? indexOf(r, str, rightFrom)
+                        : ((String) r).indexOf(str, rightFrom);
+        return found >= 0 ? leftLength + found : -1;
     }
 }
@@ -31,6 +31,7 @@ import java.util.function.UnaryOperator;
 import org.mozilla.classfile.ClassFileWriter.ClassFileFormatException;
 import org.mozilla.javascript.ast.AstRoot;
 import org.mozilla.javascript.ast.ScriptNode;
+import org.mozilla.javascript.config.RhinoConfig;
 import org.mozilla.javascript.debug.DebuggableScript;
 import org.mozilla.javascript.debug.Debugger;
 import org.mozilla.javascript.lc.type.TypeInfo;
@@ -384,6 +385,14 @@ public class Context implements Closeable {
      */
     public static final int FEATURE_INTL_402 = 22;
 
+    /**
+     * If set together with {@link #FEATURE_THREAD_SAFE_OBJECTS}, then the property maps of objects
+     * are read without taking a lock, and only the threads that change an object lock it. This
+     * suits objects that many threads read at once, such as shared configuration. The default is
+     * false.
+     */
+    public static final int FEATURE_LOCK_FREE_READS = 23;
+
     public static final String languageVersionProperty = "language version";
     public static final String errorReporterProperty = "error reporter";
 
@@ -447,6 +456,7 @@ public class Context implements Closeable {
         version = VERSION_ES6;
         interpretedMode = codegenClass == null;
         maximumInterpreterStackDepth = Integer.MAX_VALUE;
+        tierUpThreshold = DEFAULT_TIER_UP_THRESHOLD;
     }
 
     /**
@@ -517,6 +527,7 @@ public class Context implements Closeable {
                 }
             }
             currentContext.set(cx);
+            cx.factory.onContextEntered(cx);
         }
         ++cx.enterCount;
         return cx;
@@ -1641,11 +1652,28 @@ public class Context implements Closeable {
      * @return the new object
      */
     public Scriptable newObject(Scriptable scope) {
+        AllocationProfiler.allocated(AllocationProfiler.Kind.OBJECT);
         NativeObject result = new NativeObject();
         ScriptRuntime.setBuiltinProtoAndParent(result, scope, TopLevel.Builtins.Object);
         return result;
     }
 
+    /**
+     * Create a new JavaScript object with room for the specified number of properties, which
+     * avoids growing the storage of the object while they are added. This is otherwise the same as
+     * {@link #newObject(Scriptable)}.
+     *
+     * @param scope the scope to search for the constructor and to evaluate against
+     * @param capacity the number of properties that the object is expected to have
+     * @return the new object
+     */
+    public Scriptable newObject(Scriptable scope, int capacity) {
+        AllocationProfiler.allocated(AllocationProfiler.Kind.OBJECT);
+        NativeObject result = new NativeObject(capacity);
+        ScriptRuntime.setBuiltinProtoAndParent(result, scope, TopLevel.Builtins.Object);
+        return result;
+    }
+
     /**
      * Create a new JavaScript object by executing the named constructor.
      *
@@ -2067,6 +2095,39 @@ public class Context implements Closeable {
         this.interpretedMode = interpretedMode;
     }
 
+    /**
+     * Return the number of calls and loop iterations after which a function that runs in the
+     * interpreter is compiled to JVM bytecode, or a negative number if tiered compilation is
+     * disabled.
+     *
+     * @see #setTierUpThreshold(int)
+     */
+    public final int getTierUpThreshold() {
+        return tierUpThreshold;
+    }
+
+    /**
+     * Set up tiered compilation. When the threshold is zero or more and the context is not in
+     * interpreted mode, scripts are first compiled for the interpreter, so that code which runs
+     * rarely does not pay for generating bytecode. Once the calls to a function and the iterations
+     * of its loops add up to more than the threshold, the script is compiled to bytecode and the
+     * function runs the compiled code from its next call on.
+     *
+     * <p>Scripts that are put in a {@link ScriptCache} that {@link
+     * ScriptCache#needsCompiledCode() needs compiled code}, such as {@link
+     * org.mozilla.javascript.optimizer.PersistentScriptCache}, are compiled to bytecode at once, so
+     * that the cache can store them.
+     *
+     * <p>Generators, and scripts compiled while a debugger is attached, stay interpreted. A
+     * continuation cannot be captured through a function once it runs compiled code. A negative
+     * threshold, which is the default unless the "rhino.tierUpThreshold" configuration property is
+     * set, disables tiered compilation.
+     */
+    public final void setTierUpThreshold(int threshold) {
+        if (sealed) onSealedMutation();
+        tierUpThreshold = threshold;
+    }
+
     /**
      * @deprecated As of 1.8.0, no longer has any use.
      */
@@ -2579,6 +2640,24 @@ public class Context implements Closeable {
             compilerEnvironProcessor.accept(compilerEnv);
         }
 
+        ScriptCache cache = factory.getScriptCache();
+        ScriptCache.Key cacheKey = null;
+        if (cache != null
+                && compiler == null
+                && compilerEnvironProcessor == null
+                && debugger == null
+                && compilerEnv.getActivationNames() == null) {
+            cacheKey =
+                    new ScriptCache.Key(
+                            sourceString, sourceName, lineno, returnFunction, compilerEnv);
+            ScriptCache.Entry entry = cache.get(cacheKey);
+            // The key includes returnFunction, but a ScriptCache is pluggable, so an entry of the
+            // other kind is compiled again rather than trusted
+            if (entry != null && entry.isFunction() == returnFunction) {
+                return returnFunction ? entry.newFunction(this, scope) : entry.newScript();
+            }
+        }
+
         ScriptNode tree =
                 parse(
                         sourceString,
@@ -2588,10 +2667,21 @@ public class Context implements Closeable {
                         compilationErrorReporter,
                         returnFunction);
 
+        // Compile for the interpreter first, and to bytecode once the code gets hot. Scripts that
+        // go to a cache which stores the compiler output, such as a persistent one, are compiled
+        // to bytecode at once, because loading them from the cache already skips the compiler
+        boolean tiered =
+                compiler == null
+                        && debugger == null
+                        && compilerEnv.getTierUpThreshold() >= 0
+                        && !interpretedMode
+                        && codegenClass != null
+                        && !(cacheKey != null && cache.needsCompiledCode());
+
         Object bytecode;
         try {
             if (compiler == null) {
-                compiler = createCompiler();
+                compiler = tiered ? createInterpreter() : createCompiler();
             }
 
             bytecode = compiler.compile(compilerEnv, tree, sourceString, returnFunction);
@@ -2630,10 +2720,29 @@ public class Context implements Closeable {
             result = compiler.createScriptObject(bytecode, securityDomain);
         }
 
+        if (tiered) {
+            TieredCompiler tieredCompiler =
+                    new TieredCompiler(
+                            compilerEnv,
+                            sourceString,
+                            sourceName,
+                            lineno,
+                            returnFunction,
+                            securityDomain);
+            tieredCompiler.install(((ScriptOrFn<?>) result).getDescriptor());
+        }
+
+        if (cacheKey != null) {
+            ScriptCache.Entry entry =
+                    ScriptCache.Entry.of(result, cache.needsCompiledCode() ? bytecode : null);
+            if (entry != null) {
+                cache.put(cacheKey, entry);
+            }
+        }
         return result;
     }
 
-    private ScriptNode parse(
+    ScriptNode parse(
             String sourceString,
             String sourceName,
             int lineno,
@@ -2683,6 +2792,8 @@ public class Context implements Closeable {
                     : Kit.classOrNull("org.mozilla.javascript.optimizer.Codegen");
     private static Class<?> interpreterClass =
             Kit.classOrNull("org.mozilla.javascript.Interpreter");
+    private static final int DEFAULT_TIER_UP_THRESHOLD =
+            RhinoConfig.get("rhino.tierUpThreshold", -1);
 
     private Evaluator createCompiler() {
         Evaluator result = null;
@@ -2699,9 +2810,18 @@ public class Context implements Closeable {
         return (Evaluator) Kit.newInstanceOrNull(interpreterClass);
     }
 
+    /** Return the bytecode compiler, or null if it is not available on this platform. */
+    static Evaluator createCodegen() {
+        return codegenClass == null ? null : (Evaluator) Kit.newInstanceOrNull(codegenClass);
+    }
+
     static String getSourcePositionFromStack(int[] linep) {
         Context cx = getCurrentContext();
         if (cx == null) return null;
+        return getSourcePositionFromStack(cx, linep);
+    }
+
+    static String getSourcePositionFromStack(Context cx, int[] linep) {
         if (cx.lastInterpreterFrame != null) {
             Evaluator evaluator = createInterpreter();
             if (evaluator != null) return evaluator.getSourcePositionFromStack(cx, linep);
@@ -2803,6 +2923,9 @@ public class Context implements Closeable {
     private Object sealKey;
 
     Scriptable topCallScope;
+    // The scope of the SharedObjectView that is being used, whose copy of the slots of shared
+    // standard objects is used instead of that of the top call scope
+    TopLevel viewScope;
     boolean isContinuationsTopCall;
     NativeCall currentActivationCall;
     XMLLib cachedXMLLib;
@@ -2830,6 +2953,7 @@ public class Context implements Closeable {
     boolean useDynamicScope;
     private boolean interpretedMode;
     private int maximumInterpreterStackDepth;
+    private int tierUpThreshold;
     private WrapFactory wrapFactory;
     Debugger debugger;
     private Object debuggerData;
@@ -2848,6 +2972,11 @@ public class Context implements Closeable {
     // etc. Previous frames can all be derived from this.
     Object lastInterpreterFrame;
 
+    // The profiler that records the allocations of scripts run in this context, if any,
+    // and the number of allocations left until it takes the next sample
+    AllocationProfiler allocationProfiler;
+    int allocationCountdown;
+
     // For instruction counting (interpreter only)
     int instructionCount;
     int instructionThreshold;
@@ -118,12 +118,21 @@ public class ContextFactory {
     private volatile Object listeners;
     private boolean disabledListening;
     private ClassLoader applicationClassLoader;
+    private volatile ScriptCache scriptCache;
+    private volatile BackgroundCompiler backgroundCompiler;
 
     /** Listener of {@link Context} creation and release events. */
     public interface Listener {
         /** Notify about newly created {@link Context} object. */
         public void contextCreated(Context cx);
 
+        /**
+         * Notify that the specified {@link Context} instance is now associated with the current
+         * thread, either after it was created or when an existing context is entered again. It is
+         * followed by {@link #contextReleased} on the same thread.
+         */
+        public default void contextEntered(Context cx) {}
+
         /**
          * Notify that the specified {@link Context} instance is no longer associated with the
          * current thread.
@@ -294,6 +303,9 @@ public class ContextFactory {
 
             case Context.FEATURE_INTL_402:
                 return false;
+
+            case Context.FEATURE_LOCK_FREE_READS:
+                return false;
         }
         // It is a bug to call the method with unknown featureIndex
         throw new IllegalArgumentException(String.valueOf(featureIndex));
@@ -341,6 +353,48 @@ public class ContextFactory {
         this.applicationClassLoader = loader;
     }
 
+    /**
+     * Return the cache of compiled scripts used by Contexts created by this factory, or null if
+     * compiled scripts are not cached.
+     *
+     * @see #setScriptCache(ScriptCache)
+     */
+    public final ScriptCache getScriptCache() {
+        return scriptCache;
+    }
+
+    /**
+     * Set the cache of compiled scripts. When a cache is set, compiling the same source with the
+     * same settings more than once returns new Script or Function objects that share the code
+     * produced by the first compilation. Pass null to stop caching.
+     *
+     * @see LruScriptCache
+     */
+    public final void setScriptCache(ScriptCache cache) {
+        checkNotSealed();
+        this.scriptCache = cache;
+    }
+
+    /**
+     * Return the compiler that compiles hot functions off the threads that run scripts, or null if
+     * they are compiled on the thread that runs them.
+     *
+     * @see #setBackgroundCompiler(BackgroundCompiler)
+     */
+    public final BackgroundCompiler getBackgroundCompiler() {
+        return backgroundCompiler;
+    }
+
+    /**
+     * Set the compiler that compiles hot functions to bytecode when tiered compilation is enabled
+     * with {@link Context#setTierUpThreshold(int)}. Functions keep running in the interpreter while
+     * they are being compiled. Pass null to compile them on the thread that runs them.
+     */
+    public final void setBackgroundCompiler(BackgroundCompiler compiler) {
+        checkNotSealed();
+        this.backgroundCompiler = compiler;
+    }
+
     /**
      * Execute top call to script or function. When the runtime is about to execute a script or
      * function that will create the first stack frame with scriptable code, it calls this method to
@@ -377,6 +431,15 @@ public class ContextFactory {
         }
     }
 
+    protected void onContextEntered(Context cx) {
+        Object listeners = this.listeners;
+        for (int i = 0; ; ++i) {
+            Listener l = (Listener) Kit.getListener(listeners, i);
+            if (l == null) break;
+            l.contextEntered(cx);
+        }
+    }
+
     protected void onContextReleased(Context cx) {
         Object listeners = this.listeners;
         for (int i = 0; ; ++i) {
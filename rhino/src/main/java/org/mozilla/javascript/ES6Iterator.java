@@ -121,6 +121,30 @@ public abstract class ES6Iterator extends IdScriptableObject {
         return makeIteratorResult(cx, scope, Boolean.valueOf(done), value);
     }
 
+    /**
+     * Return the next value like {@link #next}, or NOT_FOUND if the iterator is done, without
+     * creating an iterator result. This is used by "for...of" loops over iterators whose "next"
+     * method is the built-in one.
+     *
+     * @see #isBuiltInNext
+     */
+    final Object nextOrNotFound(Context cx, Scriptable scope) {
+        if (isDone(cx, scope) || this.exhausted) {
+            this.exhausted = true;
+            return Scriptable.NOT_FOUND;
+        }
+        return nextValue(cx, scope);
+    }
+
+    /** Return whether "next" is the built-in "next" method of this iterator. */
+    final boolean isBuiltInNext(Object next) {
+        if (!(next instanceof IdFunctionObject)) {
+            return false;
+        }
+        IdFunctionObject f = (IdFunctionObject) next;
+        return f.hasTag(getTag()) && f.methodId() == Id_next;
+    }
+
     protected String getTag() {
         return tag;
     }
@@ -13,6 +13,7 @@ package org.mozilla.javascript;
  * to have a measurable performance benefit.
  */
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -28,6 +29,14 @@ public class EmbeddedSlotMap implements SlotMap {
     private int count;
     private boolean hasIndex = false;
 
+    // The hidden class of this map, and the slots that it describes in the order that they
+    // were added. Both are null once the map no longer matches a shape.
+    private Shape shape = Shape.EMPTY;
+    private Slot[] shapedSlots;
+
+    // Changes when slots are removed or replaced, see SlotMap.getVersion
+    private int version;
+
     // initial slot array size, must be a power of 2
     private static final int INITIAL_SLOT_SIZE = 4;
 
@@ -77,6 +86,53 @@ public class EmbeddedSlotMap implements SlotMap {
         return new Iter(firstAdded);
     }
 
+    @Override
+    public Shape getShape() {
+        return shape;
+    }
+
+    @Override
+    public Slot getSlotAt(int offset) {
+        Shape current = shape;
+        if (current == null) {
+            return SlotMap.super.getSlotAt(offset);
+        }
+        return offset < current.getPropertyCount() ? shapedSlots[offset] : null;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Stop keeping track of the shape of this map. This happens when slots are removed or replaced,
+     * because after that the offsets that inline caches rely on are no longer valid.
+     */
+    void dropShape() {
+        shape = null;
+        shapedSlots = null;
+    }
+
+    private void addToShape(Slot newSlot) {
+        Shape newShape = null;
+        if (newSlot.name != null && newSlot.getClass() == Slot.class) {
+            newShape = shape.addProperty(newSlot.name);
+        }
+        if (newShape == null) {
+            dropShape();
+            return;
+        }
+        int offset = newShape.getPropertyCount() - 1;
+        if (shapedSlots == null) {
+            shapedSlots = new Slot[INITIAL_SLOT_SIZE];
+        } else if (offset == shapedSlots.length) {
+            shapedSlots = Arrays.copyOf(shapedSlots, offset * 2);
+        }
+        shapedSlots[offset] = newSlot;
+        shape = newShape;
+    }
+
     /** Locate the slot with the given name or index. */
     @Override
     public Slot query(Object key, int index) {
@@ -207,6 +263,8 @@ public class EmbeddedSlotMap implements SlotMap {
                 // Need to delete this slot actually
                 removeSlot(slot, prev, slotIndex, key);
             } else if (!Objects.equals(slot, newSlot)) {
+                dropShape();
+                version = (version + 1) & Integer.MAX_VALUE;
                 // Replace slot in hash table
                 if (prev == slot) {
                     slots[slotIndex] = newSlot;
@@ -257,11 +315,16 @@ public class EmbeddedSlotMap implements SlotMap {
         }
         lastAdded = newSlot;
         if (newSlot.name == null) hasIndex = true;
+        if (shape != null) {
+            addToShape(newSlot);
+        }
         addKnownAbsentSlot(slots, newSlot);
     }
 
     private void removeSlot(Slot slot, Slot prev, int ix, Object key) {
         count--;
+        dropShape();
+        version = (version + 1) & Integer.MAX_VALUE;
         // remove slot from hash table
         if (prev == slot) {
             slots[ix] = slot.next;
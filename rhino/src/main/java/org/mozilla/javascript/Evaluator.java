@@ -50,6 +50,19 @@ public interface Evaluator {
      */
     public Script createScriptObject(Object bytecode, Object staticSecurityDomain);
 
+    /**
+     * Make the output of compile executable without creating a script or function object. This
+     * does not need a scope, so it may be done on a thread other than the one that runs the code.
+     *
+     * @param bytecode opaque object returned by compile
+     * @param staticSecurityDomain security domain
+     * @return the descriptor of the compiled script or function, or null if this evaluator cannot
+     *     create one, which is the default
+     */
+    public default JSDescriptor<?> createDescriptor(Object bytecode, Object staticSecurityDomain) {
+        return null;
+    }
+
     /**
      * Capture stack information from the given exception.
      *
@@ -19,6 +19,9 @@ public class HashSlotMap implements SlotMap {
 
     private final LinkedHashMap<Object, Slot> map;
 
+    // Changes when slots are removed or replaced, see SlotMap.getVersion
+    private int version;
+
     public HashSlotMap() {
         map = new LinkedHashMap<>();
     }
@@ -75,14 +78,33 @@ public class HashSlotMap implements SlotMap {
         Object name = makeKey(key, index);
         Slot ret =
                 map.compute(
-                        name, (n, existing) -> c.compute(key, index, existing, compoundOp, owner));
+                        name,
+                        (n, existing) -> {
+                            S newSlot = c.compute(key, index, existing, compoundOp, owner);
+                            if (existing != null && newSlot != existing) {
+                                bumpVersion();
+                            }
+                            return newSlot;
+                        });
         return (S) ret;
     }
 
     @Override
     public void add(SlotMapOwner owner, Slot newSlot) {
         Object name = makeKey(newSlot);
-        map.put(name, newSlot);
+        Slot oldSlot = map.put(name, newSlot);
+        if (oldSlot != null && oldSlot != newSlot) {
+            bumpVersion();
+        }
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    private void bumpVersion() {
+        version = (version + 1) & Integer.MAX_VALUE;
     }
 
     @Override
@@ -165,8 +165,35 @@ abstract class Icode {
             // spread
             Icode_SPREAD = Icode_DELPROP_SUPER - 1,
 
+            // Superinstructions that CodeGenerator writes over the first opcode of a common
+            // sequence. They run the whole sequence, and leave the rest of its bytecode in
+            // place, so that the lengths of instructions and the targets of jumps don't change.
+
+            // SETVAR1, POP
+            Icode_SETVAR1_POP = Icode_SPREAD - 1,
+            // VAR_INC_DEC, POP
+            Icode_VAR_INC_DEC_POP = Icode_SETVAR1_POP - 1,
+            // GETVAR1, GETVAR1
+            Icode_GETVAR1_GETVAR1 = Icode_VAR_INC_DEC_POP - 1,
+            // GETVAR1, REG_STR_C0 to REG_STR_C3 or REG_STR1, GETPROP
+            Icode_GETVAR1_GETPROP = Icode_GETVAR1_GETVAR1 - 1,
+            // Comparison, IFEQ
+            Icode_LT_IFEQ = Icode_GETVAR1_GETPROP - 1,
+            Icode_LE_IFEQ = Icode_LT_IFEQ - 1,
+            Icode_GT_IFEQ = Icode_LE_IFEQ - 1,
+            Icode_GE_IFEQ = Icode_GT_IFEQ - 1,
+            // Comparison, IFNE
+            Icode_LT_IFNE = Icode_GE_IFEQ - 1,
+            Icode_LE_IFNE = Icode_LT_IFNE - 1,
+            Icode_GT_IFNE = Icode_LE_IFNE - 1,
+            Icode_GE_IFNE = Icode_GT_IFNE - 1,
+
+            // GETPROP of "length" that the interpreter has seen read from an array or a string,
+            // which it writes over the GETPROP opcode
+            Icode_GETPROP_LENGTH = Icode_GE_IFNE - 1,
+
             // Last icode
-            MIN_ICODE = Icode_SPREAD;
+            MIN_ICODE = Icode_GETPROP_LENGTH;
 
     static String bytecodeName(int bytecode) {
         if (!validBytecode(bytecode)) {
@@ -358,6 +385,32 @@ abstract class Icode {
                 return "DELPROP_SUPER";
             case Icode_SPREAD:
                 return "SPREAD";
+            case Icode_SETVAR1_POP:
+                return "SETVAR1_POP";
+            case Icode_VAR_INC_DEC_POP:
+                return "VAR_INC_DEC_POP";
+            case Icode_GETVAR1_GETVAR1:
+                return "GETVAR1_GETVAR1";
+            case Icode_GETVAR1_GETPROP:
+                return "GETVAR1_GETPROP";
+            case Icode_LT_IFEQ:
+                return "LT_IFEQ";
+            case Icode_LE_IFEQ:
+                return "LE_IFEQ";
+            case Icode_GT_IFEQ:
+                return "GT_IFEQ";
+            case Icode_GE_IFEQ:
+                return "GE_IFEQ";
+            case Icode_LT_IFNE:
+                return "LT_IFNE";
+            case Icode_LE_IFNE:
+                return "LE_IFNE";
+            case Icode_GT_IFNE:
+                return "GT_IFNE";
+            case Icode_GE_IFNE:
+                return "GE_IFNE";
+            case Icode_GETPROP_LENGTH:
+                return "GETPROP_LENGTH";
         }
 
         // icode without name
@@ -276,6 +276,27 @@ public abstract class IdScriptableObject extends ScriptableObject implements IdF
             }
         }
 
+        /** Add every property of the map to the slots of the object. */
+        final void addToSlots() {
+            for (int id = 1; id <= maxId; ++id) {
+                Object value = ensureId(id);
+                if (value == NOT_FOUND) {
+                    continue;
+                }
+                if (value == UniqueTag.NULL_VALUE) {
+                    value = null;
+                }
+                Object name = valueArray[(id - 1) * SLOT_SPAN + NAME_SLOT];
+                if (obj.getMap().query(name, 0) != null) {
+                    // Replaced by an accessor, which is found first
+                    continue;
+                }
+                Slot slot = new Slot(name, 0, attributeArray[id - 1]);
+                slot.value = value;
+                obj.getMap().add(obj, slot);
+            }
+        }
+
         private Object ensureId(int id) {
             Object[] array = valueArray;
             synchronized (this) {
@@ -750,6 +771,20 @@ public abstract class IdScriptableObject extends ScriptableObject implements IdF
         }
     }
 
+    /**
+     * Move the properties of the prototype map to ordinary slots, so that the slot map holds all
+     * the properties of the object except its instance ids. The objects of a {@link ScopeTemplate}
+     * are changed this way before they are shared, as the slot map of a shared object is what keeps
+     * the changes of each scope apart.
+     */
+    final void movePrototypeValuesToSlots() {
+        PrototypeValues values = prototypeValues;
+        if (values != null) {
+            values.addToSlots();
+            prototypeValues = null;
+        }
+    }
+
     public final IdFunctionObject initPrototypeMethod(Object tag, int id, String name, int arity) {
         return initPrototypeMethod(tag, id, name, name, arity);
     }
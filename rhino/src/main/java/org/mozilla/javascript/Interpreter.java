@@ -21,6 +21,7 @@ import org.mozilla.javascript.ast.FunctionNode;
 import org.mozilla.javascript.ast.ScriptNode;
 import org.mozilla.javascript.debug.DebugFrame;
 import org.mozilla.javascript.debug.DebuggableScript;
+import org.mozilla.javascript.typedarrays.NativeTypedArrayView;
 
 public final class Interpreter extends Icode implements Evaluator {
 
@@ -601,7 +602,12 @@ public final class Interpreter extends Icode implements Evaluator {
                 staticSecurityDomain);
     }
 
-    private static int getShort(byte[] iCode, int pc) {
+    @Override
+    public JSDescriptor<?> createDescriptor(Object bytecode, Object staticSecurityDomain) {
+        return ((CompilationResult<?>) bytecode).descriptor;
+    }
+
+    static int getShort(byte[] iCode, int pc) {
         return (iCode[pc] << 8) | (iCode[pc + 1] & 0xFF);
     }
 
@@ -703,6 +709,7 @@ public final class Interpreter extends Icode implements Evaluator {
                         break;
                     }
                 case Icode_VAR_INC_DEC:
+                case Icode_VAR_INC_DEC_POP:
                 case Icode_NAME_INC_DEC:
                 case Icode_PROP_INC_DEC:
                 case Icode_ELEM_INC_DEC:
@@ -747,6 +754,11 @@ public final class Interpreter extends Icode implements Evaluator {
                         }
                         break;
                     }
+                case Icode_LITERAL_NEW_ARRAY:
+                case Icode_SPREAD:
+                    out.println(tname + " " + (0xFF & iCode[pc]));
+                    ++pc;
+                    break;
                 case Icode_SPARE_ARRAYLIT:
                     out.println(tname + " " + idata.literalIds[indexReg]);
                     break;
@@ -894,6 +906,9 @@ public final class Interpreter extends Icode implements Evaluator {
                 case Icode_GETVAR1:
                 case Icode_SETVAR1:
                 case Icode_SETCONSTVAR1:
+                case Icode_SETVAR1_POP:
+                case Icode_GETVAR1_GETVAR1:
+                case Icode_GETVAR1_GETPROP:
                     indexReg = iCode[pc];
                     out.println(tname + " " + indexReg);
                     ++pc;
@@ -961,7 +976,11 @@ public final class Interpreter extends Icode implements Evaluator {
         out.flush();
     }
 
-    private static int bytecodeSpan(int bytecode) {
+    /**
+     * Return the length of the instruction. For a superinstruction, this is the length of the
+     * first instruction of the sequence that it runs, since the others are left in place.
+     */
+    static int bytecodeSpan(int bytecode) {
         switch (bytecode) {
             case Token.THROW:
             case Token.YIELD:
@@ -995,6 +1014,7 @@ public final class Interpreter extends Icode implements Evaluator {
                 return 1 + 1;
 
             case Icode_VAR_INC_DEC:
+            case Icode_VAR_INC_DEC_POP:
             case Icode_NAME_INC_DEC:
             case Icode_PROP_INC_DEC:
             case Icode_ELEM_INC_DEC:
@@ -1037,6 +1057,9 @@ public final class Interpreter extends Icode implements Evaluator {
             case Icode_GETVAR1:
             case Icode_SETVAR1:
             case Icode_SETCONSTVAR1:
+            case Icode_SETVAR1_POP:
+            case Icode_GETVAR1_GETVAR1:
+            case Icode_GETVAR1_GETPROP:
                 // byte var index
                 return 1 + 1;
 
@@ -1048,6 +1071,14 @@ public final class Interpreter extends Icode implements Evaluator {
                 // make a copy or not flag
                 return 1 + 1;
 
+            case Icode_LITERAL_NEW_ARRAY:
+                // skip indexes id + 1, or 0
+                return 1 + 1;
+
+            case Icode_SPREAD:
+                // position of the source
+                return 1 + 1;
+
             case Icode_REG_BIGINT1:
                 // ubyte bigint index
                 return 1 + 1;
@@ -1203,11 +1234,27 @@ public final class Interpreter extends Icode implements Evaluator {
         if (ex.interpreterStackInfo == null) {
             return null;
         }
+        return getScriptStackElements((CallFrame) ex.interpreterStackInfo, ex.interpreterLineData);
+    }
+
+    /**
+     * Return the script stack of a frame that was read from {@link Context#lastInterpreterFrame} of
+     * a context that may be running on another thread, or null if the frame is null. Except for
+     * the line of the innermost frame, this only reads final fields of the frames, which are set
+     * before the frame is published, so the frame data is complete even without synchronization.
+     */
+    static ScriptStackElement[][] getScriptStackOfFrame(Object lastInterpreterFrame) {
+        CallFrame frame = (CallFrame) lastInterpreterFrame;
+        if (frame == null) {
+            return null;
+        }
+        return getScriptStackElements(frame, frame.pcSourceLineStart);
+    }
 
+    private static ScriptStackElement[][] getScriptStackElements(CallFrame frame, int lineData) {
         List<ScriptStackElement[]> list = new ArrayList<>();
 
         CallFrame calleeFrame = null;
-        CallFrame frame = (CallFrame) ex.interpreterStackInfo;
         while (frame != null) {
             CallFrame callerFrame = frame;
             List<ScriptStackElement> group = new ArrayList<>();
@@ -1217,7 +1264,7 @@ public final class Interpreter extends Icode implements Evaluator {
                 String fileName = desc.getSourceName();
                 String functionName = null;
                 int lineNumber = -1;
-                int pc = calleeFrame == null ? ex.interpreterLineData : calleeFrame.parentPC;
+                int pc = calleeFrame == null ? lineData : calleeFrame.parentPC;
                 if (pc >= 0) {
                     lineNumber = getIndex(idata.itsICode, pc);
                 }
@@ -1461,6 +1508,14 @@ public final class Interpreter extends Icode implements Evaluator {
         instructionObjs[base + Token.LE] = new DoCompare();
         instructionObjs[base + Token.GT] = new DoCompare();
         instructionObjs[base + Token.LT] = new DoCompare();
+        instructionObjs[base + Icode_LT_IFEQ] = new DoCompareAndJump(Token.LT, true);
+        instructionObjs[base + Icode_LE_IFEQ] = new DoCompareAndJump(Token.LE, true);
+        instructionObjs[base + Icode_GT_IFEQ] = new DoCompareAndJump(Token.GT, true);
+        instructionObjs[base + Icode_GE_IFEQ] = new DoCompareAndJump(Token.GE, true);
+        instructionObjs[base + Icode_LT_IFNE] = new DoCompareAndJump(Token.LT, false);
+        instructionObjs[base + Icode_LE_IFNE] = new DoCompareAndJump(Token.LE, false);
+        instructionObjs[base + Icode_GT_IFNE] = new DoCompareAndJump(Token.GT, false);
+        instructionObjs[base + Icode_GE_IFNE] = new DoCompareAndJump(Token.GE, false);
         instructionObjs[base + Token.IN] = new DoInOrInstanceof();
         instructionObjs[base + Token.INSTANCEOF] = new DoInOrInstanceof();
         instructionObjs[base + Token.EQ] = new DoEquals();
@@ -1510,6 +1565,7 @@ public final class Interpreter extends Icode implements Evaluator {
         instructionObjs[base + Icode_DELPROP_SUPER] = new DoDelPropSuper();
         instructionObjs[base + Token.GETPROPNOWARN] = new DoGetPropNoWarn();
         instructionObjs[base + Token.GETPROP] = new DoGetProp();
+        instructionObjs[base + Icode_GETPROP_LENGTH] = new DoGetPropLength();
         instructionObjs[base + Token.GETPROP_SUPER] = new DoGetPropSuper();
         instructionObjs[base + Token.GETPROPNOWARN_SUPER] = new DoGetPropSuper();
         instructionObjs[base + Token.SETPROP] = new DoSetProp();
@@ -1557,6 +1613,10 @@ public final class Interpreter extends Icode implements Evaluator {
         instructionObjs[base + Icode_GETVAR1] = new DoGetVar1();
         instructionObjs[base + Token.GETVAR] = new DoGetVar();
         instructionObjs[base + Icode_VAR_INC_DEC] = new DoVarIncDec();
+        instructionObjs[base + Icode_SETVAR1_POP] = new DoSetVar1Pop();
+        instructionObjs[base + Icode_VAR_INC_DEC_POP] = new DoVarIncDecPop();
+        instructionObjs[base + Icode_GETVAR1_GETVAR1] = new DoGetVar1GetVar1();
+        instructionObjs[base + Icode_GETVAR1_GETPROP] = new DoGetVar1GetProp();
         instructionObjs[base + Icode_ZERO] = new DoZero();
         instructionObjs[base + Icode_ONE] = new DoOne();
         instructionObjs[base + Token.NULL] = new DoNull();
@@ -1920,7 +1980,8 @@ public final class Interpreter extends Icode implements Evaluator {
                     if (instructionCounting) {
                         addInstructionCount(cx, frame, 2);
                     }
-                    int offset = getShort(iCode, frame.pc);
+                    int jumpPC = frame.pc;
+                    int offset = getShort(iCode, jumpPC);
                     if (offset != 0) {
                         // -1 accounts for pc pointing to jump opcode + 1
                         frame.pc += offset - 1;
@@ -1930,6 +1991,9 @@ public final class Interpreter extends Icode implements Evaluator {
                     if (instructionCounting) {
                         frame.pcPrevBranch = frame.pc;
                     }
+                    if (frame.pc < jumpPC && frame.idata.tieredCompiler != null) {
+                        countTowardsTierUp(cx, frame);
+                    }
                 } else if (nextState == BREAK_WITHOUT_EXTENSION) {
                     break withoutExceptions;
                 } else {
@@ -2161,38 +2225,61 @@ public final class Interpreter extends Icode implements Evaluator {
     private static class DoCompare extends InstructionClass {
         @Override
         NewState execute(Context cx, CallFrame frame, InterpreterState state, int op) {
-            Object[] stack = frame.stack;
-            double[] sDbl = frame.sDbl;
-            Object rhs = stack[state.stackTop];
-            Object lhs = stack[--state.stackTop];
-            boolean valBln;
-            if (lhs == DOUBLE_MARK && rhs == DOUBLE_MARK) {
-                valBln =
-                        ScriptRuntime.compareTo(sDbl[state.stackTop], sDbl[state.stackTop + 1], op);
-                stack[state.stackTop] = valBln;
+            boolean valBln = doCompare(frame, state, op);
+            frame.stack[state.stackTop] = valBln;
+            return null;
+        }
+    }
+
+    /**
+     * Return the result of the comparison "op" of the two values on top of the stack, leaving the
+     * top of the stack at the first one, where the result goes.
+     */
+    private static boolean doCompare(CallFrame frame, InterpreterState state, int op) {
+        Object[] stack = frame.stack;
+        double[] sDbl = frame.sDbl;
+        Object rhs = stack[state.stackTop];
+        Object lhs = stack[--state.stackTop];
+        if (lhs == DOUBLE_MARK && rhs == DOUBLE_MARK) {
+            return ScriptRuntime.compareTo(sDbl[state.stackTop], sDbl[state.stackTop + 1], op);
+        }
+        Number rNum, lNum;
+        if (rhs == DOUBLE_MARK) {
+            rNum = sDbl[state.stackTop + 1];
+            lNum = stack_numeric(frame, state.stackTop);
+        } else if (lhs == DOUBLE_MARK) {
+            rNum = ScriptRuntime.toNumeric(rhs);
+            lNum = sDbl[state.stackTop];
+        } else {
+            return ScriptRuntime.compare(lhs, rhs, op);
+        }
+        return ScriptRuntime.compare(lNum, rNum, op);
+    }
+
+    /**
+     * The superinstructions for a comparison that is followed by IFEQ or IFNE, such as the
+     * condition of a loop.
+     */
+    private static class DoCompareAndJump extends InstructionClass {
+        private final int compareOp;
+        private final boolean jumpIfTrue;
+
+        DoCompareAndJump(int compareOp, boolean jumpIfTrue) {
+            this.compareOp = compareOp;
+            this.jumpIfTrue = jumpIfTrue;
+        }
+
+        @Override
+        NewState execute(Context cx, CallFrame frame, InterpreterState state, int op) {
+            boolean valBln = doCompare(frame, state, compareOp);
+            --state.stackTop;
+            // Skip the opcode of the jump
+            ++frame.pc;
+            if (valBln != jumpIfTrue) {
+                frame.pc += 2;
                 return null;
             }
-            object_compare:
-            {
-                number_compare:
-                {
-                    Number rNum, lNum;
-                    if (rhs == DOUBLE_MARK) {
-                        rNum = sDbl[state.stackTop + 1];
-                        lNum = stack_numeric(frame, state.stackTop);
-                    } else if (lhs == DOUBLE_MARK) {
-                        rNum = ScriptRuntime.toNumeric(rhs);
-                        lNum = sDbl[state.stackTop];
-                    } else {
-                        break number_compare;
-                    }
-                    valBln = ScriptRuntime.compare(lNum, rNum, op);
-                    break object_compare;
-                }
-                valBln = ScriptRuntime.compare(lhs, rhs, op);
-            }
-            stack[state.stackTop] = valBln;
-            return null;
+            return BREAK_JUMPLESSRUN;
         }
     }
 
@@ -2925,13 +3012,62 @@ public final class Interpreter extends Icode implements Evaluator {
             final Object[] stack = frame.stack;
             final double[] sDbl = frame.sDbl;
             Object lhs = stack[state.stackTop];
-            if (lhs == DOUBLE_MARK) lhs = ScriptRuntime.wrapNumber(sDbl[state.stackTop]);
+            if (lhs == DOUBLE_MARK) {
+                lhs = ScriptRuntime.wrapNumber(sDbl[state.stackTop]);
+            } else if (getLength(frame, state.stackTop, lhs, state.stringReg)) {
+                // Quicken the instruction, which is the last one that was read
+                frame.idata.itsICode[frame.pc - 1] = (byte) Icode_GETPROP_LENGTH;
+                return null;
+            }
             stack[state.stackTop] =
                     ScriptRuntime.getObjectProp(lhs, state.stringReg, cx, frame.scope);
             return null;
         }
     }
 
+    /**
+     * The quickened GETPROP, which reads the length of arrays and strings without looking it up,
+     * and looks up the property on anything else. Another thread may quicken the instruction
+     * while it runs, which is harmless, since either version gets the same result.
+     */
+    private static class DoGetPropLength extends InstructionClass {
+        @Override
+        NewState execute(Context cx, CallFrame frame, InterpreterState state, int op) {
+            final Object[] stack = frame.stack;
+            final double[] sDbl = frame.sDbl;
+            Object lhs = stack[state.stackTop];
+            if (lhs == DOUBLE_MARK) {
+                lhs = ScriptRuntime.wrapNumber(sDbl[state.stackTop]);
+            } else if (getLength(frame, state.stackTop, lhs, state.stringReg)) {
+                return null;
+            }
+            stack[state.stackTop] =
+                    ScriptRuntime.getObjectProp(lhs, state.stringReg, cx, frame.scope);
+            return null;
+        }
+    }
+
+    /**
+     * If the property is the "length" of an array or a string, put it on the stack at "top," and
+     * return true.
+     */
+    private static boolean getLength(CallFrame frame, int top, Object lhs, String name) {
+        if (!"length".equals(name)) {
+            return false;
+        }
+        double length;
+        if (lhs instanceof CharSequence) {
+            length = ((CharSequence) lhs).length();
+        } else if (lhs != null && lhs.getClass() == NativeArray.class) {
+            length = ((NativeArray) lhs).getLength();
+        } else {
+            return false;
+        }
+        frame.stack[top] = DOUBLE_MARK;
+        frame.sDbl[top] = length;
+        return true;
+    }
+
     private static class DoGetPropSuper extends InstructionClass {
         @Override
         NewState execute(Context cx, CallFrame frame, InterpreterState state, int op) {
@@ -3012,6 +3148,25 @@ public final class Interpreter extends Icode implements Evaluator {
                 value = ScriptRuntime.getObjectElem(lhs, id, cx, frame.scope);
             } else {
                 double d = sDbl[state.stackTop + 1];
+                if (lhs != null && lhs.getClass() == NativeArray.class) {
+                    // Read numbers from arrays that hold them unboxed without boxing them.
+                    // Subclasses may override get, so they take the generic path
+                    NativeArray na = (NativeArray) lhs;
+                    int index = (int) d;
+                    if (index == d && na.hasNumberElement(index)) {
+                        stack[state.stackTop] = DOUBLE_MARK;
+                        sDbl[state.stackTop] = na.getNumberElement(index);
+                        return null;
+                    }
+                } else if (lhs instanceof NativeTypedArrayView) {
+                    NativeTypedArrayView<?> ta = (NativeTypedArrayView<?>) lhs;
+                    int index = (int) d;
+                    if (index == d && ta.hasNumberElement(index)) {
+                        stack[state.stackTop] = DOUBLE_MARK;
+                        sDbl[state.stackTop] = ta.getNumberElement(index);
+                        return null;
+                    }
+                }
                 value = ScriptRuntime.getObjectIndex(lhs, d, cx, frame.scope);
             }
             stack[state.stackTop] = value;
@@ -3045,6 +3200,19 @@ public final class Interpreter extends Icode implements Evaluator {
             final Object[] stack = frame.stack;
             final double[] sDbl = frame.sDbl;
             Object rhs = stack[state.stackTop];
+            if (rhs == DOUBLE_MARK && stack[state.stackTop - 1] == DOUBLE_MARK) {
+                // Store numbers into arrays that hold them unboxed without boxing them
+                Object target = stack[state.stackTop - 2];
+                double d = sDbl[state.stackTop - 1];
+                double rhsDbl = sDbl[state.stackTop];
+                int index = (int) d;
+                if (index == d && setNumberElement(target, index, rhsDbl)) {
+                    state.stackTop -= 2;
+                    stack[state.stackTop] = DOUBLE_MARK;
+                    sDbl[state.stackTop] = rhsDbl;
+                    return null;
+                }
+            }
             if (rhs == DOUBLE_MARK) {
                 rhs = ScriptRuntime.wrapNumber(sDbl[state.stackTop]);
             }
@@ -3066,6 +3234,17 @@ public final class Interpreter extends Icode implements Evaluator {
         }
     }
 
+    /** Store a number into an array that holds numbers unboxed, without boxing it. */
+    private static boolean setNumberElement(Object target, int index, double value) {
+        if (target != null && target.getClass() == NativeArray.class) {
+            // Subclasses may override put, so they take the generic path
+            return ((NativeArray) target).setNumberElement(index, value);
+        } else if (target instanceof NativeTypedArrayView) {
+            return ((NativeTypedArrayView<?>) target).setNumberElement(index, value);
+        }
+        return false;
+    }
+
     private static class DoSetElemSuper extends InstructionClass {
         @Override
         NewState execute(Context cx, CallFrame frame, InterpreterState state, int op) {
@@ -3190,7 +3369,12 @@ public final class Interpreter extends Icode implements Evaluator {
             final Object[] stack = frame.stack;
             // stringReg: name
             stack[++state.stackTop] =
-                    ScriptRuntime.getNameAndThis(state.stringReg, cx, frame.scope);
+                    NameBinding.getNameAndThis(
+                            cx,
+                            frame.scope,
+                            state.stringReg,
+                            frame.idata.getInstructionCaches(),
+                            frame.pc - 1);
             return null;
         }
     }
@@ -3591,18 +3775,24 @@ public final class Interpreter extends Icode implements Evaluator {
 
             frame.savedCallOp = op;
             frame.savedStackTop = state.stackTop;
-            stack[state.stackTop] =
-                    fun.call(
-                            cx,
-                            calleeScope,
-                            funThisObj,
-                            getArgsArray(
-                                    stack,
-                                    sDbl,
-                                    boundArgs,
-                                    blen,
-                                    state.stackTop + 1,
-                                    state.indexReg));
+            Object[] outArgs =
+                    getArgsArray(
+                            stack, sDbl, boundArgs, blen, state.stackTop + 1, state.indexReg);
+            if (fun.getClass() == NativeJavaMethod.class) {
+                // Cache the resolved overload for this call instruction, which sits just
+                // before the current pc
+                stack[state.stackTop] =
+                        ((NativeJavaMethod) fun)
+                                .call(
+                                        cx,
+                                        calleeScope,
+                                        funThisObj,
+                                        outArgs,
+                                        frame.idata.getInstructionCaches(),
+                                        frame.pc - 1);
+            } else {
+                stack[state.stackTop] = fun.call(cx, calleeScope, funThisObj, outArgs);
+            }
 
             return null;
         }
@@ -3748,7 +3938,13 @@ public final class Interpreter extends Icode implements Evaluator {
     private static class DoName extends InstructionClass {
         @Override
         NewState execute(Context cx, CallFrame frame, InterpreterState state, int op) {
-            frame.stack[++state.stackTop] = ScriptRuntime.name(cx, frame.scope, state.stringReg);
+            frame.stack[++state.stackTop] =
+                    NameBinding.name(
+                            cx,
+                            frame.scope,
+                            state.stringReg,
+                            frame.idata.getInstructionCaches(),
+                            frame.pc - 1);
             return null;
         }
     }
@@ -3982,6 +4178,85 @@ public final class Interpreter extends Icode implements Evaluator {
         }
     }
 
+    /*
+     * The superinstructions below run each instruction of their sequence in turn, with the pc
+     * where it would have been if it had been read by the loop in interpretFunction, so that
+     * exceptions are handled and instructions are counted in the same way. They save the
+     * dispatch of the instructions after the first one.
+     */
+
+    private static class DoSetVar1Pop extends InstructionClass {
+        private final DoSetVar1 setVar1 = new DoSetVar1();
+        private final DoPop pop = new DoPop();
+
+        @Override
+        NewState execute(Context cx, CallFrame frame, InterpreterState state, int op) {
+            setVar1.execute(cx, frame, state, Icode_SETVAR1);
+            ++frame.pc;
+            return pop.execute(cx, frame, state, Icode_POP);
+        }
+    }
+
+    private static class DoVarIncDecPop extends InstructionClass {
+        private final DoVarIncDec varIncDec = new DoVarIncDec();
+        private final DoPop pop = new DoPop();
+
+        @Override
+        NewState execute(Context cx, CallFrame frame, InterpreterState state, int op) {
+            // indexReg : varindex
+            if (!frame.useActivation
+                    && frame.varSource.stack[state.indexReg] == DOUBLE_MARK
+                    && (frame.varSource.stackAttributes[state.indexReg]
+                                    & ScriptableObject.READONLY)
+                            == 0) {
+                // The value is not used, so only update the number in the variable
+                int incrDecrMask = frame.idata.itsICode[frame.pc];
+                frame.varSource.sDbl[state.indexReg] +=
+                        ((incrDecrMask & Node.DECR_FLAG) == 0) ? 1.0 : -1.0;
+                frame.pc += 2;
+                return null;
+            }
+            varIncDec.execute(cx, frame, state, Icode_VAR_INC_DEC);
+            ++frame.pc;
+            return pop.execute(cx, frame, state, Icode_POP);
+        }
+    }
+
+    private static class DoGetVar1GetVar1 extends InstructionClass {
+        private final DoGetVar1 getVar1 = new DoGetVar1();
+
+        @Override
+        NewState execute(Context cx, CallFrame frame, InterpreterState state, int op) {
+            getVar1.execute(cx, frame, state, Icode_GETVAR1);
+            ++frame.pc;
+            return getVar1.execute(cx, frame, state, Icode_GETVAR1);
+        }
+    }
+
+    private static class DoGetVar1GetProp extends InstructionClass {
+        private final DoGetVar1 getVar1 = new DoGetVar1();
+        private final DoGetProp getProp = new DoGetProp();
+        private final DoGetPropLength getPropLength = new DoGetPropLength();
+
+        @Override
+        NewState execute(Context cx, CallFrame frame, InterpreterState state, int op) {
+            getVar1.execute(cx, frame, state, Icode_GETVAR1);
+            final byte[] iCode = frame.idata.itsICode;
+            int strOp = iCode[frame.pc++];
+            if (strOp == Icode_REG_STR1) {
+                state.stringReg = frame.idata.itsStringTable[0xFF & iCode[frame.pc++]];
+            } else {
+                state.stringReg = frame.idata.itsStringTable[Icode_REG_STR_C0 - strOp];
+            }
+            // The GETPROP may have been quickened
+            int getOp = iCode[frame.pc++];
+            if (getOp == Icode_GETPROP_LENGTH) {
+                return getPropLength.execute(cx, frame, state, getOp);
+            }
+            return getProp.execute(cx, frame, state, getOp);
+        }
+    }
+
     private static class DoZero extends InstructionClass {
         @Override
         NewState execute(Context cx, CallFrame frame, InterpreterState state, int op) {
@@ -4380,13 +4655,10 @@ public final class Interpreter extends Icode implements Evaluator {
             --state.stackTop;
             NewLiteralStorage store = (NewLiteralStorage) frame.stack[state.stackTop];
 
-            if (store.hasSkipIndexes()) {
-                int sourcePos = 0xFF & frame.idata.itsICode[frame.pc];
-                ++frame.pc;
-                store.spread(cx, frame.scope, source, sourcePos);
-            } else {
-                store.spread(cx, frame.scope, source, 0);
-            }
+            // Position of the source among the elements, if the literal has skip indexes
+            int sourcePos = 0xFF & frame.idata.itsICode[frame.pc];
+            ++frame.pc;
+            store.spread(cx, frame.scope, source, sourcePos);
             return null;
         }
     }
@@ -4773,9 +5045,26 @@ public final class Interpreter extends Icode implements Evaluator {
         frame.initializeArgs(
                 cx, callerScope, args, argsDbl, boundArgs, argShift, argCount, homeObj);
         enterFrame(cx, frame, args, false);
+        if (code.tieredCompiler != null) {
+            countTowardsTierUp(cx, frame);
+        }
         return frame;
     }
 
+    /**
+     * Count a call or a loop iteration of a function or script that is compiled to bytecode once it
+     * is hot. The frame keeps running in the interpreter, and the function or script runs compiled
+     * code from its next call on.
+     */
+    private static void countTowardsTierUp(Context cx, CallFrame frame) {
+        InterpreterData<?> idata = frame.idata;
+        TieredCompiler tieredCompiler = idata.tieredCompiler;
+        if (tieredCompiler != null && ++idata.tierUpCount > tieredCompiler.threshold) {
+            idata.tieredCompiler = null;
+            tieredCompiler.promote(cx, frame.fnOrScript.getDescriptor());
+        }
+    }
+
     private static void enterFrame(
             Context cx, CallFrame frame, Object[] args, boolean continuationRestart) {
         boolean usesActivation = frame.fnOrScript.getDescriptor().requiresActivationFrame();
@@ -52,6 +52,8 @@ final class InterpreterData<T extends ScriptOrFn<T>> extends JSCode<T> implement
         this.literalIds = literalIds;
         this.longJumps = longJumps;
         this.firstLinePC = firstLinePC;
+        // Hashed before the code runs, since the interpreter quickens some instructions in place
+        this.icodeHashCode = Arrays.hashCode(itsICode);
     }
 
     final String[] itsStringTable;
@@ -78,14 +80,35 @@ final class InterpreterData<T extends ScriptOrFn<T>> extends JSCode<T> implement
 
     final int firstLinePC;
 
-    private int icodeHashCode = 0;
+    private final int icodeHashCode;
+
+    /**
+     * The compiler that switches the function to compiled code once it is hot, if tiered
+     * compilation is enabled, and the number of calls and loop iterations counted so far. They are
+     * updated without synchronization, so a count may occasionally be lost.
+     */
+    transient TieredCompiler tieredCompiler;
+
+    transient int tierUpCount;
+
+    /**
+     * Caches that instructions may use to remember what they did the last time that they ran,
+     * indexed by the pc of the instruction. They are only created when they are first needed, and
+     * a thread that races to create them only loses what it cached.
+     */
+    private transient volatile Object[] instructionCaches;
+
+    Object[] getInstructionCaches() {
+        Object[] caches = instructionCaches;
+        if (caches == null) {
+            caches = new Object[itsICode.length];
+            instructionCaches = caches;
+        }
+        return caches;
+    }
 
     public int icodeHashCode() {
-        int h = icodeHashCode;
-        if (h == 0) {
-            icodeHashCode = h = Arrays.hashCode(itsICode);
-        }
-        return h;
+        return icodeHashCode;
     }
 
     @Override
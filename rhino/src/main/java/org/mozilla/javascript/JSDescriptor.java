@@ -31,8 +31,10 @@ public final class JSDescriptor<T extends ScriptOrFn<T>> implements Serializable
     private static final int REQUIRES_ARGUMENT_OBJECT_FLAG = 1 << 11;
     private static final int DECLARED_AS_FUNCTION_EXPRESSION_FLAG = 1 << 12;
 
-    private final JSCode<T> code;
-    private final JSCode<T> constructor;
+    // Not final, so that TieredCompiler may switch interpreted functions to compiled code, which
+    // may be done by a background compiler thread, so volatile to publish it fully constructed
+    private volatile JSCode<T> code;
+    private volatile JSCode<T> constructor;
     private final JSDescriptor<?> parent;
     public List<JSDescriptor<JSFunction>> nestedFunctions;
     private final String[] paramAndVarNames;
@@ -126,6 +128,19 @@ public final class JSDescriptor<T extends ScriptOrFn<T>> implements Serializable
         return constructor;
     }
 
+    /**
+     * Replace the code of a function that was compiled for the interpreter by the compiled code of
+     * the same function. Function objects read their code on each call, so they all switch to the
+     * new code. Code objects are immutable, so a thread that sees the old code a little longer
+     * only keeps interpreting it.
+     *
+     * @see TieredCompiler
+     */
+    void setCompiledCode(JSCode<T> code, JSCode<T> constructor) {
+        this.code = code;
+        this.constructor = constructor;
+    }
+
     public List<JSDescriptor<JSFunction>> getNestedFunctions() {
         return nestedFunctions;
     }
@@ -181,6 +196,14 @@ public final class JSDescriptor<T extends ScriptOrFn<T>> implements Serializable
         return rawSource.substring(rawSourceStart, rawSourceEnd);
     }
 
+    int getRawSourceStart() {
+        return rawSourceStart;
+    }
+
+    int getRawSourceEnd() {
+        return rawSourceEnd;
+    }
+
     public String getName() {
         return name;
     }
@@ -19,6 +19,7 @@ public class JSFunction extends BaseFunction implements ScriptOrFn<JSFunction> {
             JSDescriptor<JSFunction> descriptor,
             Scriptable lexicalThis,
             Scriptable homeObject) {
+        AllocationProfiler.allocated(AllocationProfiler.Kind.FUNCTION);
         this.descriptor = descriptor;
         this.lexicalThis = lexicalThis;
         this.homeObject = homeObject;
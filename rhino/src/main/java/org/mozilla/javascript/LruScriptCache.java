@@ -0,0 +1,90 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+// API class
+
+package org.mozilla.javascript;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link ScriptCache} that holds up to a fixed number of entries and evicts the least recently
+ * used one when it is full. All operations are synchronized, which is fine because a lookup is
+ * very cheap compared to the compilation that it replaces.
+ */
+public class LruScriptCache implements ScriptCache {
+    private final LinkedHashMap<Key, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create a cache that holds at most "maxEntries" compiled scripts.
+     *
+     * @param maxEntries the maximum number of entries, which must be positive
+     */
+    public LruScriptCache(final int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.entries =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<Key, ScriptCache.Entry> eldest) {
+                        return size() > maxEntries;
+                    }
+                };
+    }
+
+    @Override
+    public Entry get(Key key) {
+        Entry e;
+        synchronized (entries) {
+            e = entries.get(key);
+        }
+        if (e == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return e;
+    }
+
+    @Override
+    public void put(Key key, Entry entry) {
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /** Return the number of entries currently in the cache. */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /** Return the number of lookups that found an entry. */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /** Return the number of lookups that did not find an entry. */
+    public long getMissCount() {
+        return misses.get();
+    }
+}
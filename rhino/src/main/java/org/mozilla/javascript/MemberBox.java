@@ -10,6 +10,9 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
@@ -25,10 +28,13 @@ import org.mozilla.javascript.lc.type.VariableTypeInfo;
 
 /**
  * Wrapper class for Method and Constructor instances to cache getParameterTypes() results, recover
- * from IllegalAccessException in some cases and provide serialization support.
+ * from IllegalAccessException in some cases and provide serialization support. Methods and
+ * constructors are invoked through a method handle that is created the first time that they are
+ * called, rather than through reflection.
  *
  * @author Igor Bukanov
  */
+@SuppressWarnings("AndroidJdkLibsChecker")
 final class MemberBox implements Serializable {
     private static final long serialVersionUID = 6358550398665688245L;
 
@@ -38,6 +44,8 @@ final class MemberBox implements Serializable {
     private transient NullabilityDetector.NullabilityAccessor argNullability;
     transient boolean vararg;
 
+    private transient volatile MethodHandle invoker;
+
     transient Function asGetterFunction;
     transient Function asSetterFunction;
     transient Object delegateTo;
@@ -45,6 +53,33 @@ final class MemberBox implements Serializable {
     private static final NullabilityDetector nullDetector =
             ScriptRuntime.loadOneServiceImplementation(NullabilityDetector.class);
 
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodHandle UNWRAP_TARGET;
+    private static final MethodHandle UNWRAP_ARGS;
+    private static final MethodHandle RETHROW;
+
+    static {
+        try {
+            UNWRAP_TARGET =
+                    LOOKUP.findStatic(
+                            MemberBox.class,
+                            "unwrapTarget",
+                            MethodType.methodType(Object.class, Object.class));
+            UNWRAP_ARGS =
+                    LOOKUP.findStatic(
+                            MemberBox.class,
+                            "unwrapArgs",
+                            MethodType.methodType(Object[].class, Object[].class));
+            RETHROW =
+                    LOOKUP.findStatic(
+                            MemberBox.class,
+                            "rethrowFromHandle",
+                            MethodType.methodType(Object.class, Throwable.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new Error(e);
+        }
+    }
+
     MemberBox(Method method, TypeInfoFactory factory) {
         init(method, factory, method.getDeclaringClass());
     }
@@ -269,68 +304,128 @@ final class MemberBox implements Serializable {
     }
 
     Object invoke(Object target, Object[] args) {
-        Method method = method();
+        try {
+            return (Object) invoker().invokeExact(target, args);
+        } catch (Throwable ex) {
+            throw rethrow(ex);
+        }
+    }
 
-        // handle delegators
-        if (target instanceof Delegator) {
-            target = ((Delegator) target).getDelegee();
+    Object newInstance(Object[] args) {
+        try {
+            return (Object) invoker().invokeExact(args);
+        } catch (Throwable ex) {
+            throw rethrow(ex);
         }
-        if (args != null) {
-            for (int i = 0; i < args.length; ++i) {
-                if (args[i] instanceof Delegator) {
-                    args[i] = ((Delegator) args[i]).getDelegee();
-                }
-            }
+    }
+
+    /**
+     * Return a method handle that calls the method or constructor with the same semantics as
+     * {@link #invoke} or {@link #newInstance}, including the unwrapping of delegators and the
+     * translation of exceptions. For a method, the handle has the type (Object target, Object[]
+     * args)Object, and for a constructor it has the type (Object[] args)Object. The handle is
+     * created on first use.
+     */
+    MethodHandle invoker() throws IllegalAccessException {
+        MethodHandle mh = invoker;
+        if (mh == null) {
+            mh = isMethod() ? createMethodInvoker() : createConstructorInvoker();
+            invoker = mh;
         }
+        return mh;
+    }
 
+    private MethodHandle createMethodInvoker() throws IllegalAccessException {
+        Method method = method();
+        MethodHandle mh;
         try {
-            try {
-                return method.invoke(target, args);
-            } catch (IllegalAccessException ex) {
-                Method accessible =
-                        searchAccessibleMethod(
-                                method,
-                                getArgTypes().stream()
-                                        .map(TypeInfo::asClass)
-                                        .toArray(Class[]::new));
-                if (accessible != null) {
-                    memberObject = accessible;
-                    method = accessible;
-                } else {
-                    if (!tryToMakeAccessible(method)) {
-                        throw Context.throwAsScriptRuntimeEx(ex);
-                    }
-                }
-                // Retry after recovery
-                return method.invoke(target, args);
+            mh = LOOKUP.unreflect(method);
+        } catch (IllegalAccessException ex) {
+            Method accessible =
+                    searchAccessibleMethod(
+                            method,
+                            getArgTypes().stream().map(TypeInfo::asClass).toArray(Class[]::new));
+            if (accessible != null) {
+                memberObject = accessible;
+                method = accessible;
+            } else {
+                tryToMakeAccessible(method);
             }
-        } catch (InvocationTargetException ite) {
-            // Must allow ContinuationPending exceptions to propagate unhindered
-            Throwable e = ite;
-            do {
-                e = ((InvocationTargetException) e).getTargetException();
-            } while ((e instanceof InvocationTargetException));
-            if (e instanceof ContinuationPending) throw (ContinuationPending) e;
-            throw Context.throwAsScriptRuntimeEx(e);
-        } catch (Exception ex) {
-            throw Context.throwAsScriptRuntimeEx(ex);
+            // Retry after recovery
+            mh = LOOKUP.unreflect(method);
+        }
+        int count = method.getParameterCount();
+        mh = mh.asFixedArity();
+        if (Modifier.isStatic(method.getModifiers())) {
+            mh = MethodHandles.dropArguments(mh, 0, Object.class);
         }
+        // Arguments have already been converted to the parameter types by wrapArgsInternal, but
+        // may still need unboxing or a widening conversion. asType allows exactly the conversions
+        // that Method.invoke does, and so fails on null or narrowing rather than changing values.
+        mh = mh.asType(MethodType.genericMethodType(count + 1));
+        mh = mh.asSpreader(Object[].class, count);
+        mh = MethodHandles.filterArguments(mh, 0, UNWRAP_TARGET, UNWRAP_ARGS);
+        return translateExceptions(mh);
     }
 
-    Object newInstance(Object[] args) {
+    private MethodHandle createConstructorInvoker() throws IllegalAccessException {
         Constructor<?> ctor = ctor();
+        MethodHandle mh;
         try {
-            try {
-                return ctor.newInstance(args);
-            } catch (IllegalAccessException ex) {
-                if (!tryToMakeAccessible(ctor)) {
-                    throw Context.throwAsScriptRuntimeEx(ex);
-                }
+            mh = LOOKUP.unreflectConstructor(ctor);
+        } catch (IllegalAccessException ex) {
+            tryToMakeAccessible(ctor);
+            mh = LOOKUP.unreflectConstructor(ctor);
+        }
+        int count = ctor.getParameterCount();
+        mh = mh.asFixedArity();
+        mh = mh.asType(MethodType.genericMethodType(count));
+        mh = mh.asSpreader(Object[].class, count);
+        mh = MethodHandles.filterArguments(mh, 0, UNWRAP_ARGS);
+        return translateExceptions(mh);
+    }
+
+    private static MethodHandle translateExceptions(MethodHandle mh) {
+        MethodHandle handler = MethodHandles.dropArguments(RETHROW, 1, mh.type().parameterList());
+        return MethodHandles.catchException(mh, Throwable.class, handler);
+    }
+
+    @SuppressWarnings("unused")
+    private static Object unwrapTarget(Object target) {
+        // handle delegators
+        if (target instanceof Delegator) {
+            return ((Delegator) target).getDelegee();
+        }
+        return target;
+    }
+
+    @SuppressWarnings("unused")
+    private static Object[] unwrapArgs(Object[] args) {
+        if (args == null) {
+            return ScriptRuntime.emptyArgs;
+        }
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i] instanceof Delegator) {
+                args[i] = ((Delegator) args[i]).getDelegee();
             }
-            return ctor.newInstance(args);
-        } catch (Exception ex) {
-            throw Context.throwAsScriptRuntimeEx(ex);
         }
+        return args;
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        while (e instanceof InvocationTargetException) {
+            e = ((InvocationTargetException) e).getTargetException();
+        }
+        // Must allow ContinuationPending exceptions to propagate unhindered
+        if (e instanceof ContinuationPending) {
+            throw (ContinuationPending) e;
+        }
+        throw Context.throwAsScriptRuntimeEx(e);
+    }
+
+    @SuppressWarnings("unused")
+    private static Object rethrowFromHandle(Throwable e) {
+        throw rethrow(e);
     }
 
     Object[] wrapArgsInternal(Object[] args, Map<VariableTypeInfo, TypeInfo> mapping) {
@@ -0,0 +1,199 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript;
+
+/**
+ * Remembers where a name that is not a local variable was found in the scope chain, so that code
+ * that looks up the same name again, such as a reference to "Math" in a loop, does not have to
+ * walk the scope chain and hash the name in the top-level scope every time.
+ *
+ * <p>A binding is only made for names that are data properties of an ordinary top-level scope,
+ * and that are not defined by any of the activations of the enclosing functions. It holds on to
+ * the slot of the property, which stays valid for as long as the version of the slot map of the
+ * top-level scope does not change. Defining new properties does not change the version, but
+ * deleting a property or turning it into an accessor does. Since a function may always add
+ * variables to its activation using "eval," the activations between the current scope and the
+ * top-level scope are checked each time that the binding is used.
+ *
+ * <p>Bindings are cached by the interpreter for each instruction, and by the linkers in the
+ * "optimizer" package for each call site. The public methods here are used by those linkers, and
+ * are not intended to be used by other code.
+ */
+public final class NameBinding {
+
+    /**
+     * How many times an instruction looks up a name that it could not bind the last time, before it
+     * tries to bind it again.
+     */
+    private static final int RETRY_INTERVAL = 32;
+
+    /** Stored in an instruction cache when the name at that instruction could not be bound. */
+    private static final class Miss {
+        int count;
+    }
+
+    private final String name;
+    private final int depth;
+    private final ScriptableObject topScope;
+    private final SlotMap map;
+    private final int version;
+    private final Slot slot;
+
+    private NameBinding(
+            String name,
+            int depth,
+            ScriptableObject topScope,
+            SlotMap map,
+            int version,
+            Slot slot) {
+        this.name = name;
+        this.depth = depth;
+        this.topScope = topScope;
+        this.map = map;
+        this.version = version;
+        this.slot = slot;
+    }
+
+    /**
+     * Look up a name in the scope chain, and return a binding for it, or null if it is not an
+     * ordinary property of the top-level scope that can be cached. A lazily loaded constructor
+     * that is found is loaded now.
+     */
+    public static NameBinding find(Context cx, Scriptable scope, String name) {
+        if (cx.useDynamicScope) {
+            return null;
+        }
+        int depth = 0;
+        Scriptable parent = scope.getParentScope();
+        while (parent != null) {
+            if (!isUnboundActivation(scope, name)) {
+                return null;
+            }
+            depth++;
+            scope = parent;
+            parent = scope.getParentScope();
+        }
+        if (!isOrdinaryTopLevel(scope)) {
+            return null;
+        }
+        ScriptableObject topScope = (ScriptableObject) scope;
+        SlotMap map = topScope.getMap();
+        Slot slot = map.query(name, 0);
+        if (slot == null) {
+            return null;
+        }
+        if (slot.getClass() != Slot.class && slot.getClass() != LazyLoadSlot.class) {
+            return null;
+        }
+        // This replaces the constructor of a lazily loaded slot by its value, which may define
+        // other properties, so read the version afterwards
+        slot.getValue(topScope);
+        map = topScope.getMap();
+        int version = map.getVersion();
+        if (version < 0) {
+            return null;
+        }
+        if (map.query(name, 0) != slot) {
+            return null;
+        }
+        return new NameBinding(name, depth, topScope, map, version, slot);
+    }
+
+    /** Return whether the name may still be looked up using this binding in the scope. */
+    public boolean isValid(Context cx, Scriptable scope) {
+        if (cx.useDynamicScope) {
+            return false;
+        }
+        for (int i = 0; i < depth; i++) {
+            if (!isUnboundActivation(scope, name)) {
+                return false;
+            }
+            scope = scope.getParentScope();
+        }
+        return scope == topScope
+                && topScope.getParentScope() == null
+                && topScope.getMap() == map
+                && map.getVersion() == version;
+    }
+
+    /** Return the current value of the name. The binding must have been checked to be valid. */
+    public Object getValue() {
+        return slot.value;
+    }
+
+    /**
+     * Return the current value of the name together with the "this" object for a call to it, as
+     * {@link ScriptRuntime#getNameAndThis} does. The binding must have been checked to be valid.
+     */
+    public ScriptRuntime.LookupResult getValueAndThis() {
+        return new ScriptRuntime.LookupResult(slot.value, topScope, name);
+    }
+
+    /**
+     * Look up a name like {@link ScriptRuntime#name}, using and updating the binding that is
+     * cached for the instruction at "pc."
+     */
+    static Object name(Context cx, Scriptable scope, String name, Object[] caches, int pc) {
+        NameBinding binding = getBinding(cx, scope, name, caches, pc);
+        if (binding == null) {
+            return ScriptRuntime.name(cx, scope, name);
+        }
+        return binding.getValue();
+    }
+
+    /**
+     * Look up a function like {@link ScriptRuntime#getNameAndThis}, using and updating the
+     * binding that is cached for the instruction at "pc."
+     */
+    static ScriptRuntime.LookupResult getNameAndThis(
+            Context cx, Scriptable scope, String name, Object[] caches, int pc) {
+        NameBinding binding = getBinding(cx, scope, name, caches, pc);
+        if (binding == null) {
+            return ScriptRuntime.getNameAndThis(name, cx, scope);
+        }
+        return binding.getValueAndThis();
+    }
+
+    private static NameBinding getBinding(
+            Context cx, Scriptable scope, String name, Object[] caches, int pc) {
+        Object cached = caches[pc];
+        if (cached instanceof Miss) {
+            // Names that can't be bound, such as the variables of enclosing functions, are not
+            // looked up twice on every run of the instruction. They are still tried again now and
+            // then, since the scope or the property may be different by then.
+            Miss miss = (Miss) cached;
+            if (++miss.count < RETRY_INTERVAL) {
+                return null;
+            }
+            miss.count = 0;
+        } else if (cached != null) {
+            NameBinding binding = (NameBinding) cached;
+            if (binding.isValid(cx, scope)) {
+                return binding;
+            }
+        }
+        NameBinding binding = find(cx, scope, name);
+        if (binding != null) {
+            caches[pc] = binding;
+        } else if (!(cached instanceof Miss)) {
+            caches[pc] = new Miss();
+        }
+        return binding;
+    }
+
+    /** Return whether the scope is the activation of a function that does not define the name. */
+    private static boolean isUnboundActivation(Scriptable scope, String name) {
+        // NativeCall keeps all its variables in its slot map
+        return scope instanceof NativeCall && ((NativeCall) scope).getMap().query(name, 0) == null;
+    }
+
+    /** Return whether the scope finds its own properties in its slot map before anything else. */
+    private static boolean isOrdinaryTopLevel(Scriptable scope) {
+        Class<?> c = scope.getClass();
+        return c == NativeObject.class || c == TopLevel.class || c == ImporterTopLevel.class;
+    }
+}
@@ -11,6 +11,7 @@ import static org.mozilla.javascript.ArrayLikeAbstractOperations.getRawElem;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
@@ -208,24 +209,70 @@ public class NativeArray extends ScriptableObject implements List {
     }
 
     public NativeArray(long lengthArg) {
+        AllocationProfiler.allocated(AllocationProfiler.Kind.ARRAY);
         denseOnly = lengthArg <= maximumInitialCapacity;
         if (denseOnly) {
             int intLength = (int) lengthArg;
             if (intLength < DEFAULT_INITIAL_CAPACITY) intLength = DEFAULT_INITIAL_CAPACITY;
-            dense = new Object[intLength];
-            Arrays.fill(dense, Scriptable.NOT_FOUND);
+            if (lengthArg == 0) {
+                elementKind = INT_ELEMENTS;
+                intElements = new int[intLength];
+            } else {
+                elementKind = DOUBLE_ELEMENTS;
+                doubleElements = new double[intLength];
+                Arrays.fill(doubleElements, HOLE);
+            }
         }
         length = lengthArg;
         createLengthProp();
     }
 
     public NativeArray(Object[] array) {
+        AllocationProfiler.allocated(AllocationProfiler.Kind.ARRAY);
         denseOnly = true;
-        dense = array;
+        if (array.length == 0) {
+            elementKind = INT_ELEMENTS;
+            intElements = new int[DEFAULT_INITIAL_CAPACITY];
+        } else {
+            elementKind = numberElementKind(array);
+            if (elementKind == INT_ELEMENTS) {
+                intElements = new int[array.length];
+                for (int i = 0; i < array.length; i++) {
+                    intElements[i] = ((Integer) array[i]).intValue();
+                }
+            } else if (elementKind == DOUBLE_ELEMENTS) {
+                doubleElements = new double[array.length];
+                for (int i = 0; i < array.length; i++) {
+                    Object value = array[i];
+                    if (value == NOT_FOUND) {
+                        doubleElements[i] = HOLE;
+                    } else {
+                        setDoubleElement(i, value);
+                    }
+                }
+            } else {
+                dense = array;
+            }
+        }
         length = array.length;
         createLengthProp();
     }
 
+    /** Return the most specific kind of store that can hold all the values in an array. */
+    private static int numberElementKind(Object[] array) {
+        int kind = INT_ELEMENTS;
+        for (Object value : array) {
+            if (value instanceof Integer) {
+                continue;
+            } else if (value instanceof Double || value == NOT_FOUND) {
+                kind = DOUBLE_ELEMENTS;
+            } else {
+                return OBJECT_ELEMENTS;
+            }
+        }
+        return kind;
+    }
+
     @Override
     public String getClassName() {
         return "Array";
@@ -256,7 +303,7 @@ public class NativeArray extends ScriptableObject implements List {
     public Object get(int index, Scriptable start) {
         var slot = denseOnly ? null : getMap().query(null, index);
         if (!denseOnly && slot != null && slot.isSetterSlot()) return slot.getValue(start);
-        if (dense != null && 0 <= index && index < dense.length) return dense[index];
+        if (hasDense() && 0 <= index && index < denseCapacity()) return denseElement(index);
         return slot == null ? NOT_FOUND : slot.getValue(start);
     }
 
@@ -266,8 +313,7 @@ public class NativeArray extends ScriptableObject implements List {
         if (slot != null) {
             return true;
         }
-        if (dense != null && 0 <= index && index < dense.length) return dense[index] != NOT_FOUND;
-        return false;
+        return hasDenseElement(index);
     }
 
     private static long toArrayIndex(Object id) {
@@ -308,6 +354,15 @@ public class NativeArray extends ScriptableObject implements List {
 
     @Override
     public void put(String id, Scriptable start, Object value) {
+        if (start == this && isShared()) {
+            if ("length".equals(id)) {
+                setSharedLength(value);
+            } else {
+                super.put(id, start, value);
+                growSharedLength(toArrayIndex(id));
+            }
+            return;
+        }
         super.put(id, start, value);
         if (start == this) {
             // If the object is sealed, super will throw exception
@@ -315,52 +370,233 @@ public class NativeArray extends ScriptableObject implements List {
             if (index >= length) {
                 length = index + 1;
                 modCount++;
-                denseOnly = false;
+                setDenseOnly(false);
             }
         }
     }
 
     private boolean ensureCapacity(int capacity) {
-        if (capacity > dense.length) {
+        int oldCapacity = denseCapacity();
+        if (capacity > oldCapacity) {
             if (capacity > MAX_PRE_GROW_SIZE) {
-                denseOnly = false;
+                setDenseOnly(false);
                 return false;
             }
-            capacity = Math.max(capacity, (int) (dense.length * GROW_FACTOR));
-            Object[] newDense = new Object[capacity];
-            System.arraycopy(dense, 0, newDense, 0, dense.length);
-            Arrays.fill(newDense, dense.length, newDense.length, Scriptable.NOT_FOUND);
-            dense = newDense;
+            capacity = Math.max(capacity, (int) (oldCapacity * GROW_FACTOR));
+            if (elementKind == INT_ELEMENTS) {
+                intElements = Arrays.copyOf(intElements, capacity);
+            } else if (elementKind == DOUBLE_ELEMENTS) {
+                doubleElements = Arrays.copyOf(doubleElements, capacity);
+                Arrays.fill(doubleElements, oldCapacity, capacity, HOLE);
+            } else {
+                Object[] newDense = new Object[capacity];
+                System.arraycopy(dense, 0, newDense, 0, dense.length);
+                Arrays.fill(newDense, dense.length, newDense.length, Scriptable.NOT_FOUND);
+                dense = newDense;
+            }
         }
         return true;
     }
 
+    private boolean hasDense() {
+        return dense != null || elementKind != OBJECT_ELEMENTS;
+    }
+
+    private int denseCapacity() {
+        if (elementKind == INT_ELEMENTS) {
+            return intElements.length;
+        } else if (elementKind == DOUBLE_ELEMENTS) {
+            return doubleElements.length;
+        }
+        return dense.length;
+    }
+
+    private static boolean isHole(double d) {
+        return Double.doubleToRawLongBits(d) == HOLE_BITS;
+    }
+
+    /** Return the element at an index in the dense store, or NOT_FOUND if there is none. */
+    private Object denseElement(int index) {
+        if (elementKind == INT_ELEMENTS) {
+            return index < length ? Integer.valueOf(intElements[index]) : NOT_FOUND;
+        } else if (elementKind == DOUBLE_ELEMENTS) {
+            if (index >= doubleElements.length) {
+                return NOT_FOUND;
+            }
+            double d = doubleElements[index];
+            if (isHole(d)) {
+                return NOT_FOUND;
+            } else if (integerElements != null && integerElements.get(index)) {
+                return Integer.valueOf((int) d);
+            }
+            return ScriptRuntime.wrapNumber(d);
+        }
+        return index < dense.length ? dense[index] : NOT_FOUND;
+    }
+
+    private boolean hasDenseElement(int index) {
+        if (index < 0) {
+            return false;
+        } else if (elementKind == INT_ELEMENTS) {
+            return index < length;
+        } else if (elementKind == DOUBLE_ELEMENTS) {
+            return index < doubleElements.length && !isHole(doubleElements[index]);
+        }
+        return dense != null && index < dense.length && dense[index] != NOT_FOUND;
+    }
+
+    /**
+     * Store a value at an index below the capacity of the dense store, changing the kind of store
+     * if the value does not fit in it. The caller updates the length.
+     */
+    private void setDenseElement(int index, Object value) {
+        if (elementKind == INT_ELEMENTS) {
+            if (value instanceof Integer && index <= length) {
+                intElements[index] = ((Integer) value).intValue();
+                return;
+            }
+            if (value instanceof Integer || value instanceof Double) {
+                toDoubleElements();
+            } else {
+                toObjectElements();
+            }
+        }
+        if (elementKind == DOUBLE_ELEMENTS) {
+            if (value instanceof Integer || value instanceof Double) {
+                setDoubleElement(index, value);
+                return;
+            }
+            toObjectElements();
+        }
+        dense[index] = value;
+    }
+
+    private void setDoubleElement(int index, double value) {
+        // Keep the hole marker out of the array
+        doubleElements[index] = Double.isNaN(value) ? Double.NaN : value;
+        if (integerElements != null) {
+            integerElements.clear(index);
+        }
+    }
+
+    /** Store an Integer or Double, remembering which of the two it was. */
+    private void setDoubleElement(int index, Object value) {
+        if (value instanceof Integer) {
+            doubleElements[index] = ((Integer) value).intValue();
+            if (integerElements == null) {
+                integerElements = new BitSet();
+            }
+            integerElements.set(index);
+        } else {
+            setDoubleElement(index, ((Double) value).doubleValue());
+        }
+    }
+
+    private void deleteDenseElement(int index) {
+        if (elementKind == INT_ELEMENTS) {
+            if (index >= length) {
+                return;
+            }
+            toDoubleElements();
+        }
+        if (elementKind == DOUBLE_ELEMENTS) {
+            doubleElements[index] = HOLE;
+            if (integerElements != null) {
+                integerElements.clear(index);
+            }
+        } else {
+            dense[index] = NOT_FOUND;
+        }
+    }
+
+    /** Remove the elements from an index to the end of the dense store. */
+    private void clearDenseElements(int from) {
+        if (elementKind == DOUBLE_ELEMENTS) {
+            Arrays.fill(doubleElements, from, doubleElements.length, HOLE);
+            if (integerElements != null) {
+                integerElements.clear(from, doubleElements.length);
+            }
+        } else if (elementKind == OBJECT_ELEMENTS) {
+            Arrays.fill(dense, from, dense.length, NOT_FOUND);
+        }
+    }
+
+    /** Copy elements from the dense store, boxing them if necessary. */
+    private void copyDenseElements(int from, Object[] dst, int dstPos, int count) {
+        if (elementKind == OBJECT_ELEMENTS) {
+            System.arraycopy(dense, from, dst, dstPos, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                dst[dstPos + i] = denseElement(from + i);
+            }
+        }
+    }
+
+    /** Change an array of Integer values to one of numbers, so that it may hold holes. */
+    private void toDoubleElements() {
+        double[] values = new double[intElements.length];
+        int len = (int) length;
+        for (int i = 0; i < len; i++) {
+            values[i] = intElements[i];
+        }
+        Arrays.fill(values, len, values.length, HOLE);
+        doubleElements = values;
+        integerElements = new BitSet(len);
+        integerElements.set(0, len);
+        intElements = null;
+        elementKind = DOUBLE_ELEMENTS;
+    }
+
+    /**
+     * Box the elements into {@code dense}, which all the operations that work on the dense store
+     * directly, other than the simple reads and writes above, expect.
+     */
+    private void toObjectElements() {
+        if (elementKind == OBJECT_ELEMENTS) {
+            return;
+        }
+        Object[] values = new Object[denseCapacity()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = denseElement(i);
+        }
+        dense = values;
+        intElements = null;
+        doubleElements = null;
+        integerElements = null;
+        elementKind = OBJECT_ELEMENTS;
+    }
+
     @Override
     public void put(int index, Scriptable start, Object value) {
+        if (start == this && isShared()) {
+            super.put(index, start, value);
+            growSharedLength(index);
+            return;
+        }
         var slot = denseOnly ? null : getMap().query(null, index);
         if (start == this
                 && !isSealed()
-                && dense != null
+                && hasDense()
                 && 0 <= index
                 && (denseOnly || (slot == null || !slot.isSetterSlot()))) {
             if (!isExtensible() && this.length <= index) {
                 return;
-            } else if (index < dense.length) {
-                dense[index] = value;
+            } else if (index < denseCapacity()) {
+                setDenseElement(index, value);
                 if (this.length <= index) {
                     this.length = (long) index + 1;
                     this.modCount++;
                 }
                 return;
             } else if (denseOnly
-                    && index < dense.length * GROW_FACTOR
+                    && index < denseCapacity() * GROW_FACTOR
                     && ensureCapacity(index + 1)) {
-                dense[index] = value;
+                setDenseElement(index, value);
                 this.length = (long) index + 1;
                 this.modCount++;
                 return;
             } else {
-                denseOnly = false;
+                setDenseOnly(false);
             }
         }
         super.put(index, start, value);
@@ -377,12 +613,12 @@ public class NativeArray extends ScriptableObject implements List {
     @Override
     public void delete(int index) {
         var slot = denseOnly ? null : getMap().query(null, index);
-        if (dense != null
+        if (hasDense()
                 && 0 <= index
-                && index < dense.length
+                && index < denseCapacity()
                 && !isSealed()
                 && (denseOnly || (slot == null || !slot.isSetterSlot()))) {
-            dense[index] = NOT_FOUND;
+            deleteDenseElement(index);
         } else {
             super.delete(index);
         }
@@ -394,12 +630,12 @@ public class NativeArray extends ScriptableObject implements List {
 
     public void deleteInternal(CompoundOperationMap compoundOp, int index) {
         var slot = denseOnly ? null : compoundOp.query(null, index);
-        if (dense != null
+        if (hasDense()
                 && 0 <= index
-                && index < dense.length
+                && index < denseCapacity()
                 && !isSealed()
                 && (denseOnly || (slot == null || !slot.isSetterSlot()))) {
-            dense[index] = NOT_FOUND;
+            deleteDenseElement(index);
         } else {
             compoundOp.compute(this, null, index, ScriptableObject::checkSlotRemoval);
         }
@@ -408,10 +644,10 @@ public class NativeArray extends ScriptableObject implements List {
     @Override
     public Object[] getIds(CompoundOperationMap map, boolean nonEnumerable, boolean getSymbols) {
         Object[] superIds = super.getIds(map, nonEnumerable, getSymbols);
-        if (dense == null) {
+        if (!hasDense()) {
             return superIds;
         }
-        int N = dense.length;
+        int N = denseCapacity();
         long currentLength = length;
         if (N > currentLength) {
             N = (int) currentLength;
@@ -425,7 +661,7 @@ public class NativeArray extends ScriptableObject implements List {
         int presentCount = 0;
         for (int i = 0; i != N; ++i) {
             // Replace existing elements by their indexes
-            if (dense[i] != NOT_FOUND) {
+            if (hasDenseElement(i)) {
                 ids[presentCount] = Integer.valueOf(i);
                 ++presentCount;
             }
@@ -468,7 +704,7 @@ public class NativeArray extends ScriptableObject implements List {
 
     @Override
     public int getAttributes(int index) {
-        if (dense != null && index >= 0 && index < dense.length && dense[index] != NOT_FOUND) {
+        if (hasDenseElement(index)) {
             return EMPTY;
         }
         return super.getAttributes(index);
@@ -476,10 +712,10 @@ public class NativeArray extends ScriptableObject implements List {
 
     @Override
     protected DescriptorInfo getOwnPropertyDescriptor(Context cx, Object id) {
-        if (dense != null) {
+        if (hasDense()) {
             int index = toDenseIndex(id);
-            if (0 <= index && index < dense.length && dense[index] != NOT_FOUND) {
-                Object value = dense[index];
+            if (hasDenseElement(index)) {
+                Object value = denseElement(index);
                 return defaultIndexPropertyDescriptor(value);
             }
         }
@@ -490,12 +726,21 @@ public class NativeArray extends ScriptableObject implements List {
     protected boolean defineOwnProperty(
             Context cx, Object id, DescriptorInfo desc, boolean checkValid) {
         long index = toArrayIndex(id);
+        if (isShared()) {
+            if ("length".equals(id) && desc.value != NOT_FOUND) {
+                setSharedLength(desc.value);
+            }
+            super.defineOwnProperty(cx, id, desc, checkValid);
+            growSharedLength(index);
+            return true;
+        }
         if (index >= length) {
             length = index + 1;
             modCount++;
         }
 
-        if (index != -1 && dense != null) {
+        if (index != -1 && hasDense()) {
+            toObjectElements();
             Object[] values = dense;
             dense = null;
             denseOnly = false;
@@ -754,6 +999,9 @@ public class NativeArray extends ScriptableObject implements List {
     }
 
     public long getLength() {
+        if (isShared()) {
+            return ScriptRuntime.toUint32(super.get("length", this));
+        }
         return length;
     }
 
@@ -776,6 +1024,9 @@ public class NativeArray extends ScriptableObject implements List {
      */
     void setDenseOnly(boolean denseOnly) {
         if (denseOnly && !this.denseOnly) throw new IllegalArgumentException();
+        if (!denseOnly) {
+            toObjectElements();
+        }
         this.denseOnly = denseOnly;
     }
 
@@ -783,6 +1034,104 @@ public class NativeArray extends ScriptableObject implements List {
         return denseOnly;
     }
 
+    /**
+     * Return true if this array is shared by the scopes of a {@link ScopeTemplate}, as
+     * "Array.prototype" is. Each scope keeps its own copy of the properties of a shared object, so
+     * the elements of a shared array are kept in its slots rather than in the dense store, and its
+     * length is the value of the "length" property that the current scope sees, rather than the
+     * field.
+     */
+    private boolean isShared() {
+        return isSealed() && getMap() instanceof SharedSlotMap;
+    }
+
+    /**
+     * Keep the elements of this array in its slots, so that a {@link ScopeTemplate} can share it.
+     */
+    void moveElementsToSlots() {
+        if (!hasDense()) {
+            denseOnly = false;
+            return;
+        }
+        toObjectElements();
+        Object[] values = dense;
+        dense = null;
+        denseOnly = false;
+        for (int i = 0; i < values.length && i < length; i++) {
+            if (values[i] != NOT_FOUND) {
+                Slot slot = new Slot(null, i, EMPTY);
+                slot.value = values[i];
+                getMap().add(this, slot);
+            }
+        }
+    }
+
+    /** Make the length of a shared array cover an element that the current scope added. */
+    private void growSharedLength(long index) {
+        if (index >= 0 && index >= getLength()) {
+            super.put("length", this, ScriptRuntime.wrapNumber((double) (index + 1)));
+        }
+    }
+
+    /**
+     * Change the length of a shared array for the current scope only, deleting the elements of its
+     * copy that are past the new length.
+     */
+    private void setSharedLength(Object value) {
+        long newLength = checkLength(value);
+        if ((getAttributes("length") & READONLY) == 0 && newLength < getLength()) {
+            for (Object id : getAllIds()) {
+                long index = toArrayIndex(id);
+                if (index >= newLength) {
+                    if (id instanceof Integer) {
+                        delete(((Integer) id).intValue());
+                    } else {
+                        delete(id.toString());
+                    }
+                }
+            }
+        }
+        super.put("length", this, ScriptRuntime.wrapNumber((double) newLength));
+    }
+
+    /**
+     * Return true if the element at an index is a number held unboxed in the dense store, so that
+     * {@link #getNumberElement} may read it.
+     */
+    public boolean hasNumberElement(int index) {
+        return elementKind != OBJECT_ELEMENTS && hasDenseElement(index);
+    }
+
+    /**
+     * Return the element at an index for which {@link #hasNumberElement} is true, without boxing
+     * it.
+     */
+    public double getNumberElement(int index) {
+        if (elementKind == INT_ELEMENTS) {
+            return intElements[index];
+        }
+        return doubleElements[index];
+    }
+
+    /**
+     * Replace an existing element of an array whose elements are held unboxed with a number,
+     * without boxing it. The element is read back as a Double, as if the number had been boxed by
+     * {@link ScriptRuntime#wrapNumber} and stored with {@link #put(int, Scriptable, Object)}.
+     *
+     * @return false if the element could not be replaced this way, in which case the caller
+     *     should fall back to {@link #put(int, Scriptable, Object)}
+     */
+    public boolean setNumberElement(int index, double value) {
+        if (!denseOnly || elementKind == OBJECT_ELEMENTS || isSealed() || !hasDenseElement(index)) {
+            return false;
+        }
+        if (elementKind == INT_ELEMENTS) {
+            toDoubleElements();
+        }
+        setDoubleElement(index, value);
+        return true;
+    }
+
     private boolean setLength(CompoundOperationMap compoundOp, double d) {
         /* XXX do we satisfy this?
          * 15.4.5.1 [[Put]](P, V):
@@ -790,6 +1139,10 @@ public class NativeArray extends ScriptableObject implements List {
          * 2. If Result(1) is false, return.
          * ?
          */
+        if (isShared()) {
+            setSharedLength(d);
+            return true;
+        }
         long longVal = ScriptRuntime.toUint32(d);
 
         if ((lengthAttr & READONLY) != 0) {
@@ -804,18 +1157,22 @@ public class NativeArray extends ScriptableObject implements List {
         if (denseOnly) {
             if (longVal < length) {
                 // downcast okay because denseOnly
-                Arrays.fill(dense, (int) longVal, dense.length, NOT_FOUND);
+                clearDenseElements((int) longVal);
                 length = longVal;
                 modCount++;
                 return true;
             } else if (longVal < MAX_PRE_GROW_SIZE
                     && longVal < (length * GROW_FACTOR)
                     && ensureCapacity((int) longVal)) {
+                if (elementKind == INT_ELEMENTS && longVal > length) {
+                    // The new elements are holes
+                    toDoubleElements();
+                }
                 length = longVal;
                 modCount++;
                 return true;
             } else {
-                denseOnly = false;
+                setDenseOnly(false);
             }
         }
         if (longVal < length) {
@@ -1086,13 +1443,11 @@ public class NativeArray extends ScriptableObject implements List {
                     if (i != 0) {
                         sb.append(separator);
                     }
-                    if (i < na.dense.length) {
-                        Object temp = na.dense[i];
-                        if (temp != null
-                                && temp != Undefined.instance
-                                && temp != Scriptable.NOT_FOUND) {
-                            sb.append(ScriptRuntime.toString(temp));
-                        }
+                    Object temp = na.denseElement(i);
+                    if (temp != null
+                            && temp != Undefined.instance
+                            && temp != Scriptable.NOT_FOUND) {
+                        sb.append(ScriptRuntime.toString(temp));
                     }
                 }
                 return sb.toString();
@@ -1134,6 +1489,7 @@ public class NativeArray extends ScriptableObject implements List {
         if (o instanceof NativeArray) {
             NativeArray na = (NativeArray) o;
             if (na.denseOnly) {
+                na.toObjectElements();
                 for (int i = 0, j = ((int) na.length) - 1; i < j; i++, j--) {
                     Object temp = na.dense[i];
                     na.dense[i] = na.dense[j];
@@ -1206,7 +1562,8 @@ public class NativeArray extends ScriptableObject implements List {
             NativeArray na = (NativeArray) o;
             if (na.denseOnly && na.ensureCapacity((int) na.length + args.length)) {
                 for (Object arg : args) {
-                    na.dense[(int) na.length++] = arg;
+                    na.setDenseElement((int) na.length, arg);
+                    na.length++;
                     na.modCount++;
                 }
                 return ScriptRuntime.wrapNumber((double) na.length);
@@ -1238,11 +1595,16 @@ public class NativeArray extends ScriptableObject implements List {
         if (o instanceof NativeArray) {
             NativeArray na = (NativeArray) o;
             if (na.denseOnly && na.length > 0) {
+                // Read the element while it is still below the length, which the int store
+                // checks, and clear it from the other stores before the length shrinks
+                int last = (int) (na.length - 1);
+                result = na.denseElement(last);
+                if (na.elementKind != INT_ELEMENTS) {
+                    na.deleteDenseElement(last);
+                }
                 na.length--;
                 na.modCount++;
-                result = na.dense[(int) na.length];
-                na.dense[(int) na.length] = NOT_FOUND;
-                return result;
+                return result == NOT_FOUND ? Undefined.instance : result;
             }
         }
         long length = getLengthProperty(cx, o);
@@ -1272,6 +1634,7 @@ public class NativeArray extends ScriptableObject implements List {
         if (o instanceof NativeArray) {
             NativeArray na = (NativeArray) o;
             if (na.denseOnly && na.length > 0) {
+                na.toObjectElements();
                 na.length--;
                 na.modCount++;
                 Object result = na.dense[0];
@@ -1315,6 +1678,9 @@ public class NativeArray extends ScriptableObject implements List {
 
         if (o instanceof NativeArray) {
             NativeArray na = (NativeArray) o;
+            if (na.denseOnly) {
+                na.toObjectElements();
+            }
             if (na.denseOnly && na.ensureCapacity((int) na.length + args.length)) {
                 System.arraycopy(na.dense, 0, na.dense, args.length, (int) na.length);
                 System.arraycopy(args, 0, na.dense, 0, args.length);
@@ -1425,7 +1791,8 @@ public class NativeArray extends ScriptableObject implements List {
                 if (denseFrom && denseRes) {
                     int intLen = (int) (end - begin);
                     Object[] copy = new Object[intLen];
-                    System.arraycopy(na.dense, (int) begin, copy, 0, intLen);
+                    na.copyDenseElements((int) begin, copy, 0, intLen);
+                    nar.toObjectElements();
                     nar.dense = copy;
                     try (var map = nar.startCompoundOp(true)) {
                         nar.setLength(map, intLen);
@@ -1450,6 +1817,9 @@ public class NativeArray extends ScriptableObject implements List {
         }
 
         /* Find the direction (up or down) to copy and make way for argv. */
+        if (denseFrom) {
+            na.toObjectElements();
+        }
         if (denseFrom
                 && length + delta < Integer.MAX_VALUE
                 && na.ensureCapacity((int) (length + delta))) {
@@ -1540,9 +1910,9 @@ public class NativeArray extends ScriptableObject implements List {
                 final NativeArray denseArg = (NativeArray) arg;
                 if (denseArg.denseOnly) {
                     // Now we can optimize
+                    denseResult.toObjectElements();
                     denseResult.ensureCapacity((int) newlen);
-                    System.arraycopy(
-                            denseArg.dense, 0, denseResult.dense, (int) offset, (int) srclen);
+                    denseArg.copyDenseElements(0, denseResult.dense, (int) offset, (int) srclen);
                     return newlen;
                 }
                 // We could also optimize here if we are copying to a dense target from a non-dense
@@ -1662,7 +2032,7 @@ public class NativeArray extends ScriptableObject implements List {
             if (na.denseOnly) {
                 Scriptable proto = na.getPrototype();
                 for (int i = (int) start; i < length; i++) {
-                    Object val = na.dense[i];
+                    Object val = na.denseElement(i);
                     if (val == NOT_FOUND && proto != null) {
                         val = ScriptableObject.getProperty(proto, i);
                     }
@@ -1714,7 +2084,7 @@ public class NativeArray extends ScriptableObject implements List {
             if (na.denseOnly) {
                 Scriptable proto = na.getPrototype();
                 for (int i = (int) start; i >= 0; i--) {
-                    Object val = na.dense[i];
+                    Object val = na.denseElement(i);
                     if (val == NOT_FOUND && proto != null) {
                         val = ScriptableObject.getProperty(proto, i);
                     }
@@ -1762,7 +2132,7 @@ public class NativeArray extends ScriptableObject implements List {
             if (na.denseOnly) {
                 Scriptable proto = na.getPrototype();
                 for (int i = (int) k; i < len; i++) {
-                    Object elementK = na.dense[i];
+                    Object elementK = na.denseElement(i);
                     if (elementK == NOT_FOUND && proto != null) {
                         elementK = ScriptableObject.getProperty(proto, i);
                     }
@@ -1869,6 +2239,7 @@ public class NativeArray extends ScriptableObject implements List {
         if ((o instanceof NativeArray) && (count <= Integer.MAX_VALUE)) {
             NativeArray na = (NativeArray) o;
             if (na.denseOnly) {
+                na.toObjectElements();
                 for (; count > 0; count--) {
                     na.dense[(int) to] = na.dense[(int) from];
                     from += direction;
@@ -2560,6 +2931,35 @@ public class NativeArray extends ScriptableObject implements List {
     /** True if all numeric properties are stored in {@code dense}. */
     private boolean denseOnly;
 
+    /**
+     * Where the elements of a dense array are kept. While all the elements are numbers they are
+     * stored unboxed in {@code intElements} or {@code doubleElements} instead of {@code dense},
+     * and the array moves to a more general store the first time that a value does not fit. Only
+     * arrays that are dense only use the unboxed stores.
+     */
+    private int elementKind;
+
+    /** The elements of an array of Integer values, which has no holes below its length. */
+    private int[] intElements;
+
+    /** The elements of an array of numbers, in which holes are {@link #HOLE}. */
+    private double[] doubleElements;
+
+    /**
+     * The indexes of the elements in {@code doubleElements} that were stored as Integer values, so
+     * that they are read back as Integer rather than Double. Null if there are none.
+     */
+    private BitSet integerElements;
+
+    private static final int OBJECT_ELEMENTS = 0;
+    private static final int INT_ELEMENTS = 1;
+    private static final int DOUBLE_ELEMENTS = 2;
+
+    /** A NaN that is never stored as a value, because those are stored as {@link Double#NaN}. */
+    private static final long HOLE_BITS = 0x7ff8000000000001L;
+
+    private static final double HOLE = Double.longBitsToDouble(HOLE_BITS);
+
     /** The maximum size of {@code dense} that will be allocated initially. */
     private static int maximumInitialCapacity = 10000;
 
@@ -35,6 +35,7 @@ public final class NativeCall extends IdScriptableObject {
             boolean isStrict,
             boolean argsHasRest,
             boolean requiresArgumentObject) {
+        AllocationProfiler.allocated(AllocationProfiler.Kind.ACTIVATION);
         this.function = function;
         this.isArrow = isArrow;
 
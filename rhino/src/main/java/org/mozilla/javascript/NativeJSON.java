@@ -6,13 +6,14 @@
 
 package org.mozilla.javascript;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.Array;
 import java.math.BigInteger;
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import org.mozilla.javascript.json.JsonParser;
@@ -30,6 +31,8 @@ public final class NativeJSON extends ScriptableObject {
 
     private static final int MAX_STRINGIFY_GAP_LENGTH = 10;
 
+    private static final int FLUSH_SIZE = 8192;
+
     static Object init(Context cx, Scriptable scope, boolean sealed) {
         NativeJSON json = new NativeJSON();
         json.setPrototype(getObjectPrototype(scope));
@@ -161,7 +164,8 @@ public final class NativeJSON extends ScriptableObject {
                 String indent,
                 String gap,
                 Callable replacer,
-                Object[] propertyList) {
+                Object[] propertyList,
+                Appendable out) {
             this.cx = cx;
             this.scope = scope;
 
@@ -169,6 +173,7 @@ public final class NativeJSON extends ScriptableObject {
             this.gap = gap;
             this.replacer = replacer;
             this.propertyList = propertyList;
+            this.out = out;
         }
 
         ArrayDeque<Object> stack = new ArrayDeque<>();
@@ -179,10 +184,85 @@ public final class NativeJSON extends ScriptableObject {
 
         Context cx;
         Scriptable scope;
+
+        // The output is appended to this buffer, which is written to "out", if there is one,
+        // whenever it grows beyond FLUSH_SIZE
+        final StringBuilder buffer = new StringBuilder();
+        final Appendable out;
+        private char[] chars;
+
+        void flushIfFull() {
+            if (out != null && buffer.length() >= FLUSH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            try {
+                if (out instanceof Writer) {
+                    int length = buffer.length();
+                    if (chars == null || chars.length < length) {
+                        chars = new char[Math.max(length, FLUSH_SIZE)];
+                    }
+                    buffer.getChars(0, length, chars, 0);
+                    ((Writer) out).write(chars, 0, length);
+                } else {
+                    out.append(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.setLength(0);
+        }
     }
 
     public static Object stringify(
             Context cx, Scriptable scope, Object value, Object replacer, Object space) {
+        StringifyState state = createStringifyState(cx, scope, replacer, space, null);
+        if (!stringify(value, state)) {
+            return Undefined.instance;
+        }
+        return state.buffer.toString();
+    }
+
+    /**
+     * Convert a value to JSON like "JSON.stringify", and write the result to an Appendable, such
+     * as a Writer, instead of returning it as a String. The output is written in chunks while the
+     * value is converted, so the whole of it is never held in memory. If an exception is thrown,
+     * part of the output may already have been written.
+     *
+     * @param cx the current Context
+     * @param scope the scope to use for any objects that are created
+     * @param value the value to convert
+     * @param replacer a function or array of property names, as for JSON.stringify, or null
+     * @param space the indentation to use, as for JSON.stringify, or null
+     * @param out where the output is written
+     * @return false if nothing was written because the value cannot be converted to JSON, in
+     *     which case JSON.stringify would return undefined
+     * @throws IOException if "out" throws an IOException
+     */
+    public static boolean stringify(
+            Context cx,
+            Scriptable scope,
+            Object value,
+            Object replacer,
+            Object space,
+            Appendable out)
+            throws IOException {
+        StringifyState state = createStringifyState(cx, scope, replacer, space, out);
+        try {
+            if (!stringify(value, state)) {
+                return false;
+            }
+            state.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return true;
+    }
+
+    private static StringifyState createStringifyState(
+            Context cx, Scriptable scope, Object replacer, Object space, Appendable out) {
         String indent = "";
         String gap = "";
 
@@ -235,17 +315,30 @@ public final class NativeJSON extends ScriptableObject {
             }
         }
 
-        StringifyState state =
-                new StringifyState(cx, scope, indent, gap, replacerFunction, propertyList);
+        return new StringifyState(cx, scope, indent, gap, replacerFunction, propertyList, out);
+    }
 
+    /** Write "value" to the state, or return false if it cannot be converted to JSON. */
+    private static boolean stringify(Object value, StringifyState state) {
         ScriptableObject wrapper = new NativeObject();
-        wrapper.setParentScope(scope);
-        wrapper.setPrototype(ScriptableObject.getObjectPrototype(scope));
+        wrapper.setParentScope(state.scope);
+        wrapper.setPrototype(ScriptableObject.getObjectPrototype(state.scope));
         wrapper.defineProperty("", value, 0);
-        return str("", wrapper, state);
+        Object prepared = prepare("", wrapper, state);
+        if (prepared == Undefined.instance) {
+            return false;
+        }
+        write(prepared, state);
+        return true;
     }
 
-    private static Object str(Object key, Scriptable holder, StringifyState state) {
+    /**
+     * Return the value that property "key" of "holder" is converted to, after calling "toJSON"
+     * and the replacer and unwrapping primitive wrappers, or Undefined if the property is not
+     * converted at all. The result is null, a Boolean, a CharSequence, a Number or a Scriptable,
+     * which is passed to {@link #write}.
+     */
+    private static Object prepare(Object key, Scriptable holder, StringifyState state) {
         Object value = null;
         Object unwrappedJavaValue = null;
 
@@ -317,54 +410,52 @@ public final class NativeJSON extends ScriptableObject {
             value = value.toString();
         }
 
-        if (value == null) return "null";
-        if (value.equals(Boolean.TRUE)) return "true";
-        if (value.equals(Boolean.FALSE)) return "false";
-
-        if (value instanceof CharSequence) {
-            return quote(value.toString());
-        }
-
-        if (value instanceof Number) {
+        if (value == null
+                || value instanceof Boolean
+                || value instanceof CharSequence
+                || value instanceof Number) {
             if (value instanceof BigInteger) {
                 throw ScriptRuntime.typeErrorById("msg.json.cant.serialize", "BigInt");
             }
-            double d = ((Number) value).doubleValue();
-            if (!Double.isNaN(d)
-                    && d != Double.POSITIVE_INFINITY
-                    && d != Double.NEGATIVE_INFINITY) {
-                return ScriptRuntime.toString(value);
-            }
-            return "null";
+            return value;
         }
 
         if (unwrappedJavaValue != null) {
-            return javaToJSON(value, state);
+            return prepareJava(value, state);
         }
 
         if ((value instanceof Scriptable) && !(value instanceof Callable)) {
-            if (isObjectArrayLike(value)) {
-                return ja((Scriptable) value, state);
-            }
-            return jo((Scriptable) value, state);
+            return value;
         }
         return Undefined.instance;
     }
 
-    private static String join(Collection<Object> objs, String delimiter) {
-        if (objs == null || objs.isEmpty()) {
-            return "";
-        }
-        Iterator<Object> iter = objs.iterator();
-        if (!iter.hasNext()) return "";
-        StringBuilder builder = new StringBuilder(iter.next().toString());
-        while (iter.hasNext()) {
-            builder.append(delimiter).append(iter.next());
+    /** Append a value that was returned by {@link #prepare} to the output. */
+    private static void write(Object value, StringifyState state) {
+        StringBuilder out = state.buffer;
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Boolean) {
+            out.append(((Boolean) value).booleanValue() ? "true" : "false");
+        } else if (value instanceof CharSequence) {
+            quote(value.toString(), out);
+        } else if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            if (!Double.isNaN(d)
+                    && d != Double.POSITIVE_INFINITY
+                    && d != Double.NEGATIVE_INFINITY) {
+                out.append(ScriptRuntime.toString(value));
+            } else {
+                out.append("null");
+            }
+        } else if (isObjectArrayLike(value)) {
+            ja((Scriptable) value, state);
+        } else {
+            jo((Scriptable) value, state);
         }
-        return builder.toString();
     }
 
-    private static String jo(Scriptable value, StringifyState state) {
+    private static void jo(Scriptable value, StringifyState state) {
         Object trackValue = value, unwrapped = null;
         if (value instanceof Wrapper) {
             trackValue = unwrapped = ((Wrapper) value).unwrap();
@@ -413,40 +504,40 @@ public final class NativeJSON extends ScriptableObject {
             k = value.getIds();
         }
 
-        ArrayList<Object> partial = new ArrayList<>();
-
+        StringBuilder out = state.buffer;
+        boolean empty = true;
         for (Object p : k) {
-            Object strP = str(p, value, state);
+            Object strP = prepare(p, value, state);
             if (strP != Undefined.instance) {
-                String member = quote(p.toString()) + ":";
+                out.append(empty ? '{' : ',');
+                empty = false;
+                if (state.gap.length() > 0) {
+                    out.append('\n').append(state.indent);
+                }
+                quote(p.toString(), out);
+                out.append(':');
                 if (state.gap.length() > 0) {
-                    member = member + " ";
+                    out.append(' ');
                 }
-                member = member + strP;
-                partial.add(member);
+                write(strP, state);
+                state.flushIfFull();
             }
         }
 
-        final String finalValue;
-
-        if (partial.isEmpty()) {
-            finalValue = "{}";
+        if (empty) {
+            out.append("{}");
         } else {
-            if (state.gap.length() == 0) {
-                finalValue = '{' + join(partial, ",") + '}';
-            } else {
-                String separator = ",\n" + state.indent;
-                String properties = join(partial, separator);
-                finalValue = "{\n" + state.indent + properties + '\n' + stepback + '}';
+            if (state.gap.length() > 0) {
+                out.append('\n').append(stepback);
             }
+            out.append('}');
         }
 
         state.stack.pop();
         state.indent = stepback;
-        return finalValue;
     }
 
-    private static String ja(Scriptable value, StringifyState state) {
+    private static void ja(Scriptable value, StringifyState state) {
         Object trackValue = value, unwrapped = null;
         if (value instanceof Wrapper) {
             trackValue = unwrapped = ((Wrapper) value).unwrap();
@@ -458,7 +549,6 @@ public final class NativeJSON extends ScriptableObject {
 
         String stepback = state.indent;
         state.indent = state.indent + state.gap;
-        ArrayList<Object> partial = new ArrayList<>();
 
         if (unwrapped != null) {
             Object[] elements = null;
@@ -483,42 +573,40 @@ public final class NativeJSON extends ScriptableObject {
 
         long len = ((NativeArray) value).getLength();
 
+        StringBuilder out = state.buffer;
         for (long index = 0; index < len; index++) {
             Object strP;
             if (index > Integer.MAX_VALUE) {
-                strP = str(Long.toString(index), value, state);
+                strP = prepare(Long.toString(index), value, state);
             } else {
-                strP = str(Integer.valueOf((int) index), value, state);
+                strP = prepare(Integer.valueOf((int) index), value, state);
+            }
+            out.append(index == 0 ? '[' : ',');
+            if (state.gap.length() > 0) {
+                out.append('\n').append(state.indent);
             }
             if (strP == Undefined.instance) {
-                partial.add("null");
+                out.append("null");
             } else {
-                partial.add(strP);
+                write(strP, state);
             }
+            state.flushIfFull();
         }
 
-        final String finalValue;
-
-        if (partial.isEmpty()) {
-            finalValue = "[]";
+        if (len == 0) {
+            out.append("[]");
         } else {
-            if (state.gap.length() == 0) {
-                finalValue = '[' + join(partial, ",") + ']';
-            } else {
-                String separator = ",\n" + state.indent;
-                String properties = join(partial, separator);
-                finalValue = "[\n" + state.indent + properties + '\n' + stepback + ']';
+            if (state.gap.length() > 0) {
+                out.append('\n').append(stepback);
             }
+            out.append(']');
         }
 
         state.stack.pop();
         state.indent = stepback;
-        return finalValue;
     }
 
-    private static String quote(String string) {
-        StringBuilder product =
-                new StringBuilder(string.length() + 2); // two extra chars for " on either side
+    private static void quote(String string, StringBuilder product) {
         product.append('"');
         int length = string.length();
         char prev = 0;
@@ -566,7 +654,6 @@ public final class NativeJSON extends ScriptableObject {
             prev = c;
         }
         product.append('"');
-        return product.toString();
     }
 
     static boolean isLeadingSurrogate(char c) {
@@ -577,7 +664,7 @@ public final class NativeJSON extends ScriptableObject {
         return c >= 0xDC00 && c <= 0xDFFF;
     }
 
-    private static Object javaToJSON(Object value, StringifyState state) {
+    private static Object prepareJava(Object value, StringifyState state) {
         value = state.cx.getJavaToJSONConverter().apply(value);
         value = Context.javaToJS(value, state.scope, state.cx);
 
@@ -585,7 +672,7 @@ public final class NativeJSON extends ScriptableObject {
         wrapper.setParentScope(state.scope);
         wrapper.setPrototype(ScriptableObject.getObjectPrototype(state.scope));
         wrapper.defineProperty("", value, 0);
-        return str("", wrapper, state);
+        return prepare("", wrapper, state);
     }
 
     private static boolean isObjectArrayLike(Object o) {
@@ -6,6 +6,9 @@
 
 package org.mozilla.javascript;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -133,54 +136,56 @@ public class NativeJavaMethod extends BaseFunction {
         }
 
         int index = findCachedFunction(cx, args);
-        if (index < 0) {
-            Class<?> c = methods[0].method().getDeclaringClass();
-            String sig = c.getName() + '.' + getFunctionName() + '(' + scriptSignature(args) + ')';
-            throw Context.reportRuntimeErrorById("msg.java.no_such_method", sig);
-        }
-
-        MemberBox meth = methods[index];
+        return callResolved(index, cx, scope, thisObj, args);
+    }
 
-        Map<VariableTypeInfo, TypeInfo> mapping = Map.of();
-        if (thisObj instanceof NativeJavaObject) {
-            var staticType = ((NativeJavaObject) thisObj).staticType;
-            if (staticType instanceof ParameterizedTypeInfo) {
-                mapping =
-                        ((ParameterizedTypeInfo) staticType)
-                                .extractConsolidationMapping(TypeInfoFactory.get(scope));
-            }
+    /**
+     * Call this method like {@link #call}, using the overload that was chosen by the last call
+     * from the same call site if the arguments have the same types as they had then. The
+     * interpreter keeps one cache slot per call instruction, so that a call site that always
+     * passes the same types to the same method only resolves the overload once, however many
+     * other call sites call the method.
+     *
+     * @param siteCache the call site caches of the calling code
+     * @param site the index of the cache slot of the calling instruction
+     */
+    Object call(
+            Context cx,
+            Scriptable scope,
+            Scriptable thisObj,
+            Object[] args,
+            Object[] siteCache,
+            int site) {
+        if (methods.length <= 1) {
+            return call(cx, scope, thisObj, args);
         }
-        args = meth.wrapArgsInternal(args, mapping);
-
-        Object javaObject;
-        if (meth.isStatic()) {
-            javaObject = null; // don't need an object
+        int index;
+        Object cached = siteCache[site];
+        if (cached instanceof CallSiteOverload
+                && ((CallSiteOverload) cached).method == this
+                && ((CallSiteOverload) cached).overload.matches(args)) {
+            index = ((CallSiteOverload) cached).overload.index;
         } else {
-            Scriptable o = thisObj;
-            Class<?> c = meth.getDeclaringClass();
-            for (; ; ) {
-                if (o == null) {
-                    throw Context.reportRuntimeErrorById(
-                            "msg.nonjava.method",
-                            getFunctionName(),
-                            ScriptRuntime.toString(thisObj),
-                            c.getName());
-                }
-                if (o instanceof Wrapper) {
-                    javaObject = ((Wrapper) o).unwrap();
-                    if (c.isInstance(javaObject)) {
-                        break;
-                    }
-                }
-                o = o.getPrototype();
-            }
+            index = findCachedFunction(cx, args);
+            siteCache[site] = new CallSiteOverload(this, new ResolvedOverload(args, index));
         }
+        return callResolved(index, cx, scope, thisObj, args);
+    }
+
+    private Object callResolved(
+            int index, Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+        if (index < 0) {
+            throw noSuchMethod(args);
+        }
+
+        MemberBox meth = methods[index];
+        args = meth.wrapArgsInternal(args, getConsolidationMapping(scope, thisObj));
+        Object javaObject = getJavaObject(meth, thisObj);
         if (debug) {
             printDebug("Calling ", meth, args);
         }
 
         var returnValue = meth.invoke(javaObject, args);
-        var returnType = meth.getReturnType();
 
         if (debug) {
             Class<?> actualType = (returnValue == null) ? null : returnValue.getClass();
@@ -190,19 +195,10 @@ public class NativeJavaMethod extends BaseFunction {
                             + " actual = "
                             + actualType
                             + " expect = "
-                            + returnType.asClass());
+                            + meth.getReturnType().asClass());
         }
 
-        if (returnType == TypeInfo.PRIMITIVE_VOID) {
-            // skip result wrapping if we don't need result at all
-            return Undefined.instance;
-        }
-
-        Object wrapped =
-                cx.getWrapFactory()
-                        .wrap(
-                                cx, scope,
-                                returnValue, returnType);
+        Object wrapped = wrapResult(meth, returnValue, cx, scope);
         if (debug) {
             Class<?> actualType = (wrapped == null) ? null : wrapped.getClass();
             System.err.println(" ----- Wrapped as " + wrapped + " class = " + actualType);
@@ -211,6 +207,175 @@ public class NativeJavaMethod extends BaseFunction {
         return wrapped;
     }
 
+    /**
+     * Return a method handle that calls this method with the same semantics as {@link #call}, with
+     * the type (Context, Scriptable scope, Scriptable thisObj, Object[] args)Object, or null if no
+     * overload can be called with the arguments. The overload is resolved once, using the types
+     * of "args", and the method handle of the Java method is a constant within the result, so
+     * that a call site that always calls the same Java method can be compiled as if it called the
+     * method directly. If this method is overloaded, the handle must only be used for arguments
+     * that pass the guard returned by {@link #getArgumentTypeGuard}. This is used by the linkers
+     * in the "optimizer" package and is not intended to be used by other code.
+     */
+    @SuppressWarnings("AndroidJdkLibsChecker")
+    public MethodHandle getDirectCallHandle(Context cx, Object[] args) {
+        if (methods.length == 0 || debug) {
+            return null;
+        }
+        int index = methods.length == 1 ? 0 : findCachedFunction(cx, args);
+        if (index < 0) {
+            return null;
+        }
+        MemberBox meth = methods[index];
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle prepare =
+                    lookup.findVirtual(
+                            NativeJavaMethod.class,
+                            "prepareDirectCall",
+                            MethodType.methodType(
+                                    Object[].class,
+                                    MemberBox.class,
+                                    Boolean.TYPE,
+                                    Context.class,
+                                    Scriptable.class,
+                                    Scriptable.class,
+                                    Object[].class));
+            MethodHandle javaObject =
+                    lookup.findVirtual(
+                            NativeJavaMethod.class,
+                            "getJavaObject",
+                            MethodType.methodType(
+                                    Object.class, MemberBox.class, Scriptable.class));
+            MethodHandle wrap =
+                    lookup.findVirtual(
+                            NativeJavaMethod.class,
+                            "wrapResult",
+                            MethodType.methodType(
+                                    Object.class,
+                                    MemberBox.class,
+                                    Object.class,
+                                    Context.class,
+                                    Scriptable.class));
+            // An overloaded method was already checked by resolving the overload, and the guard
+            // makes sure that the argument types do not change.
+            prepare = MethodHandles.insertArguments(prepare, 0, this, meth, methods.length == 1);
+            javaObject = MethodHandles.insertArguments(javaObject, 0, this, meth);
+            wrap = MethodHandles.insertArguments(wrap, 0, this, meth);
+
+            MethodType callType =
+                    MethodType.methodType(
+                            Object.class,
+                            Context.class,
+                            Scriptable.class,
+                            Scriptable.class,
+                            Object[].class);
+            // (Scriptable thisObj, Object[] javaArgs)
+            MethodHandle mh = MethodHandles.filterArguments(meth.invoker(), 0, javaObject);
+            // (Scriptable thisObj, Context cx, Scriptable scope, Scriptable thisObj, Object[] args)
+            mh = MethodHandles.collectArguments(mh, 1, prepare);
+            mh = MethodHandles.permuteArguments(mh, callType, 2, 0, 1, 2, 3);
+            // (Context cx, Scriptable scope, Scriptable thisObj, Object[] args, cx, scope)
+            mh = MethodHandles.collectArguments(wrap, 0, mh);
+            return MethodHandles.permuteArguments(mh, callType, 0, 1, 2, 3, 0, 1);
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            // The Java method cannot be called through a method handle, so let the caller
+            // fall back to "call", which will report the error.
+            return null;
+        }
+    }
+
+    /**
+     * Return a method handle with the type (Object[] args)boolean that tests whether the arguments
+     * have the same types as "args", so that they resolve to the same overload, or null if this
+     * method is not overloaded and no such test is needed. This is used by the linkers in the
+     * "optimizer" package and is not intended to be used by other code.
+     */
+    @SuppressWarnings("AndroidJdkLibsChecker")
+    public MethodHandle getArgumentTypeGuard(Object[] args) {
+        if (methods.length <= 1) {
+            return null;
+        }
+        try {
+            MethodHandle matches =
+                    MethodHandles.lookup()
+                            .findVirtual(
+                                    ResolvedOverload.class,
+                                    "matches",
+                                    MethodType.methodType(Boolean.TYPE, Object[].class));
+            return matches.bindTo(new ResolvedOverload(args, -1));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Check and convert the arguments for a direct call to one method, as done by "call". */
+    @SuppressWarnings("unused")
+    private Object[] prepareDirectCall(
+            MemberBox meth,
+            boolean check,
+            Context cx,
+            Scriptable scope,
+            Scriptable thisObj,
+            Object[] args) {
+        if (check && failFastConversionWeights(args, meth) == null) {
+            throw noSuchMethod(args);
+        }
+        return meth.wrapArgsInternal(args, getConsolidationMapping(scope, thisObj));
+    }
+
+    private RuntimeException noSuchMethod(Object[] args) {
+        Class<?> c = methods[0].method().getDeclaringClass();
+        String sig = c.getName() + '.' + getFunctionName() + '(' + scriptSignature(args) + ')';
+        throw Context.reportRuntimeErrorById("msg.java.no_such_method", sig);
+    }
+
+    private static Map<VariableTypeInfo, TypeInfo> getConsolidationMapping(
+            Scriptable scope, Scriptable thisObj) {
+        if (thisObj instanceof NativeJavaObject) {
+            var staticType = ((NativeJavaObject) thisObj).staticType;
+            if (staticType instanceof ParameterizedTypeInfo) {
+                return ((ParameterizedTypeInfo) staticType)
+                        .extractConsolidationMapping(TypeInfoFactory.get(scope));
+            }
+        }
+        return Map.of();
+    }
+
+    /** Return the Java object that the method should be called on, or null if it is static. */
+    private Object getJavaObject(MemberBox meth, Scriptable thisObj) {
+        if (meth.isStatic()) {
+            return null; // don't need an object
+        }
+        Scriptable o = thisObj;
+        Class<?> c = meth.getDeclaringClass();
+        for (; ; ) {
+            if (o == null) {
+                throw Context.reportRuntimeErrorById(
+                        "msg.nonjava.method",
+                        getFunctionName(),
+                        ScriptRuntime.toString(thisObj),
+                        c.getName());
+            }
+            if (o instanceof Wrapper) {
+                Object javaObject = ((Wrapper) o).unwrap();
+                if (c.isInstance(javaObject)) {
+                    return javaObject;
+                }
+            }
+            o = o.getPrototype();
+        }
+    }
+
+    private Object wrapResult(MemberBox meth, Object returnValue, Context cx, Scriptable scope) {
+        var returnType = meth.getReturnType();
+        if (returnType == TypeInfo.PRIMITIVE_VOID) {
+            // skip result wrapping if we don't need result at all
+            return Undefined.instance;
+        }
+        return cx.getWrapFactory().wrap(cx, scope, returnValue, returnType);
+    }
+
     int findCachedFunction(Context cx, Object[] args) {
         if (methods.length > 1) {
             for (ResolvedOverload ovl : overloadCache) {
@@ -526,6 +691,17 @@ public class NativeJavaMethod extends BaseFunction {
     private String functionName;
     private final transient CopyOnWriteArrayList<ResolvedOverload> overloadCache =
             new CopyOnWriteArrayList<>();
+
+    /** The overload that was last chosen at a call site, and the method it belongs to. */
+    private static final class CallSiteOverload {
+        final NativeJavaMethod method;
+        final ResolvedOverload overload;
+
+        CallSiteOverload(NativeJavaMethod method, ResolvedOverload overload) {
+            this.method = method;
+            this.overload = overload;
+        }
+    }
 }
 
 class ResolvedOverload {
@@ -33,6 +33,13 @@ public class NativeObject extends ScriptableObject implements Map {
     public static final String PROTO_PROPERTY = "__proto__";
     public static final String PARENT_PROPERTY = "__parent__";
 
+    public NativeObject() {}
+
+    /** Create an object with room for the specified number of properties. */
+    NativeObject(int capacity) {
+        super(capacity);
+    }
+
     static LambdaConstructor init(Context cx, Scriptable s, boolean sealed) {
         LambdaConstructor ctor =
                 new LambdaConstructor(
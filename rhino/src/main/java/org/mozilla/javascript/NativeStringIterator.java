@@ -22,7 +22,9 @@ public final class NativeStringIterator extends ES6Iterator {
     NativeStringIterator(Scriptable scope, Object stringLike) {
         super(scope, ITERATOR_TAG);
         this.index = 0;
-        this.string = ScriptRuntime.toString(stringLike);
+        // A ConsString is iterated without flattening it; anything else is copied
+        CharSequence str = ScriptRuntime.toCharSequence(stringLike);
+        this.string = str instanceof ConsString ? str : str.toString();
     }
 
     @Override
@@ -37,8 +39,8 @@ public final class NativeStringIterator extends ES6Iterator {
 
     @Override
     protected Object nextValue(Context cx, Scriptable scope) {
-        int newIndex = string.offsetByCodePoints(index, 1);
-        Object value = string.substring(index, newIndex);
+        int newIndex = Character.offsetByCodePoints(string, index, 1);
+        Object value = string.subSequence(index, newIndex).toString();
         index = newIndex;
         return value;
     }
@@ -48,6 +50,6 @@ public final class NativeStringIterator extends ES6Iterator {
         return ITERATOR_TAG;
     }
 
-    private String string;
+    private CharSequence string;
     private int index;
 }
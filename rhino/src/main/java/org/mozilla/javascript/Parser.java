@@ -4264,7 +4264,9 @@ public class Parser {
                 // An arrow function not generate arguments. So it not need activation.
                 ((FunctionNode) currentScriptOrFn).getFunctionType()
                         != FunctionNode.ARROW_FUNCTION) {
-            activation = true;
+            // Kept apart from the other reasons, since the optimizer may find
+            // that the compiled function can read its arguments without it.
+            ((FunctionNode) currentScriptOrFn).setArgumentsRequireActivation();
         } else if (compilerEnv.getActivationNames() != null
                 && compilerEnv.getActivationNames().contains(name)) {
             activation = true;
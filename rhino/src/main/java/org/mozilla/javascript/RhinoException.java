@@ -256,16 +256,26 @@ public abstract class RhinoException extends RuntimeException {
      * @since 1.8.0
      */
     public ScriptStackElement[] getScriptStack(int limit, String hideFunction) {
-        List<ScriptStackElement> list = new ArrayList<>();
         ScriptStackElement[][] interpreterStack = null;
         if (interpreterStackInfo != null) {
             Evaluator interpreter = Context.createInterpreter();
             if (interpreter instanceof Interpreter)
                 interpreterStack = ((Interpreter) interpreter).getScriptStackElements(this);
         }
+        return getScriptStack(getStackTrace(), interpreterStack, limit, hideFunction);
+    }
 
+    /**
+     * Merge the frames of compiled scripts found in a Java stack with the frames of the
+     * interpreter, which replace the frames of each call to the interpreter loop.
+     */
+    static ScriptStackElement[] getScriptStack(
+            StackTraceElement[] stack,
+            ScriptStackElement[][] interpreterStack,
+            int limit,
+            String hideFunction) {
+        List<ScriptStackElement> list = new ArrayList<>();
         int interpreterStackIndex = 0;
-        StackTraceElement[] stack = getStackTrace();
         int count = 0;
         boolean printStarted = (hideFunction == null);
 
@@ -0,0 +1,242 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A profiler that finds out which scripts use the CPU, by taking samples of the script stacks of
+ * all the threads that run scripts. The samples are cheap for the threads that are sampled: they
+ * are taken by a background thread, which reads the Java stack of each thread and the frames of the
+ * interpreter, without stopping the scripts for longer than the JVM needs to take a stack trace.
+ *
+ * <p>The profiler samples the threads that the contexts of the factories it is attached to are
+ * entered on while it is attached:
+ *
+ * <pre>
+ * SamplingProfiler profiler = new SamplingProfiler(10);
+ * profiler.attach(ContextFactory.getGlobal());
+ * profiler.start();
+ * ...
+ * profiler.stop();
+ * profiler.writeCollapsedStacks(writer);
+ * </pre>
+ *
+ * <p>Each sample is a stack of frames such as {@code "add (math.js:12)"}, starting with the
+ * outermost frame, for both interpreted and compiled scripts.
+ *
+ * <p>Samples are best-effort. The frames of the interpreter are read while the script runs,
+ * without any synchronization with the thread that runs it, using only the parts of the frames
+ * that don't change once they are created. A sample whose interpreter frames changed while the
+ * Java stack was taken is counted, but its stack is dropped.
+ */
+public class SamplingProfiler implements ContextFactory.Listener {
+
+    private final long intervalNanos;
+    private final Map<Thread, Context> threads = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> samples = new ConcurrentHashMap<>();
+    private final LongAdder sampleCount = new LongAdder();
+    private volatile Thread sampler;
+
+    /**
+     * Create a profiler that takes a sample of each thread running a script every {@code
+     * intervalMillis} milliseconds.
+     */
+    public SamplingProfiler(int intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("interval: " + intervalMillis);
+        }
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    /** Sample the threads of the contexts of the factory that are entered from now on. */
+    public void attach(ContextFactory factory) {
+        factory.addListener(this);
+    }
+
+    /**
+     * Stop sampling the threads of the contexts of the factory, including those that are entered
+     * now.
+     */
+    public void detach(ContextFactory factory) {
+        factory.removeListener(this);
+        threads.values().removeIf(cx -> cx.getFactory() == factory);
+    }
+
+    @Override
+    public void contextCreated(Context cx) {}
+
+    @Override
+    public void contextEntered(Context cx) {
+        threads.put(Thread.currentThread(), cx);
+    }
+
+    @Override
+    public void contextReleased(Context cx) {
+        threads.remove(Thread.currentThread(), cx);
+    }
+
+    /** Start taking samples, in a daemon thread. */
+    public synchronized void start() {
+        if (sampler != null) {
+            return;
+        }
+        Thread thread = new Thread(this::run, "Rhino sampling profiler");
+        thread.setDaemon(true);
+        sampler = thread;
+        thread.start();
+    }
+
+    /** Stop taking samples, and wait for the last one to be recorded. */
+    public synchronized void stop() {
+        Thread thread = sampler;
+        if (thread == null) {
+            return;
+        }
+        sampler = null;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Return true if the profiler is taking samples. */
+    public boolean isRunning() {
+        return sampler != null;
+    }
+
+    /** Discard all the samples taken so far. */
+    public void reset() {
+        samples.clear();
+        sampleCount.reset();
+    }
+
+    /**
+     * Return the number of samples taken, including those with no script frames and those whose
+     * frames changed while they were read.
+     */
+    public long getSampleCount() {
+        return sampleCount.sum();
+    }
+
+    private void run() {
+        Thread self = Thread.currentThread();
+        long next = System.nanoTime() + intervalNanos;
+        while (sampler == self) {
+            long delay = next - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(this, delay);
+                continue;
+            }
+            next += intervalNanos;
+            for (Map.Entry<Thread, Context> entry : threads.entrySet()) {
+                sample(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void sample(Thread thread, Context cx) {
+        sampleCount.increment();
+        Object frame = cx.lastInterpreterFrame;
+        ScriptStackElement[][] interpreterStack = Interpreter.getScriptStackOfFrame(frame);
+        StackTraceElement[] javaStack = thread.getStackTrace();
+        int groups = interpreterStack == null ? 0 : interpreterStack.length;
+        if (cx.lastInterpreterFrame != frame || countInterpreterLoops(javaStack) != groups) {
+            // The thread entered or left a function of the interpreter while the stacks were
+            // read, so they don't match
+            return;
+        }
+        ScriptStackElement[] stack =
+                RhinoException.getScriptStack(javaStack, interpreterStack, -1, null);
+        if (stack.length == 0) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = stack.length - 1; i >= 0; i--) {
+            ScriptStackElement element = stack[i];
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            if (element.functionName != null) {
+                sb.append(element.functionName).append(' ');
+            }
+            sb.append('(').append(element.fileName);
+            if (element.lineNumber > -1) {
+                sb.append(':').append(element.lineNumber);
+            }
+            sb.append(')');
+        }
+        samples.computeIfAbsent(sb.toString(), k -> new LongAdder()).increment();
+    }
+
+    /** Return the number of calls to the loop of the interpreter in a Java stack. */
+    private static int countInterpreterLoops(StackTraceElement[] javaStack) {
+        int count = 0;
+        for (StackTraceElement e : javaStack) {
+            if ("org.mozilla.javascript.Interpreter".equals(e.getClassName())
+                    && "interpretLoop".equals(e.getMethodName())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return the number of samples of each stack, as a map from the frames of the stack, separated
+     * by semicolons, to the number of samples.
+     */
+    public Map<String, Long> getCollapsedStacks() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : samples.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    /**
+     * Return the functions with the most samples in which they were running, rather than calling
+     * other functions, with the number of samples of each.
+     */
+    public List<Map.Entry<String, Long>> getTopFrames(int limit) {
+        Map<String, Long> self = new TreeMap<>();
+        for (Map.Entry<String, Long> entry : getCollapsedStacks().entrySet()) {
+            String stack = entry.getKey();
+            String frame = stack.substring(stack.lastIndexOf(';') + 1);
+            self.merge(frame, entry.getValue(), Long::sum);
+        }
+        List<Map.Entry<String, Long>> result = new ArrayList<>(self.entrySet());
+        result.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        return result.subList(0, Math.min(limit, result.size()));
+    }
+
+    /**
+     * Write the samples in the "collapsed stack" format that flame graph tools read: one line for
+     * each stack, with its frames separated by semicolons, followed by a space and the number of
+     * samples.
+     */
+    public void writeCollapsedStacks(Writer out) throws IOException {
+        for (Map.Entry<String, Long> entry : getCollapsedStacks().entrySet()) {
+            out.write(entry.getKey());
+            out.write(' ');
+            out.write(Long.toString(entry.getValue()));
+            out.write('\n');
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,165 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * A set of standard objects that is built once and then shared by any number of top-level scopes.
+ * Creating a scope from a template costs a few small allocations, instead of the construction of
+ * every builtin constructor and prototype that {@link Context#initStandardObjects()} does.
+ *
+ * <p>The standard objects of the template are shared by all scopes, and may be used by any number
+ * of threads at once. Each new scope has the template as its prototype: global variables and
+ * functions defined by scripts are stored in the new scope, and so are assignments to the global
+ * names of the standard objects. Changes to the properties of the standard objects themselves, and
+ * of every other object that can be reached from them, such as their methods, are only seen by the
+ * scope that made them. A polyfill that adds a method to "Array.prototype" is one example. The
+ * scope keeps a copy of the properties of each standard object that it changed, including its
+ * elements, its length and whether it is extensible. Only their prototypes cannot be replaced.
+ *
+ * <p>The embedding sees the changes of a scope too when it finds the standard objects through
+ * that scope, for example with {@link ScriptableObject#getProperty(Scriptable, String)} or {@link
+ * ScriptableObject#getClassPrototype}, and when a script running in that scope returns one of them.
+ * Outside of a call in that scope, these are views of the shared objects that belong to the scope:
+ * changes made through them are seen by the scripts of the scope, but they are not the same Java
+ * objects as the ones that the scripts see.
+ *
+ * <p>Functions created by the "Function" constructor and code run by indirect calls to "eval"
+ * have the template as their parent scope. To make them see the variables of the scope that
+ * called them, as functions defined by scripts do, use a {@link ContextFactory} that enables
+ * {@link Context#FEATURE_DYNAMIC_SCOPE}.
+ *
+ * <pre>
+ * ScopeTemplate template = ScopeTemplate.create(cx, true);
+ * ...
+ * Scriptable scope = template.newScope();
+ * cx.evaluateString(scope, source, "request.js", 1, null);
+ * </pre>
+ */
+public final class ScopeTemplate {
+    private final TopLevel shared;
+
+    private ScopeTemplate(TopLevel shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Build the standard objects of a template.
+     *
+     * @param cx the current Context, whose language version and features decide which objects
+     *     are defined
+     * @param safe if true, only define the objects of {@link Context#initSafeStandardObjects()},
+     *     without access to Java classes
+     */
+    public static ScopeTemplate create(Context cx, boolean safe) {
+        TopLevel shared = new SharedScope();
+        if (safe) {
+            cx.initSafeStandardObjects(shared, true);
+        } else {
+            cx.initStandardObjects(shared, true);
+        }
+        // Sealing initializes all the lazily loaded constructors, so that the template is never
+        // modified again, even by threads that read it at the same time
+        shared.sealObject();
+        share(cx, shared);
+        return new ScopeTemplate(shared);
+    }
+
+    /**
+     * Seal every object that scripts can reach from the template, and give it a {@link
+     * SharedSlotMap}, which keeps the changes that each scope makes to the object in a copy of its
+     * own. The objects are found through their property descriptors, as scripts find them, so that
+     * the methods and accessors that some objects hold outside of their slots are shared too.
+     */
+    private static void share(Context cx, TopLevel shared) {
+        Set<ScriptableObject> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayList<Object> pending = new ArrayList<>();
+        pending.add(shared);
+        for (TopLevel.Builtins builtin : TopLevel.Builtins.values()) {
+            pending.add(shared.getBuiltinCtor(builtin));
+        }
+        // Such as the prototypes of iterators, which scripts only reach through the iterators
+        Collections.addAll(pending, shared.getAssociatedValues());
+        while (!pending.isEmpty()) {
+            Object value = pending.remove(pending.size() - 1);
+            if (!(value instanceof ScriptableObject) || !seen.add((ScriptableObject) value)) {
+                continue;
+            }
+            ScriptableObject obj = (ScriptableObject) value;
+            if (obj instanceof NativeJavaPackage || obj instanceof Wrapper) {
+                // Java packages and classes ignore the properties that scripts set, and cache
+                // the classes that they look up in their own slots
+                continue;
+            }
+            pending.add(obj.getPrototype());
+            if (obj instanceof BaseFunction) {
+                pending.add(((BaseFunction) obj).getPrototypeProperty());
+            }
+            Object[] ids;
+            try (var map = obj.startCompoundOp(false)) {
+                ids = obj.getIds(map, true, true);
+            }
+            for (Object id : ids) {
+                ScriptableObject.DescriptorInfo desc = obj.getOwnPropertyDescriptor(cx, id);
+                if (desc != null) {
+                    pending.add(desc.value);
+                    pending.add(desc.getter);
+                    pending.add(desc.setter);
+                }
+            }
+            // Keep every property in the slots, where each scope can have its own copy
+            if (obj instanceof IdScriptableObject) {
+                ((IdScriptableObject) obj).movePrototypeValuesToSlots();
+            } else if (obj instanceof NativeArray) {
+                ((NativeArray) obj).moveElementsToSlots();
+            }
+            if (!obj.isSealed()) {
+                obj.sealObject();
+            }
+            obj.setMap(new SharedSlotMap(obj));
+        }
+    }
+
+    /**
+     * The object that holds the standard objects. A standard object that is found through one of
+     * the scopes of the template while no call runs in that scope is returned as a {@link
+     * SharedObjectView} bound to that scope, so that it sees the changes of that scope.
+     */
+    private static final class SharedScope extends TopLevel {
+        private static final long serialVersionUID = 2457180470418474113L;
+
+        @Override
+        public Object get(String name, Scriptable start) {
+            Object value = super.get(name, start);
+            if (start != this && SharedSlotMap.isShared(value)) {
+                TopLevel scope = SharedSlotMap.ownerOf(start);
+                if (scope != null && scope != SharedSlotMap.currentScope()) {
+                    return SharedObjectView.wrap(scope, value);
+                }
+            }
+            return value;
+        }
+    }
+
+    /** Return the object that holds the standard objects, and is the prototype of new scopes. */
+    public ScriptableObject getSharedScope() {
+        return shared;
+    }
+
+    /** Create a new, empty, top-level scope that inherits the standard objects of the template. */
+    public TopLevel newScope() {
+        TopLevel scope = new TopLevel();
+        scope.setPrototype(shared);
+        scope.copyBuiltins(shared);
+        ScriptableObject.defineProperty(scope, "globalThis", scope, ScriptableObject.DONTENUM);
+        return scope;
+    }
+}
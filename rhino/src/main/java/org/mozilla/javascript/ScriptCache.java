@@ -0,0 +1,252 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+// API class
+
+package org.mozilla.javascript;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * A cache of compiled scripts and functions that may be installed on a {@link ContextFactory} using
+ * {@link ContextFactory#setScriptCache(ScriptCache)}. When a cache is installed, {@link
+ * Context#compileString}, {@link Context#compileReader}, {@link Context#compileFunction} and the
+ * "evaluate" methods that use them will look up the source in the cache before parsing it, and
+ * will skip both parsing and code generation when the same source was already compiled with the
+ * same settings.
+ *
+ * <p>Implementations must be thread-safe, because a single ContextFactory is usually shared by all
+ * the threads that run scripts. {@link LruScriptCache} is a simple bounded implementation.
+ *
+ * <p>Compilation is not cached when a debugger is attached to the Context, when activation names
+ * are set, or when the compiler environment is customized by the caller, as is done by "eval".
+ * Warnings that the compiler reports are only reported the first time that a source is compiled.
+ */
+public interface ScriptCache {
+
+    /** Return the compiled code for the key, or null if it is not in the cache. */
+    Entry get(Key key);
+
+    /** Add compiled code to the cache, possibly evicting other entries. */
+    void put(Key key, Entry entry);
+
+    /** Remove all entries from the cache. */
+    void clear();
+
+    /**
+     * Return true if the entries passed to {@link #put} should hold on to the output of the
+     * compiler, so that {@link Entry#getCompiledCode()} can be used to store them outside of the
+     * JVM. This is false by default, because holding on to the compiler output uses more memory.
+     */
+    default boolean needsCompiledCode() {
+        return false;
+    }
+
+    /**
+     * The key of a cache entry. It consists of the source code itself, the source name and line
+     * number, which are compiled into stack traces and error messages, the security domain, and
+     * all the compiler settings that affect parsing or code generation.
+     */
+    final class Key {
+        private final String source;
+        private final String sourceName;
+        private final int lineno;
+        private final boolean isFunction;
+        private final int languageVersion;
+        private final int flags;
+        private final Object securityController;
+        private final Object securityDomain;
+        private final int hashCode;
+
+        private static final int INTERPRETED_FLAG = 1;
+        private static final int STRICT_FLAG = 1 << 1;
+        private static final int DEBUG_INFO_FLAG = 1 << 2;
+        private static final int GENERATING_SOURCE_FLAG = 1 << 3;
+        private static final int XML_FLAG = 1 << 4;
+        private static final int RESERVED_KEYWORD_FLAG = 1 << 5;
+        private static final int MEMBER_EXPR_FLAG = 1 << 6;
+        private static final int WARNING_AS_ERROR_FLAG = 1 << 7;
+        private static final int OBSERVER_COUNT_FLAG = 1 << 8;
+        private static final int TIERED_FLAG = 1 << 9;
+
+        Key(
+                String source,
+                String sourceName,
+                int lineno,
+                boolean isFunction,
+                CompilerEnvirons env) {
+            this.source = source;
+            this.sourceName = sourceName;
+            this.lineno = lineno;
+            this.isFunction = isFunction;
+            this.languageVersion = env.getLanguageVersion();
+            int f = 0;
+            f |= env.isInterpretedMode() ? INTERPRETED_FLAG : 0;
+            f |= env.isStrictMode() ? STRICT_FLAG : 0;
+            f |= env.isGenerateDebugInfo() ? DEBUG_INFO_FLAG : 0;
+            f |= env.isGeneratingSource() ? GENERATING_SOURCE_FLAG : 0;
+            f |= env.isXmlAvailable() ? XML_FLAG : 0;
+            f |= env.isReservedKeywordAsIdentifier() ? RESERVED_KEYWORD_FLAG : 0;
+            f |= env.isAllowMemberExprAsFunctionName() ? MEMBER_EXPR_FLAG : 0;
+            f |= env.reportWarningAsError() ? WARNING_AS_ERROR_FLAG : 0;
+            f |= env.isGenerateObserverCount() ? OBSERVER_COUNT_FLAG : 0;
+            f |= env.getTierUpThreshold() >= 0 ? TIERED_FLAG : 0;
+            this.flags = f;
+            this.securityController = env.securityController();
+            this.securityDomain = env.securityDomain();
+            this.hashCode =
+                    Objects.hash(source, sourceName, lineno, isFunction, languageVersion, flags);
+        }
+
+        /** Return the source code that this key was created for. */
+        public String getSource() {
+            return source;
+        }
+
+        /** Return the name of the source, as passed to the compile method. */
+        public String getSourceName() {
+            return sourceName;
+        }
+
+        /**
+         * Return true if the key depends on a security controller or security domain. Those cannot
+         * be part of a {@link #getDigest() digest}, so such keys should only be used for caches
+         * that live in memory.
+         */
+        public boolean hasSecurityDomain() {
+            return securityController != null || securityDomain != null;
+        }
+
+        /**
+         * Return a SHA-256 digest of the source and of all the settings in this key, apart from the
+         * security domain. Two keys that are equal always have the same digest, so the digest may
+         * be used to name entries that are stored outside of the JVM.
+         */
+        public byte[] getDigest() {
+            MessageDigest md;
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // Every Java platform is required to support SHA-256
+                throw new IllegalStateException(e);
+            }
+            ByteBuffer header = ByteBuffer.allocate(16);
+            header.putInt(lineno).putInt(isFunction ? 1 : 0).putInt(languageVersion).putInt(flags);
+            md.update(header.array());
+            updateDigest(md, sourceName);
+            updateDigest(md, source);
+            return md.digest();
+        }
+
+        private static void updateDigest(MessageDigest md, String s) {
+            // Hash the chars rather than an encoding, so that unpaired surrogates are not lost
+            ByteBuffer buf = ByteBuffer.allocate(4 + s.length() * 2);
+            buf.putInt(s.length());
+            buf.asCharBuffer().put(s);
+            md.update(buf.array());
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return hashCode == k.hashCode
+                    && lineno == k.lineno
+                    && isFunction == k.isFunction
+                    && languageVersion == k.languageVersion
+                    && flags == k.flags
+                    && securityController == k.securityController
+                    && Objects.equals(securityDomain, k.securityDomain)
+                    && sourceName.equals(k.sourceName)
+                    && source.equals(k.source);
+        }
+    }
+
+    /**
+     * The compiled form of a script or function. An entry may be used to create any number of
+     * Script or Function objects, from any thread, without compiling the source again.
+     */
+    final class Entry {
+        private final JSDescriptor<?> descriptor;
+        private final boolean isFunction;
+        private final Object compiledCode;
+
+        /**
+         * Create an entry for a descriptor that was loaded from somewhere other than the compiler,
+         * such as a persistent cache.
+         */
+        public Entry(JSDescriptor<?> descriptor, boolean isFunction) {
+            this(descriptor, isFunction, null);
+        }
+
+        private Entry(JSDescriptor<?> descriptor, boolean isFunction, Object compiledCode) {
+            this.descriptor = descriptor;
+            this.isFunction = isFunction;
+            this.compiledCode = compiledCode;
+        }
+
+        /**
+         * Return an entry for the result of compiling a script or function, or null if the result
+         * is not something that can be cached. "compiledCode" is the output of the compiler, or
+         * null if the cache does not need it.
+         */
+        static Entry of(Object result, Object compiledCode) {
+            if (result instanceof JSScript) {
+                return new Entry(((JSScript) result).getDescriptor(), false, compiledCode);
+            } else if (result instanceof JSFunction) {
+                return new Entry(((JSFunction) result).getDescriptor(), true, compiledCode);
+            }
+            return null;
+        }
+
+        /** Return true if this entry was created by compiling a function rather than a script. */
+        public boolean isFunction() {
+            return isFunction;
+        }
+
+        /**
+         * Return the output of the compiler that this entry was created from, if the cache asked
+         * for it using {@link ScriptCache#needsCompiledCode()}, and null otherwise. This is an
+         * opaque object whose type depends on whether the script was interpreted or compiled.
+         */
+        public Object getCompiledCode() {
+            return compiledCode;
+        }
+
+        /** Create a new Script object from this entry. */
+        @SuppressWarnings("unchecked")
+        public Script newScript() {
+            if (isFunction()) {
+                throw new IllegalStateException("not a script");
+            }
+            JSDescriptor<JSScript> desc = (JSDescriptor<JSScript>) descriptor;
+            return JSFunction.createScript(desc, null, desc.getSecurityDomain());
+        }
+
+        /** Create a new Function object from this entry, in the specified scope. */
+        @SuppressWarnings("unchecked")
+        public Function newFunction(Context cx, Scriptable scope) {
+            if (!isFunction()) {
+                throw new IllegalStateException("not a function");
+            }
+            JSDescriptor<JSFunction> desc = (JSDescriptor<JSFunction>) descriptor;
+            return JSFunction.createFunction(cx, scope, desc, null, desc.getSecurityDomain());
+        }
+    }
+}
@@ -2543,6 +2543,14 @@ public class ScriptRuntime {
         boolean enumNumbers;
 
         Scriptable iterator;
+
+        // The "next" method of the iterator of a "for...of" loop, which is only read once
+        Object nextMethod;
+
+        // The iterator of a "for...of" loop whose "next" method is the built-in one, which
+        // is stepped without calling "next," and the scope that "next" would be called with
+        ES6Iterator builtInIterator;
+        Scriptable builtInScope;
     }
 
     public static Scriptable toIterator(Context cx, Scriptable obj, boolean keyOnly) {
@@ -2641,6 +2649,13 @@ public class ScriptRuntime {
             throw typeErrorById("msg.not.iterable", toString(x.obj));
         }
         x.iterator = (Scriptable) v;
+        // The iterator protocol reads "next" only once, so if it is the built-in method, it
+        // will stay so for the whole loop
+        x.nextMethod = ScriptableObject.getProperty(x.iterator, ES6Iterator.NEXT_METHOD);
+        if (v instanceof ES6Iterator && ((ES6Iterator) v).isBuiltInNext(x.nextMethod)) {
+            x.builtInIterator = (ES6Iterator) v;
+            x.builtInScope = ((Function) x.nextMethod).getDeclarationScope();
+        }
         return x;
     }
 
@@ -2710,7 +2725,16 @@ public class ScriptRuntime {
     }
 
     private static Boolean enumNextInOrder(IdEnumeration enumObj, Context cx) {
-        Object v = ScriptableObject.getProperty(enumObj.iterator, ES6Iterator.NEXT_METHOD);
+        if (enumObj.builtInIterator != null) {
+            // Same as calling "next," but without creating an iterator result for each value
+            Object value = enumObj.builtInIterator.nextOrNotFound(cx, enumObj.builtInScope);
+            if (value == Scriptable.NOT_FOUND) {
+                return Boolean.FALSE;
+            }
+            enumObj.currentId = value;
+            return Boolean.TRUE;
+        }
+        Object v = enumObj.nextMethod;
         if (!(v instanceof Callable)) {
             throw notFunctionError(enumObj.iterator, ES6Iterator.NEXT_METHOD);
         }
@@ -4792,11 +4816,18 @@ public class ScriptRuntime {
         cx.useDynamicScope = cx.hasFeature(Context.FEATURE_DYNAMIC_SCOPE);
         boolean previousTopLevelStrict = cx.isTopLevelStrict;
         cx.isTopLevelStrict = isTopLevelStrict;
+        // The call changes the standard objects of its own scope, even if a view of them made it
+        TopLevel viewScope = cx.viewScope;
+        cx.viewScope = null;
         ContextFactory f = cx.getFactory();
         try {
             result = f.doTopCall(callable, cx, scope, thisObj, args);
+            if (viewScope == null) {
+                result = SharedObjectView.wrapResult(scope, result);
+            }
         } finally {
             cx.topCallScope = null;
+            cx.viewScope = viewScope;
             // Cleanup cached references
             cx.cachedXMLLib = null;
             cx.isTopLevelStrict = previousTopLevelStrict;
@@ -4821,11 +4852,18 @@ public class ScriptRuntime {
         cx.useDynamicScope = cx.hasFeature(Context.FEATURE_DYNAMIC_SCOPE);
         boolean previousTopLevelStrict = cx.isTopLevelStrict;
         cx.isTopLevelStrict = isTopLevelStrict;
+        // The call changes the standard objects of its own scope, even if a view of them made it
+        TopLevel viewScope = cx.viewScope;
+        cx.viewScope = null;
         ContextFactory f = cx.getFactory();
         try {
             result = f.doTopCall(script, cx, scope, thisObj);
+            if (viewScope == null) {
+                result = SharedObjectView.wrapResult(scope, result);
+            }
         } finally {
             cx.topCallScope = null;
+            cx.viewScope = viewScope;
             // Cleanup cached references
             cx.cachedXMLLib = null;
             cx.isTopLevelStrict = previousTopLevelStrict;
@@ -150,6 +150,11 @@ public abstract class ScriptableObject extends SlotMapOwner
         super(0);
     }
 
+    /** Create an object with room for the specified number of properties. */
+    ScriptableObject(int capacity) {
+        super(capacity);
+    }
+
     public ScriptableObject(Scriptable scope, Scriptable prototype) {
         super(0);
         if (scope == null) throw new IllegalArgumentException();
@@ -739,6 +744,13 @@ public abstract class ScriptableObject extends SlotMapOwner
     /** Sets the prototype of the object. */
     @Override
     public void setPrototype(Scriptable m) {
+        if (isSealed && getMap() instanceof SharedSlotMap) {
+            throw Context.reportRuntimeErrorById("msg.modify.sealed", "__proto__");
+        }
+        if (m instanceof SharedObjectView) {
+            // Objects inherit from the shared object that scripts see, not from a view of it
+            m = ((SharedObjectView) m).target;
+        }
         prototypeObject = m;
     }
 
@@ -2403,10 +2415,17 @@ public abstract class ScriptableObject extends SlotMapOwner
     }
 
     public boolean isExtensible() {
+        if (isSealed && isExtensible && getMap() instanceof SharedSlotMap) {
+            return ((SharedSlotMap) getMap()).isExtensible();
+        }
         return isExtensible;
     }
 
     public boolean preventExtensions() {
+        if (getMap() instanceof SharedSlotMap) {
+            // Shared by many top-level scopes, so only the current one sees the change
+            return ((SharedSlotMap) getMap()).preventExtensions();
+        }
         isExtensible = false;
         return true;
     }
@@ -2471,6 +2490,8 @@ public abstract class ScriptableObject extends SlotMapOwner
 
     private void checkNotSealed(Object key, int index) {
         if (!isSealed()) return;
+        // The slot map of a shared object decides which changes it allows, and keeps them apart
+        if (getMap() instanceof SharedSlotMap) return;
 
         String str = (key != null) ? key.toString() : Integer.toString(index);
         throw Context.reportRuntimeErrorById("msg.modify.sealed", str);
@@ -2933,6 +2954,12 @@ public abstract class ScriptableObject extends SlotMapOwner
         return h.get(key);
     }
 
+    /** Return all the values associated with this object, in no particular order. */
+    final synchronized Object[] getAssociatedValues() {
+        Map<Object, Object> h = associatedValues;
+        return h == null ? ScriptRuntime.emptyArgs : h.values().toArray();
+    }
+
     /**
      * Get arbitrary application-specific value associated with the top scope of the given scope.
      * The method first calls {@link #getTopLevelScope(Scriptable scope)} and then searches the
@@ -2995,11 +3022,13 @@ public abstract class ScriptableObject extends SlotMapOwner
     private boolean putImpl(
             Object key, int index, Scriptable start, Object value, boolean isThrow) {
         // This method is very hot (basically called on each assignment),
-        // so we inline the extensible/sealed checks below.
+        // so we inline the extensible/sealed checks below. Only a sealed object may be shared,
+        // and then whether it is extensible depends on the current scope.
+        boolean extensible = isSealed ? isExtensible() : isExtensible;
         Slot slot;
         if (this != start) {
             slot = getMap().query(key, index);
-            if (!isExtensible
+            if (!extensible
                     && (slot == null
                             || (!(slot instanceof AccessorSlot)
                                     && (slot.getAttributes() & READONLY) != 0))
@@ -3009,7 +3038,7 @@ public abstract class ScriptableObject extends SlotMapOwner
             if (slot == null) {
                 return false;
             }
-        } else if (!isExtensible) {
+        } else if (!extensible) {
             slot = getMap().query(key, index);
             if ((slot == null
                             || (!(slot instanceof AccessorSlot)
@@ -3042,7 +3071,7 @@ public abstract class ScriptableObject extends SlotMapOwner
     private boolean putConstImpl(
             String name, int index, Scriptable start, Object value, int constFlag) {
         assert (constFlag != EMPTY);
-        if (!isExtensible) {
+        if (!isExtensible()) {
             Context cx = Context.getContext();
             if (cx.isStrictMode()) {
                 throw ScriptRuntime.typeErrorById("msg.not.extensible");
@@ -3187,7 +3216,7 @@ public abstract class ScriptableObject extends SlotMapOwner
                 out.writeInt(0);
             } else {
                 out.writeInt(objectsCount);
-                for (Slot slot : getMap()) {
+                for (Slot slot : map) {
                     out.writeObject(slot);
                 }
             }
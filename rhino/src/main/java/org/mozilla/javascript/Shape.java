@@ -0,0 +1,158 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Shape, also known as a "hidden class," describes the layout of the named properties of an
+ * object: which keys it has, and the order in which they were added. Two objects that had the same
+ * properties added in the same order share the same Shape, which means that a property lookup that
+ * worked for one of them can be repeated on the other by loading the slot at the same offset,
+ * without hashing the key.
+ *
+ * <p>Shapes form a global transition tree rooted at {@link #EMPTY}. A slot map keeps track of its
+ * Shape only as long as it contains nothing but ordinary data slots that were added by name and
+ * never removed or replaced. As soon as any of those assumptions is broken, the map drops its
+ * Shape and is treated as a plain hash table from then on. The transition tree is bounded, so that
+ * objects used as dictionaries with arbitrary keys cannot make it grow without limit.
+ *
+ * <p>The public methods here are used by the linkers in the "optimizer" package to build inline
+ * caches, and are not intended to be used by other code.
+ */
+public final class Shape {
+
+    /** Maximum number of properties that an object can have and still have a Shape. */
+    static final int MAX_PROPERTIES = 64;
+
+    /** Maximum number of distinct transitions out of any one Shape. */
+    private static final int MAX_TRANSITIONS = 64;
+
+    /** Maximum number of shapes in the whole transition tree. */
+    private static final int MAX_SHAPES = 1 << 16;
+
+    private static final AtomicInteger shapeCount = new AtomicInteger();
+
+    /** The shape of an object with no properties at all. */
+    static final Shape EMPTY = new Shape(null, null, -1);
+
+    private final Shape parent;
+    private final Object key;
+    private final int offset;
+    private volatile ConcurrentHashMap<Object, Shape> transitions;
+
+    private Shape(Shape parent, Object key, int offset) {
+        this.parent = parent;
+        this.key = key;
+        this.offset = offset;
+    }
+
+    /** Return the number of properties described by this shape. */
+    public int getPropertyCount() {
+        return offset + 1;
+    }
+
+    /**
+     * Return the offset of the slot for the specified key in an object that has this shape, or -1
+     * if the key is not part of this shape. This walks the transition tree, so it is only meant to
+     * be called when linking, and not on every property access.
+     */
+    public int getOffset(Object key) {
+        for (Shape s = this; s.parent != null; s = s.parent) {
+            if (s.key.equals(key)) {
+                return s.offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the shape that results from adding a new property with the specified key to an object
+     * with this shape, or null if the transition tree has reached one of its limits.
+     */
+    Shape addProperty(Object key) {
+        if (offset + 1 >= MAX_PROPERTIES) {
+            return null;
+        }
+        ConcurrentHashMap<Object, Shape> t = transitions;
+        if (t == null) {
+            synchronized (this) {
+                t = transitions;
+                if (t == null) {
+                    t = new ConcurrentHashMap<>(4);
+                    transitions = t;
+                }
+            }
+        }
+        Shape next = t.get(key);
+        if (next != null) {
+            return next;
+        }
+        if (t.size() >= MAX_TRANSITIONS || shapeCount.get() >= MAX_SHAPES) {
+            return null;
+        }
+        next = t.computeIfAbsent(key, k -> newShape(this, k));
+        return next;
+    }
+
+    private static Shape newShape(Shape parent, Object key) {
+        shapeCount.incrementAndGet();
+        return new Shape(parent, key, parent.offset + 1);
+    }
+
+    /** Return the current shape of the object, or null if it does not have one. */
+    public static Shape getShape(ScriptableObject obj) {
+        return obj.getMap().getShape();
+    }
+
+    /** Return whether the object currently has this shape, for use as an inline cache guard. */
+    public boolean isShapeOf(ScriptableObject obj) {
+        return obj.getMap().getShape() == this;
+    }
+
+    /**
+     * Return the value of the property at the specified offset in the object. The caller must have
+     * already checked that the object has a shape that contains the offset.
+     */
+    public static Object getValue(ScriptableObject obj, int offset) {
+        return obj.getMap().getSlotAt(offset).value;
+    }
+
+    /**
+     * Set the value of the property at the specified offset in the object, with the same semantics
+     * as setting an existing own property via "put". The caller must have already checked that the
+     * object has a shape that contains the offset. Return false, without doing anything, if the
+     * object is sealed or not extensible, in which case the caller must use the generic path.
+     */
+    public static boolean setValue(
+            ScriptableObject obj, int offset, Object value, boolean isThrow) {
+        if (!obj.isExtensible() || obj.isSealed()) {
+            return false;
+        }
+        obj.getMap().getSlotAt(offset).setValue(value, obj, obj, isThrow);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Shape[");
+        appendKeys(sb, this);
+        return sb.append(']').toString();
+    }
+
+    private static void appendKeys(StringBuilder sb, Shape s) {
+        if (s.parent == null) {
+            return;
+        }
+        appendKeys(sb, s.parent);
+        if (s.offset > 0) {
+            sb.append(", ");
+        }
+        sb.append(s.key);
+    }
+}
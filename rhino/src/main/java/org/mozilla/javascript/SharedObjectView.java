@@ -0,0 +1,263 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript;
+
+import java.util.function.Supplier;
+
+/**
+ * A view of a standard object that a {@link ScopeTemplate} shares, bound to one of the scopes of
+ * the template. Code that finds a shared object through a scope while no call runs in that scope,
+ * such as an embedding that looks up "Math" in a scope, gets a view, so that it reads and changes
+ * the copy of the object that scripts running in that scope see. Reading a shared object through a
+ * view returns a view bound to the same scope, and the scope keeps one view for each object.
+ *
+ * <p>A view is a different object from the shared object that scripts see, so that {@code
+ * Array.prototype} returned from a script is not the same Java object as the one that the
+ * embedding finds through the scope. Both see the same properties.
+ */
+class SharedObjectView implements Scriptable, SymbolScriptable {
+
+    final TopLevel scope;
+    final ScriptableObject target;
+
+    SharedObjectView(TopLevel scope, ScriptableObject target) {
+        this.scope = scope;
+        this.target = target;
+    }
+
+    /**
+     * Return a view of the value bound to the scope if it is a shared object, or the value. Symbols
+     * are values rather than objects, so they are never wrapped.
+     */
+    static Object wrap(TopLevel scope, Object value) {
+        if (SharedSlotMap.isShared(value) && !(value instanceof Symbol)) {
+            return scope.getSharedObjectView((ScriptableObject) value);
+        }
+        return value;
+    }
+
+    /**
+     * Return the result of a call in a scope to the embedding, which gets a view if it is a shared
+     * object, bound to the scope that the call ran in.
+     */
+    static Object wrapResult(Scriptable scope, Object result) {
+        if (SharedSlotMap.isShared(result)) {
+            TopLevel owner = SharedSlotMap.ownerOf(scope);
+            if (owner != null) {
+                return wrap(owner, result);
+            }
+        }
+        return result;
+    }
+
+    /** Return the shared object of a view, or the value if it is not a view. */
+    static Object unwrap(Object value) {
+        return value instanceof SharedObjectView ? ((SharedObjectView) value).target : value;
+    }
+
+    static Scriptable unwrap(Scriptable value) {
+        return value instanceof SharedObjectView ? ((SharedObjectView) value).target : value;
+    }
+
+    static Object[] unwrap(Object[] args) {
+        Object[] result = args;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof SharedObjectView) {
+                if (result == args) {
+                    result = args.clone();
+                }
+                result[i] = unwrap(args[i]);
+            }
+        }
+        return result;
+    }
+
+    private Object wrap(Object value) {
+        return wrap(scope, value);
+    }
+
+    /** Run an operation on the shared object with the changes of the scope of this view. */
+    <T> T bound(Supplier<T> op) {
+        Context cx = Context.getCurrentContext();
+        if (cx == null) {
+            try (Context entered = Context.enter()) {
+                return bound(entered, op);
+            }
+        }
+        return bound(cx, op);
+    }
+
+    <T> T bound(Context cx, Supplier<T> op) {
+        TopLevel saved = cx.viewScope;
+        cx.viewScope = scope;
+        try {
+            return op.get();
+        } finally {
+            cx.viewScope = saved;
+        }
+    }
+
+    @Override
+    public String getClassName() {
+        return target.getClassName();
+    }
+
+    @Override
+    public Object get(String name, Scriptable start) {
+        return bound(() -> wrap(target.get(name, unwrap(start))));
+    }
+
+    @Override
+    public Object get(int index, Scriptable start) {
+        return bound(() -> wrap(target.get(index, unwrap(start))));
+    }
+
+    @Override
+    public Object get(Symbol key, Scriptable start) {
+        return bound(() -> wrap(target.get(key, unwrap(start))));
+    }
+
+    @Override
+    public boolean has(String name, Scriptable start) {
+        return bound(() -> target.has(name, unwrap(start)));
+    }
+
+    @Override
+    public boolean has(int index, Scriptable start) {
+        return bound(() -> target.has(index, unwrap(start)));
+    }
+
+    @Override
+    public boolean has(Symbol key, Scriptable start) {
+        return bound(() -> target.has(key, unwrap(start)));
+    }
+
+    @Override
+    public void put(String name, Scriptable start, Object value) {
+        bound(
+                () -> {
+                    target.put(name, unwrap(start), unwrap(value));
+                    return null;
+                });
+    }
+
+    @Override
+    public void put(int index, Scriptable start, Object value) {
+        bound(
+                () -> {
+                    target.put(index, unwrap(start), unwrap(value));
+                    return null;
+                });
+    }
+
+    @Override
+    public void put(Symbol key, Scriptable start, Object value) {
+        bound(
+                () -> {
+                    target.put(key, unwrap(start), unwrap(value));
+                    return null;
+                });
+    }
+
+    @Override
+    public void delete(String name) {
+        bound(
+                () -> {
+                    target.delete(name);
+                    return null;
+                });
+    }
+
+    @Override
+    public void delete(int index) {
+        bound(
+                () -> {
+                    target.delete(index);
+                    return null;
+                });
+    }
+
+    @Override
+    public void delete(Symbol key) {
+        bound(
+                () -> {
+                    target.delete(key);
+                    return null;
+                });
+    }
+
+    @Override
+    public Scriptable getPrototype() {
+        return (Scriptable) wrap(target.getPrototype());
+    }
+
+    @Override
+    public void setPrototype(Scriptable prototype) {
+        bound(
+                () -> {
+                    target.setPrototype(unwrap(prototype));
+                    return null;
+                });
+    }
+
+    /** Return the scope of the view, which the shared object was found through. */
+    @Override
+    public Scriptable getParentScope() {
+        return scope;
+    }
+
+    @Override
+    public void setParentScope(Scriptable parent) {
+        throw Context.reportRuntimeErrorById("msg.modify.sealed", "__parent__");
+    }
+
+    @Override
+    public Object[] getIds() {
+        return bound(target::getIds);
+    }
+
+    @Override
+    public Object getDefaultValue(Class<?> hint) {
+        return bound(() -> target.getDefaultValue(hint));
+    }
+
+    @Override
+    public boolean hasInstance(Scriptable instance) {
+        return bound(() -> target.hasInstance(unwrap(instance)));
+    }
+
+    /** A view of a shared function, which calls the function with the changes of its scope. */
+    static final class FunctionView extends SharedObjectView implements Function {
+
+        FunctionView(TopLevel scope, ScriptableObject target) {
+            super(scope, target);
+        }
+
+        @Override
+        public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+            return bound(
+                    cx,
+                    () ->
+                            wrap(
+                                    this.scope,
+                                    ((Function) target)
+                                            .call(cx, scope, unwrap(thisObj), unwrap(args))));
+        }
+
+        @Override
+        public Scriptable construct(Context cx, Scriptable scope, Object[] args) {
+            return bound(
+                    cx,
+                    () ->
+                            (Scriptable)
+                                    wrap(
+                                            this.scope,
+                                            ((Function) target)
+                                                    .construct(cx, scope, unwrap(args))));
+        }
+    }
+}
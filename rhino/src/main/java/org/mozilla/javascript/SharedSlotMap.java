@@ -0,0 +1,315 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The slot map of an object that is shared by many top-level scopes, such as the standard objects
+ * of a {@link ScopeTemplate}. The shared slots are never modified. The first change that code
+ * running in a top-level scope makes to the object copies the slots to a map that the {@link
+ * TopLevel} keeps, and code running in that scope uses the copy from then on. Other scopes still
+ * see the shared slots, and pay nothing for the copy.
+ *
+ * <p>Each copy also records whether its scope made the object non-extensible, so that {@code
+ * Object.freeze} and {@code Object.preventExtensions} only affect that scope.
+ *
+ * <p>The scope that owns a change is the scope of the {@link SharedObjectView} that the object is
+ * used through, if any, and otherwise the top-level scope of the current top-level call. That is
+ * the first {@link TopLevel} that is not shared in the parent chain and then the prototype chain
+ * of the scope of the call, so that a scope whose prototype is a top-level scope also sees the
+ * changes of that scope. Changes made outside of any call and of any view are rejected, as if the
+ * object was sealed.
+ *
+ * <p>Reads only look for a copy while some scope that has one is still reachable, so that they go
+ * back to reading the shared slots directly once the scopes that changed the object are gone.
+ */
+final class SharedSlotMap implements SlotMap {
+
+    /**
+     * Holds the slots of a map, so that the map can grow or replace itself, and whether the scope
+     * that owns them made the object non-extensible.
+     */
+    private static final class Owner extends SlotMapOwner {
+        boolean extensible = true;
+
+        Owner(SlotMap map) {
+            super(map);
+        }
+    }
+
+    private final ScriptableObject object;
+    private final Owner shared;
+
+    /** The number of scopes that have their own copy of the slots and were not collected. */
+    private final AtomicInteger copies = new AtomicInteger();
+
+    /** The scopes that have a copy, which are only held weakly so that they may be collected. */
+    private final Set<Reference<TopLevel>> owners = ConcurrentHashMap.newKeySet();
+
+    private final ReferenceQueue<TopLevel> collected = new ReferenceQueue<>();
+
+    SharedSlotMap(ScriptableObject object) {
+        this.object = object;
+        this.shared = new Owner(object.getMap());
+    }
+
+    /** Return the top-level scope that owns the changes made by the current code, or null. */
+    static TopLevel currentScope() {
+        Context cx = Context.getCurrentContext();
+        if (cx == null) {
+            return null;
+        }
+        if (cx.viewScope != null) {
+            return cx.viewScope;
+        }
+        return ownerOf(cx.topCallScope);
+    }
+
+    /**
+     * Return the first top-level scope that is not shared in the parent chain and then the
+     * prototype chain of a scope, or null if there is none.
+     */
+    static TopLevel ownerOf(Scriptable scope) {
+        while (scope != null) {
+            if (scope instanceof TopLevel && !isShared(scope)) {
+                return (TopLevel) scope;
+            }
+            Scriptable parent = scope.getParentScope();
+            scope = parent != null ? parent : scope.getPrototype();
+        }
+        return null;
+    }
+
+    /** Return true if the value is an object whose slots are shared by many scopes. */
+    static boolean isShared(Object value) {
+        return value instanceof ScriptableObject
+                && ((ScriptableObject) value).getMap() instanceof SharedSlotMap;
+    }
+
+    /** Return the owner of the slots that the current scope sees. */
+    private Owner reading() {
+        if (copies.get() != 0) {
+            releaseCollectedCopies();
+            TopLevel scope = currentScope();
+            if (scope != null) {
+                SlotMapOwner copy = scope.getSlotMapCopy(this);
+                if (copy != null) {
+                    return (Owner) copy;
+                }
+            }
+        }
+        return shared;
+    }
+
+    /** Return the owner of the slots that the current scope may change, copying them if needed. */
+    private Owner writing(Object key, int index) {
+        TopLevel scope = currentScope();
+        if (scope == null) {
+            String str = (key != null) ? key.toString() : Integer.toString(index);
+            throw Context.reportRuntimeErrorById("msg.modify.sealed", str);
+        }
+        return (Owner) scope.getSlotMapCopy(this, () -> copySlots(scope));
+    }
+
+    /** Return false if the current scope made the object non-extensible. */
+    boolean isExtensible() {
+        return reading().extensible;
+    }
+
+    /**
+     * Make the object non-extensible for the current scope only, returning false if there is no
+     * current scope.
+     */
+    boolean preventExtensions() {
+        TopLevel scope = currentScope();
+        if (scope == null) {
+            return false;
+        }
+        ((Owner) scope.getSlotMapCopy(this, () -> copySlots(scope))).extensible = false;
+        return true;
+    }
+
+    private SlotMapOwner copySlots(TopLevel scope) {
+        SlotMap map = shared.getMap();
+        Owner copy = new Owner(SlotMapOwner.createSlotMap(map.size()));
+        for (Slot slot : map) {
+            Slot newSlot;
+            if (slot instanceof BuiltInSlot) {
+                // Built-in slots keep their value in fields of the shared object, which
+                // the copy must not change
+                newSlot = new Slot(slot.name, slot.indexOrHash, slot.getAttributes());
+                newSlot.value = slot.getValue(object);
+            } else {
+                newSlot = slot.copySlot();
+            }
+            copy.getMap().add(copy, newSlot);
+        }
+        releaseCollectedCopies();
+        owners.add(new WeakReference<>(scope, collected));
+        copies.incrementAndGet();
+        return copy;
+    }
+
+    /** Stop counting the copies of scopes that were collected. */
+    private void releaseCollectedCopies() {
+        Reference<? extends TopLevel> ref;
+        while ((ref = collected.poll()) != null) {
+            if (owners.remove(ref)) {
+                copies.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return reading().getMap().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return reading().getMap().isEmpty();
+    }
+
+    @Override
+    public Iterator<Slot> iterator() {
+        return reading().getMap().iterator();
+    }
+
+    @Override
+    public Slot query(Object key, int index) {
+        return reading().getMap().query(key, index);
+    }
+
+    @Override
+    public Slot modify(SlotMapOwner owner, Object key, int index, int attributes) {
+        SlotMapOwner copy = writing(key, index);
+        return copy.getMap().modify(copy, key, index, attributes);
+    }
+
+    @Override
+    public void add(SlotMapOwner owner, Slot newSlot) {
+        SlotMapOwner copy = writing(newSlot.name, newSlot.indexOrHash);
+        copy.getMap().add(copy, newSlot);
+    }
+
+    @Override
+    public <S extends Slot> S compute(
+            SlotMapOwner owner, Object key, int index, SlotComputer<S> compute) {
+        SlotMapOwner copy = writing(key, index);
+        return copy.getMap().compute(copy, key, index, compute);
+    }
+
+    @Override
+    public <S extends Slot> S compute(
+            SlotMapOwner owner,
+            CompoundOperationMap compoundOp,
+            Object key,
+            int index,
+            SlotComputer<S> compute) {
+        return compute(owner, key, index, compute);
+    }
+
+    @Override
+    public CompoundOperationMap startCompoundOp(SlotMapOwner owner, boolean forWriting) {
+        SlotMapOwner target = reading();
+        if (forWriting && target == shared && currentScope() != null) {
+            target = writing(null, 0);
+        }
+        return new Operation(target, forWriting);
+    }
+
+    /**
+     * A compound operation on the slots that the current scope sees, which rejects changes to the
+     * shared slots.
+     */
+    private final class Operation extends CompoundOperationMap {
+        private final CompoundOperationMap op;
+
+        Operation(SlotMapOwner target, boolean forWriting) {
+            super(target);
+            this.op = target.startCompoundOp(forWriting);
+        }
+
+        private void checkWritable(Object key, int index) {
+            if (owner == shared) {
+                String str = (key != null) ? key.toString() : Integer.toString(index);
+                throw Context.reportRuntimeErrorById("msg.modify.sealed", str);
+            }
+        }
+
+        @Override
+        public boolean isTouched() {
+            return op.isTouched();
+        }
+
+        @Override
+        public void add(SlotMapOwner o, Slot newSlot) {
+            checkWritable(newSlot.name, newSlot.indexOrHash);
+            op.add(owner, newSlot);
+        }
+
+        @Override
+        public <S extends Slot> S compute(
+                SlotMapOwner o, Object key, int index, SlotComputer<S> compute) {
+            checkWritable(key, index);
+            return op.compute(owner, key, index, compute);
+        }
+
+        @Override
+        public <S extends Slot> S compute(
+                SlotMapOwner o,
+                CompoundOperationMap compoundOp,
+                Object key,
+                int index,
+                SlotComputer<S> compute) {
+            return compute(o, key, index, compute);
+        }
+
+        @Override
+        public Slot modify(SlotMapOwner o, Object key, int index, int attributes) {
+            checkWritable(key, index);
+            return op.modify(owner, key, index, attributes);
+        }
+
+        @Override
+        public int dirtySize() {
+            return op.dirtySize();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return op.isEmpty();
+        }
+
+        @Override
+        public Slot query(Object key, int index) {
+            return op.query(key, index);
+        }
+
+        @Override
+        public int size() {
+            return op.size();
+        }
+
+        @Override
+        public Iterator<Slot> iterator() {
+            return op.iterator();
+        }
+
+        @Override
+        public void close() {
+            op.close();
+        }
+    }
+}
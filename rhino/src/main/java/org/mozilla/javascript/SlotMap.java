@@ -91,4 +91,38 @@ public interface SlotMap extends Iterable<Slot> {
     default CompoundOperationMap startCompoundOp(SlotMapOwner owner, boolean forWriting) {
         return new CompoundOperationMap(owner);
     }
+
+    /**
+     * Return the {@link Shape} that describes the layout of this map, or null if the map does not
+     * keep track of one. The offsets of a shape follow the order in which the slots were added, as
+     * iteration does.
+     */
+    default Shape getShape() {
+        return null;
+    }
+
+    /**
+     * Return the slot at the specified offset of the current shape, or null if there is none. This
+     * is meant to be called after checking that the map has a shape that includes the offset.
+     * This default walks the slots in order, and maps that keep track of a shape override it with
+     * a direct lookup.
+     */
+    default Slot getSlotAt(int offset) {
+        int i = 0;
+        for (Slot slot : this) {
+            if (i++ == offset) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return a number that changes whenever a slot is removed from this map or replaced by another
+     * slot, or -1 if the map does not keep track of that. Adding slots does not change it. A cache
+     * that found a slot in this map may keep using it for as long as the number stays the same.
+     */
+    default int getVersion() {
+        return -1;
+    }
 }
@@ -180,11 +180,24 @@ public abstract class SlotMapOwner {
     static class SingleEntrySlotMap implements SlotMap {
 
         SingleEntrySlotMap(Slot slot) {
+            this(slot, firstShape(slot));
+        }
+
+        SingleEntrySlotMap(Slot slot, Shape shape) {
             assert (slot != null);
             this.slot = slot;
+            this.shape = shape;
         }
 
         protected final Slot slot;
+        private final Shape shape;
+
+        private static Shape firstShape(Slot slot) {
+            if (slot.name == null || slot.getClass() != Slot.class) {
+                return null;
+            }
+            return Shape.EMPTY.addProperty(slot.name);
+        }
 
         @Override
         public Iterator<Slot> iterator() {
@@ -223,6 +236,17 @@ public abstract class SlotMapOwner {
             return null;
         }
 
+        @Override
+        public Shape getShape() {
+            return shape;
+        }
+
+        @Override
+        public Slot getSlotAt(int offset) {
+            assert offset == 0;
+            return slot;
+        }
+
         @Override
         public void add(SlotMapOwner owner, Slot newSlot) {
             if (owner == null) {
@@ -252,7 +276,7 @@ public abstract class SlotMapOwner {
     static final class ThreadSafeSingleEntrySlotMap extends SingleEntrySlotMap {
 
         ThreadSafeSingleEntrySlotMap(Slot slot) {
-            super(slot);
+            super(slot, null);
         }
 
         @Override
@@ -316,22 +340,32 @@ public abstract class SlotMapOwner {
     protected static SlotMap createSlotMap(int initialSize) {
         Context cx = Context.getCurrentContext();
         if ((cx != null) && cx.hasFeature(Context.FEATURE_THREAD_SAFE_OBJECTS)) {
-            if (initialSize == 0) {
+            if (cx.hasFeature(Context.FEATURE_LOCK_FREE_READS)) {
+                return initialSize == 0
+                        ? ConcurrentSlotMap.EMPTY
+                        : new ConcurrentSlotMap(initialSize);
+            } else if (initialSize == 0) {
                 return THREAD_SAFE_EMPTY_SLOT_MAP;
             } else if (initialSize > LARGE_HASH_SIZE) {
                 return new ThreadSafeHashSlotMap(initialSize);
             } else {
-                return new ThreadSafeEmbeddedSlotMap();
+                return new ThreadSafeEmbeddedSlotMap(embeddedCapacity(initialSize));
             }
         } else if (initialSize == 0) {
             return EMPTY_SLOT_MAP;
         } else if (initialSize > LARGE_HASH_SIZE) {
-            return new HashSlotMap();
+            return new HashSlotMap(initialSize);
         } else {
-            return new EmbeddedSlotMap();
+            return new EmbeddedSlotMap(embeddedCapacity(initialSize));
         }
     }
 
+    /** Return the table size that holds "size" slots without growing the embedded map. */
+    private static int embeddedCapacity(int size) {
+        // The embedded maps grow when they are three quarters full
+        return size + size / 3 + 1;
+    }
+
     final SlotMap getMap() {
         return slotMap;
     }
@@ -10,10 +10,19 @@ class ThreadSafeEmbeddedSlotMap extends EmbeddedSlotMap implements LockAwareSlot
 
     public ThreadSafeEmbeddedSlotMap() {
         super();
+        // Inline caches read slots without taking the lock, so don't track a shape here
+        dropShape();
     }
 
     public ThreadSafeEmbeddedSlotMap(int capacity) {
         super(capacity);
+        dropShape();
+    }
+
+    @Override
+    public int getVersion() {
+        // Name caches read slots without taking the lock, so don't let them use this map
+        return -1;
     }
 
     @Override
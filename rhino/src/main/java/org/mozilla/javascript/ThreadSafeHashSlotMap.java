@@ -36,6 +36,12 @@ class ThreadSafeHashSlotMap extends HashSlotMap implements LockAwareSlotMap {
         addWithLock(null, newSlot);
     }
 
+    @Override
+    public int getVersion() {
+        // Name caches read slots without taking the lock, so don't let them use this map
+        return -1;
+    }
+
     @Override
     public int size() {
         long stamp = lock.tryOptimisticRead();
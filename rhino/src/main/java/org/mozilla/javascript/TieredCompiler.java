@@ -0,0 +1,221 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.mozilla.javascript.ast.ScriptNode;
+
+/**
+ * Switches the functions of a script that was compiled for the interpreter to bytecode once they
+ * are hot. The interpreter counts the calls and loop iterations of each function, and when they add
+ * up to more than the threshold, the whole script is compiled to bytecode and the function's
+ * descriptor is switched to the code of the same function in the compiled script. The script is
+ * only compiled once, however many of its functions get hot, and may be compiled by a {@link
+ * BackgroundCompiler} while its functions keep being interpreted.
+ *
+ * <p>The loops of the top-level script are counted in the same way, and a script whose loops get
+ * hot runs compiled code the next time that it is executed. A call or a script that is already
+ * running keeps running in the interpreter until it returns, as there is no on-stack replacement.
+ *
+ * <p>Generators are not switched, since the state that they save when they yield is specific to
+ * the interpreter.
+ *
+ * @see Context#setTierUpThreshold(int)
+ */
+final class TieredCompiler {
+    private final CompilerEnvirons compilerEnv;
+    private final String sourceString;
+    private final String sourceName;
+    private final int lineno;
+    private final boolean returnFunction;
+    private final Object securityDomain;
+
+    /** The number of calls and loop iterations after which a function is compiled. */
+    final int threshold;
+
+    // The key of the top-level script in compiledFunctions, which no source position can have
+    private static final Long SCRIPT_KEY = -1L;
+
+    // The functions of the compiled script by their position in the source, and the script itself
+    private Map<Long, JSDescriptor<?>> compiledFunctions;
+    private boolean cannotCompile;
+    // The functions that got hot while the script is queued for the background compiler
+    private List<JSDescriptor<?>> pending;
+
+    TieredCompiler(
+            CompilerEnvirons compilerEnv,
+            String sourceString,
+            String sourceName,
+            int lineno,
+            boolean returnFunction,
+            Object securityDomain) {
+        this.compilerEnv = compilerEnv;
+        this.sourceString = sourceString;
+        this.sourceName = sourceName;
+        this.lineno = lineno;
+        this.returnFunction = returnFunction;
+        this.securityDomain = securityDomain;
+        this.threshold = compilerEnv.getTierUpThreshold();
+    }
+
+    /**
+     * Make the interpreter count the calls of the functions that this descriptor contains, and the
+     * loop iterations of the script itself.
+     */
+    void install(JSDescriptor<?> desc) {
+        if ((desc.isFunction() || desc.isScript())
+                && !desc.isES6Generator()
+                && desc.getCode() instanceof InterpreterData) {
+            ((InterpreterData<?>) desc.getCode()).tieredCompiler = this;
+        }
+        for (int i = 0; i < desc.getFunctionCount(); i++) {
+            install(desc.getFunction(i));
+        }
+    }
+
+    /**
+     * Switch a function, or the top-level script, to compiled code. The script is compiled the
+     * first time that one of its functions gets hot, on a thread of the factory's {@link
+     * BackgroundCompiler} if it has one, and otherwise on the current thread. Failing to compile is
+     * not an error: the function just stays interpreted.
+     */
+    void promote(Context cx, JSDescriptor<?> desc) {
+        ContextFactory factory = cx.getFactory();
+        BackgroundCompiler backgroundCompiler = factory.getBackgroundCompiler();
+        synchronized (this) {
+            if (backgroundCompiler == null || compiledFunctions != null || cannotCompile) {
+                if (compiledFunctions == null && !cannotCompile) {
+                    compiledFunctions = compile(cx, false);
+                    cannotCompile = compiledFunctions == null;
+                }
+                switchToCompiledCode(desc);
+                return;
+            }
+            if (pending != null) {
+                // The script is already queued
+                pending.add(desc);
+                return;
+            }
+            pending = new ArrayList<>();
+            pending.add(desc);
+        }
+        if (!backgroundCompiler.submit(factory, this)) {
+            List<JSDescriptor<?>> rejected;
+            synchronized (this) {
+                rejected = pending;
+                pending = null;
+            }
+            // Try again once the functions have run for another threshold
+            for (JSDescriptor<?> d : rejected) {
+                InterpreterData<?> idata = (InterpreterData<?>) d.getCode();
+                idata.tierUpCount = 0;
+                idata.tieredCompiler = this;
+            }
+        }
+    }
+
+    /**
+     * Compile the script for the functions that got hot while it was queued, and switch them to
+     * the compiled code. This is called on a thread of the background compiler.
+     *
+     * @return true if the script was compiled
+     */
+    boolean compileQueued(Context cx) {
+        Map<Long, JSDescriptor<?>> functions = compile(cx, true);
+        synchronized (this) {
+            if (compiledFunctions == null && !cannotCompile) {
+                compiledFunctions = functions;
+                cannotCompile = functions == null;
+            }
+            if (pending != null) {
+                for (JSDescriptor<?> desc : pending) {
+                    switchToCompiledCode(desc);
+                }
+                pending = null;
+            }
+        }
+        return functions != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends ScriptOrFn<T>> void switchToCompiledCode(JSDescriptor<T> desc) {
+        if (compiledFunctions == null) {
+            return;
+        }
+        JSDescriptor<?> compiled = compiledFunctions.get(key(desc));
+        if (compiled == null
+                || compiled.isFunction() != desc.isFunction()
+                || compiled.getParamAndVarCount() != desc.getParamAndVarCount()
+                || compiled.getParamCount() != desc.getParamCount()
+                || compiled.isES6Generator()
+                || !compiled.getName().equals(desc.getName())) {
+            return;
+        }
+        desc.setCompiledCode(
+                (JSCode<T>) compiled.getCode(), (JSCode<T>) compiled.getConstructor());
+    }
+
+    /**
+     * Compile the script, returning its functions by their position, or null on failure. The
+     * security controller of the script is only installed on a Context that the compiler entered
+     * itself, as the caller's Context is never changed.
+     */
+    private Map<Long, JSDescriptor<?>> compile(Context cx, boolean ownContext) {
+        Evaluator codegen = Context.createCodegen();
+        if (codegen == null) {
+            return null;
+        }
+        try {
+            if (cx.getSecurityController() == null && compilerEnv.securityController() != null) {
+                if (!ownContext) {
+                    // The caller's Context must keep its own security policy, and without the
+                    // script's controller the classes would not be defined the same way
+                    return null;
+                }
+                // A background thread enters a new Context, which must define classes the same way
+                cx.setSecurityController(compilerEnv.securityController());
+            }
+            // The source compiled fine for the interpreter, so do not report its warnings again
+            ScriptNode tree =
+                    cx.parse(
+                            sourceString,
+                            sourceName,
+                            lineno,
+                            compilerEnv,
+                            DefaultErrorReporter.instance,
+                            returnFunction);
+            Object bytecode = codegen.compile(compilerEnv, tree, sourceString, returnFunction);
+            JSDescriptor<?> desc = codegen.createDescriptor(bytecode, securityDomain);
+            if (desc == null) {
+                // An Evaluator that predates createDescriptor
+                return null;
+            }
+            Map<Long, JSDescriptor<?>> functions = new HashMap<>();
+            addFunctions(desc, functions);
+            return functions;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void addFunctions(JSDescriptor<?> desc, Map<Long, JSDescriptor<?>> functions) {
+        if (desc.isFunction() || desc.isScript()) {
+            functions.put(key(desc), desc);
+        }
+        for (int i = 0; i < desc.getFunctionCount(); i++) {
+            addFunctions(desc.getFunction(i), functions);
+        }
+    }
+
+    private static Long key(JSDescriptor<?> desc) {
+        if (!desc.isFunction()) {
+            return SCRIPT_KEY;
+        }
+        return ((long) desc.getRawSourceStart() << 32) | desc.getRawSourceEnd();
+    }
+}
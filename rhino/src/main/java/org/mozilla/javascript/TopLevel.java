@@ -7,6 +7,9 @@
 package org.mozilla.javascript;
 
 import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * A top-level scope object that provides special means to cache and preserve the initial values of
@@ -101,6 +104,12 @@ public class TopLevel extends ScriptableObject {
     private EnumMap<Builtins, BaseFunction> ctors;
     private EnumMap<NativeErrors, BaseFunction> errors;
 
+    /** The slots of shared standard objects that code running in this scope has changed. */
+    private transient volatile Map<SharedSlotMap, SlotMapOwner> slotMapCopies;
+
+    /** The views of shared standard objects that were found through this scope. */
+    private transient volatile Map<ScriptableObject, SharedObjectView> sharedObjectViews;
+
     @Override
     public String getClassName() {
         return "global";
@@ -136,6 +145,53 @@ public class TopLevel extends ScriptableObject {
         }
     }
 
+    /** Use the builtins cached by another scope, whose standard objects this scope inherits. */
+    void copyBuiltins(TopLevel other) {
+        ctors = other.ctors;
+        errors = other.errors;
+    }
+
+    /** Return this scope's copy of the slots of a shared object, or null if it has none. */
+    SlotMapOwner getSlotMapCopy(SharedSlotMap map) {
+        Map<SharedSlotMap, SlotMapOwner> copies = slotMapCopies;
+        return copies != null ? copies.get(map) : null;
+    }
+
+    /** Return this scope's copy of the slots of a shared object, making it if needed. */
+    SlotMapOwner getSlotMapCopy(SharedSlotMap map, Supplier<SlotMapOwner> copier) {
+        Map<SharedSlotMap, SlotMapOwner> copies = slotMapCopies;
+        if (copies == null) {
+            synchronized (this) {
+                copies = slotMapCopies;
+                if (copies == null) {
+                    copies = new ConcurrentHashMap<>();
+                    slotMapCopies = copies;
+                }
+            }
+        }
+        return copies.computeIfAbsent(map, k -> copier.get());
+    }
+
+    /** Return the view of a shared object that is bound to this scope, making it if needed. */
+    SharedObjectView getSharedObjectView(ScriptableObject obj) {
+        Map<ScriptableObject, SharedObjectView> views = sharedObjectViews;
+        if (views == null) {
+            synchronized (this) {
+                views = sharedObjectViews;
+                if (views == null) {
+                    views = new ConcurrentHashMap<>();
+                    sharedObjectViews = views;
+                }
+            }
+        }
+        return views.computeIfAbsent(
+                obj,
+                k ->
+                        k instanceof Function
+                                ? new SharedObjectView.FunctionView(this, k)
+                                : new SharedObjectView(this, k));
+    }
+
     /** Clears the cache; this is necessary, when standard objects are reinitialized. */
     void clearCache() {
         ctors = null;
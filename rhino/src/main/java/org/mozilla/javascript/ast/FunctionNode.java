@@ -115,6 +115,8 @@ public class FunctionNode extends ScriptNode {
     // codegen variables
     private int functionType;
     private boolean needsActivation;
+    private boolean argumentsNeedActivation;
+    private boolean readsArgumentsDirectly;
     private boolean requiresArgumentObject;
     private boolean isGenerator;
     private boolean isES6Generator;
@@ -290,13 +292,41 @@ public class FunctionNode extends ScriptNode {
      *     closure, or in a number of other situations.
      */
     public boolean requiresActivation() {
-        return needsActivation;
+        return needsActivation || argumentsNeedActivation;
     }
 
     public void setRequiresActivation() {
         needsActivation = true;
     }
 
+    /**
+     * Record that this function refers to its "arguments" object, which lives in the Activation
+     * object. Unlike the other reasons for an Activation object, the compiler may be able to read
+     * the arguments without one, see {@link #setReadsArgumentsDirectly()}.
+     */
+    public void setArgumentsRequireActivation() {
+        argumentsNeedActivation = true;
+    }
+
+    /** Return true if the "arguments" object is the only reason for an Activation object. */
+    public boolean requiresActivationOnlyForArguments() {
+        return argumentsNeedActivation && !needsActivation;
+    }
+
+    /**
+     * Record that the compiled code of this function reads its arguments from the array that it
+     * was called with, so that it needs neither an "arguments" object nor an Activation object.
+     */
+    public void setReadsArgumentsDirectly() {
+        if (needsActivation) codeBug();
+        argumentsNeedActivation = false;
+        readsArgumentsDirectly = true;
+    }
+
+    public boolean readsArgumentsDirectly() {
+        return readsArgumentsDirectly;
+    }
+
     public boolean requiresArgumentObject() {
         return requiresArgumentObject;
     }
@@ -6,8 +6,12 @@
 
 package org.mozilla.javascript.json;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ScriptRuntime;
 import org.mozilla.javascript.ScriptRuntime.StringIdOrIndex;
@@ -16,6 +20,13 @@ import org.mozilla.javascript.Scriptable;
 /**
  * This class converts a stream of JSON tokens into a JSON value.
  *
+ * <p>The text may be a String, or may be read incrementally from a Reader or a channel, so that a
+ * large document never has to be held in memory as a whole. Objects and arrays are created once
+ * all their members have been read, with storage of the right size.
+ *
+ * <p>A parser may be used to parse any number of values, but it is not thread-safe and must only
+ * be used by one thread at a time.
+ *
  * <p>See ECMA 15.12.
  *
  * @author Raphael Speyer
@@ -23,37 +34,169 @@ import org.mozilla.javascript.Scriptable;
  */
 public class JsonParser {
 
+    private static final int BUFFER_SIZE = 8192;
+    private static final int INITIAL_STACK_SIZE = 32;
+
     private Context cx;
     private Scriptable scope;
 
+    // A String is parsed as a whole, while a Reader is read into "buf" in chunks
+    private Reader reader;
+    private boolean eof;
+
+    private char[] buf;
     private int pos;
     private int length;
-    private String src;
+    // Index in "buf" of the start of the token that is being read, which must be kept when
+    // more input is read, or -1
+    private int mark = -1;
+    // Number of characters that were dropped from the start of "buf"
+    private long offset;
+
+    // Members of the objects and arrays that are being read. An object uses two entries per
+    // property, for the name and value.
+    private Object[] stack = new Object[INITIAL_STACK_SIZE];
+    private int stackTop;
 
     public JsonParser(Context cx, Scriptable scope) {
         this.cx = cx;
         this.scope = scope;
     }
 
-    public synchronized Object parseValue(String json) throws ParseException {
+    public Object parseValue(String json) throws ParseException {
         if (json == null) {
             throw new ParseException("Input string may not be null");
         }
+        char[] chunks = buf;
+        buf = json.toCharArray();
+        length = buf.length;
+        eof = true;
+        try {
+            return parse();
+        } finally {
+            buf = chunks;
+        }
+    }
+
+    /**
+     * Parse a JSON value from a Reader, which is read up to the end of the stream but not closed.
+     */
+    public Object parseReader(Reader json) throws ParseException {
+        if (json == null) {
+            throw new ParseException("Input reader may not be null");
+        }
+        reader = json;
+        if (buf == null) {
+            buf = new char[BUFFER_SIZE];
+        }
+        length = 0;
+        eof = false;
+        try {
+            return parse();
+        } finally {
+            reader = null;
+            if (buf.length > BUFFER_SIZE) {
+                buf = null;
+            }
+        }
+    }
+
+    /**
+     * Parse a JSON value from a channel that contains UTF-8 text, as required by RFC 8259. The
+     * channel is read up to the end of the stream but not closed.
+     */
+    public Object parseChannel(ReadableByteChannel json) throws ParseException {
+        if (json == null) {
+            throw new ParseException("Input channel may not be null");
+        }
+        return parseReader(Channels.newReader(json, StandardCharsets.UTF_8.newDecoder(), -1));
+    }
+
+    private Object parse() throws ParseException {
         pos = 0;
-        length = json.length();
-        src = json;
-        Object value = readValue();
-        consumeWhitespace();
-        if (pos < length) {
-            throw new ParseException("Expected end of stream at char " + pos);
+        mark = -1;
+        offset = 0;
+        stackTop = 0;
+        try {
+            Object value = readValue();
+            consumeWhitespace();
+            if (pos < length || fill()) {
+                throw new ParseException("Expected end of stream at char " + (offset + pos));
+            }
+            return value;
+        } finally {
+            Arrays.fill(stack, 0, stackTop, null);
+            stackTop = 0;
         }
-        return value;
+    }
+
+    /**
+     * Read more input into the buffer, keeping everything from the mark, or if there is no mark,
+     * from the current position. Return false at the end of the input, which is where a String
+     * ends, since it is all in the buffer from the start.
+     */
+    private boolean fill() throws ParseException {
+        if (eof) {
+            return false;
+        }
+        int keep = mark >= 0 ? mark : pos;
+        if (keep > 0) {
+            System.arraycopy(buf, keep, buf, 0, length - keep);
+            length -= keep;
+            pos -= keep;
+            if (mark >= 0) {
+                mark -= keep;
+            }
+            offset += keep;
+        }
+        if (length == buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, BUFFER_SIZE));
+        }
+        int n;
+        try {
+            do {
+                n = reader.read(buf, length, buf.length - length);
+            } while (n == 0);
+        } catch (IOException e) {
+            throw new ParseException(e);
+        }
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        length += n;
+        return true;
+    }
+
+    /**
+     * Return true if there is at least one more character of input. For a String this only
+     * compares the position with the length, except at the end.
+     */
+    private boolean hasMore() throws ParseException {
+        return pos < length || fill();
+    }
+
+    /** Return true if there are at least "n" more characters of input. */
+    private boolean require(int n) throws ParseException {
+        while (length - pos < n) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void push(Object value) {
+        if (stackTop == stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[stackTop++] = value;
     }
 
     private Object readValue() throws ParseException {
         consumeWhitespace();
-        while (pos < length) {
-            char c = src.charAt(pos++);
+        while (hasMore()) {
+            char c = buf[pos++];
             switch (c) {
                 case '{':
                     return readObject();
@@ -88,23 +231,21 @@ public class JsonParser {
 
     private Object readObject() throws ParseException {
         consumeWhitespace();
-        Scriptable object = cx.newObject(scope);
         // handle empty object literal case early
-        if (pos < length && src.charAt(pos) == '}') {
+        if (hasMore() && buf[pos] == '}') {
             pos += 1;
-            return object;
+            return cx.newObject(scope);
         }
-        String id;
-        Object value;
+        int start = stackTop;
         boolean needsComma = false;
-        while (pos < length) {
-            char c = src.charAt(pos++);
+        while (hasMore()) {
+            char c = buf[pos++];
             switch (c) {
                 case '}':
                     if (!needsComma) {
                         throw new ParseException("Unexpected comma in object literal");
                     }
-                    return object;
+                    return createObject(start);
                 case ',':
                     if (!needsComma) {
                         throw new ParseException("Unexpected comma in object literal");
@@ -115,16 +256,9 @@ public class JsonParser {
                     if (needsComma) {
                         throw new ParseException("Missing comma in object literal");
                     }
-                    id = readString();
+                    push(readString());
                     consume(':');
-                    value = readValue();
-
-                    StringIdOrIndex indexObj = ScriptRuntime.toStringIdOrIndex(id);
-                    if (indexObj.getStringId() == null) {
-                        object.put(indexObj.getIndex(), object, value);
-                    } else {
-                        object.put(indexObj.getStringId(), object, value);
-                    }
+                    push(readValue());
                     needsComma = true;
                     break;
                 default:
@@ -135,24 +269,44 @@ public class JsonParser {
         throw new ParseException("Unterminated object literal");
     }
 
+    private Scriptable createObject(int start) {
+        Scriptable object = cx.newObject(scope, (stackTop - start) / 2);
+        for (int i = start; i < stackTop; i += 2) {
+            String id = (String) stack[i];
+            Object value = stack[i + 1];
+            StringIdOrIndex indexObj = ScriptRuntime.toStringIdOrIndex(id);
+            if (indexObj.getStringId() == null) {
+                object.put(indexObj.getIndex(), object, value);
+            } else {
+                object.put(indexObj.getStringId(), object, value);
+            }
+        }
+        Arrays.fill(stack, start, stackTop, null);
+        stackTop = start;
+        return object;
+    }
+
     private Object readArray() throws ParseException {
         consumeWhitespace();
         // handle empty array literal case early
-        if (pos < length && src.charAt(pos) == ']') {
+        if (hasMore() && buf[pos] == ']') {
             pos += 1;
             return cx.newArray(scope, 0);
         }
-        List<Object> list = new ArrayList<>();
+        int start = stackTop;
         boolean needsComma = false;
-        while (pos < length) {
-            char c = src.charAt(pos);
+        while (hasMore()) {
+            char c = buf[pos];
             switch (c) {
                 case ']':
                     if (!needsComma) {
                         throw new ParseException("Unexpected comma in array literal");
                     }
                     pos += 1;
-                    return cx.newArray(scope, list.toArray());
+                    Object[] elements = Arrays.copyOfRange(stack, start, stackTop);
+                    Arrays.fill(stack, start, stackTop, null);
+                    stackTop = start;
+                    return cx.newArray(scope, elements);
                 case ',':
                     if (!needsComma) {
                         throw new ParseException("Unexpected comma in array literal");
@@ -164,7 +318,7 @@ public class JsonParser {
                     if (needsComma) {
                         throw new ParseException("Missing comma in array literal");
                     }
-                    list.add(readValue());
+                    push(readValue());
                     needsComma = true;
             }
             consumeWhitespace();
@@ -175,17 +329,19 @@ public class JsonParser {
     private String readString() throws ParseException {
         /*
          * Optimization: if the source contains no escaped characters, create the
-         * string directly from the source text.
+         * string directly from the buffer.
          */
-        int stringStart = pos;
-        while (pos < length) {
-            char c = src.charAt(pos++);
+        mark = pos;
+        while (hasMore()) {
+            char c = buf[pos++];
             if (c <= '\u001F') {
                 throw new ParseException("String contains control character");
             } else if (c == '\\') {
                 break;
             } else if (c == '"') {
-                return src.substring(stringStart, pos - 1);
+                String s = new String(buf, mark, pos - 1 - mark);
+                mark = -1;
+                return s;
             }
         }
 
@@ -195,13 +351,14 @@ public class JsonParser {
          * character, and repeat until the entire string is consumed.
          */
         StringBuilder b = new StringBuilder();
-        while (pos < length) {
-            assert src.charAt(pos - 1) == '\\';
-            b.append(src, stringStart, pos - 1);
-            if (pos >= length) {
+        // Each scan above and below stops after a backslash, or at the end of the input
+        while (pos > mark && buf[pos - 1] == '\\') {
+            b.append(buf, mark, pos - 1 - mark);
+            mark = -1;
+            if (!hasMore()) {
                 throw new ParseException("Unterminated string");
             }
-            char c = src.charAt(pos++);
+            char c = buf[pos++];
             switch (c) {
                 case '"':
                     b.append('"');
@@ -228,18 +385,19 @@ public class JsonParser {
                     b.append('\t');
                     break;
                 case 'u':
-                    if (length - pos < 5) {
+                    if (!require(5)) {
                         throw new ParseException(
-                                "Invalid character code: \\u" + src.substring(pos));
+                                "Invalid character code: \\u"
+                                        + new String(buf, pos, length - pos));
                     }
                     int code =
-                            fromHex(src.charAt(pos + 0)) << 12
-                                    | fromHex(src.charAt(pos + 1)) << 8
-                                    | fromHex(src.charAt(pos + 2)) << 4
-                                    | fromHex(src.charAt(pos + 3));
+                            fromHex(buf[pos + 0]) << 12
+                                    | fromHex(buf[pos + 1]) << 8
+                                    | fromHex(buf[pos + 2]) << 4
+                                    | fromHex(buf[pos + 3]);
                     if (code < 0) {
                         throw new ParseException(
-                                "Invalid character code: " + src.substring(pos, pos + 4));
+                                "Invalid character code: " + new String(buf, pos, 4));
                     }
                     pos += 4;
                     b.append((char) code);
@@ -247,15 +405,16 @@ public class JsonParser {
                 default:
                     throw new ParseException("Unexpected character in string: '\\" + c + "'");
             }
-            stringStart = pos;
-            while (pos < length) {
-                c = src.charAt(pos++);
+            mark = pos;
+            while (hasMore()) {
+                c = buf[pos++];
                 if (c <= '\u001F') {
                     throw new ParseException("String contains control character");
                 } else if (c == '\\') {
                     break;
                 } else if (c == '"') {
-                    b.append(src, stringStart, pos - 1);
+                    b.append(buf, mark, pos - 1 - mark);
+                    mark = -1;
                     return b.toString();
                 }
             }
@@ -271,44 +430,46 @@ public class JsonParser {
 
     private Number readNumber(char c) throws ParseException {
         assert c == '-' || (c >= '0' && c <= '9');
-        final int numberStart = pos - 1;
+        // The number starts at the mark
+        mark = pos - 1;
         if (c == '-') {
-            c = nextOrNumberError(numberStart);
+            c = nextOrNumberError();
             if (!(c >= '0' && c <= '9')) {
-                throw numberError(numberStart, pos);
+                throw numberError();
             }
         }
         if (c != '0') {
             readDigits();
         }
         // read optional fraction part
-        if (pos < length) {
-            c = src.charAt(pos);
+        if (hasMore()) {
+            c = buf[pos];
             if (c == '.') {
                 pos += 1;
-                c = nextOrNumberError(numberStart);
+                c = nextOrNumberError();
                 if (!(c >= '0' && c <= '9')) {
-                    throw numberError(numberStart, pos);
+                    throw numberError();
                 }
                 readDigits();
             }
         }
         // read optional exponent part
-        if (pos < length) {
-            c = src.charAt(pos);
+        if (hasMore()) {
+            c = buf[pos];
             if (c == 'e' || c == 'E') {
                 pos += 1;
-                c = nextOrNumberError(numberStart);
+                c = nextOrNumberError();
                 if (c == '-' || c == '+') {
-                    c = nextOrNumberError(numberStart);
+                    c = nextOrNumberError();
                 }
                 if (!(c >= '0' && c <= '9')) {
-                    throw numberError(numberStart, pos);
+                    throw numberError();
                 }
                 readDigits();
             }
         }
-        String num = src.substring(numberStart, pos);
+        String num = new String(buf, mark, pos - mark);
+        mark = -1;
         final double dval = Double.parseDouble(num);
         final int ival = (int) dval;
         if (ival == dval) {
@@ -317,20 +478,22 @@ public class JsonParser {
         return Double.valueOf(dval);
     }
 
-    private ParseException numberError(int start, int end) {
-        return new ParseException("Unsupported number format: " + src.substring(start, end));
+    /** Report the number from the mark up to the current position. */
+    private ParseException numberError() {
+        return new ParseException(
+                "Unsupported number format: " + new String(buf, mark, pos - mark));
     }
 
-    private char nextOrNumberError(int numberStart) throws ParseException {
-        if (pos >= length) {
-            throw numberError(numberStart, length);
+    private char nextOrNumberError() throws ParseException {
+        if (!hasMore()) {
+            throw numberError();
         }
-        return src.charAt(pos++);
+        return buf[pos++];
     }
 
-    private void readDigits() {
-        for (; pos < length; ++pos) {
-            char c = src.charAt(pos);
+    private void readDigits() throws ParseException {
+        for (; hasMore(); ++pos) {
+            char c = buf[pos];
             if (!(c >= '0' && c <= '9')) {
                 break;
             }
@@ -338,10 +501,7 @@ public class JsonParser {
     }
 
     private Boolean readTrue() throws ParseException {
-        if (length - pos < 3
-                || src.charAt(pos) != 'r'
-                || src.charAt(pos + 1) != 'u'
-                || src.charAt(pos + 2) != 'e') {
+        if (!require(3) || buf[pos] != 'r' || buf[pos + 1] != 'u' || buf[pos + 2] != 'e') {
             throw new ParseException("Unexpected token: t");
         }
         pos += 3;
@@ -349,11 +509,11 @@ public class JsonParser {
     }
 
     private Boolean readFalse() throws ParseException {
-        if (length - pos < 4
-                || src.charAt(pos) != 'a'
-                || src.charAt(pos + 1) != 'l'
-                || src.charAt(pos + 2) != 's'
-                || src.charAt(pos + 3) != 'e') {
+        if (!require(4)
+                || buf[pos] != 'a'
+                || buf[pos + 1] != 'l'
+                || buf[pos + 2] != 's'
+                || buf[pos + 3] != 'e') {
             throw new ParseException("Unexpected token: f");
         }
         pos += 4;
@@ -361,19 +521,16 @@ public class JsonParser {
     }
 
     private Object readNull() throws ParseException {
-        if (length - pos < 3
-                || src.charAt(pos) != 'u'
-                || src.charAt(pos + 1) != 'l'
-                || src.charAt(pos + 2) != 'l') {
+        if (!require(3) || buf[pos] != 'u' || buf[pos + 1] != 'l' || buf[pos + 2] != 'l') {
             throw new ParseException("Unexpected token: n");
         }
         pos += 3;
         return null;
     }
 
-    private void consumeWhitespace() {
-        while (pos < length) {
-            char c = src.charAt(pos);
+    private void consumeWhitespace() throws ParseException {
+        while (hasMore()) {
+            char c = buf[pos];
             switch (c) {
                 case ' ':
                 case '\t':
@@ -389,10 +546,10 @@ public class JsonParser {
 
     private void consume(char token) throws ParseException {
         consumeWhitespace();
-        if (pos >= length) {
+        if (!hasMore()) {
             throw new ParseException("Expected " + token + " but reached end of stream");
         }
-        char c = src.charAt(pos++);
+        char c = buf[pos++];
         if (c == token) {
             return;
         }
@@ -63,7 +63,7 @@ class Block {
 
     static void runFlowAnalyzes(OptFunctionNode fn, Node[] statementNodes) {
         int paramCount = fn.fnode.getParamCount();
-        int varCount = fn.fnode.getParamAndVarCount();
+        int varCount = fn.getVarCount();
         int[] varTypes = new int[varCount];
         // If the variable is a parameter, it could have any type.
         for (int i = 0; i != paramCount; ++i) {
@@ -89,7 +89,13 @@ class Block {
             System.out.println(toString(theBlocks, statementNodes));
         }
 
-        reachingDefDataFlow(fn, statementNodes, theBlocks, varTypes);
+        reachingDefDataFlow(fn, statementNodes, theBlocks);
+        /*
+                if any variable is live on entry to block 0, we have to mark it as
+                not jRegable - since it means that someone is trying to access the
+                'undefined'-ness of that variable.
+        */
+        theBlocks[0].markAnyTypeVariables(varTypes);
         typeFlow(fn, statementNodes, theBlocks, varTypes);
 
         if (DEBUG) {
@@ -108,6 +114,111 @@ class Block {
                 fn.setIsNumberVar(i);
             }
         }
+        findInt32Variables(fn, statementNodes);
+    }
+
+    /*
+        Narrow the number variables whose every def is an int32 value: an
+        integral literal, a bitwise operator other than >>>, or another such
+        variable. Start from all of them and drop any variable with a def that
+        may not be int32 until nothing changes. ++ and -- may overflow the
+        int32 range, so a variable that is incremented stays a double.
+    */
+    private static void findInt32Variables(OptFunctionNode fn, Node[] statementNodes) {
+        int varCount = fn.getVarCount();
+        BitSet int32Vars = new BitSet(varCount);
+        for (int i = fn.fnode.getParamCount(); i != varCount; i++) {
+            if (fn.isNumberVar(i) && !fn.isConstVar(i)) {
+                int32Vars.set(i);
+            }
+        }
+        if (int32Vars.isEmpty()) {
+            return;
+        }
+        boolean changed;
+        do {
+            changed = false;
+            for (Node n : statementNodes) {
+                changed |= removeNonInt32Defs(fn, n, int32Vars);
+            }
+        } while (changed);
+
+        for (int i = int32Vars.nextSetBit(0); i >= 0; i = int32Vars.nextSetBit(i + 1)) {
+            fn.setIsInt32Var(i);
+        }
+    }
+
+    private static boolean removeNonInt32Defs(OptFunctionNode fn, Node n, BitSet int32Vars) {
+        boolean result = false;
+        Node first = n.getFirstChild();
+        for (Node next = first; next != null; next = next.getNext()) {
+            result |= removeNonInt32Defs(fn, next, int32Vars);
+        }
+        int varIndex;
+        switch (n.getType()) {
+            case Token.DEC:
+            case Token.INC:
+                if (first.getType() != Token.GETVAR) {
+                    return result;
+                }
+                varIndex = fn.getVarIndex(first);
+                break;
+            case Token.SETVAR:
+            case Token.SETCONSTVAR:
+                varIndex = fn.getVarIndex(n);
+                if (isInt32Expression(fn, first.getNext(), int32Vars)) {
+                    return result;
+                }
+                break;
+            default:
+                return result;
+        }
+        if (int32Vars.get(varIndex)) {
+            int32Vars.clear(varIndex);
+            result = true;
+        }
+        return result;
+    }
+
+    private static boolean isInt32Expression(OptFunctionNode fn, Node n, BitSet int32Vars) {
+        switch (n.getType()) {
+            case Token.NUMBER:
+                {
+                    double d = n.getDouble();
+                    return d == (int) d && (d != 0 || 1 / d > 0);
+                }
+
+            case Token.BITOR:
+            case Token.BITXOR:
+            case Token.BITAND:
+            case Token.BITNOT:
+            case Token.LSH:
+            case Token.RSH:
+                return true;
+
+            case Token.GETVAR:
+                return int32Vars.get(fn.getVarIndex(n));
+
+            case Token.HOOK:
+                {
+                    Node ifTrue = n.getFirstChild().getNext();
+                    return isInt32Expression(fn, ifTrue, int32Vars)
+                            && isInt32Expression(fn, ifTrue.getNext(), int32Vars);
+                }
+
+            case Token.COMMA:
+            case Token.SETVAR:
+            case Token.SETCONSTVAR:
+                return isInt32Expression(fn, n.getLastChild(), int32Vars);
+        }
+        return false;
+    }
+
+    /** Return the variables that may be used before they are def'd. */
+    static BitSet findLiveOnEntry(OptFunctionNode fn, Node[] statementNodes) {
+        Block[] theBlocks = buildBlocks(statementNodes);
+        reachingDefDataFlow(fn, statementNodes, theBlocks);
+        return theBlocks[0].itsLiveOnEntrySet;
     }
 
     private static Block[] buildBlocks(Node[] statementNodes) {
@@ -244,7 +355,7 @@ class Block {
     }
 
     private static void reachingDefDataFlow(
-            OptFunctionNode fn, Node[] statementNodes, Block[] theBlocks, int[] varTypes) {
+            OptFunctionNode fn, Node[] statementNodes, Block[] theBlocks) {
         /*
             initialize the liveOnEntry and liveOnExit sets, then discover the variables
             that are def'd by each function, and those that are used before being def'd
@@ -289,13 +400,6 @@ class Block {
                 vIndex--;
             }
         }
-        /*
-                if any variable is live on entry to block 0, we have to mark it as
-                not jRegable - since it means that someone is trying to access the
-                'undefined'-ness of that variable.
-        */
-
-        theBlocks[0].markAnyTypeVariables(varTypes);
     }
 
     private static void typeFlow(
@@ -464,8 +568,13 @@ class Block {
             case Token.REF_CALL:
                 return Optimizer.AnyType;
 
-            case Token.GETELEM:
             case Token.GETPROP:
+                if (fn.fnode.readsArgumentsDirectly() && EscapeAnalysis.isArgumentsLength(n)) {
+                    return Optimizer.NumberType;
+                }
+                return Optimizer.AnyType;
+
+            case Token.GETELEM:
             case Token.NAME:
             case Token.THIS:
                 return Optimizer.AnyType;
@@ -582,7 +691,7 @@ class Block {
                 if (first.getType() == Token.GETVAR) {
                     // theVar is a Number now
                     int i = fn.getVarIndex(first);
-                    if (!fn.fnode.getParamAndVarConst()[i]) {
+                    if (!fn.isConstVar(i)) {
                         result |= assignType(varTypes, i, Optimizer.NumberType);
                     }
                 }
@@ -593,7 +702,7 @@ class Block {
                     Node rValue = first.getNext();
                     int theType = findExpressionType(fn, rValue, varTypes);
                     int i = fn.getVarIndex(n);
-                    if (!(n.getType() == Token.SETVAR && fn.fnode.getParamAndVarConst()[i])) {
+                    if (!(n.getType() == Token.SETVAR && fn.isConstVar(i))) {
                         result |= assignType(varTypes, i, theType);
                     }
                     break;
@@ -618,7 +727,7 @@ class Block {
     private void printLiveOnEntrySet(OptFunctionNode fn) {
         if (DEBUG) {
             for (int i = 0; i < fn.getVarCount(); i++) {
-                String name = fn.fnode.getParamOrVarName(i);
+                String name = fn.getVarName(i);
                 if (itsUseBeforeDefSet.get(i)) System.out.println(name + " is used before def'd");
                 if (itsNotDefSet.get(i)) System.out.println(name + " is not def'd");
                 if (itsLiveOnEntrySet.get(i)) System.out.println(name + " is live on entry");
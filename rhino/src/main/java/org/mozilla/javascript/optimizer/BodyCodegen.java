@@ -164,7 +164,7 @@ class BodyCodegen {
             fnCurrent = OptFunctionNode.get(scriptOrFn);
             hasVarsInRegs = !fnCurrent.fnode.requiresActivation();
             if (hasVarsInRegs) {
-                int n = fnCurrent.fnode.getParamAndVarCount();
+                int n = fnCurrent.getVarCount();
                 if (n != 0) {
                     varRegisters = new int[n];
                 }
@@ -190,6 +190,7 @@ class BodyCodegen {
 
         popvLocal = -1;
         argsLocal = -1;
+        argumentsLocal = -1;
         itsZeroArgArray = -1;
         itsOneArgArray = -1;
         epilogueLabel = -1;
@@ -300,6 +301,13 @@ class BodyCodegen {
         if (isGenerator) return;
 
         if (hasVarsInRegs) {
+            if (fnCurrent.fnode.readsArgumentsDirectly()) {
+                // Keep the arguments as passed, before any padding
+                argumentsLocal = getNewWordLocal();
+                cfw.addALoad(argsLocal);
+                cfw.addAStore(argumentsLocal);
+            }
+
             // No need to create activation. Pad arguments if need be.
             int parmCount = scriptOrFn.getParamCount();
             if (parmCount > 0 && !inDirectCallFunction) {
@@ -335,8 +343,7 @@ class BodyCodegen {
             }
 
             int paramCount = fnCurrent.fnode.getParamCount();
-            int varCount = fnCurrent.fnode.getParamAndVarCount();
-            boolean[] constDeclarations = fnCurrent.fnode.getParamAndVarConst();
+            int varCount = fnCurrent.getVarCount();
 
             // REMIND - only need to initialize the vars that don't get a value
             // before the next call and are used in the function
@@ -351,12 +358,16 @@ class BodyCodegen {
                         cfw.add(ByteCode.AALOAD);
                         cfw.addAStore(reg);
                     }
+                } else if (fnCurrent.isInt32Var(i)) {
+                    reg = getNewWordLocal();
+                    cfw.addPush(0);
+                    cfw.addIStore(reg);
                 } else if (fnCurrent.isNumberVar(i)) {
-                    reg = getNewWordPairLocal(constDeclarations[i]);
+                    reg = getNewWordPairLocal(fnCurrent.isConstVar(i));
                     cfw.addPush(0.0);
                     cfw.addDStore(reg);
                 } else {
-                    reg = getNewWordLocal(constDeclarations[i]);
+                    reg = getNewWordLocal(fnCurrent.isConstVar(i));
                     if (firstUndefVar == -1) {
                         Codegen.pushUndefined(cfw);
                         firstUndefVar = reg;
@@ -366,7 +377,7 @@ class BodyCodegen {
                     cfw.addAStore(reg);
                 }
                 if (reg >= 0) {
-                    if (constDeclarations[i]) {
+                    if (fnCurrent.isConstVar(i)) {
                         cfw.addPush(0);
                         cfw.addIStore(reg + (fnCurrent.isNumberVar(i) ? 2 : 1));
                     }
@@ -375,8 +386,15 @@ class BodyCodegen {
 
                 // Add debug table entry if we're generating debug info
                 if (compilerEnv.isGenerateDebugInfo()) {
-                    String name = fnCurrent.fnode.getParamOrVarName(i);
-                    String type = fnCurrent.isNumberVar(i) ? "D" : "Ljava/lang/Object;";
+                    String name = fnCurrent.getVarName(i);
+                    String type;
+                    if (fnCurrent.isInt32Var(i)) {
+                        type = "I";
+                    } else if (fnCurrent.isNumberVar(i)) {
+                        type = "D";
+                    } else {
+                        type = "Ljava/lang/Object;";
+                    }
                     int startPC = cfw.getCurrentCodeOffset();
                     if (reg < 0) {
                         reg = varRegisters[i];
@@ -1384,6 +1402,10 @@ class BodyCodegen {
                 break;
 
             case Token.GETELEM:
+                if (argumentsLocal >= 0 && isArgumentsName(child)) {
+                    visitGetArgument(node, child);
+                    break;
+                }
                 generateExpression(child, node); // object
                 if (node.getIntProp(Node.OPTIONAL_CHAINING, 0) == 1) {
                     int getElem = cfw.acquireLabel();
@@ -2716,15 +2738,7 @@ class BodyCodegen {
         // stack: ... functionObj cx scope thisObj
         cfw.addALoad(argsLocal);
 
-        cfw.addInvoke(
-                ByteCode.INVOKEINTERFACE,
-                "org/mozilla/javascript/Callable",
-                "call",
-                "(Lorg/mozilla/javascript/Context;"
-                        + "Lorg/mozilla/javascript/Scriptable;"
-                        + "Lorg/mozilla/javascript/Scriptable;"
-                        + "[Ljava/lang/Object;"
-                        + ")Ljava/lang/Object;");
+        addDynamicInvoke("FUNCTION:CALL", Signatures.FUNCTION_CALL);
 
         if (afterLabel != null) {
             cfw.markLabel(afterLabel);
@@ -3678,8 +3692,7 @@ class BodyCodegen {
                 boolean post = ((incrDecrMask & Node.POST_FLAG) != 0);
                 int varIndex = fnCurrent.getVarIndex(child);
                 int reg = varRegisters[varIndex];
-                boolean[] constDeclarations = fnCurrent.fnode.getParamAndVarConst();
-                if (constDeclarations[varIndex]) {
+                if (fnCurrent.isConstVar(varIndex)) {
                     if (node.getIntProp(Node.ISNUMBER_PROP, -1) != -1) {
                         int offset = varIsDirectCallParameter(varIndex) ? 1 : 0;
                         cfw.addDLoad(reg + offset);
@@ -4001,12 +4014,12 @@ class BodyCodegen {
 
     private void visitBitNot(Node node, Node child) {
         int childNumberFlag = node.getIntProp(Node.ISNUMBER_PROP, -1);
-        generateExpression(child, node);
         if (childNumberFlag == -1) {
+            generateExpression(child, node);
             addObjectToNumeric();
             addScriptRuntimeInvoke("bitwiseNOT", "(Ljava/lang/Number;)Ljava/lang/Number;");
         } else {
-            addScriptRuntimeInvoke("toInt32", "(D)I");
+            generateInt32(child, node);
             cfw.addPush(-1); // implement ~a as (a ^ -1)
             cfw.add(ByteCode.IXOR);
             cfw.add(ByteCode.I2D);
@@ -4015,12 +4028,12 @@ class BodyCodegen {
 
     private void visitBitOp(Node node, int type, Node child) {
         int childNumberFlag = node.getIntProp(Node.ISNUMBER_PROP, -1);
-        generateExpression(child, node);
 
         // special-case URSH; work with the target arg as a long, so
         // that we can return a 32-bit unsigned value, and call
         // toUint32 instead of toInt32.
         if (type == Token.URSH) {
+            generateExpression(child, node);
             generateExpression(child.getNext(), node);
             cfw.add(ByteCode.SWAP);
             addDynamicInvoke("MATH:TOUINT32", Signatures.MATH_TO_UINT32);
@@ -4037,6 +4050,7 @@ class BodyCodegen {
             return;
         }
         if (childNumberFlag == -1) {
+            generateExpression(child, node);
             generateExpression(child.getNext(), node);
             cfw.add(ByteCode.SWAP);
             addObjectToNumeric();
@@ -4073,30 +4087,139 @@ class BodyCodegen {
                     throw Kit.codeBug(Token.typeToName(type));
             }
         } else {
-            addScriptRuntimeInvoke("toInt32", "(D)I");
-            generateExpression(child.getNext(), node);
-            addScriptRuntimeInvoke("toInt32", "(D)I");
+            generateInt32(child, node);
+            generateInt32(child.getNext(), node);
+            cfw.add(intOpcode(type));
+            cfw.add(ByteCode.I2D);
+        }
+    }
 
-            switch (type) {
-                case Token.BITOR:
-                    cfw.add(ByteCode.IOR);
+    /**
+     * Generate an expression that pushes a double, and convert it with ToInt32 to an int on the
+     * stack. Int32 variables and number bitwise operators are computed as ints without going
+     * through a double, and so are additions and multiplications whose double result is exact,
+     * since ToInt32 of an exact result is the same as the wrapping int arithmetic.
+     */
+    private void generateInt32(Node node, Node parent) {
+        int type = node.getType();
+        Node child = node.getFirstChild();
+        boolean isNumber = node.getIntProp(Node.ISNUMBER_PROP, -1) != -1;
+        switch (type) {
+            case Token.NUMBER:
+                cfw.addPush(ScriptRuntime.toInt32(node.getDouble()));
+                return;
+
+            case Token.GETVAR:
+                {
+                    int varIndex = fnCurrent.getVarIndex(node);
+                    if (fnCurrent.isInt32Var(varIndex)) {
+                        cfw.addILoad(varRegisters[varIndex]);
+                        return;
+                    }
                     break;
-                case Token.BITXOR:
+                }
+
+            case Token.BITNOT:
+                if (isNumber) {
+                    generateInt32(child, node);
+                    cfw.addPush(-1); // implement ~a as (a ^ -1)
                     cfw.add(ByteCode.IXOR);
-                    break;
-                case Token.BITAND:
-                    cfw.add(ByteCode.IAND);
-                    break;
-                case Token.RSH:
-                    cfw.add(ByteCode.ISHR);
-                    break;
-                case Token.LSH:
-                    cfw.add(ByteCode.ISHL);
-                    break;
-                default:
-                    throw Kit.codeBug(Token.typeToName(type));
+                    return;
+                }
+                break;
+
+            case Token.BITOR:
+            case Token.BITXOR:
+            case Token.BITAND:
+            case Token.LSH:
+            case Token.RSH:
+                if (isNumber) {
+                    generateInt32(child, node);
+                    generateInt32(child.getNext(), node);
+                    cfw.add(intOpcode(type));
+                    return;
+                }
+                break;
+
+            case Token.ADD:
+            case Token.SUB:
+            case Token.MUL:
+                if (exactIntegerBits(node) <= 53) {
+                    generateInt32(child, node);
+                    generateInt32(child.getNext(), node);
+                    cfw.add(intOpcode(type));
+                    return;
+                }
+                break;
+        }
+        generateExpression(node, parent);
+        addScriptRuntimeInvoke("toInt32", "(D)I");
+    }
+
+    /**
+     * Return the number of bits needed for the magnitude of an integer expression, or
+     * Integer.MAX_VALUE if the expression may not produce an integer.
+     */
+    private int exactIntegerBits(Node node) {
+        if (node.getType() == Token.NUMBER) {
+            double d = node.getDouble();
+            if (d != (int) d) {
+                return Integer.MAX_VALUE;
             }
-            cfw.add(ByteCode.I2D);
+            return 64 - Long.numberOfLeadingZeros(Math.abs((long) d));
+        }
+        if (node.getIntProp(Node.ISNUMBER_PROP, -1) != Node.BOTH) {
+            return Integer.MAX_VALUE;
+        }
+        switch (node.getType()) {
+            case Token.GETVAR:
+                return fnCurrent.isInt32Var(fnCurrent.getVarIndex(node)) ? 32 : Integer.MAX_VALUE;
+            case Token.BITOR:
+            case Token.BITXOR:
+            case Token.BITAND:
+            case Token.BITNOT:
+            case Token.LSH:
+            case Token.RSH:
+                return 32;
+            case Token.ADD:
+            case Token.SUB:
+                {
+                    int bits =
+                            Math.max(
+                                    exactIntegerBits(node.getFirstChild()),
+                                    exactIntegerBits(node.getLastChild()));
+                    return bits > 53 ? Integer.MAX_VALUE : bits + 1;
+                }
+            case Token.MUL:
+                {
+                    int left = exactIntegerBits(node.getFirstChild());
+                    int right = exactIntegerBits(node.getLastChild());
+                    return left > 53 || right > 53 ? Integer.MAX_VALUE : left + right;
+                }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private static int intOpcode(int type) {
+        switch (type) {
+            case Token.BITOR:
+                return ByteCode.IOR;
+            case Token.BITXOR:
+                return ByteCode.IXOR;
+            case Token.BITAND:
+                return ByteCode.IAND;
+            case Token.RSH:
+                return ByteCode.ISHR;
+            case Token.LSH:
+                return ByteCode.ISHL;
+            case Token.ADD:
+                return ByteCode.IADD;
+            case Token.SUB:
+                return ByteCode.ISUB;
+            case Token.MUL:
+                return ByteCode.IMUL;
+            default:
+                throw Kit.codeBug(Token.typeToName(type));
         }
     }
 
@@ -4365,6 +4488,9 @@ class BodyCodegen {
             } else {
                 dcpLoadAsObject(reg);
             }
+        } else if (fnCurrent.isInt32Var(varIndex)) {
+            cfw.addILoad(reg);
+            cfw.add(ByteCode.I2D);
         } else if (fnCurrent.isNumberVar(varIndex)) {
             cfw.addDLoad(reg);
         } else {
@@ -4375,11 +4501,19 @@ class BodyCodegen {
     private void visitSetVar(Node node, Node child, boolean needValue) {
         if (!hasVarsInRegs) Kit.codeBug();
         int varIndex = fnCurrent.getVarIndex(node);
+        int reg = varRegisters[varIndex];
+        if (fnCurrent.isInt32Var(varIndex)) {
+            generateInt32(child.getNext(), node);
+            cfw.addIStore(reg);
+            if (needValue) {
+                cfw.addILoad(reg);
+                cfw.add(ByteCode.I2D);
+            }
+            return;
+        }
         generateExpression(child.getNext(), node);
         boolean isNumber = (node.getIntProp(Node.ISNUMBER_PROP, -1) != -1);
-        int reg = varRegisters[varIndex];
-        boolean[] constDeclarations = fnCurrent.fnode.getParamAndVarConst();
-        if (constDeclarations[varIndex]) {
+        if (fnCurrent.isConstVar(varIndex)) {
             if (!needValue) {
                 if (isNumber) cfw.add(ByteCode.POP2);
                 else cfw.add(ByteCode.POP);
@@ -4466,7 +4600,40 @@ class BodyCodegen {
         cfw.markLabel(beyond);
     }
 
+    private static boolean isArgumentsName(Node node) {
+        return node.getType() == Token.NAME && "arguments".equals(node.getString());
+    }
+
+    /** Read "arguments[index]" from the arguments array, see EscapeAnalysis. */
+    private void visitGetArgument(Node node, Node child) {
+        cfw.addALoad(argumentsLocal);
+        generateExpression(child.getNext(), node); // index
+        cfw.addALoad(funObjLocal);
+        cfw.addALoad(contextLocal);
+        cfw.addALoad(variableObjectLocal);
+        boolean isNumber = node.getIntProp(Node.ISNUMBER_PROP, -1) != -1;
+        addOptRuntimeInvoke(
+                "getArgument",
+                "([Ljava/lang/Object;"
+                        + (isNumber ? "D" : "Ljava/lang/Object;")
+                        + "Lorg/mozilla/javascript/JSFunction;"
+                        + "Lorg/mozilla/javascript/Context;"
+                        + "Lorg/mozilla/javascript/Scriptable;"
+                        + ")Ljava/lang/Object;");
+    }
+
     private void visitGetProp(Node node, Node child) {
+        if (argumentsLocal >= 0 && isArgumentsName(child)) {
+            // Only "arguments.length" gets here, see EscapeAnalysis
+            cfw.addALoad(argumentsLocal);
+            cfw.add(ByteCode.ARRAYLENGTH);
+            if (node.getIntProp(Node.ISNUMBER_PROP, -1) != -1) {
+                cfw.add(ByteCode.I2D);
+            } else {
+                addScriptRuntimeInvoke("wrapInt", "(I)Ljava/lang/Integer;");
+            }
+            return;
+        }
         generateExpression(child, node); // object
         if (node.getIntProp(Node.OPTIONAL_CHAINING, 0) == 1) {
             int getExpr = cfw.acquireLabel();
@@ -4823,6 +4990,7 @@ class BodyCodegen {
     private int popvLocal;
     private int contextLocal;
     private int argsLocal;
+    private int argumentsLocal;
     private int operationLocal;
     private int thisObjLocal;
     private int funObjLocal;
@@ -58,12 +58,16 @@ public class Bootstrapper {
                 new CompositeTypeBasedGuardingDynamicLinker(
                         Arrays.asList(
                                 new ConstAwareLinker(),
+                                new ShapeLinker(),
+                                new NameLinker(),
                                 new BooleanLinker(),
                                 new IntegerLinker(),
                                 new DoubleLinker(),
                                 new StringLinker(),
                                 new ConsStringLinker(),
                                 new NativeArrayLinker(),
+                                new TypedArrayLinker(),
+                                new NativeJavaLinker(),
                                 new BaseFunctionLinker()));
         // Add the default linker, which can link anything no matter what.
         factory.setPrioritizedLinkers(typeLinker, new DefaultLinker());
@@ -192,6 +196,11 @@ public class Bootstrapper {
                             .named(getNameSegment(tokens, name, 2));
             }
 
+        } else if ("FUNCTION".equals(namespaceName)) {
+            if ("CALL".equals(opName)) {
+                // Call a function that is on the stack
+                return StandardOperation.CALL.withNamespace(RhinoNamespace.FUNCTION);
+            }
         } else if ("MATH".equals(namespaceName)) {
             switch (opName) {
                 case "ADD":
@@ -71,7 +71,7 @@ public class Codegen implements Evaluator {
         throw new UnsupportedOperationException();
     }
 
-    private static class CompilationResult<T extends ScriptOrFn<T>> {
+    static class CompilationResult<T extends ScriptOrFn<T>> {
         final JSDescriptor.Builder<T> builder;
         final String className;
         final byte[] bytecode;
@@ -143,7 +143,12 @@ public class Codegen implements Evaluator {
         return JSFunction.createFunction(cx, scope, desc, null, staticSecurityDomain);
     }
 
-    private <T extends ScriptOrFn<T>> JSDescriptor<T> defineClass(
+    @Override
+    public JSDescriptor<?> createDescriptor(Object bytecode, Object staticSecurityDomain) {
+        return defineClass((CompilationResult<?>) bytecode, staticSecurityDomain);
+    }
+
+    <T extends ScriptOrFn<T>> JSDescriptor<T> defineClass(
             CompilationResult<T> compiled, Object staticSecurityDomain) {
         // The generated classes in this case refer only to Rhino classes
         // which must be accessible through this class loader
@@ -257,6 +262,7 @@ public class Codegen implements Evaluator {
         for (int i = 0, N = scriptOrFn.getFunctionCount(); i != N; ++i) {
             FunctionNode fn = scriptOrFn.getFunctionNode(i);
             new OptFunctionNode(fn);
+            EscapeAnalysis.findDirectArgumentReads(fn);
             initOptFunctions_r(fn);
         }
     }
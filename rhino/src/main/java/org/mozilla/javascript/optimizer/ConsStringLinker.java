@@ -81,7 +81,7 @@ class ConsStringLinker implements TypeBasedGuardingDynamicLinker {
 
     @SuppressWarnings("unused")
     private static Object add(Object lval, Object rval, Context cx) {
-        return new ConsString((ConsString) lval, ((CharSequence) rval).toString());
+        return new ConsString((ConsString) lval, (CharSequence) rval);
     }
 
     @SuppressWarnings("unused")
@@ -9,6 +9,7 @@ import jdk.dynalink.linker.GuardedInvocation;
 import jdk.dynalink.linker.GuardingDynamicLinker;
 import jdk.dynalink.linker.LinkRequest;
 import jdk.dynalink.linker.LinkerServices;
+import org.mozilla.javascript.Callable;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ScriptRuntime;
 import org.mozilla.javascript.Scriptable;
@@ -55,6 +56,19 @@ class DefaultLinker implements GuardingDynamicLinker {
             return getNameInvocation(lookup, mType, op);
         } else if (op.isNamespace(RhinoNamespace.MATH)) {
             return getMathInvocation(lookup, mType, op);
+        } else if (op.isNamespace(RhinoNamespace.FUNCTION)) {
+            return getFunctionInvocation(lookup, mType, op);
+        }
+        throw new UnsupportedOperationException(op.toString());
+    }
+
+    private GuardedInvocation getFunctionInvocation(
+            MethodHandles.Lookup lookup, MethodType mType, ParsedOperation op)
+            throws NoSuchMethodException, IllegalAccessException {
+        if (op.isOperation(StandardOperation.CALL)) {
+            MethodHandle mh =
+                    lookup.findVirtual(Callable.class, "call", mType.dropParameterTypes(0, 1));
+            return new GuardedInvocation(mh);
         }
         throw new UnsupportedOperationException(op.toString());
     }
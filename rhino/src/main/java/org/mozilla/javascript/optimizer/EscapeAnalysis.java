@@ -0,0 +1,522 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.optimizer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.mozilla.javascript.Node;
+import org.mozilla.javascript.Token;
+import org.mozilla.javascript.ast.AstNode;
+import org.mozilla.javascript.ast.FunctionNode;
+import org.mozilla.javascript.ast.Name;
+import org.mozilla.javascript.ast.Scope;
+
+/**
+ * Finds objects that never escape the function that creates them, so that the compiled code need
+ * not allocate them at all. There are two kinds:
+ *
+ * <ul>
+ *   <li>The "arguments" object of a function that only reads {@code arguments[i]} and {@code
+ *       arguments.length}. Such a function reads the array that it was called with instead, and
+ *       so needs neither an Arguments nor an Activation object.
+ *   <li>Object and array literals that are only stored in one local variable and whose fields are
+ *       only read and written by name or constant index. Each field then becomes a local variable
+ *       of its own ("scalar replacement"), which the type flow analysis may even make a number.
+ * </ul>
+ */
+class EscapeAnalysis {
+
+    /**
+     * Decide whether the function may read its arguments directly. This runs on the tree as the
+     * parser left it, before {@link OptTransformer} decides between local variables and names.
+     */
+    static void findDirectArgumentReads(FunctionNode fn) {
+        if (!fn.requiresActivationOnlyForArguments()
+                || fn.isGenerator()
+                || fn.hasRestParameter()
+                || fn.getDefaultParams() != null
+                || fn.getDestructuringRvalues() != null
+                || fn.getSymbol("arguments") != null) {
+            return;
+        }
+        Set<String> params = null;
+        if (!fn.isInStrictMode()) {
+            // Outside strict mode the "arguments" object aliases the parameters
+            params = new HashSet<>();
+            for (AstNode param : fn.getParams()) {
+                if (!(param instanceof Name)) {
+                    return;
+                }
+                params.add(((Name) param).getIdentifier());
+            }
+        }
+        if (onlyReadsArguments(fn.getLastChild(), params)) {
+            fn.setReadsArgumentsDirectly();
+        }
+    }
+
+    private static boolean onlyReadsArguments(Node n, Set<String> params) {
+        if (n instanceof Scope) {
+            Map<String, ?> symbols = ((Scope) n).getSymbolTable();
+            if (symbols != null && symbols.containsKey("arguments")) {
+                return false;
+            }
+        }
+        Node first = n.getFirstChild();
+        switch (n.getType()) {
+            case Token.NAME:
+            case Token.BINDNAME:
+            case Token.TYPEOFNAME:
+                if ("arguments".equals(n.getString())) {
+                    return false;
+                }
+                if (n.getType() == Token.BINDNAME && params != null) {
+                    return !params.contains(n.getString());
+                }
+                break;
+
+            case Token.GETELEM:
+                if (isArgumentsName(first)) {
+                    return onlyReadsArguments(first.getNext(), params);
+                }
+                break;
+
+            case Token.GETPROP:
+                if (isArgumentsLength(n)) {
+                    return true;
+                }
+                break;
+
+            case Token.CALL:
+            case Token.NEW:
+            case Token.REF_CALL:
+            case Token.TAGGED_TEMPLATE_LITERAL:
+                // "this" would be the arguments object
+                if (isArgumentsAccess(first)) {
+                    return false;
+                }
+                break;
+
+            case Token.INC:
+            case Token.DEC:
+                if (isArgumentsAccess(first)) {
+                    return false;
+                }
+                if (params != null
+                        && first.getType() == Token.NAME
+                        && params.contains(first.getString())) {
+                    return false;
+                }
+                break;
+
+            case Token.VAR:
+            case Token.LET:
+            case Token.CONST:
+                if (params != null) {
+                    for (Node var = first; var != null; var = var.getNext()) {
+                        if (var.getType() == Token.NAME
+                                && var.hasChildren()
+                                && params.contains(var.getString())) {
+                            return false;
+                        }
+                    }
+                }
+                break;
+        }
+        for (Node child = first; child != null; child = child.getNext()) {
+            if (!onlyReadsArguments(child, params)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isArgumentsName(Node n) {
+        return n.getType() == Token.NAME && "arguments".equals(n.getString());
+    }
+
+    private static boolean isArgumentsAccess(Node n) {
+        int type = n.getType();
+        return (type == Token.GETELEM || type == Token.GETPROP)
+                && isArgumentsName(n.getFirstChild());
+    }
+
+    /** Return true if the node is "arguments.length". */
+    static boolean isArgumentsLength(Node n) {
+        if (n.getType() != Token.GETPROP || !isArgumentsName(n.getFirstChild())) {
+            return false;
+        }
+        Node id = n.getFirstChild().getNext();
+        return id.getType() == Token.STRING && "length".equals(id.getString());
+    }
+
+    /** An access to one field of a candidate variable. */
+    private static final class Use {
+        final Node node;
+        final Node parent;
+        // the property name, or the array index as an Integer
+        final Object key;
+
+        Use(Node node, Node parent, Object key) {
+            this.node = node;
+            this.parent = parent;
+            this.key = key;
+        }
+    }
+
+    /** A statement that stores a new literal in a candidate variable. */
+    private static final class Def {
+        final Node statement;
+        final Node parent;
+        final Node literal;
+
+        Def(Node statement, Node parent, Node literal) {
+            this.statement = statement;
+            this.parent = parent;
+            this.literal = literal;
+        }
+    }
+
+    private final OptFunctionNode fn;
+    private final BitSet escaping = new BitSet();
+    private final Map<Integer, List<Use>> uses = new HashMap<>();
+    private final Map<Integer, List<Def>> defs = new HashMap<>();
+
+    // The variable whose literal is being scanned, and the fields that it already assigned
+    private int literalVar = -1;
+    private final Set<Object> assignedFields = new HashSet<>();
+
+    private EscapeAnalysis(OptFunctionNode fn) {
+        this.fn = fn;
+    }
+
+    /**
+     * Replace the non-escaping literals of the function with one local variable per field.
+     *
+     * @param liveOnEntry the variables that may be read before they are assigned
+     * @return true if the tree was changed
+     */
+    static boolean replaceLiterals(OptFunctionNode fn, BitSet liveOnEntry) {
+        EscapeAnalysis ea = new EscapeAnalysis(fn);
+        if (!ea.scan(fn.fnode, null)) {
+            return false;
+        }
+        Map<Integer, List<Object>> replaced = new HashMap<>();
+        for (Map.Entry<Integer, List<Def>> e : ea.defs.entrySet()) {
+            int varIndex = e.getKey();
+            if (fn.isParameter(varIndex)
+                    || fn.isConstVar(varIndex)
+                    || liveOnEntry.get(varIndex)
+                    || ea.escaping.get(varIndex)) {
+                continue;
+            }
+            List<Object> keys = EscapeAnalysis.fieldsOf(e.getValue(), ea.usesOf(varIndex));
+            if (keys != null) {
+                replaced.put(varIndex, keys);
+            }
+        }
+        if (replaced.isEmpty()) {
+            return false;
+        }
+        // Rewrite all uses before moving the values of any literal, since a use may be a
+        // child of another literal.
+        Map<Integer, int[]> fieldIndexes = new HashMap<>();
+        for (Map.Entry<Integer, List<Object>> e : replaced.entrySet()) {
+            int varIndex = e.getKey();
+            String name = fn.getVarName(varIndex);
+            int[] indexes = new int[e.getValue().size()];
+            for (int i = 0; i != indexes.length; ++i) {
+                indexes[i] = fn.addScalarVar(name + "$" + e.getValue().get(i));
+            }
+            fieldIndexes.put(varIndex, indexes);
+            for (Use use : ea.usesOf(varIndex)) {
+                ea.replaceUse(use, e.getValue(), indexes);
+            }
+        }
+        for (Map.Entry<Integer, int[]> e : fieldIndexes.entrySet()) {
+            for (Def def : ea.defs.get(e.getKey())) {
+                ea.replaceDef(def, e.getValue());
+            }
+        }
+        return true;
+    }
+
+    private List<Use> usesOf(int varIndex) {
+        return uses.getOrDefault(varIndex, List.of());
+    }
+
+    /**
+     * Walk the tree recording the defs and uses of every variable that holds a literal.
+     *
+     * @return false if the function cannot be handled at all
+     */
+    private boolean scan(Node n, Node parent) {
+        Node first = n.getFirstChild();
+        switch (n.getType()) {
+            case Token.TRY:
+            case Token.SWITCH:
+                // The flow analysis does not model their edges
+                return false;
+
+            case Token.EXPR_VOID:
+                if (first.getType() == Token.SETVAR && isLiteral(first.getLastChild())) {
+                    int varIndex = fn.getVarIndex(first);
+                    Node literal = first.getLastChild();
+                    defs.computeIfAbsent(varIndex, k -> new ArrayList<>())
+                            .add(new Def(n, parent, literal));
+                    return scanLiteral(varIndex, literal);
+                }
+                break;
+
+            case Token.SETVAR:
+            case Token.SETCONSTVAR:
+                // Stored other than by a statement of its own
+                escaping.set(fn.getVarIndex(n));
+                return scan(first.getNext(), n);
+
+            case Token.GETVAR:
+                // Any use that is not the access of a field
+                escaping.set(fn.getVarIndex(n));
+                return true;
+
+            case Token.GETPROP:
+            case Token.GETPROPNOWARN:
+            case Token.SETPROP:
+            case Token.SETPROP_OP:
+            case Token.GETELEM:
+            case Token.SETELEM:
+            case Token.SETELEM_OP:
+                if (first.getType() == Token.GETVAR) {
+                    recordUse(n, parent);
+                    for (Node child = first.getNext(); child != null; child = child.getNext()) {
+                        if (!scan(child, n)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+                break;
+
+            case Token.CALL:
+            case Token.NEW:
+            case Token.REF_CALL:
+            case Token.TAGGED_TEMPLATE_LITERAL:
+                {
+                    // "this" would be the object
+                    int type = first.getType();
+                    if ((type == Token.GETPROP || type == Token.GETELEM)
+                            && first.getFirstChild().getType() == Token.GETVAR) {
+                        escaping.set(fn.getVarIndex(first.getFirstChild()));
+                    }
+                    break;
+                }
+        }
+        for (Node child = first; child != null; child = child.getNext()) {
+            if (!scan(child, n)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean scanLiteral(int varIndex, Node literal) {
+        // The fields are assigned one at a time, so the value of a field may not refer to
+        // a field that the same literal assigned before it.
+        Object[] ids = (Object[]) literal.getProp(Node.OBJECT_IDS_PROP);
+        literalVar = varIndex;
+        assignedFields.clear();
+        int i = 0;
+        for (Node value = literal.getFirstChild(); value != null; value = value.getNext()) {
+            if (!scan(value, literal)) {
+                return false;
+            }
+            assignedFields.add(ids != null ? ids[i] : Integer.valueOf(i));
+            i++;
+        }
+        literalVar = -1;
+        return true;
+    }
+
+    private void recordUse(Node n, Node parent) {
+        int varIndex = fn.getVarIndex(n.getFirstChild());
+        Node id = n.getFirstChild().getNext();
+        Object key = null;
+        switch (n.getType()) {
+            case Token.GETPROP:
+            case Token.GETPROPNOWARN:
+            case Token.SETPROP:
+                key = id.getString();
+                break;
+            case Token.SETPROP_OP:
+                if (id.getNext().getFirstChild().getType() == Token.USE_STACK) {
+                    key = id.getString();
+                }
+                break;
+            case Token.GETELEM:
+            case Token.SETELEM:
+            case Token.SETELEM_OP:
+                if (id.getType() == Token.NUMBER) {
+                    double d = id.getDouble();
+                    if (d >= 0 && d == (int) d) {
+                        key = Integer.valueOf((int) d);
+                    }
+                }
+                if (n.getType() == Token.SETELEM_OP
+                        && id.getNext().getFirstChild().getType() != Token.USE_STACK) {
+                    key = null;
+                }
+                break;
+        }
+        if (key == null
+                || n.getIntProp(Node.SUPER_PROPERTY_ACCESS, 0) == 1
+                || (varIndex == literalVar && assignedFields.contains(key))) {
+            escaping.set(varIndex);
+            return;
+        }
+        uses.computeIfAbsent(varIndex, k -> new ArrayList<>()).add(new Use(n, parent, key));
+    }
+
+    private static boolean isLiteral(Node n) {
+        int type = n.getType();
+        return type == Token.OBJECTLIT || type == Token.ARRAYLIT;
+    }
+
+    private static boolean isArrayLength(Use use, List<Object> keys) {
+        int type = use.node.getType();
+        return "length".equals(use.key)
+                && keys.get(0) instanceof Integer
+                && (type == Token.GETPROP || type == Token.GETPROPNOWARN);
+    }
+
+    /**
+     * Return the fields of the variable if every def creates the same fields and every use
+     * refers to one of them, or null.
+     */
+    private static List<Object> fieldsOf(List<Def> varDefs, List<Use> varUses) {
+        List<Object> keys = null;
+        for (Def def : varDefs) {
+            List<Object> defKeys = literalFields(def.literal);
+            if (defKeys == null || defKeys.isEmpty()) {
+                return null;
+            }
+            if (keys == null) {
+                keys = defKeys;
+            } else if (!keys.equals(defKeys)) {
+                return null;
+            }
+        }
+        for (Use use : varUses) {
+            if (!keys.contains(use.key) && !isArrayLength(use, keys)) {
+                return null;
+            }
+        }
+        return keys;
+    }
+
+    private static List<Object> literalFields(Node literal) {
+        for (Node value = literal.getFirstChild(); value != null; value = value.getNext()) {
+            int type = value.getType();
+            if (type == Token.GET
+                    || type == Token.SET
+                    || type == Token.METHOD
+                    || type == Token.DOTDOTDOT) {
+                return null;
+            }
+        }
+        List<Object> keys = new ArrayList<>();
+        if (literal.getType() == Token.ARRAYLIT) {
+            if (literal.getProp(Node.SKIP_INDEXES_PROP) != null
+                    || literal.getIntProp(Node.NUMBER_OF_SPREAD, 0) != 0) {
+                return null;
+            }
+            int i = 0;
+            for (Node value = literal.getFirstChild(); value != null; value = value.getNext()) {
+                keys.add(Integer.valueOf(i++));
+            }
+            return keys;
+        }
+        Object[] ids = (Object[]) literal.getProp(Node.OBJECT_IDS_PROP);
+        if (ids == null) {
+            return null;
+        }
+        for (Object id : ids) {
+            // Other names could not be the name of a local in the debug information
+            if (!(id instanceof String)
+                    || "__proto__".equals(id)
+                    || keys.contains(id)
+                    || !isIdentifier((String) id)) {
+                return null;
+            }
+            keys.add(id);
+        }
+        return keys;
+    }
+
+    private static boolean isIdentifier(String name) {
+        for (int i = 0; i != name.length(); ++i) {
+            if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void replaceUse(Use use, List<Object> keys, int[] fieldIndexes) {
+        Node n = use.node;
+        if (isArrayLength(use, keys)) {
+            use.parent.replaceChild(n, Node.newNumber(keys.size()));
+            return;
+        }
+        int field = fieldIndexes[keys.indexOf(use.key)];
+        switch (n.getType()) {
+            case Token.GETPROP:
+            case Token.GETPROPNOWARN:
+            case Token.GETELEM:
+                n.removeChildren();
+                n.setType(Token.GETVAR);
+                break;
+            default:
+                {
+                    // SETPROP, SETELEM and their _OP forms
+                    Node value = n.getLastChild();
+                    if (n.getType() == Token.SETPROP_OP || n.getType() == Token.SETELEM_OP) {
+                        Node getVar = new Node(Token.GETVAR);
+                        getVar.putIntProp(Node.VARIABLE_PROP, field);
+                        value.replaceChild(value.getFirstChild(), getVar);
+                    }
+                    n.removeChildren();
+                    n.setType(Token.SETVAR);
+                    n.addChildToBack(Node.newString(fn.getVarName(field)));
+                    n.addChildToBack(value);
+                    break;
+                }
+        }
+        n.putIntProp(Node.VARIABLE_PROP, field);
+    }
+
+    private void replaceDef(Def def, int[] fieldIndexes) {
+        Node value = def.literal.getFirstChild();
+        for (int field : fieldIndexes) {
+            Node next = value.getNext();
+            def.literal.removeChild(value);
+            Node setVar = new Node(Token.SETVAR, Node.newString(fn.getVarName(field)), value);
+            setVar.putIntProp(Node.VARIABLE_PROP, field);
+            Node statement =
+                    new Node(
+                            Token.EXPR_VOID,
+                            setVar,
+                            def.statement.getLineno(),
+                            def.statement.getColumn());
+            def.parent.addChildBefore(statement, def.statement);
+            value = next;
+        }
+        def.parent.removeChild(def.statement);
+    }
+}
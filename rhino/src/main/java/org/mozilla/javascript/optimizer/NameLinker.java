@@ -0,0 +1,88 @@
+package org.mozilla.javascript.optimizer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import jdk.dynalink.StandardOperation;
+import jdk.dynalink.linker.GuardedInvocation;
+import jdk.dynalink.linker.LinkRequest;
+import jdk.dynalink.linker.LinkerServices;
+import jdk.dynalink.linker.TypeBasedGuardingDynamicLinker;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.NameBinding;
+import org.mozilla.javascript.Scriptable;
+
+/**
+ * This linker builds inline caches for names that are looked up in the scope chain and found in
+ * the top-level scope, such as references to "Math" or to global functions. The call site is
+ * linked to code that checks that the {@link NameBinding} for the name is still valid in the
+ * current scope, and then reads the slot that it found, without walking the scope chain or
+ * hashing the name.
+ *
+ * <p>A binding stops being valid when its property is deleted or replaced, and is only valid for
+ * one top-level scope, so code that runs in several top-level scopes makes the site polymorphic.
+ * Once dynalink decides that the site is unstable, this linker declines, and the site is linked to
+ * the generic lookup in ScriptRuntime.
+ */
+@SuppressWarnings("AndroidJdkLibsChecker")
+class NameLinker implements TypeBasedGuardingDynamicLinker {
+    @Override
+    public boolean canLinkType(Class<?> type) {
+        return Scriptable.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public GuardedInvocation getGuardedInvocation(LinkRequest req, LinkerServices svc)
+            throws Exception {
+        if (req.isCallSiteUnstable()) {
+            return null;
+        }
+
+        ParsedOperation op = new ParsedOperation(req.getCallSiteDescriptor().getOperation());
+        if (!op.isNamespace(RhinoNamespace.NAME)) {
+            return null;
+        }
+        String methodName;
+        if (op.isOperation(StandardOperation.GET)) {
+            methodName = "getValue";
+        } else if (op.isOperation(RhinoOperation.GETWITHTHIS)) {
+            methodName = "getValueAndThis";
+        } else {
+            return null;
+        }
+
+        Object[] args = req.getArguments();
+        Scriptable scope = (Scriptable) args[0];
+        Context cx = (Context) args[1];
+        NameBinding binding = NameBinding.find(cx, scope, op.getName());
+        if (binding == null) {
+            return null;
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType mType = req.getCallSiteDescriptor().getMethodType();
+        MethodHandle mh =
+                lookup.findVirtual(
+                        NameBinding.class,
+                        methodName,
+                        MethodType.methodType(mType.returnType()));
+        mh = MethodHandles.dropArguments(mh.bindTo(binding), 0, mType.parameterList());
+        MethodHandle guard =
+                lookup.findStatic(
+                        NameLinker.class,
+                        "isValid",
+                        MethodType.methodType(
+                                Boolean.TYPE, NameBinding.class, Scriptable.class, Context.class));
+        guard = MethodHandles.insertArguments(guard, 0, binding);
+
+        if (DefaultLinker.DEBUG) {
+            System.out.println(op + " name binding");
+        }
+        return new GuardedInvocation(mh, guard);
+    }
+
+    @SuppressWarnings("unused")
+    private static boolean isValid(NameBinding binding, Scriptable scope, Context cx) {
+        return binding.isValid(cx, scope);
+    }
+}
@@ -12,12 +12,14 @@ import jdk.dynalink.linker.TypeBasedGuardingDynamicLinker;
 import jdk.dynalink.linker.support.Guards;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.ScriptRuntime;
 import org.mozilla.javascript.Scriptable;
 
 /**
  * This linker optimizes accesses to the "length" property of native arrays by delegating directly
  * to the native code. It helps in the common case that code is iterating over the length of an
- * array.
+ * array. It also reads and writes numeric elements of arrays that hold them unboxed directly, but
+ * only for NativeArray itself, since subclasses may override how elements are read and written.
  */
 @SuppressWarnings("AndroidJdkLibsChecker")
 class NativeArrayLinker implements TypeBasedGuardingDynamicLinker {
@@ -44,6 +46,18 @@ class NativeArrayLinker implements TypeBasedGuardingDynamicLinker {
                 MethodType mType = req.getCallSiteDescriptor().getMethodType();
                 mh = lookup.findStatic(NativeArrayLinker.class, "getLength", mType);
                 guard = Guards.getInstanceOfGuard(NativeArray.class);
+            } else if (op.isOperation(RhinoOperation.GETINDEX)
+                    && req.getReceiver().getClass() == NativeArray.class) {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodType mType = req.getCallSiteDescriptor().getMethodType();
+                mh = lookup.findStatic(NativeArrayLinker.class, "getIndex", mType);
+                guard = Guards.getClassGuard(NativeArray.class);
+            } else if (op.isOperation(RhinoOperation.SETINDEX)
+                    && req.getReceiver().getClass() == NativeArray.class) {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodType mType = req.getCallSiteDescriptor().getMethodType();
+                mh = lookup.findStatic(NativeArrayLinker.class, "setIndex", mType);
+                guard = Guards.getClassGuard(NativeArray.class);
             }
         }
 
@@ -66,4 +80,27 @@ class NativeArrayLinker implements TypeBasedGuardingDynamicLinker {
         }
         return (double) length;
     }
+
+    @SuppressWarnings("unused")
+    private static Object getIndex(Object o, double d, Context cx, Scriptable scope) {
+        NativeArray na = (NativeArray) o;
+        int index = (int) d;
+        if (index == d && na.hasNumberElement(index)) {
+            // Box the element as it was stored, which may be an Integer
+            return na.get(index, na);
+        }
+        return ScriptRuntime.getObjectIndex(o, d, cx, scope);
+    }
+
+    @SuppressWarnings("unused")
+    private static Object setIndex(Object o, double d, Object value, Context cx, Scriptable scope) {
+        if (value instanceof Double) {
+            // Integer values are stored boxed, so that they are read back as Integer
+            int index = (int) d;
+            if (index == d && ((NativeArray) o).setNumberElement(index, (Double) value)) {
+                return value;
+            }
+        }
+        return ScriptRuntime.setObjectIndex(o, d, value, cx, scope);
+    }
 }
@@ -0,0 +1,129 @@
+package org.mozilla.javascript.optimizer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import jdk.dynalink.StandardNamespace;
+import jdk.dynalink.StandardOperation;
+import jdk.dynalink.linker.GuardedInvocation;
+import jdk.dynalink.linker.LinkRequest;
+import jdk.dynalink.linker.LinkerServices;
+import jdk.dynalink.linker.TypeBasedGuardingDynamicLinker;
+import jdk.dynalink.linker.support.Guards;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.NativeJavaMethod;
+import org.mozilla.javascript.NativeJavaObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+
+/**
+ * This linker optimizes calls from scripts into Java code. A call site that calls a Java method
+ * is linked directly to a method handle for that method, guarded by the identity of the function
+ * object, so that the JIT can inline the Java method into the script and overload resolution is
+ * skipped. For an overloaded method, the overload is resolved for the argument types of the call
+ * that is linked, and the guard also tests those types, so that each call site caches the
+ * overloads that it actually uses. Property reads from wrapped Java objects are linked to the
+ * object's own "get" method, which avoids the generic prototype-chain walk.
+ */
+@SuppressWarnings("AndroidJdkLibsChecker")
+class NativeJavaLinker implements TypeBasedGuardingDynamicLinker {
+    @Override
+    public boolean canLinkType(Class<?> type) {
+        // Subclasses such as NativeJavaList and FieldAndMethods change the behavior of
+        // "get" and "call", so only handle the base classes.
+        return NativeJavaMethod.class.equals(type) || NativeJavaObject.class.equals(type);
+    }
+
+    @Override
+    public GuardedInvocation getGuardedInvocation(LinkRequest req, LinkerServices svc)
+            throws Exception {
+        if (req.isCallSiteUnstable()) {
+            return null;
+        }
+
+        ParsedOperation op = new ParsedOperation(req.getCallSiteDescriptor().getOperation());
+        MethodType mType = req.getCallSiteDescriptor().getMethodType();
+        Object receiver = req.getReceiver();
+        MethodHandle mh = null;
+        MethodHandle guard = null;
+
+        if (op.isNamespace(RhinoNamespace.FUNCTION)
+                && op.isOperation(StandardOperation.CALL)
+                && receiver instanceof NativeJavaMethod) {
+            NativeJavaMethod method = (NativeJavaMethod) receiver;
+            Object[] args = req.getArguments();
+            Context cx = (Context) args[1];
+            Object[] callArgs = (Object[]) args[4];
+            MethodHandle direct = method.getDirectCallHandle(cx, callArgs);
+            if (direct != null) {
+                mh = MethodHandles.dropArguments(direct, 0, mType.parameterType(0));
+                guard = Guards.getIdentityGuard(receiver);
+                MethodHandle typeGuard = method.getArgumentTypeGuard(callArgs);
+                if (typeGuard != null) {
+                    // The overload was resolved for the argument types of this call, so
+                    // relink when the same method is called with other types.
+                    guard = combineGuards(guard, typeGuard, mType);
+                }
+            }
+        } else if (op.isNamespace(StandardNamespace.PROPERTY)
+                && op.isOperation(StandardOperation.GET, RhinoOperation.GETNOWARN)
+                && receiver instanceof NativeJavaObject) {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            mh =
+                    lookup.findStatic(
+                            NativeJavaLinker.class,
+                            "getProperty",
+                            mType.insertParameterTypes(0, String.class, Boolean.TYPE));
+            mh =
+                    MethodHandles.insertArguments(
+                            mh,
+                            0,
+                            op.getName(),
+                            op.isOperation(RhinoOperation.GETNOWARN));
+            guard = Guards.getClassGuard(NativeJavaObject.class);
+        }
+
+        if (mh != null) {
+            assert guard != null;
+            if (DefaultLinker.DEBUG) {
+                System.out.println(op + " native Java operation");
+            }
+            return new GuardedInvocation(mh, guard);
+        }
+        return null;
+    }
+
+    /**
+     * Combine a guard that tests the function with one that tests the arguments, with the type of
+     * the call site.
+     */
+    private static MethodHandle combineGuards(
+            MethodHandle functionGuard, MethodHandle argsGuard, MethodType mType) {
+        MethodType guardType = mType.changeReturnType(Boolean.TYPE);
+        MethodHandle test = functionGuard.asType(guardType.dropParameterTypes(1, 5));
+        test = MethodHandles.dropArguments(test, 1, guardType.parameterList().subList(1, 5));
+        MethodHandle args =
+                MethodHandles.dropArguments(
+                        argsGuard, 0, guardType.parameterList().subList(0, 4));
+        MethodHandle fail =
+                MethodHandles.dropArguments(
+                        MethodHandles.constant(Boolean.TYPE, false),
+                        0,
+                        guardType.parameterList());
+        return MethodHandles.guardWithTest(test, args, fail);
+    }
+
+    @SuppressWarnings("unused")
+    private static Object getProperty(
+            String name, boolean noWarn, Object o, Context cx, Scriptable scope) {
+        NativeJavaObject obj = (NativeJavaObject) o;
+        Object value = obj.get(name, obj);
+        if (value != Scriptable.NOT_FOUND) {
+            return value;
+        }
+        // Not a Java member, so look at the prototype and handle missing properties
+        return noWarn
+                ? ScriptRuntime.getObjectPropNoWarn(o, name, cx, scope)
+                : ScriptRuntime.getObjectProp(o, name, cx, scope);
+    }
+}
@@ -4,6 +4,8 @@
 
 package org.mozilla.javascript.optimizer;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.mozilla.javascript.Kit;
 import org.mozilla.javascript.Node;
 import org.mozilla.javascript.Token;
@@ -48,7 +50,43 @@ public final class OptFunctionNode {
     }
 
     public int getVarCount() {
-        return fnode.getParamAndVarCount();
+        int count = fnode.getParamAndVarCount();
+        if (scalarVarNames != null) {
+            count += scalarVarNames.size();
+        }
+        return count;
+    }
+
+    /** Return the name of a variable, including the variables added by the optimizer. */
+    public String getVarName(int varIndex) {
+        int count = fnode.getParamAndVarCount();
+        if (varIndex < count) {
+            return fnode.getParamOrVarName(varIndex);
+        }
+        return scalarVarNames.get(varIndex - count);
+    }
+
+    public boolean isConstVar(int varIndex) {
+        if (varIndex < fnode.getParamAndVarCount()) {
+            return fnode.getParamAndVarConst()[varIndex];
+        }
+        return false;
+    }
+
+    /**
+     * Add a local variable that holds one field of an object that was replaced by its fields.
+     *
+     * @see EscapeAnalysis
+     * @return the index of the new variable
+     */
+    int addScalarVar(String name) {
+        // The number var flags are sized for the variables before the optimizer runs
+        if (numberVarFlags != null) Kit.codeBug();
+        if (scalarVarNames == null) {
+            scalarVarNames = new ArrayList<>();
+        }
+        scalarVarNames.add(name);
+        return getVarCount() - 1;
     }
 
     public boolean isParameter(int varIndex) {
@@ -68,12 +106,34 @@ public final class OptFunctionNode {
         // Can only be used with non-parameters
         if (varIndex < 0) Kit.codeBug();
         if (numberVarFlags == null) {
-            int size = fnode.getParamAndVarCount() - fnode.getParamCount();
+            int size = getVarCount() - fnode.getParamCount();
             numberVarFlags = new boolean[size];
         }
         numberVarFlags[varIndex] = true;
     }
 
+    /**
+     * Return true if the variable is a number variable that only ever holds int32 values, so that
+     * it is kept in an int register rather than a double one.
+     */
+    public boolean isInt32Var(int varIndex) {
+        varIndex -= fnode.getParamCount();
+        if (varIndex >= 0 && int32VarFlags != null) {
+            return int32VarFlags[varIndex];
+        }
+        return false;
+    }
+
+    void setIsInt32Var(int varIndex) {
+        // Only number variables can be narrowed to int32
+        if (!isNumberVar(varIndex)) Kit.codeBug();
+        varIndex -= fnode.getParamCount();
+        if (int32VarFlags == null) {
+            int32VarFlags = new boolean[numberVarFlags.length];
+        }
+        int32VarFlags[varIndex] = true;
+    }
+
     public int getVarIndex(Node n) {
         int index = n.getIntProp(Node.VARIABLE_PROP, -1);
         if (index == -1) {
@@ -96,6 +156,8 @@ public final class OptFunctionNode {
     public final FunctionNode fnode;
 
     private boolean[] numberVarFlags;
+    private boolean[] int32VarFlags;
+    private List<String> scalarVarNames;
     private int directTargetIndex = -1;
     private boolean itsParameterNumberContext;
     boolean itsContainsCalls0;
@@ -143,6 +143,43 @@ public final class OptRuntime extends ScriptRuntime {
         return ScriptRuntime.elemIncrDecr(obj, Double.valueOf(index), cx, scope, incrDecrMask);
     }
 
+    /**
+     * Implement "arguments[index]" for a function that has no arguments object. Any index that
+     * is not one of the arguments creates the object, so that its properties and prototype are
+     * found.
+     */
+    public static Object getArgument(
+            Object[] args, Object index, JSFunction funObj, Context cx, Scriptable scope) {
+        if (index instanceof Integer) {
+            int i = ((Integer) index).intValue();
+            if (i >= 0 && i < args.length) {
+                return args[i];
+            }
+        } else if (index instanceof Double) {
+            return getArgument(args, ((Double) index).doubleValue(), funObj, cx, scope);
+        }
+        Object arguments = createArguments(args, funObj, cx, scope);
+        return ScriptRuntime.getObjectElem(arguments, index, cx, scope);
+    }
+
+    public static Object getArgument(
+            Object[] args, double index, JSFunction funObj, Context cx, Scriptable scope) {
+        int i = (int) index;
+        if (i == index && i >= 0 && i < args.length) {
+            return args[i];
+        }
+        Object arguments = createArguments(args, funObj, cx, scope);
+        return ScriptRuntime.getObjectIndex(arguments, index, cx, scope);
+    }
+
+    private static Object createArguments(
+            Object[] args, JSFunction funObj, Context cx, Scriptable scope) {
+        Scriptable activation =
+                ScriptRuntime.createFunctionActivation(
+                        funObj, cx, scope, args, funObj.isStrict(), false, true);
+        return activation.get("arguments", activation);
+    }
+
     public static Object[] padStart(Object[] currentArgs, int count) {
         Object[] result = new Object[currentArgs.length + count];
         System.arraycopy(currentArgs, 0, result, count, currentArgs.length);
@@ -83,7 +83,8 @@ class OptTransformer extends NodeTransformer {
                     ofn = possibleDirectCalls.get(targetName);
                     if (ofn != null
                             && argCount == ofn.fnode.getParamCount()
-                            && !ofn.fnode.requiresActivation()) {
+                            && !ofn.fnode.requiresActivation()
+                            && !ofn.fnode.readsArgumentsDirectly()) {
                         // Refuse to directCall any function with more
                         // than 32 parameters - prevent code explosion
                         // for wacky test cases
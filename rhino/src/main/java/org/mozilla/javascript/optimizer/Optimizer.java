@@ -5,6 +5,7 @@
 package org.mozilla.javascript.optimizer;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import org.mozilla.javascript.Node;
 import org.mozilla.javascript.Token;
@@ -33,10 +34,11 @@ class Optimizer {
         inDirectCallFunction = theFunction.isTargetOfDirectCall();
         this.theFunction = theFunction;
 
-        ArrayList<Node> statementsArray = new ArrayList<>();
-        buildStatementList_r(theFunction.fnode, statementsArray);
-        Node[] theStatementNodes = new Node[statementsArray.size()];
-        statementsArray.toArray(theStatementNodes);
+        Node[] theStatementNodes = buildStatementList(theFunction);
+        BitSet liveOnEntry = Block.findLiveOnEntry(theFunction, theStatementNodes);
+        if (EscapeAnalysis.replaceLiterals(theFunction, liveOnEntry)) {
+            theStatementNodes = buildStatementList(theFunction);
+        }
 
         Block.runFlowAnalyzes(theFunction, theStatementNodes);
 
@@ -374,6 +376,16 @@ class Optimizer {
                     }
                     return NoType;
                 }
+            case Token.GETPROP:
+                if (theFunction.fnode.readsArgumentsDirectly()
+                        && EscapeAnalysis.isArgumentsLength(n)) {
+                    // the codegen reads the length of the arguments array
+                    n.putIntProp(Node.ISNUMBER_PROP, Node.BOTH);
+                    return NumberType;
+                }
+                rewriteAsObjectChildren(n, n.getFirstChild());
+                return NoType;
+
             case Token.CALL:
                 {
                     Node child = n.getFirstChild(); // the function node
@@ -424,6 +436,14 @@ class Optimizer {
         }
     }
 
+    private static Node[] buildStatementList(OptFunctionNode theFunction) {
+        ArrayList<Node> statementsArray = new ArrayList<>();
+        buildStatementList_r(theFunction.fnode, statementsArray);
+        Node[] theStatementNodes = new Node[statementsArray.size()];
+        statementsArray.toArray(theStatementNodes);
+        return theStatementNodes;
+    }
+
     private static void buildStatementList_r(Node node, List<Node> statements) {
         int type = node.getType();
         if (type == Token.BLOCK
@@ -0,0 +1,486 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.optimizer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.mozilla.javascript.ImplementationVersion;
+import org.mozilla.javascript.JSCode;
+import org.mozilla.javascript.JSDescriptor;
+import org.mozilla.javascript.ScriptCache;
+
+/**
+ * A {@link ScriptCache} that stores the classes generated by the optimizer in a directory, so that
+ * scripts compiled by one JVM can be loaded by the next one without being parsed or compiled
+ * again. Each entry is stored in its own file, named after the {@link ScriptCache.Key#getDigest()
+ * digest} of the source and of the compiler settings.
+ *
+ * <p>Every file records the Rhino {@link ImplementationVersion} that wrote it, and entries written
+ * by a different version are ignored and replaced. Files that cannot be read, or whose contents
+ * cannot be loaded, are deleted and the script is simply compiled again, so it is always safe to
+ * share a directory between processes or to remove files from it at any time.
+ *
+ * <p>Every file also records the digest of the key that it was stored for, and a SHA-256 digest
+ * of that key digest and of its contents. An entry is only loaded if the key digest matches the
+ * script that is being compiled and the contents match their digest, so a file that was truncated,
+ * corrupted, or copied from the entry for another script is treated as a miss and replaced.
+ *
+ * <p>These checks protect against accidents, not attacks. Loading an entry defines classes that
+ * run with the same permissions as Rhino itself, and anyone who can write to the directory can
+ * also compute valid digests for the files that they write. The directory must therefore only be
+ * writable by users that are trusted to run code in this JVM, in the same way as the class path.
+ *
+ * <p>Only scripts compiled by the optimizer are stored. Interpreted scripts, and scripts compiled
+ * with a security domain, are passed on to the in-memory cache, if there is one. When {@link
+ * org.mozilla.javascript.Context#setTierUpThreshold(int) tiered compilation} is enabled, scripts
+ * that use this cache are compiled by the optimizer straight away rather than interpreted first, so
+ * that they can be stored. Because loading
+ * an entry from disk defines new classes, this class should normally be given an in-memory cache
+ * such as {@link org.mozilla.javascript.LruScriptCache} so that a script that is compiled many
+ * times in the same JVM is only loaded once.
+ */
+public class PersistentScriptCache implements ScriptCache {
+    private static final int MAGIC = 0x52684363; // "RhCc"
+    private static final int FORMAT_VERSION = 2;
+    private static final int DIGEST_LENGTH = 32;
+    private static final String SUFFIX = ".rhc";
+
+    private static final int CONSTRUCTOR_NONE = 0;
+    private static final int CONSTRUCTOR_CODE = 1;
+
+    private final Path directory;
+    private final ScriptCache memoryCache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create a cache that stores entries in "directory", which is created if it does not already
+     * exist, and that does not cache anything in memory.
+     */
+    public PersistentScriptCache(Path directory) throws IOException {
+        this(directory, null);
+    }
+
+    /**
+     * Create a cache that stores entries in "directory", which is created if it does not already
+     * exist. Entries that are compiled or loaded from disk are also put in "memoryCache", which is
+     * checked first, unless it is null.
+     */
+    public PersistentScriptCache(Path directory, ScriptCache memoryCache) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.memoryCache = memoryCache;
+    }
+
+    @Override
+    public Entry get(Key key) {
+        if (memoryCache != null) {
+            Entry e = memoryCache.get(key);
+            if (e != null) {
+                return e;
+            }
+        }
+        Entry e = null;
+        if (!key.hasSecurityDomain()) {
+            byte[] keyDigest = key.getDigest();
+            e = load(fileFor(keyDigest), keyDigest);
+        }
+        if (e == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        if (memoryCache != null) {
+            memoryCache.put(key, e);
+        }
+        return e;
+    }
+
+    @Override
+    public void put(Key key, Entry entry) {
+        if (memoryCache != null) {
+            memoryCache.put(key, entry);
+        }
+        if (!key.hasSecurityDomain()
+                && entry.getCompiledCode() instanceof Codegen.CompilationResult) {
+            byte[] keyDigest = key.getDigest();
+            store(
+                    fileFor(keyDigest),
+                    keyDigest,
+                    entry.isFunction(),
+                    (Codegen.CompilationResult<?>) entry.getCompiledCode());
+        }
+    }
+
+    @Override
+    public boolean needsCompiledCode() {
+        return true;
+    }
+
+    /** Remove all entries from the in-memory cache and from the directory. */
+    @Override
+    public void clear() {
+        if (memoryCache != null) {
+            memoryCache.clear();
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            // Entries that could not be deleted will be replaced when they are next compiled
+        }
+    }
+
+    /** Return the directory in which entries are stored. */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /** Return the number of lookups that were not found in memory but were loaded from disk. */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /** Return the number of lookups that were found neither in memory nor on disk. */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private Path fileFor(byte[] digest) {
+        StringBuilder name = new StringBuilder(digest.length * 2 + SUFFIX.length());
+        for (byte b : digest) {
+            name.append(Character.forDigit((b >> 4) & 0xf, 16));
+            name.append(Character.forDigit(b & 0xf, 16));
+        }
+        return directory.resolve(name.append(SUFFIX).toString());
+    }
+
+    private static Entry load(Path file, byte[] keyDigest) {
+        Codegen.CompilationResult<?> compiled;
+        boolean isFunction;
+        try (DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            if (in.readInt() != MAGIC
+                    || in.readInt() != FORMAT_VERSION
+                    || !String.valueOf(ImplementationVersion.get()).equals(readString(in))) {
+                // Written by another version of Rhino, so it will be replaced on the next put
+                return null;
+            }
+            byte[] storedKeyDigest = new byte[DIGEST_LENGTH];
+            in.readFully(storedKeyDigest);
+            byte[] storedContentDigest = new byte[DIGEST_LENGTH];
+            in.readFully(storedContentDigest);
+            byte[] contents = new byte[in.available()];
+            in.readFully(contents);
+            if (!MessageDigest.isEqual(keyDigest, storedKeyDigest)
+                    || !MessageDigest.isEqual(
+                            contentDigest(keyDigest, contents), storedContentDigest)) {
+                throw new IOException("Digest mismatch in " + file);
+            }
+
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(contents));
+            isFunction = data.readBoolean();
+            compiled = readCompilationResult(data);
+            if (data.available() != 0) {
+                throw new IOException("Trailing data in " + file);
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            return null;
+        }
+
+        try {
+            return new Entry(new Codegen().defineClass(compiled, null), isFunction);
+        } catch (RuntimeException | LinkageError e) {
+            // The file was readable but the classes in it were not valid
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    private void store(
+            Path file,
+            byte[] keyDigest,
+            boolean isFunction,
+            Codegen.CompilationResult<?> compiled) {
+        Path tmp = null;
+        try {
+            ByteArrayOutputStream contents = new ByteArrayOutputStream();
+            try (DataOutputStream data = new DataOutputStream(contents)) {
+                data.writeBoolean(isFunction);
+                writeCompilationResult(data, compiled);
+            }
+            byte[] bytes = contents.toByteArray();
+
+            tmp = Files.createTempFile(directory, "tmp", ".part");
+            try (OutputStream os = Files.newOutputStream(tmp);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                writeString(out, String.valueOf(ImplementationVersion.get()));
+                out.write(keyDigest);
+                out.write(contentDigest(keyDigest, bytes));
+                out.write(bytes);
+            }
+            try {
+                Files.move(
+                        tmp,
+                        file,
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmp = null;
+        } catch (IOException | UnsupportedOperationException e) {
+            // The cache is only an optimization, so the script is simply not stored
+        } finally {
+            if (tmp != null) {
+                deleteQuietly(tmp);
+            }
+        }
+    }
+
+    /**
+     * Return the digest that is stored for the contents of an entry. It covers the digest of the
+     * key too, so that the contents of one entry cannot be moved to another.
+     */
+    private static byte[] contentDigest(byte[] keyDigest, byte[] contents) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        md.update(keyDigest);
+        md.update(contents);
+        return md.digest();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Nothing more can be done
+        }
+    }
+
+    private static void writeCompilationResult(
+            DataOutputStream out, Codegen.CompilationResult<?> compiled) throws IOException {
+        writeString(out, compiled.className);
+        out.writeBoolean(compiled.builderEnv.hasRegExpLiterals);
+        out.writeBoolean(compiled.builderEnv.hasTemplateLiterals);
+        out.writeInt(compiled.bytecode.length);
+        out.write(compiled.bytecode);
+        writeDescriptor(out, compiled.builder);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static Codegen.CompilationResult<?> readCompilationResult(DataInputStream in)
+            throws IOException {
+        String className = readString(in);
+        OptJSCode.BuilderEnv env = new OptJSCode.BuilderEnv(className);
+        env.hasRegExpLiterals = in.readBoolean();
+        env.hasTemplateLiterals = in.readBoolean();
+        byte[] bytecode = new byte[readLength(in)];
+        in.readFully(bytecode);
+        JSDescriptor.Builder builder = new JSDescriptor.Builder();
+        readDescriptor(in, builder, env);
+        return new Codegen.CompilationResult(builder, className, bytecode, env);
+    }
+
+    private static void writeDescriptor(DataOutputStream out, JSDescriptor.Builder<?> b)
+            throws IOException {
+        if (!(b.code instanceof OptJSCode.Builder)) {
+            throw new UnsupportedOperationException();
+        }
+        OptJSCode.Builder<?> code = (OptJSCode.Builder<?>) b.code;
+        out.writeBoolean(code instanceof OptJSFunctionCode.Builder);
+        out.writeInt(code.index);
+        writeString(out, code.methodName);
+        writeString(out, code.methodType);
+        writeString(out, code.resumeName);
+        writeString(out, code.resumeType);
+        if (b.constructor == b.code) {
+            out.writeByte(CONSTRUCTOR_CODE);
+        } else if (b.constructor instanceof JSCode.NullBuilder) {
+            out.writeByte(CONSTRUCTOR_NONE);
+        } else {
+            throw new UnsupportedOperationException();
+        }
+
+        out.writeInt(b.paramAndVarNames.length);
+        for (String name : b.paramAndVarNames) {
+            writeString(out, name);
+        }
+        out.writeInt(b.paramIsConst.length);
+        for (boolean isConst : b.paramIsConst) {
+            out.writeBoolean(isConst);
+        }
+        out.writeBoolean(b.isStrict);
+        out.writeBoolean(b.isScript);
+        out.writeBoolean(b.isTopLevel);
+        out.writeBoolean(b.isES6Generator);
+        out.writeBoolean(b.isShorthand);
+        out.writeBoolean(b.hasPrototype);
+        out.writeBoolean(b.hasLexicalThis);
+        out.writeBoolean(b.isEvalFunction);
+        out.writeBoolean(b.hasRestArg);
+        out.writeBoolean(b.hasDefaultParameters);
+        out.writeBoolean(b.requiresActivationFrame);
+        out.writeBoolean(b.requiresArgumentObject);
+        out.writeBoolean(b.declaredAsFunctionExpression);
+        writeString(out, b.sourceFile);
+        // Nested functions share the source of the script, so only store it once
+        boolean sameSource = b.parent != null && b.rawSource == b.parent.rawSource;
+        out.writeBoolean(sameSource);
+        if (!sameSource) {
+            writeString(out, b.rawSource);
+        }
+        out.writeInt(b.rawSourceStart);
+        out.writeInt(b.rawSourceEnd);
+        writeString(out, b.name);
+        out.writeInt(b.languageVersion);
+        out.writeInt(b.paramAndVarCount);
+        out.writeInt(b.paramCount);
+        out.writeInt(b.arity);
+        out.writeInt(b.functionType);
+
+        out.writeInt(b.nestedFunctions.size());
+        for (JSDescriptor.Builder<?> child : b.nestedFunctions) {
+            writeDescriptor(out, child);
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static void readDescriptor(
+            DataInputStream in, JSDescriptor.Builder b, OptJSCode.BuilderEnv env)
+            throws IOException {
+        OptJSCode.Builder code =
+                in.readBoolean()
+                        ? new OptJSFunctionCode.Builder(env)
+                        : new OptJSScriptCode.Builder(env);
+        code.index = in.readInt();
+        code.methodName = readString(in);
+        code.methodType = readString(in);
+        code.resumeName = readString(in);
+        code.resumeType = readString(in);
+        b.setCode(code);
+        switch (in.readByte()) {
+            case CONSTRUCTOR_CODE:
+                b.constructor = code;
+                break;
+            case CONSTRUCTOR_NONE:
+                b.constructor = new JSCode.NullBuilder();
+                break;
+            default:
+                throw new IOException("Invalid constructor type");
+        }
+
+        b.paramAndVarNames = new String[readLength(in)];
+        for (int i = 0; i < b.paramAndVarNames.length; i++) {
+            b.paramAndVarNames[i] = readString(in);
+        }
+        b.paramIsConst = new boolean[readLength(in)];
+        for (int i = 0; i < b.paramIsConst.length; i++) {
+            b.paramIsConst[i] = in.readBoolean();
+        }
+        b.isStrict = in.readBoolean();
+        b.isScript = in.readBoolean();
+        b.isTopLevel = in.readBoolean();
+        b.isES6Generator = in.readBoolean();
+        b.isShorthand = in.readBoolean();
+        b.hasPrototype = in.readBoolean();
+        b.hasLexicalThis = in.readBoolean();
+        b.isEvalFunction = in.readBoolean();
+        b.hasRestArg = in.readBoolean();
+        b.hasDefaultParameters = in.readBoolean();
+        b.requiresActivationFrame = in.readBoolean();
+        b.requiresArgumentObject = in.readBoolean();
+        b.declaredAsFunctionExpression = in.readBoolean();
+        b.sourceFile = readString(in);
+        if (in.readBoolean()) {
+            if (b.parent == null) {
+                throw new IOException("Top-level descriptor has no parent source");
+            }
+            b.rawSource = b.parent.rawSource;
+        } else {
+            b.rawSource = readString(in);
+        }
+        b.rawSourceStart = in.readInt();
+        b.rawSourceEnd = in.readInt();
+        b.name = readString(in);
+        b.languageVersion = in.readInt();
+        b.paramAndVarCount = in.readInt();
+        b.paramCount = in.readInt();
+        b.arity = in.readInt();
+        b.functionType = in.readInt();
+
+        int nestedCount = readLength(in);
+        for (int i = 0; i < nestedCount; i++) {
+            readDescriptor(in, b.createChildBuilder(), env);
+        }
+    }
+
+    /**
+     * Write a string that may be null, and may be longer than {@link DataOutputStream#writeUTF}
+     * allows, as is often the case for the source of a script.
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(s.length());
+            out.writeChars(s);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length * 2L > in.available()) {
+            throw new IOException("Invalid string length");
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = in.readChar();
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Read the length of an array. Every element takes at least one byte, so a length that is
+     * larger than the rest of the file means that it is corrupt, and must not be used to allocate
+     * an array.
+     */
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid length");
+        }
+        return length;
+    }
+}
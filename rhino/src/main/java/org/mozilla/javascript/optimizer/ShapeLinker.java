@@ -0,0 +1,113 @@
+package org.mozilla.javascript.optimizer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import jdk.dynalink.StandardNamespace;
+import jdk.dynalink.StandardOperation;
+import jdk.dynalink.linker.GuardedInvocation;
+import jdk.dynalink.linker.LinkRequest;
+import jdk.dynalink.linker.LinkerServices;
+import jdk.dynalink.linker.TypeBasedGuardingDynamicLinker;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.Shape;
+
+/**
+ * This linker builds inline caches for reads and writes of the own properties of ordinary
+ * JavaScript objects. When an object has a {@link Shape}, and the property is part of that shape,
+ * the call site is linked to code that checks that the object still has the same shape and then
+ * loads the slot at the offset that the shape gives for the property, without hashing the name.
+ *
+ * <p>Each call site starts out monomorphic. When it sees objects with different shapes, the
+ * "ChainedCallSite" keeps a guarded invocation for each of them, so the site becomes polymorphic.
+ * Once dynalink decides that the site is unstable, this linker declines, and the site is linked to
+ * the generic operations in ScriptRuntime, which handle any shape.
+ */
+@SuppressWarnings("AndroidJdkLibsChecker")
+class ShapeLinker implements TypeBasedGuardingDynamicLinker {
+    @Override
+    public boolean canLinkType(Class<?> type) {
+        // Subclasses frequently override "get" and "put", so only handle ordinary objects.
+        return NativeObject.class.equals(type);
+    }
+
+    @Override
+    public GuardedInvocation getGuardedInvocation(LinkRequest req, LinkerServices svc)
+            throws Exception {
+        if (req.isCallSiteUnstable()) {
+            return null;
+        }
+
+        ParsedOperation op = new ParsedOperation(req.getCallSiteDescriptor().getOperation());
+        if (!op.isNamespace(StandardNamespace.PROPERTY)) {
+            return null;
+        }
+        boolean isGet = op.isOperation(StandardOperation.GET, RhinoOperation.GETNOWARN);
+        if (!isGet && !op.isOperation(StandardOperation.SET)) {
+            return null;
+        }
+
+        NativeObject target = (NativeObject) req.getReceiver();
+        Shape shape = Shape.getShape(target);
+        if (shape == null) {
+            return null;
+        }
+        int offset = shape.getOffset(op.getName());
+        if (offset < 0) {
+            // Not an own property, so we have to look at the prototype chain
+            return null;
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType mType = req.getCallSiteDescriptor().getMethodType();
+        MethodHandle mh;
+        if (isGet) {
+            mh =
+                    lookup.findStatic(
+                            ShapeLinker.class,
+                            "getProperty",
+                            mType.insertParameterTypes(0, Integer.TYPE));
+            mh = MethodHandles.insertArguments(mh, 0, offset);
+        } else {
+            mh =
+                    lookup.findStatic(
+                            ShapeLinker.class,
+                            "setProperty",
+                            mType.insertParameterTypes(0, String.class, Integer.TYPE));
+            mh = MethodHandles.insertArguments(mh, 0, op.getName(), offset);
+        }
+        MethodHandle guard =
+                lookup.findStatic(
+                        ShapeLinker.class,
+                        "testShape",
+                        MethodType.methodType(Boolean.TYPE, Shape.class, Object.class));
+        guard = MethodHandles.insertArguments(guard, 0, shape);
+
+        if (DefaultLinker.DEBUG) {
+            System.out.println(op + " shape " + shape + " offset " + offset);
+        }
+        return new GuardedInvocation(mh, guard);
+    }
+
+    @SuppressWarnings("unused")
+    private static boolean testShape(Shape shape, Object o) {
+        return o != null && o.getClass() == NativeObject.class && shape.isShapeOf((NativeObject) o);
+    }
+
+    @SuppressWarnings("unused")
+    private static Object getProperty(int offset, Object o, Context cx, Scriptable scope) {
+        return Shape.getValue((NativeObject) o, offset);
+    }
+
+    @SuppressWarnings("unused")
+    private static Object setProperty(
+            String name, int offset, Object o, Object value, Context cx, Scriptable scope) {
+        if (Shape.setValue((NativeObject) o, offset, value, cx.isStrictMode())) {
+            return value;
+        }
+        return ScriptRuntime.setObjectProp(o, name, value, cx, scope);
+    }
+}
@@ -90,7 +90,7 @@ class StringLinker implements TypeBasedGuardingDynamicLinker {
 
     @SuppressWarnings("unused")
     private static Object add(Object lval, Object rval, Context cx) {
-        return new ConsString((String) lval, ((CharSequence) rval).toString());
+        return new ConsString((String) lval, (CharSequence) rval);
     }
 
     @SuppressWarnings("unused")
@@ -0,0 +1,85 @@
+package org.mozilla.javascript.optimizer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import jdk.dynalink.StandardNamespace;
+import jdk.dynalink.linker.GuardedInvocation;
+import jdk.dynalink.linker.LinkRequest;
+import jdk.dynalink.linker.LinkerServices;
+import jdk.dynalink.linker.TypeBasedGuardingDynamicLinker;
+import jdk.dynalink.linker.support.Guards;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.typedarrays.NativeBigIntArrayView;
+import org.mozilla.javascript.typedarrays.NativeTypedArrayView;
+
+/**
+ * This linker optimizes numeric indexed reads and writes of typed arrays such as "Float64Array" and
+ * "Int32Array", which read and write the array buffer directly instead of going through the
+ * generic property lookup. Each call site is guarded on the exact class of the array, so that the
+ * element accessors of that class are the only ones called from it.
+ */
+@SuppressWarnings("AndroidJdkLibsChecker")
+class TypedArrayLinker implements TypeBasedGuardingDynamicLinker {
+    @Override
+    public boolean canLinkType(Class<?> type) {
+        return NativeTypedArrayView.class.isAssignableFrom(type)
+                && !NativeBigIntArrayView.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public GuardedInvocation getGuardedInvocation(LinkRequest req, LinkerServices svc)
+            throws Exception {
+        if (req.isCallSiteUnstable()) {
+            return null;
+        }
+
+        ParsedOperation op = new ParsedOperation(req.getCallSiteDescriptor().getOperation());
+        MethodHandle mh = null;
+
+        if (op.isNamespace(StandardNamespace.PROPERTY)) {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodType mType = req.getCallSiteDescriptor().getMethodType();
+            if (op.isOperation(RhinoOperation.GETINDEX)) {
+                mh = lookup.findStatic(TypedArrayLinker.class, "getIndex", mType);
+            } else if (op.isOperation(RhinoOperation.SETINDEX)) {
+                mh = lookup.findStatic(TypedArrayLinker.class, "setIndex", mType);
+            }
+        }
+
+        if (mh != null) {
+            MethodHandle guard = Guards.getClassGuard(req.getReceiver().getClass());
+            if (DefaultLinker.DEBUG) {
+                System.out.println(op + " typed array operation");
+            }
+            return new GuardedInvocation(mh, guard);
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings("unused")
+    private static Object getIndex(Object o, double d, Context cx, Scriptable scope) {
+        NativeTypedArrayView<?> ta = (NativeTypedArrayView<?>) o;
+        int index = (int) d;
+        if (index == d && ta.hasNumberElement(index)) {
+            return ScriptRuntime.wrapNumber(ta.getNumberElement(index));
+        }
+        return ScriptRuntime.getObjectIndex(o, d, cx, scope);
+    }
+
+    @SuppressWarnings("unused")
+    private static Object setIndex(Object o, double d, Object value, Context cx, Scriptable scope) {
+        if (value instanceof Integer || value instanceof Double) {
+            int index = (int) d;
+            if (index == d
+                    && ((NativeTypedArrayView<?>) o)
+                            .setNumberElement(index, ((Number) value).doubleValue())) {
+                return value;
+            }
+        }
+        return ScriptRuntime.setObjectIndex(o, d, value, cx, scope);
+    }
+}
@@ -0,0 +1,204 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.regexp;
+
+import org.mozilla.javascript.config.RhinoConfig;
+
+/**
+ * The base class of regular expressions that have been compiled to JVM bytecode. A regular
+ * expression is interpreted until it has been executed a number of times, after which its program
+ * is translated into a class that extends this one, so that the JIT can compile it like any other
+ * Java code. Patterns that use features the compiler does not support keep being interpreted.
+ *
+ * <p>Compilation is disabled unless a threshold is set, either with the
+ * "rhino.regexp.compileThreshold" configuration property or with {@link #setCompileThreshold}.
+ *
+ * <p>This class is public only so that generated classes, which are defined by their own class
+ * loaders, may extend it. It is not meant to be used directly.
+ */
+public abstract class CompiledRegExp {
+    private static volatile int compileThreshold =
+            RhinoConfig.get("rhino.regexp.compileThreshold", -1);
+
+    /** The string being matched. */
+    protected String input;
+
+    /** The length of the part of the input that may be matched. */
+    protected int end;
+
+    /** True if "^" and "$" match at line terminators. */
+    protected boolean multiline;
+
+    /** The captured groups, packed in the same way as by the interpreter. */
+    protected long[] parens;
+
+    /** The start of each group that is being matched. */
+    protected int[] parenStarts;
+
+    /** The end of the match, set by the generated code when it succeeds. */
+    protected int matchEnd;
+
+    private REGlobalData gData;
+
+    protected CompiledRegExp() {}
+
+    /**
+     * Set the number of times a regular expression is executed before it is compiled. Zero compiles
+     * every regular expression the first time it is used, and a negative value disables the
+     * compiler.
+     */
+    public static void setCompileThreshold(int threshold) {
+        compileThreshold = threshold;
+    }
+
+    /** Return the number of times a regular expression is executed before it is compiled. */
+    public static int getCompileThreshold() {
+        return compileThreshold;
+    }
+
+    /**
+     * Return a new matcher for the regular expression, compiling it if it has been used often
+     * enough, or null if it must be interpreted.
+     */
+    static CompiledRegExp getMatcher(RECompiled re) {
+        int threshold = compileThreshold;
+        if (threshold < 0) {
+            return null;
+        }
+        CompiledRegExp matcher = re.matcher;
+        if (matcher == null) {
+            if (re.cannotCompile || RECompiled.EXECUTION_COUNT.getAndIncrement(re) < threshold) {
+                return null;
+            }
+            synchronized (re) {
+                matcher = re.matcher;
+                if (matcher == null && !re.cannotCompile) {
+                    matcher = RegExpCompiler.compile(re);
+                    if (matcher == null) {
+                        re.cannotCompile = true;
+                        return null;
+                    }
+                    re.matcher = matcher;
+                }
+            }
+            if (matcher == null) {
+                return null;
+            }
+        }
+        return matcher.newMatcher();
+    }
+
+    /** Return a new instance of the generated class. */
+    protected abstract CompiledRegExp newMatcher();
+
+    /** Match the regular expression at the given position, setting matchEnd if it succeeds. */
+    protected abstract boolean matchAt(int cp);
+
+    /**
+     * Match the regular expression at gData.cp, in the same way as the interpreter does, and move
+     * gData.cp to the end of the match if it succeeds.
+     */
+    final boolean execute(REGlobalData gData, String input, int end) {
+        this.gData = gData;
+        this.input = input;
+        this.end = end;
+        this.multiline = gData.multiline;
+        this.parens = gData.parens;
+        if (parens != null && parenStarts == null) {
+            parenStarts = new int[parens.length];
+        }
+        if (!matchAt(gData.cp)) {
+            return false;
+        }
+        gData.cp = matchEnd;
+        return true;
+    }
+
+    protected final boolean isBol(int cp) {
+        return cp == 0 || (multiline && isLineTerm(input.charAt(cp - 1)));
+    }
+
+    protected final boolean isEol(int cp) {
+        return cp == end || (multiline && isLineTerm(input.charAt(cp)));
+    }
+
+    protected final boolean isWordBoundary(int cp) {
+        boolean before = cp != 0 && isWord(input.charAt(cp - 1));
+        boolean after = cp < end && isWord(input.charAt(cp));
+        return before != after;
+    }
+
+    protected final boolean inClass(int index, char c) {
+        return NativeRegExp.classMatcher(gData, gData.regexp.classList[index], c);
+    }
+
+    /** Match length characters of the source of the regular expression, starting at offset. */
+    protected final boolean flat(int cp, int offset, int length) {
+        if (cp + length > end) {
+            return false;
+        }
+        char[] source = gData.regexp.source;
+        for (int i = 0; i < length; i++) {
+            if (source[offset + i] != input.charAt(cp + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Like {@link #flat}, but ignoring case. */
+    protected final boolean flatFold(int cp, int offset, int length) {
+        if (cp + length > end) {
+            return false;
+        }
+        char[] source = gData.regexp.source;
+        for (int i = 0; i < length; i++) {
+            char c1 = source[offset + i];
+            char c2 = input.charAt(cp + i);
+            if (c1 != c2 && upcase(c1) != upcase(c2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected final void openParen(int index, int cp) {
+        parenStarts[index] = cp;
+    }
+
+    /** Capture a group that ends at cp, returning the previous capture so it can be restored. */
+    protected final long closeParen(int index, int cp) {
+        long old = parens[index];
+        int start = parenStarts[index];
+        parens[index] = (start & 0xffffffffL) | ((long) (cp - start) << 32);
+        return old;
+    }
+
+    protected final void restoreParen(int index, long old) {
+        parens[index] = old;
+    }
+
+    protected static boolean isDigit(char c) {
+        return NativeRegExp.isDigit(c);
+    }
+
+    protected static boolean isWord(char c) {
+        return NativeRegExp.isWord(c);
+    }
+
+    protected static boolean isSpace(char c) {
+        return NativeRegExp.isREWhiteSpace(c);
+    }
+
+    protected static boolean isLineTerm(char c) {
+        return NativeRegExp.isLineTerm(c);
+    }
+
+    protected static char upcase(char c) {
+        return NativeRegExp.upcase(c);
+    }
+}
@@ -0,0 +1,510 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.regexp;
+
+import static org.mozilla.javascript.regexp.NativeRegExp.*;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScriptRuntime;
+
+/**
+ * A matcher that runs in time proportional to the length of the input times the size of the
+ * pattern, whatever the pattern and the input are. The parse tree of the regular expression is
+ * translated into a Thompson NFA, which is then simulated one input character at a time with all
+ * the threads in priority order (a "Pike VM"), so that the result is the same as the one found by
+ * the backtracking matcher.
+ *
+ * <p>Only patterns without back references, lookaround assertions and unicode mode are supported.
+ * Quantified subexpressions that can match the empty string are not supported either, because
+ * ECMAScript rejects empty iterations in a way that depends on the path taken to reach them.
+ */
+final class LinearMatcher implements Serializable {
+    private static final long serialVersionUID = 2453512378542816331L;
+
+    // Larger programs are left to the backtracking matcher, since the cost of each step of the
+    // simulation grows with the size of the program.
+    private static final int MAX_PROGRAM_SIZE = 10000;
+
+    private static final byte CHAR = 1; // arg: the character
+    private static final byte CHAR_FOLD = 2; // arg: the character, arg2: its upper case
+    private static final byte ANY = 3; // any character but a line terminator
+    private static final byte ANY_ALL = 4; // any character
+    private static final byte CLASS = 5; // arg: index in the class list
+    private static final byte DIGIT = 6;
+    private static final byte NON_DIGIT = 7;
+    private static final byte WORD = 8;
+    private static final byte NON_WORD = 9;
+    private static final byte SPACE = 10;
+    private static final byte NON_SPACE = 11;
+    private static final byte BOL = 12;
+    private static final byte EOL = 13;
+    private static final byte WORD_BOUNDARY = 14;
+    private static final byte NON_WORD_BOUNDARY = 15;
+    private static final byte SPLIT = 16; // arg: preferred target, arg2: other target
+    private static final byte JUMP = 17; // arg: target
+    private static final byte SAVE = 18; // arg: capture slot
+    private static final byte RESET = 19; // arg: first group, arg2: number of groups
+    private static final byte MATCH = 20;
+
+    private byte[] ops;
+    private int[] args;
+    private int[] args2;
+    private int size;
+    private final int slotCount;
+
+    private LinearMatcher(int parenCount) {
+        ops = new byte[16];
+        args = new int[16];
+        args2 = new int[16];
+        // Slots 0 and 1 hold the start and end of the whole match
+        slotCount = 2 * (parenCount + 1);
+    }
+
+    /**
+     * Build a matcher for the parse tree of a regular expression, or return null if it uses
+     * features that are not supported. The program of the regular expression must already have
+     * been emitted, so that its class list is complete.
+     */
+    static LinearMatcher build(RECompiled re, RENode tree) {
+        if ((re.flags & JSREG_UNICODE) != 0) {
+            return null;
+        }
+        LinearMatcher m = new LinearMatcher(re.parenCount);
+        if (!m.emitSequence(re, tree)) {
+            return null;
+        }
+        m.emit(MATCH, 0, 0);
+        if (m.size > MAX_PROGRAM_SIZE) {
+            return null;
+        }
+        m.ops = Arrays.copyOf(m.ops, m.size);
+        m.args = Arrays.copyOf(m.args, m.size);
+        m.args2 = Arrays.copyOf(m.args2, m.size);
+        return m;
+    }
+
+    private int emit(byte op, int arg, int arg2) {
+        if (size == ops.length) {
+            int newLength = size * 2;
+            ops = Arrays.copyOf(ops, newLength);
+            args = Arrays.copyOf(args, newLength);
+            args2 = Arrays.copyOf(args2, newLength);
+        }
+        ops[size] = op;
+        args[size] = arg;
+        args2[size] = arg2;
+        return size++;
+    }
+
+    private boolean emitSequence(RECompiled re, RENode t) {
+        for (; t != null; t = t.next) {
+            if (size > MAX_PROGRAM_SIZE || !emitNode(re, t)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean emitNode(RECompiled re, RENode t) {
+        boolean fold = (re.flags & JSREG_FOLD) != 0;
+        switch (t.op) {
+            case REOP_EMPTY:
+                return true;
+            case REOP_BOL:
+                emit(BOL, 0, 0);
+                return true;
+            case REOP_EOL:
+                emit(EOL, 0, 0);
+                return true;
+            case REOP_WBDRY:
+                emit(WORD_BOUNDARY, 0, 0);
+                return true;
+            case REOP_WNONBDRY:
+                emit(NON_WORD_BOUNDARY, 0, 0);
+                return true;
+            case REOP_DOT:
+                emit((re.flags & JSREG_DOTALL) != 0 ? ANY_ALL : ANY, 0, 0);
+                return true;
+            case REOP_DIGIT:
+                emit(DIGIT, 0, 0);
+                return true;
+            case REOP_NONDIGIT:
+                emit(NON_DIGIT, 0, 0);
+                return true;
+            case REOP_ALNUM:
+                emit(WORD, 0, 0);
+                return true;
+            case REOP_NONALNUM:
+                emit(NON_WORD, 0, 0);
+                return true;
+            case REOP_SPACE:
+                emit(SPACE, 0, 0);
+                return true;
+            case REOP_NONSPACE:
+                emit(NON_SPACE, 0, 0);
+                return true;
+            case REOP_CLASS:
+                emit(CLASS, t.index, 0);
+                return true;
+            case REOP_FLAT:
+                if (t.flatIndex != -1 && t.length > 1) {
+                    for (int i = 0; i < t.length; i++) {
+                        emitChar(re.source[t.flatIndex + i], fold);
+                    }
+                } else {
+                    if (t.lowSurrogate != 0) {
+                        return false;
+                    }
+                    emitChar(t.chr, fold);
+                }
+                return true;
+            case REOP_ALT:
+            case REOP_ALTPREREQ:
+            case REOP_ALTPREREQi:
+            case REOP_ALTPREREQ2:
+                {
+                    int split = emit(SPLIT, 0, 0);
+                    args[split] = size;
+                    if (!emitSequence(re, t.kid)) {
+                        return false;
+                    }
+                    int jump = emit(JUMP, 0, 0);
+                    args2[split] = size;
+                    if (!emitSequence(re, t.kid2)) {
+                        return false;
+                    }
+                    args[jump] = size;
+                    return true;
+                }
+            case REOP_LPAREN:
+                emit(SAVE, 2 * (t.parenIndex + 1), 0);
+                if (!emitSequence(re, t.kid)) {
+                    return false;
+                }
+                emit(SAVE, 2 * (t.parenIndex + 1) + 1, 0);
+                return true;
+            case REOP_QUANT:
+                return emitQuantifier(re, t);
+            default:
+                // Back references, assertions and unicode properties
+                return false;
+        }
+    }
+
+    private void emitChar(char c, boolean fold) {
+        if (fold) {
+            emit(CHAR_FOLD, c, upcase(c));
+        } else {
+            emit(CHAR, c, 0);
+        }
+    }
+
+    private boolean emitQuantifier(RECompiled re, RENode t) {
+        if (t.max == 0) {
+            return true;
+        }
+        if (nullable(t.kid)) {
+            return false;
+        }
+        for (int i = 0; i < t.min; i++) {
+            if (size > MAX_PROGRAM_SIZE || !emitIteration(re, t)) {
+                return false;
+            }
+        }
+        if (t.max == -1) {
+            int split = emit(SPLIT, 0, 0);
+            int body = size;
+            if (!emitIteration(re, t)) {
+                return false;
+            }
+            emit(JUMP, split, 0);
+            setSplit(split, body, size, t.greedy);
+            return true;
+        }
+        int optional = t.max - t.min;
+        int[] splits = new int[optional];
+        for (int i = 0; i < optional; i++) {
+            if (size > MAX_PROGRAM_SIZE) {
+                return false;
+            }
+            splits[i] = emit(SPLIT, 0, 0);
+            args[splits[i]] = size;
+            if (!emitIteration(re, t)) {
+                return false;
+            }
+        }
+        for (int split : splits) {
+            setSplit(split, split + 1, size, t.greedy);
+        }
+        return true;
+    }
+
+    private boolean emitIteration(RECompiled re, RENode t) {
+        if (t.parenCount > 0) {
+            // Each iteration starts with the groups inside the quantifier unset
+            emit(RESET, t.parenIndex, t.parenCount);
+        }
+        return emitSequence(re, t.kid);
+    }
+
+    private void setSplit(int split, int body, int exit, boolean greedy) {
+        args[split] = greedy ? body : exit;
+        args2[split] = greedy ? exit : body;
+    }
+
+    private static boolean nullable(RENode t) {
+        for (; t != null; t = t.next) {
+            switch (t.op) {
+                case REOP_EMPTY:
+                case REOP_BOL:
+                case REOP_EOL:
+                case REOP_WBDRY:
+                case REOP_WNONBDRY:
+                    break;
+                case REOP_ALT:
+                case REOP_ALTPREREQ:
+                case REOP_ALTPREREQi:
+                case REOP_ALTPREREQ2:
+                    if (!nullable(t.kid) && !nullable(t.kid2)) {
+                        return false;
+                    }
+                    break;
+                case REOP_LPAREN:
+                    if (!nullable(t.kid)) {
+                        return false;
+                    }
+                    break;
+                case REOP_QUANT:
+                    if (t.min != 0 && !nullable(t.kid)) {
+                        return false;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /** The threads that are alive at one input position, in priority order. */
+    private static final class ThreadList {
+        final int[] pcs;
+        final int[][] slots;
+        final int[] marks; // the position at which each pc was last added, plus one
+        int count;
+
+        ThreadList(int size) {
+            pcs = new int[size];
+            slots = new int[size][];
+            marks = new int[size];
+        }
+
+        void clear() {
+            Arrays.fill(slots, 0, count, null);
+            count = 0;
+        }
+    }
+
+    /**
+     * Find the first match starting at or after start, in the same way as the backtracking
+     * matcher, and store it in gData.
+     */
+    boolean match(Context cx, REGlobalData gData, String input, int start, int end) {
+        RECompiled re = gData.regexp;
+        boolean sticky = (re.flags & JSREG_STICKY) != 0;
+        boolean instructionCounting = cx.getInstructionObserverThreshold() != 0;
+        int anchor = re.anchorCodePoint;
+        boolean fold = (re.flags & JSREG_FOLD) != 0;
+
+        ThreadList current = new ThreadList(size);
+        ThreadList next = new ThreadList(size);
+        int[] stackPcs = new int[size];
+        int[][] stackSlots = new int[size][];
+        int[] matched = null;
+
+        for (int sp = start; ; sp++) {
+            if (matched == null && (sp == start || !sticky)) {
+                if (current.count == 0) {
+                    if (sp > start && anchor == ANCHOR_BOL && !gData.multiline) {
+                        // Anchored at the beginning of the input, which has been passed
+                        break;
+                    }
+                    if (anchor >= 0 && !sticky) {
+                        sp = skipToAnchor(input, sp, end, (char) anchor, fold);
+                        if (sp < 0) {
+                            break;
+                        }
+                    }
+                }
+                int[] slots = new int[slotCount];
+                Arrays.fill(slots, -1);
+                slots[0] = sp;
+                addThread(gData, input, end, current, 0, sp, slots, stackPcs, stackSlots);
+            }
+            if (current.count == 0) {
+                if (matched != null || sticky || sp >= end) {
+                    break;
+                }
+                continue;
+            }
+            if (instructionCounting) {
+                ScriptRuntime.addInstructionCount(cx, current.count);
+            }
+
+            char c = sp < end ? input.charAt(sp) : 0;
+            for (int i = 0; i < current.count; i++) {
+                int pc = current.pcs[i];
+                int[] slots = current.slots[i];
+                if (ops[pc] == MATCH) {
+                    slots[1] = sp;
+                    matched = slots;
+                    // Threads of lower priority can no longer win
+                    break;
+                }
+                if (sp < end && step(gData, pc, c)) {
+                    addThread(gData, input, end, next, pc + 1, sp + 1, slots, stackPcs, stackSlots);
+                }
+            }
+            current.clear();
+            ThreadList tmp = current;
+            current = next;
+            next = tmp;
+            if (sp >= end) {
+                break;
+            }
+        }
+
+        if (matched == null) {
+            return false;
+        }
+        gData.cp = matched[1];
+        gData.skipped = matched[0] - start;
+        for (int i = 0; i < re.parenCount; i++) {
+            int s = matched[2 * i + 2];
+            int e = matched[2 * i + 3];
+            if (s < 0 || e < 0) {
+                gData.parens[i] = -1L;
+            } else {
+                gData.parens[i] = (s & 0xffffffffL) | ((long) (e - s) << 32);
+            }
+        }
+        return true;
+    }
+
+    private static int skipToAnchor(String input, int sp, int end, char anchor, boolean fold) {
+        char upperAnchor = upcase(anchor);
+        for (; sp < end; sp++) {
+            char c = input.charAt(sp);
+            if (c == anchor || (fold && upcase(c) == upperAnchor)) {
+                return sp;
+            }
+        }
+        return -1;
+    }
+
+    /** Return true if the consuming instruction at pc matches the character. */
+    private boolean step(REGlobalData gData, int pc, char c) {
+        switch (ops[pc]) {
+            case CHAR:
+                return c == args[pc];
+            case CHAR_FOLD:
+                return c == args[pc] || upcase(c) == args2[pc];
+            case ANY:
+                return !isLineTerm(c);
+            case ANY_ALL:
+                return true;
+            case CLASS:
+                return classMatcher(gData, gData.regexp.classList[args[pc]], c);
+            case DIGIT:
+                return isDigit(c);
+            case NON_DIGIT:
+                return !isDigit(c);
+            case WORD:
+                return isWord(c);
+            case NON_WORD:
+                return !isWord(c);
+            case SPACE:
+                return isREWhiteSpace(c);
+            case NON_SPACE:
+                return !isREWhiteSpace(c);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Add the thread at pc to the list, following jumps, splits, captures and assertions at the
+     * position sp. Threads are added in the order in which the backtracking matcher would try
+     * them, and a pc that is already on the list is not added again, since the thread already
+     * there has priority.
+     */
+    private void addThread(
+            REGlobalData gData,
+            String input,
+            int end,
+            ThreadList list,
+            int pc,
+            int sp,
+            int[] slots,
+            int[] stackPcs,
+            int[][] stackSlots) {
+        int top = 0;
+        stackPcs[top] = pc;
+        stackSlots[top++] = slots;
+        while (top > 0) {
+            pc = stackPcs[--top];
+            slots = stackSlots[top];
+            stackSlots[top] = null;
+            while (true) {
+                if (list.marks[pc] == sp + 1) {
+                    break;
+                }
+                list.marks[pc] = sp + 1;
+                byte op = ops[pc];
+                if (op == JUMP) {
+                    pc = args[pc];
+                } else if (op == SPLIT) {
+                    stackPcs[top] = args2[pc];
+                    stackSlots[top++] = slots;
+                    pc = args[pc];
+                } else if (op == SAVE) {
+                    slots = slots.clone();
+                    slots[args[pc]] = sp;
+                    pc++;
+                } else if (op == RESET) {
+                    slots = slots.clone();
+                    Arrays.fill(slots, 2 * (args[pc] + 1), 2 * (args[pc] + args2[pc] + 1), -1);
+                    pc++;
+                } else if (op >= BOL && op <= NON_WORD_BOUNDARY) {
+                    if (!assertion(gData, input, end, op, sp)) {
+                        break;
+                    }
+                    pc++;
+                } else {
+                    list.pcs[list.count] = pc;
+                    list.slots[list.count++] = slots;
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean assertion(REGlobalData gData, String input, int end, byte op, int sp) {
+        switch (op) {
+            case BOL:
+                return sp == 0 || (gData.multiline && isLineTerm(input.charAt(sp - 1)));
+            case EOL:
+                return sp == end || (gData.multiline && isLineTerm(input.charAt(sp)));
+            default:
+                boolean before = sp != 0 && isWord(input.charAt(sp - 1));
+                boolean after = sp < end && isWord(input.charAt(sp));
+                return (before != after) == (op == WORD_BOUNDARY);
+        }
+    }
+}
@@ -6,7 +6,6 @@
 
 package org.mozilla.javascript.regexp;
 
-import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -61,89 +60,92 @@ public class NativeRegExp extends IdScriptableObject {
 
     private static final boolean debug = RhinoConfig.get("rhino.debugRegexp", false);
 
-    private static final byte REOP_SIMPLE_START = 1; /* start of 'simple opcodes' */
-    private static final byte REOP_EMPTY =
+    static final byte REOP_SIMPLE_START = 1; /* start of 'simple opcodes' */
+    static final byte REOP_EMPTY =
             REOP_SIMPLE_START; /* match rest of input against rest of r.e. */
-    private static final byte REOP_BOL =
+    static final byte REOP_BOL =
             REOP_EMPTY + 1; /* beginning of input (or line if multiline) */
-    private static final byte REOP_EOL = REOP_BOL + 1; /* end of input (or line if multiline) */
-    private static final byte REOP_WBDRY = REOP_EOL + 1; /* match "" at word boundary */
-    private static final byte REOP_WNONBDRY = REOP_WBDRY + 1; /* match "" at word non-boundary */
-    private static final byte REOP_DOT = REOP_WNONBDRY + 1; /* stands for any character */
-    private static final byte REOP_DIGIT = REOP_DOT + 1; /* match a digit char: [0-9] */
-    private static final byte REOP_NONDIGIT = REOP_DIGIT + 1; /* match a non-digit char: [^0-9] */
-    private static final byte REOP_ALNUM =
+    static final byte REOP_EOL = REOP_BOL + 1; /* end of input (or line if multiline) */
+    static final byte REOP_WBDRY = REOP_EOL + 1; /* match "" at word boundary */
+    static final byte REOP_WNONBDRY = REOP_WBDRY + 1; /* match "" at word non-boundary */
+    static final byte REOP_DOT = REOP_WNONBDRY + 1; /* stands for any character */
+    static final byte REOP_DIGIT = REOP_DOT + 1; /* match a digit char: [0-9] */
+    static final byte REOP_NONDIGIT = REOP_DIGIT + 1; /* match a non-digit char: [^0-9] */
+    static final byte REOP_ALNUM =
             REOP_NONDIGIT + 1; /* match an alphanumeric char: [0-9a-z_A-Z] */
-    private static final byte REOP_NONALNUM =
+    static final byte REOP_NONALNUM =
             REOP_ALNUM + 1; /* match a non-alphanumeric char: [^0-9a-z_A-Z] */
-    private static final byte REOP_SPACE = REOP_NONALNUM + 1; /* match a whitespace char */
-    private static final byte REOP_NONSPACE = REOP_SPACE + 1; /* match a non-whitespace char */
-    private static final byte REOP_BACKREF =
+    static final byte REOP_SPACE = REOP_NONALNUM + 1; /* match a whitespace char */
+    static final byte REOP_NONSPACE = REOP_SPACE + 1; /* match a non-whitespace char */
+    static final byte REOP_BACKREF =
             REOP_NONSPACE + 1; /* back-reference (e.g., \1) to a parenthetical */
-    private static final byte REOP_FLAT = REOP_BACKREF + 1; /* match a flat string */
-    private static final byte REOP_FLAT1 = REOP_FLAT + 1; /* match a single char */
-    private static final byte REOP_FLATi = REOP_FLAT1 + 1; /* case-independent REOP_FLAT */
-    private static final byte REOP_FLAT1i = REOP_FLATi + 1; /* case-independent REOP_FLAT1 */
-    private static final byte REOP_UCFLAT1 = REOP_FLAT1i + 1; /* single Unicode char */
-    private static final byte REOP_UCFLAT1i = REOP_UCFLAT1 + 1; /* case-independent REOP_UCFLAT1 */
-    private static final byte REOP_UCSPFLAT1 =
+    static final byte REOP_FLAT = REOP_BACKREF + 1; /* match a flat string */
+    static final byte REOP_FLAT1 = REOP_FLAT + 1; /* match a single char */
+    static final byte REOP_FLATi = REOP_FLAT1 + 1; /* case-independent REOP_FLAT */
+    static final byte REOP_FLAT1i = REOP_FLATi + 1; /* case-independent REOP_FLAT1 */
+    static final byte REOP_UCFLAT1 = REOP_FLAT1i + 1; /* single Unicode char */
+    static final byte REOP_UCFLAT1i = REOP_UCFLAT1 + 1; /* case-independent REOP_UCFLAT1 */
+    static final byte REOP_UCSPFLAT1 =
             REOP_UCFLAT1i + 1; /* single Unicode surrogate pair */
-    private static final byte REOP_CLASS = REOP_UCSPFLAT1 + 1; /* character class with index */
-    private static final byte REOP_NCLASS = REOP_CLASS + 1; /* negated character class with index */
-    private static final byte REOP_NAMED_BACKREF = REOP_NCLASS + 1; /* named back-reference */
-    private static final byte REOP_UPROP = REOP_NAMED_BACKREF + 1; /* unicode property */
-    private static final byte REOP_UPROP_NOT = REOP_UPROP + 1; /* negated unicode property */
-    private static final byte REOP_SIMPLE_END = REOP_UPROP_NOT; /* end of 'simple opcodes' */
+    static final byte REOP_CLASS = REOP_UCSPFLAT1 + 1; /* character class with index */
+    static final byte REOP_NCLASS = REOP_CLASS + 1; /* negated character class with index */
+    static final byte REOP_NAMED_BACKREF = REOP_NCLASS + 1; /* named back-reference */
+    static final byte REOP_UPROP = REOP_NAMED_BACKREF + 1; /* unicode property */
+    static final byte REOP_UPROP_NOT = REOP_UPROP + 1; /* negated unicode property */
+    static final byte REOP_SIMPLE_END = REOP_UPROP_NOT; /* end of 'simple opcodes' */
     // REOP_SIMPLE_END is not a real opcode, but a sentinel for the end of the simple opcodes
 
-    private static final byte REOP_QUANT = REOP_SIMPLE_END + 1; /* quantified atom: atom{1,2} */
-    private static final byte REOP_STAR = REOP_QUANT + 1; /* zero or more occurrences of kid */
-    private static final byte REOP_PLUS = REOP_STAR + 1; /* one or more occurrences of kid */
-    private static final byte REOP_OPT = REOP_PLUS + 1; /* optional subexpression in kid */
-    private static final byte REOP_LPAREN =
+    static final byte REOP_QUANT = REOP_SIMPLE_END + 1; /* quantified atom: atom{1,2} */
+    static final byte REOP_STAR = REOP_QUANT + 1; /* zero or more occurrences of kid */
+    static final byte REOP_PLUS = REOP_STAR + 1; /* one or more occurrences of kid */
+    static final byte REOP_OPT = REOP_PLUS + 1; /* optional subexpression in kid */
+    static final byte REOP_LPAREN =
             REOP_OPT + 1; /* left paren bytecode: kid is u.num'th sub-regexp */
-    private static final byte REOP_RPAREN = REOP_LPAREN + 1; /* right paren bytecode */
-    private static final byte REOP_ALT =
+    static final byte REOP_RPAREN = REOP_LPAREN + 1; /* right paren bytecode */
+    static final byte REOP_ALT =
             REOP_RPAREN + 1; /* alternative subexpressions in kid and next */
-    private static final byte REOP_JUMP = REOP_ALT + 1; /* for deoptimized closure loops */
-    private static final byte REOP_ASSERT =
+    static final byte REOP_JUMP = REOP_ALT + 1; /* for deoptimized closure loops */
+    static final byte REOP_ASSERT =
             REOP_JUMP + 1; /* zero width positive lookahead assertion */
-    private static final byte REOP_ASSERT_NOT =
+    static final byte REOP_ASSERT_NOT =
             REOP_ASSERT + 1; /* zero width negative lookahead assertion */
-    private static final byte REOP_ASSERTTEST =
+    static final byte REOP_ASSERTTEST =
             REOP_ASSERT_NOT + 1; /* sentinel at end of assertion child */
-    private static final byte REOP_ASSERTNOTTEST =
+    static final byte REOP_ASSERTNOTTEST =
             REOP_ASSERTTEST + 1; /* sentinel at end of !assertion child */
-    private static final byte REOP_MINIMALSTAR =
+    static final byte REOP_MINIMALSTAR =
             REOP_ASSERTNOTTEST + 1; /* non-greedy version of * */
-    private static final byte REOP_MINIMALPLUS = REOP_MINIMALSTAR + 1; /* non-greedy version of + */
-    private static final byte REOP_MINIMALOPT = REOP_MINIMALPLUS + 1; /* non-greedy version of ? */
-    private static final byte REOP_MINIMALQUANT =
+    static final byte REOP_MINIMALPLUS = REOP_MINIMALSTAR + 1; /* non-greedy version of + */
+    static final byte REOP_MINIMALOPT = REOP_MINIMALPLUS + 1; /* non-greedy version of ? */
+    static final byte REOP_MINIMALQUANT =
             REOP_MINIMALOPT + 1; /* non-greedy version of {} */
-    private static final byte REOP_ENDCHILD =
+    static final byte REOP_ENDCHILD =
             REOP_MINIMALQUANT + 1; /* sentinel at end of quantifier child */
-    private static final byte REOP_REPEAT =
+    static final byte REOP_REPEAT =
             REOP_ENDCHILD + 1; /* directs execution of greedy quantifier */
-    private static final byte REOP_MINIMALREPEAT =
+    static final byte REOP_MINIMALREPEAT =
             REOP_REPEAT + 1; /* directs execution of non-greedy quantifier */
-    private static final byte REOP_ALTPREREQ =
+    static final byte REOP_ALTPREREQ =
             REOP_MINIMALREPEAT + 1; /* prerequisite for ALT, either of two chars */
-    private static final byte REOP_ALTPREREQi =
+    static final byte REOP_ALTPREREQi =
             REOP_ALTPREREQ + 1; /* case-independent REOP_ALTPREREQ */
-    private static final byte REOP_ALTPREREQ2 =
+    static final byte REOP_ALTPREREQ2 =
             REOP_ALTPREREQi + 1; /* prerequisite for ALT, a char or a class */
-    private static final byte REOP_ASSERTBACK =
+    static final byte REOP_ASSERTBACK =
             REOP_ALTPREREQ2 + 1; /* zero width positive lookbehind assertion */
-    private static final byte REOP_ASSERTBACK_NOT =
+    static final byte REOP_ASSERTBACK_NOT =
             REOP_ASSERTBACK + 1; /* zero width negative lookbehind assertion */
-    private static final byte REOP_ASSERTBACKTEST =
+    static final byte REOP_ASSERTBACKTEST =
             REOP_ASSERTBACK_NOT + 1; /* sentinel at end of assertion child */
-    private static final byte REOP_ASSERTBACKNOTTEST =
+    static final byte REOP_ASSERTBACKNOTTEST =
             REOP_ASSERTBACKTEST + 1; /* sentinel at end of !assertion child */
 
-    private static final byte REOP_END = REOP_ASSERTBACKNOTTEST + 1;
+    static final byte REOP_END = REOP_ASSERTBACKNOTTEST + 1;
 
-    private static final int ANCHOR_BOL = -2;
+    static final int ANCHOR_BOL = -2;
+
+    private static volatile boolean linearMatching =
+            RhinoConfig.get("rhino.regexp.linearMatching", false);
 
     static Object init(Context cx, Scriptable scope, boolean sealed) {
 
@@ -226,7 +228,7 @@ public class NativeRegExp extends IdScriptableObject {
                 throw ScriptRuntime.typeErrorById("msg.bad.regexp.compile");
             }
 
-            this.re = compileRE(cx, pattern, flags, false);
+            this.re = RegExpCache.compile(cx, pattern, flags, false);
         }
         setLastIndex(ScriptRuntime.zeroObj);
         return this;
@@ -258,6 +260,32 @@ public class NativeRegExp extends IdScriptableObject {
 
     NativeRegExp() {}
 
+    /**
+     * Return true if this regular expression is matched in time proportional to the length of the
+     * input, rather than by backtracking, which can take exponential time on some patterns.
+     *
+     * @see #setLinearMatching(boolean)
+     */
+    public boolean isLinearTime() {
+        return re.linearMatcher != null;
+    }
+
+    /**
+     * Choose whether regular expressions compiled from now on are matched in linear time when
+     * possible. This is the case for patterns without back references, lookaround assertions and
+     * the unicode flag, whose quantifiers do not apply to subexpressions that can match the empty
+     * string. Other patterns are always matched by backtracking. The default is given by the
+     * "rhino.regexp.linearMatching" configuration property, and is false if it is not set.
+     */
+    public static void setLinearMatching(boolean enabled) {
+        linearMatching = enabled;
+    }
+
+    /** Return true if regular expressions are matched in linear time when possible. */
+    public static boolean isLinearMatching() {
+        return linearMatching;
+    }
+
     private static RegExpImpl getImpl(Context cx) {
         return (RegExpImpl) ScriptRuntime.getRegExpProxy(cx);
     }
@@ -634,6 +662,15 @@ public class NativeRegExp extends IdScriptableObject {
     }
 
     static RECompiled compileRE(Context cx, String str, String global, boolean flat) {
+        return compileRE(cx, str, global, flat, linearMatching);
+    }
+
+    /**
+     * Compile a pattern, building a linear-time matcher for it if {@code linear} is true and the
+     * pattern allows it.
+     */
+    static RECompiled compileRE(
+            Context cx, String str, String global, boolean flat, boolean linear) {
         RECompiled regexp = new RECompiled(str);
         int length = str.length();
         int flags = 0;
@@ -770,6 +807,10 @@ public class NativeRegExp extends IdScriptableObject {
                 break;
         }
 
+        if (linear) {
+            regexp.linearMatcher = LinearMatcher.build(regexp, state.result);
+        }
+
         if (debug) {
             if (regexp.anchorCodePoint >= 0) {
                 System.out.println("Anchor ch = '" + (char) regexp.anchorCodePoint + "'");
@@ -782,7 +823,7 @@ public class NativeRegExp extends IdScriptableObject {
         return '0' <= c && c <= '9';
     }
 
-    private static boolean isWord(char c) {
+    static boolean isWord(char c) {
         return ('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z') || isDigit(c) || c == '_';
     }
 
@@ -790,11 +831,11 @@ public class NativeRegExp extends IdScriptableObject {
         return ('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z');
     }
 
-    private static boolean isLineTerm(char c) {
+    static boolean isLineTerm(char c) {
         return ScriptRuntime.isJSLineTerminator(c);
     }
 
-    private static boolean isREWhiteSpace(int c) {
+    static boolean isREWhiteSpace(int c) {
         return ScriptRuntime.isJSWhitespaceOrLineTerminator(c);
     }
 
@@ -809,7 +850,7 @@ public class NativeRegExp extends IdScriptableObject {
      *    code point value is less than decimal 128, then return ch.
      * 6. Return cu.
      */
-    private static char upcase(char ch) {
+    static char upcase(char ch) {
         if (ch < 128) {
             if ('a' <= ch && ch <= 'z') {
                 return (char) (ch + ('A' - 'a'));
@@ -2054,11 +2095,11 @@ public class NativeRegExp extends IdScriptableObject {
         return pc + 2;
     }
 
-    private static int getIndex(byte[] array, int pc) {
+    static int getIndex(byte[] array, int pc) {
         return ((array[pc] & 0xFF) << 8) | (array[pc + 1] & 0xFF);
     }
 
-    private static final int INDEX_LEN = 2;
+    static final int INDEX_LEN = 2;
 
     private static int emitREBytecode(CompilerState state, RECompiled re, int pc, RENode t) {
         RENode nextAlt;
@@ -2505,7 +2546,7 @@ public class NativeRegExp extends IdScriptableObject {
      *   Initialize the character set if it is the first call.
      *   Test the bit - if the ^ flag was specified, non-inclusion is a success
      */
-    private static boolean classMatcher(REGlobalData gData, RECharSet charSet, int codePoint) {
+    static boolean classMatcher(REGlobalData gData, RECharSet charSet, int codePoint) {
         if (!charSet.converted) {
             processCharSet(gData, charSet);
         }
@@ -3437,7 +3478,13 @@ public class NativeRegExp extends IdScriptableObject {
         gData.multiline = multiline || (re.flags & JSREG_MULTILINE) != 0;
         gData.regexp = re;
 
+        if (re.linearMatcher != null) {
+            return re.linearMatcher.match(cx, gData, input, start, end);
+        }
+
         int anchorCodePoint = gData.regexp.anchorCodePoint;
+        CompiledRegExp matcher =
+                cx.getInstructionObserverThreshold() == 0 ? CompiledRegExp.getMatcher(re) : null;
         //
         // have to include the position beyond the last character
         //  in order to detect end-of-input/line condition
@@ -3483,7 +3530,10 @@ public class NativeRegExp extends IdScriptableObject {
             for (int j = 0; j < re.parenCount; j++) {
                 gData.parens[j] = -1L;
             }
-            boolean result = executeREBytecode(cx, gData, input, end);
+            boolean result =
+                    matcher != null
+                            ? matcher.execute(gData, input, end)
+                            : executeREBytecode(cx, gData, input, end);
 
             gData.backTrackStackTop = null;
             gData.stateStackTop = null;
@@ -4349,66 +4399,6 @@ public class NativeRegExp extends IdScriptableObject {
     private int lastIndexAttr = DONTENUM | PERMANENT;
 } // class NativeRegExp
 
-class RECompiled implements Serializable {
-    private static final long serialVersionUID = -6144956577595844213L;
-
-    final char[] source; /* locked source string, sans // */
-    int parenCount; /* number of parenthesized submatches */
-    Map<String, List<Integer>>
-            namedCaptureGroups; // List<Int> to handle duplicate names in disjunctions
-    ArrayList<String> namedBackRefs; // List of named back references
-    int flags; /* flags  */
-    byte[] program; /* regular expression bytecode */
-    int classCount; /* count [...] bitmaps */
-    RECharSet[] classList; /* list of [...] bitmaps */
-    int anchorCodePoint = -1; /* if >= 0, then re starts with this literal char */
-
-    RECompiled(String str) {
-        this.source = str.toCharArray();
-    }
-}
-
-class RENode {
-
-    RENode(byte op) {
-        this.op = op;
-    }
-
-    byte op; /* r.e. op bytecode */
-    RENode next; /* next in concatenation order */
-    RENode kid; /* first operand */
-
-    RENode kid2; /* second operand */
-    int parenIndex; /* or a parenthesis index */
-
-    /* or a range */
-    int min;
-    int max;
-    int parenCount;
-    boolean greedy;
-
-    /* or a character class */
-    int bmsize; /* bitmap size, based on max char code */
-    int index; /* index into class list */
-    NativeRegExp.ClassContents classContents;
-
-    /* or a literal sequence */
-    char chr; /* of one character */
-    char
-            lowSurrogate; /* low surrogate, if chr is high surrogate that is part of a surrogate pair */
-    int length; /* or many (via the index) */
-    int flatIndex; /* which is -1 if not sourced */
-
-    /* or a named capture group */
-    String namedCaptureGroupName;
-
-    /* or a back reference to a named capture group */
-    int namedCaptureGroupBackRefIndex;
-
-    /* or a unicode property */
-    int unicodeProperty; // encoded using UnicodeProperty.encode()
-}
-
 class CompilerState {
 
     CompilerState(Context cx, char[] source, int length, int flags) {
@@ -4442,115 +4432,3 @@ class CompilerState {
     ArrayList<String> namedCaptureBackRefs;
     RENode result;
 }
-
-class REProgState {
-    REProgState(
-            REProgState previous,
-            int min,
-            int max,
-            int index,
-            REBackTrackData backTrack,
-            boolean matchBackward,
-            int continuationOp,
-            int continuationPc) {
-        this.previous = previous;
-        this.min = min;
-        this.max = max;
-        this.index = index;
-        this.continuationOp = continuationOp;
-        this.continuationPc = continuationPc;
-        this.backTrack = backTrack;
-        this.matchBackward = matchBackward;
-    }
-
-    final REProgState previous; // previous state in stack
-
-    final int min; /* current quantifier min */
-    final int max; /* current quantifier max */
-    final int index; /* progress in text */
-    final int continuationOp;
-    final int continuationPc;
-    final REBackTrackData backTrack; // used by ASSERT_  to recover state
-    final boolean matchBackward;
-}
-
-class REBackTrackData {
-
-    REBackTrackData(
-            REGlobalData gData, int op, int pc, int cp, int continuationOp, int continuationPc) {
-        previous = gData.backTrackStackTop;
-        this.op = op;
-        this.pc = pc;
-        this.cp = cp;
-        this.continuationOp = continuationOp;
-        this.continuationPc = continuationPc;
-        parens = gData.parens;
-        stateStackTop = gData.stateStackTop;
-    }
-
-    final REBackTrackData previous;
-
-    final int op; /* operator */
-    final int pc; /* bytecode pointer */
-    final int cp; /* char buffer index */
-    final int continuationOp; /* continuation op */
-    final int continuationPc; /* continuation pc */
-    final long[] parens; /* parenthesis captures */
-    final REProgState stateStackTop; /* state of op that backtracked */
-}
-
-class REGlobalData {
-    boolean multiline;
-    RECompiled regexp; /* the RE in execution */
-    int skipped; /* chars skipped anchoring this r.e. */
-
-    int cp; /* char buffer index */
-    long[] parens; /* parens captures */
-
-    REProgState stateStackTop; /* stack of state of current ancestors */
-
-    REBackTrackData backTrackStackTop; /* last matched-so-far position */
-
-    /** Get start of parenthesis capture contents, -1 for empty. */
-    int parensIndex(int i) {
-        return (int) parens[i];
-    }
-
-    /** Get length of parenthesis capture contents. */
-    int parensLength(int i) {
-        return (int) (parens[i] >>> 32);
-    }
-
-    void setParens(int i, int index, int length) {
-        // clone parens array if it is shared with backtrack state
-        if (backTrackStackTop != null && backTrackStackTop.parens == parens) {
-            parens = parens.clone();
-        }
-        parens[i] = (index & 0xffffffffL) | ((long) length << 32);
-    }
-}
-
-/*
- * This struct holds a bitmap representation of a class from a regexp.
- * There's a list of these referenced by the classList field in the NativeRegExp
- * struct below. The initial state has startIndex set to the offset in the
- * original regexp source of the beginning of the class contents. The first
- * use of the class converts the source representation into a bitmap.
- *
- */
-final class RECharSet implements Serializable {
-    private static final long serialVersionUID = 7931787979395898394L;
-    ArrayList<Integer> unicodeProps = new ArrayList<Integer>();
-    ArrayList<Integer> negUnicodeProps = new ArrayList<Integer>();
-
-    RECharSet(NativeRegExp.ClassContents classContents, int length) {
-        this.length = length;
-        this.classContents = classContents;
-    }
-
-    final int length;
-    final NativeRegExp.ClassContents classContents;
-
-    transient volatile boolean converted;
-    transient volatile byte[] bits;
-}
@@ -0,0 +1,32 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.regexp;
+
+class REBackTrackData {
+
+    REBackTrackData(
+            REGlobalData gData, int op, int pc, int cp, int continuationOp, int continuationPc) {
+        previous = gData.backTrackStackTop;
+        this.op = op;
+        this.pc = pc;
+        this.cp = cp;
+        this.continuationOp = continuationOp;
+        this.continuationPc = continuationPc;
+        parens = gData.parens;
+        stateStackTop = gData.stateStackTop;
+    }
+
+    final REBackTrackData previous;
+
+    final int op; /* operator */
+    final int pc; /* bytecode pointer */
+    final int cp; /* char buffer index */
+    final int continuationOp; /* continuation op */
+    final int continuationPc; /* continuation pc */
+    final long[] parens; /* parenthesis captures */
+    final REProgState stateStackTop; /* state of op that backtracked */
+}
@@ -0,0 +1,35 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.regexp;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/*
+ * This struct holds a bitmap representation of a class from a regexp.
+ * There's a list of these referenced by the classList field in the NativeRegExp
+ * struct below. The initial state has startIndex set to the offset in the
+ * original regexp source of the beginning of the class contents. The first
+ * use of the class converts the source representation into a bitmap.
+ *
+ */
+final class RECharSet implements Serializable {
+    private static final long serialVersionUID = 7931787979395898394L;
+    ArrayList<Integer> unicodeProps = new ArrayList<Integer>();
+    ArrayList<Integer> negUnicodeProps = new ArrayList<Integer>();
+
+    RECharSet(NativeRegExp.ClassContents classContents, int length) {
+        this.length = length;
+        this.classContents = classContents;
+    }
+
+    final int length;
+    final NativeRegExp.ClassContents classContents;
+
+    transient volatile boolean converted;
+    transient volatile byte[] bits;
+}
@@ -0,0 +1,42 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.regexp;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+class RECompiled implements Serializable {
+    private static final long serialVersionUID = -6144956577595844213L;
+
+    final char[] source; /* locked source string, sans // */
+    int parenCount; /* number of parenthesized submatches */
+    Map<String, List<Integer>>
+            namedCaptureGroups; // List<Int> to handle duplicate names in disjunctions
+    ArrayList<String> namedBackRefs; // List of named back references
+    int flags; /* flags  */
+    byte[] program; /* regular expression bytecode */
+    int classCount; /* count [...] bitmaps */
+    RECharSet[] classList; /* list of [...] bitmaps */
+    int anchorCodePoint = -1; /* if >= 0, then re starts with this literal char */
+
+    LinearMatcher linearMatcher; /* null if the pattern must be matched by backtracking */
+    // The same RECompiled may be shared by threads through RegExpCache, so these are volatile,
+    // and the count is incremented atomically so that no execution is lost
+    transient volatile int executionCount; /* number of executions, counted until compiled */
+    transient volatile CompiledRegExp matcher; /* compiled form, if any */
+    transient volatile boolean cannotCompile; /* uses features that cannot be compiled */
+
+    static final AtomicIntegerFieldUpdater<RECompiled> EXECUTION_COUNT =
+            AtomicIntegerFieldUpdater.newUpdater(RECompiled.class, "executionCount");
+
+    RECompiled(String str) {
+        this.source = str.toCharArray();
+    }
+}
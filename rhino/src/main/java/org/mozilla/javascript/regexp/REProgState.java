@@ -0,0 +1,38 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.regexp;
+
+class REProgState {
+    REProgState(
+            REProgState previous,
+            int min,
+            int max,
+            int index,
+            REBackTrackData backTrack,
+            boolean matchBackward,
+            int continuationOp,
+            int continuationPc) {
+        this.previous = previous;
+        this.min = min;
+        this.max = max;
+        this.index = index;
+        this.continuationOp = continuationOp;
+        this.continuationPc = continuationPc;
+        this.backTrack = backTrack;
+        this.matchBackward = matchBackward;
+    }
+
+    final REProgState previous; // previous state in stack
+
+    final int min; /* current quantifier min */
+    final int max; /* current quantifier max */
+    final int index; /* progress in text */
+    final int continuationOp;
+    final int continuationPc;
+    final REBackTrackData backTrack; // used by ASSERT_  to recover state
+    final boolean matchBackward;
+}
@@ -0,0 +1,167 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.regexp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import org.mozilla.javascript.Context;
+
+/**
+ * A process-wide cache of compiled regular expressions, used when a string is turned into a
+ * regular expression by String.prototype.match, search, replace and split, and by the RegExp
+ * constructor. Compiled programs are never modified once they are built, so the same one may be
+ * used by any number of RegExp objects in any number of Contexts at once.
+ *
+ * <p>The cache holds up to a fixed number of entries and evicts the least recently used one when it
+ * is full. All operations are synchronized, which is fine because a lookup is very cheap compared
+ * to parsing the pattern.
+ */
+public final class RegExpCache {
+    /** The default maximum number of entries. */
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private static int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    private static final LinkedHashMap<Key, RECompiled> entries =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, RECompiled> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+
+    private RegExpCache() {}
+
+    /**
+     * Return the compiled form of a pattern, compiling it if it is not in the cache. Patterns that
+     * fail to compile are not cached, so the error is reported every time.
+     */
+    static RECompiled compile(Context cx, String source, String flags, boolean flat) {
+        if (cx.hasFeature(Context.FEATURE_STRICT_MODE)) {
+            // The compiler may report warnings, which would be lost on a hit
+            return NativeRegExp.compileRE(cx, source, flags, flat);
+        }
+        // Whether a pattern gets a linear-time matcher is decided when it is compiled, so the
+        // setting is part of the key and the entries built before it changed are not reused
+        boolean linear = NativeRegExp.isLinearMatching();
+        Key key =
+                new Key(
+                        source,
+                        flags,
+                        flat,
+                        cx.getLanguageVersion() >= Context.VERSION_ES6,
+                        linear);
+        RECompiled compiled;
+        synchronized (entries) {
+            compiled = entries.get(key);
+        }
+        if (compiled != null) {
+            hits.incrementAndGet();
+            return compiled;
+        }
+        misses.incrementAndGet();
+        compiled = NativeRegExp.compileRE(cx, source, flags, flat, linear);
+        if (compiled != null) {
+            synchronized (entries) {
+                entries.put(key, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Change the maximum number of entries, evicting the least recently used ones if there are
+     * more than that. Zero disables the cache.
+     */
+    public static void setMaxEntries(int max) {
+        if (max < 0) {
+            throw new IllegalArgumentException("max must not be negative");
+        }
+        synchronized (entries) {
+            maxEntries = max;
+            var it = entries.entrySet().iterator();
+            while (entries.size() > max && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    /** Return the maximum number of entries. */
+    public static int getMaxEntries() {
+        synchronized (entries) {
+            return maxEntries;
+        }
+    }
+
+    /** Remove all the entries and reset the counters. */
+    public static void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /** Return the number of entries currently in the cache. */
+    public static int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /** Return the number of lookups that found an entry. */
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    /** Return the number of lookups that did not find an entry. */
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+    private static final class Key {
+        private final String source;
+        private final String flags;
+        private final boolean flat;
+        private final boolean es6;
+        private final boolean linear;
+
+        Key(String source, String flags, boolean flat, boolean es6, boolean linear) {
+            this.source = source;
+            this.flags = flags;
+            this.flat = flat;
+            this.es6 = es6;
+            this.linear = linear;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return flat == k.flat
+                    && es6 == k.es6
+                    && linear == k.linear
+                    && source.equals(k.source)
+                    && Objects.equals(flags, k.flags);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, flags, flat, es6, linear);
+        }
+    }
+}
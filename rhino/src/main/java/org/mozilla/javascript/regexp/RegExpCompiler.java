@@ -0,0 +1,661 @@
+/* -*- Mode: java; tab-width: 8; indent-tabs-mode: nil; c-basic-offset: 4 -*-
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.regexp;
+
+import static org.mozilla.javascript.regexp.NativeRegExp.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.mozilla.classfile.ByteCode;
+import org.mozilla.classfile.ClassFileWriter;
+import org.mozilla.javascript.GeneratedClassLoader;
+import org.mozilla.javascript.SecurityController;
+
+/**
+ * Translates the program of a regular expression into a subclass of {@link CompiledRegExp}.
+ *
+ * <p>Each term of the regular expression becomes a method that takes the current position, matches
+ * the term and calls the method of the term that follows it, so that backtracking is simply a
+ * return of false to the caller. This is the same continuation passing structure as the matcher in
+ * the ECMAScript specification. Quantifiers are only compiled when they apply to a single
+ * character, a character class or a flat string, and are then matched by a counting loop.
+ *
+ * <p>Patterns that use the unicode flag, back references, lookaround assertions, unicode
+ * properties or quantified groups are not compiled.
+ */
+final class RegExpCompiler {
+    private static final String SUPER_CLASS = CompiledRegExp.class.getName();
+    private static final String MATCH_SIGNATURE = "(I)Z";
+
+    // Keeps both the generated class and the Java stack of the matcher small
+    private static final int MAX_TERMS = 1000;
+
+    private static final AtomicInteger serial = new AtomicInteger();
+
+    private final RECompiled re;
+    private final byte[] program;
+    private final ArrayList<Term> terms = new ArrayList<>();
+    private int pc;
+    private boolean unsupported;
+
+    private String className;
+    private ClassFileWriter cfw;
+
+    private RegExpCompiler(RECompiled re) {
+        this.re = re;
+        this.program = re.program;
+    }
+
+    /**
+     * Compile the regular expression, or return null if it uses features that are not supported.
+     */
+    static CompiledRegExp compile(RECompiled re) {
+        if ((re.flags & JSREG_UNICODE) != 0) {
+            return null;
+        }
+        RegExpCompiler compiler = new RegExpCompiler(re);
+        Term first = compiler.parseSequence();
+        if (compiler.unsupported
+                || compiler.program[compiler.pc] != REOP_END
+                || compiler.terms.size() > MAX_TERMS) {
+            return null;
+        }
+        byte[] bytes = compiler.generate(first);
+        return compiler.load(bytes);
+    }
+
+    private CompiledRegExp load(byte[] bytes) {
+        ClassLoader rhinoLoader = getClass().getClassLoader();
+        GeneratedClassLoader loader = SecurityController.createLoader(rhinoLoader, null);
+        try {
+            Class<?> cl = loader.defineClass(className, bytes);
+            loader.linkClass(cl);
+            return (CompiledRegExp) cl.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | SecurityException | LinkageError e) {
+            // Fall back to the interpreter rather than failing the match
+            return null;
+        }
+    }
+
+    private abstract static class Term {
+        Term next;
+        String name;
+    }
+
+    /** A single character test, a flat string or a zero width test such as "^". */
+    private static final class Atom extends Term {
+        final byte op;
+        final int operand;
+        final int length;
+
+        Atom(byte op, int operand, int length) {
+            this.op = op;
+            this.operand = operand;
+            this.length = length;
+        }
+
+        int width() {
+            switch (op) {
+                case REOP_BOL:
+                case REOP_EOL:
+                case REOP_WBDRY:
+                case REOP_WNONBDRY:
+                    return 0;
+                case REOP_FLAT:
+                case REOP_FLATi:
+                    return length;
+                default:
+                    return 1;
+            }
+        }
+    }
+
+    private static final class Quantifier extends Term {
+        final Atom kid;
+        final int min;
+        final int max; // -1 if unbounded
+        final boolean greedy;
+
+        Quantifier(Atom kid, int min, int max, boolean greedy) {
+            this.kid = kid;
+            this.min = min;
+            this.max = max;
+            this.greedy = greedy;
+        }
+    }
+
+    private static final class Group extends Term {
+        final int index;
+        final Term kid;
+        String closeName;
+
+        Group(int index, Term kid) {
+            this.index = index;
+            this.kid = kid;
+        }
+    }
+
+    private static final class Alternative extends Term {
+        final Term first;
+        final Term second;
+
+        Alternative(Term first, Term second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    /**
+     * Parse terms until the end of the program or of the enclosing construct, leaving pc at the
+     * opcode that ends the sequence.
+     */
+    private Term parseSequence() {
+        Term head = null;
+        Term tail = null;
+        while (!unsupported) {
+            byte op = program[pc];
+            if (op == REOP_END
+                    || op == REOP_JUMP
+                    || op == REOP_RPAREN
+                    || op == REOP_ENDCHILD) {
+                break;
+            }
+            pc++;
+            Term t = parseTerm(op);
+            if (t == null) {
+                continue;
+            }
+            t.name = "term" + terms.size();
+            terms.add(t);
+            if (head == null) {
+                head = t;
+            } else {
+                tail.next = t;
+            }
+            tail = t;
+        }
+        return head;
+    }
+
+    private Term parseTerm(byte op) {
+        switch (op) {
+            case REOP_EMPTY:
+                return null;
+            case REOP_BOL:
+            case REOP_EOL:
+            case REOP_WBDRY:
+            case REOP_WNONBDRY:
+            case REOP_DOT:
+            case REOP_DIGIT:
+            case REOP_NONDIGIT:
+            case REOP_ALNUM:
+            case REOP_NONALNUM:
+            case REOP_SPACE:
+            case REOP_NONSPACE:
+                return new Atom(op, 0, 0);
+            case REOP_FLAT1:
+            case REOP_FLAT1i:
+                return new Atom(op, program[pc++] & 0xFF, 0);
+            case REOP_UCFLAT1:
+            case REOP_UCFLAT1i:
+            case REOP_CLASS:
+            case REOP_NCLASS:
+                {
+                    int operand = readIndex();
+                    return new Atom(op, operand, 0);
+                }
+            case REOP_FLAT:
+            case REOP_FLATi:
+                {
+                    int offset = readIndex();
+                    int length = readIndex();
+                    return new Atom(op, offset, length);
+                }
+            case REOP_ALTPREREQ:
+            case REOP_ALTPREREQi:
+            case REOP_ALTPREREQ2:
+                // The prerequisite only lets the interpreter skip the alternatives early
+                pc += 2 * INDEX_LEN;
+            // fall through
+            case REOP_ALT:
+                return parseAlternative();
+            case REOP_LPAREN:
+                {
+                    int index = readIndex();
+                    Term kid = parseSequence();
+                    if (unsupported || program[pc] != REOP_RPAREN) {
+                        unsupported = true;
+                        return null;
+                    }
+                    pc += 1 + INDEX_LEN;
+                    Group group = new Group(index, kid);
+                    group.closeName = "close" + terms.size();
+                    return group;
+                }
+            case REOP_STAR:
+                return parseQuantifier(0, -1, true);
+            case REOP_PLUS:
+                return parseQuantifier(1, -1, true);
+            case REOP_OPT:
+                return parseQuantifier(0, 1, true);
+            case REOP_MINIMALSTAR:
+                return parseQuantifier(0, -1, false);
+            case REOP_MINIMALPLUS:
+                return parseQuantifier(1, -1, false);
+            case REOP_MINIMALOPT:
+                return parseQuantifier(0, 1, false);
+            case REOP_QUANT:
+            case REOP_MINIMALQUANT:
+                {
+                    int min = readIndex();
+                    int max = readIndex() - 1;
+                    return parseQuantifier(min, max, op == REOP_QUANT);
+                }
+            default:
+                // Back references, assertions and unicode matching
+                unsupported = true;
+                return null;
+        }
+    }
+
+    private Term parseAlternative() {
+        int nextAlt = pc + getIndex(program, pc);
+        pc += INDEX_LEN;
+        Term first = parseSequence();
+        if (unsupported || program[pc] != REOP_JUMP) {
+            unsupported = true;
+            return null;
+        }
+        pc++;
+        int after = pc + getIndex(program, pc);
+        pc = nextAlt;
+        Term second = parseSequence();
+        if (unsupported || program[pc] != REOP_JUMP) {
+            unsupported = true;
+            return null;
+        }
+        pc = after;
+        return new Alternative(first, second);
+    }
+
+    private Term parseQuantifier(int min, int max, boolean greedy) {
+        int parenCount = readIndex();
+        pc += INDEX_LEN; // parenIndex
+        pc += INDEX_LEN; // offset of the next term
+        int start = terms.size();
+        Term kid = parseSequence();
+        if (unsupported || program[pc] != REOP_ENDCHILD) {
+            unsupported = true;
+            return null;
+        }
+        pc++;
+        if (parenCount != 0
+                || !(kid instanceof Atom)
+                || kid.next != null
+                || ((Atom) kid).width() == 0) {
+            unsupported = true;
+            return null;
+        }
+        // The kid is matched inline by the quantifier, so it does not need its own method
+        terms.subList(start, terms.size()).clear();
+        return new Quantifier((Atom) kid, min, max, greedy);
+    }
+
+    private int readIndex() {
+        int index = getIndex(program, pc);
+        pc += INDEX_LEN;
+        return index;
+    }
+
+    private byte[] generate(Term first) {
+        className = "org.mozilla.javascript.gen.RegExp_" + serial.incrementAndGet();
+        cfw = new ClassFileWriter(className, SUPER_CLASS, "<regexp>");
+
+        cfw.startMethod("<init>", "()V", ClassFileWriter.ACC_PUBLIC);
+        cfw.addALoad(0);
+        cfw.addInvoke(ByteCode.INVOKESPECIAL, SUPER_CLASS, "<init>", "()V");
+        cfw.add(ByteCode.RETURN);
+        cfw.stopMethod(1);
+
+        cfw.startMethod(
+                "newMatcher",
+                "()L" + SUPER_CLASS.replace('.', '/') + ";",
+                ClassFileWriter.ACC_PUBLIC);
+        cfw.add(ByteCode.NEW, className);
+        cfw.add(ByteCode.DUP);
+        cfw.addInvoke(ByteCode.INVOKESPECIAL, className, "<init>", "()V");
+        cfw.add(ByteCode.ARETURN);
+        cfw.stopMethod(1);
+
+        cfw.startMethod("matchAt", MATCH_SIGNATURE, ClassFileWriter.ACC_PUBLIC);
+        addCall(entry(first, "matched"), 1);
+        cfw.add(ByteCode.IRETURN);
+        cfw.stopMethod(2);
+
+        cfw.startMethod("matched", MATCH_SIGNATURE, ClassFileWriter.ACC_PRIVATE);
+        cfw.addALoad(0);
+        cfw.addILoad(1);
+        cfw.add(ByteCode.PUTFIELD, SUPER_CLASS, "matchEnd", "I");
+        cfw.add(ByteCode.ICONST_1);
+        cfw.add(ByteCode.IRETURN);
+        cfw.stopMethod(2);
+
+        generateSequence(first, "matched");
+        return cfw.toByteArray();
+    }
+
+    private static String entry(Term sequence, String continuation) {
+        return sequence == null ? continuation : sequence.name;
+    }
+
+    private void generateSequence(Term t, String continuation) {
+        for (; t != null; t = t.next) {
+            String next = t.next == null ? continuation : t.next.name;
+            if (t instanceof Atom) {
+                generateAtom((Atom) t, next);
+            } else if (t instanceof Quantifier) {
+                generateQuantifier((Quantifier) t, next);
+            } else if (t instanceof Group) {
+                generateGroup((Group) t, next);
+            } else {
+                generateAlternative((Alternative) t, next);
+            }
+        }
+    }
+
+    /** Call a generated method with the position in a local variable, leaving the result. */
+    private void addCall(String name, int cpLocal) {
+        cfw.addALoad(0);
+        cfw.addILoad(cpLocal);
+        cfw.addInvoke(ByteCode.INVOKESPECIAL, className, name, MATCH_SIGNATURE);
+    }
+
+    private void addFail(int label) {
+        cfw.markLabel(label);
+        cfw.add(ByteCode.ICONST_0);
+        cfw.add(ByteCode.IRETURN);
+    }
+
+    private void generateAtom(Atom atom, String continuation) {
+        cfw.startMethod(atom.name, MATCH_SIGNATURE, ClassFileWriter.ACC_PRIVATE);
+        cfw.add(ByteCode.ICONST_0);
+        cfw.addIStore(2);
+        int fail = cfw.acquireLabel();
+        addAtomTest(atom, 1, 2, fail);
+        cfw.addALoad(0);
+        cfw.addILoad(1);
+        int width = atom.width();
+        if (width != 0) {
+            cfw.addPush(width);
+            cfw.add(ByteCode.IADD);
+        }
+        cfw.addInvoke(ByteCode.INVOKESPECIAL, className, continuation, MATCH_SIGNATURE);
+        cfw.add(ByteCode.IRETURN);
+        addFail(fail);
+        cfw.stopMethod(3);
+    }
+
+    /**
+     * Test the atom at the position in cpLocal, jumping to fail if it does not match. charLocal
+     * is used to hold the character being tested.
+     */
+    private void addAtomTest(Atom atom, int cpLocal, int charLocal, int fail) {
+        switch (atom.op) {
+            case REOP_BOL:
+                addPositionTest("isBol", cpLocal, ByteCode.IFEQ, fail);
+                return;
+            case REOP_EOL:
+                addPositionTest("isEol", cpLocal, ByteCode.IFEQ, fail);
+                return;
+            case REOP_WBDRY:
+                addPositionTest("isWordBoundary", cpLocal, ByteCode.IFEQ, fail);
+                return;
+            case REOP_WNONBDRY:
+                addPositionTest("isWordBoundary", cpLocal, ByteCode.IFNE, fail);
+                return;
+            case REOP_FLAT:
+            case REOP_FLATi:
+                cfw.addALoad(0);
+                cfw.addILoad(cpLocal);
+                cfw.addPush(atom.operand);
+                cfw.addPush(atom.length);
+                cfw.addInvoke(
+                        ByteCode.INVOKEVIRTUAL,
+                        SUPER_CLASS,
+                        atom.op == REOP_FLAT ? "flat" : "flatFold",
+                        "(III)Z");
+                cfw.add(ByteCode.IFEQ, fail);
+                return;
+            default:
+                break;
+        }
+
+        cfw.addILoad(cpLocal);
+        cfw.addALoad(0);
+        cfw.add(ByteCode.GETFIELD, SUPER_CLASS, "end", "I");
+        cfw.add(ByteCode.IF_ICMPGE, fail);
+        cfw.addALoad(0);
+        cfw.add(ByteCode.GETFIELD, SUPER_CLASS, "input", "Ljava/lang/String;");
+        cfw.addILoad(cpLocal);
+        cfw.addInvoke(ByteCode.INVOKEVIRTUAL, "java/lang/String", "charAt", "(I)C");
+        cfw.addIStore(charLocal);
+
+        switch (atom.op) {
+            case REOP_DOT:
+                if ((re.flags & JSREG_DOTALL) == 0) {
+                    addCharTest("isLineTerm", charLocal, ByteCode.IFNE, fail);
+                }
+                break;
+            case REOP_DIGIT:
+                addCharTest("isDigit", charLocal, ByteCode.IFEQ, fail);
+                break;
+            case REOP_NONDIGIT:
+                addCharTest("isDigit", charLocal, ByteCode.IFNE, fail);
+                break;
+            case REOP_ALNUM:
+                addCharTest("isWord", charLocal, ByteCode.IFEQ, fail);
+                break;
+            case REOP_NONALNUM:
+                addCharTest("isWord", charLocal, ByteCode.IFNE, fail);
+                break;
+            case REOP_SPACE:
+                addCharTest("isSpace", charLocal, ByteCode.IFEQ, fail);
+                break;
+            case REOP_NONSPACE:
+                addCharTest("isSpace", charLocal, ByteCode.IFNE, fail);
+                break;
+            case REOP_FLAT1:
+            case REOP_UCFLAT1:
+                cfw.addILoad(charLocal);
+                cfw.addPush(atom.operand);
+                cfw.add(ByteCode.IF_ICMPNE, fail);
+                break;
+            case REOP_FLAT1i:
+            case REOP_UCFLAT1i:
+                {
+                    int matched = cfw.acquireLabel();
+                    cfw.addILoad(charLocal);
+                    cfw.addPush(atom.operand);
+                    cfw.add(ByteCode.IF_ICMPEQ, matched);
+                    cfw.addILoad(charLocal);
+                    cfw.addInvoke(ByteCode.INVOKESTATIC, SUPER_CLASS, "upcase", "(C)C");
+                    cfw.addPush(upcase((char) atom.operand));
+                    cfw.add(ByteCode.IF_ICMPNE, fail);
+                    cfw.markLabel(matched);
+                }
+                break;
+            case REOP_CLASS:
+            case REOP_NCLASS:
+                cfw.addALoad(0);
+                cfw.addPush(atom.operand);
+                cfw.addILoad(charLocal);
+                cfw.addInvoke(ByteCode.INVOKEVIRTUAL, SUPER_CLASS, "inClass", "(IC)Z");
+                cfw.add(ByteCode.IFEQ, fail);
+                break;
+            default:
+                throw new IllegalStateException(String.valueOf(atom.op));
+        }
+    }
+
+    private void addPositionTest(String method, int cpLocal, int branch, int fail) {
+        cfw.addALoad(0);
+        cfw.addILoad(cpLocal);
+        cfw.addInvoke(ByteCode.INVOKEVIRTUAL, SUPER_CLASS, method, "(I)Z");
+        cfw.add(branch, fail);
+    }
+
+    private void addCharTest(String method, int charLocal, int branch, int fail) {
+        cfw.addILoad(charLocal);
+        cfw.addInvoke(ByteCode.INVOKESTATIC, SUPER_CLASS, method, "(C)Z");
+        cfw.add(branch, fail);
+    }
+
+    private void generateQuantifier(Quantifier q, String continuation) {
+        // Locals: 1 the start, 2 the current position, 3 the count, 4 the current character
+        final int cp = 2, count = 3, ch = 4;
+        int width = q.kid.width();
+
+        cfw.startMethod(q.name, MATCH_SIGNATURE, ClassFileWriter.ACC_PRIVATE);
+        cfw.addILoad(1);
+        cfw.addIStore(cp);
+        cfw.add(ByteCode.ICONST_0);
+        cfw.addIStore(count);
+        cfw.add(ByteCode.ICONST_0);
+        cfw.addIStore(ch);
+        int fail = cfw.acquireLabel();
+
+        if (q.greedy) {
+            // Match as many as possible, then give them back one at a time
+            int loop = cfw.acquireLabel();
+            int done = cfw.acquireLabel();
+            int backtrack = cfw.acquireLabel();
+            int next = cfw.acquireLabel();
+
+            cfw.markLabel(loop);
+            if (q.max != -1) {
+                cfw.addILoad(count);
+                cfw.addPush(q.max);
+                cfw.add(ByteCode.IF_ICMPGE, done);
+            }
+            addAtomTest(q.kid, cp, ch, done);
+            cfw.add(ByteCode.IINC, cp, width);
+            cfw.add(ByteCode.IINC, count, 1);
+            cfw.add(ByteCode.GOTO, loop);
+
+            cfw.markLabel(done);
+            cfw.addILoad(count);
+            cfw.addPush(q.min);
+            cfw.add(ByteCode.IF_ICMPLT, fail);
+
+            cfw.markLabel(backtrack);
+            addCall(continuation, cp);
+            cfw.add(ByteCode.IFEQ, next);
+            cfw.add(ByteCode.ICONST_1);
+            cfw.add(ByteCode.IRETURN);
+
+            cfw.markLabel(next);
+            cfw.addILoad(count);
+            cfw.addPush(q.min);
+            cfw.add(ByteCode.IF_ICMPLE, fail);
+            addDecrement(cp, width);
+            addDecrement(count, 1);
+            cfw.add(ByteCode.GOTO, backtrack);
+        } else {
+            // Match the minimum, then one more each time the rest fails to match
+            int required = cfw.acquireLabel();
+            int attempt = cfw.acquireLabel();
+            int more = cfw.acquireLabel();
+
+            cfw.markLabel(required);
+            cfw.addILoad(count);
+            cfw.addPush(q.min);
+            cfw.add(ByteCode.IF_ICMPGE, attempt);
+            addAtomTest(q.kid, cp, ch, fail);
+            cfw.add(ByteCode.IINC, cp, width);
+            cfw.add(ByteCode.IINC, count, 1);
+            cfw.add(ByteCode.GOTO, required);
+
+            cfw.markLabel(attempt);
+            addCall(continuation, cp);
+            cfw.add(ByteCode.IFEQ, more);
+            cfw.add(ByteCode.ICONST_1);
+            cfw.add(ByteCode.IRETURN);
+
+            cfw.markLabel(more);
+            if (q.max != -1) {
+                cfw.addILoad(count);
+                cfw.addPush(q.max);
+                cfw.add(ByteCode.IF_ICMPGE, fail);
+            }
+            addAtomTest(q.kid, cp, ch, fail);
+            cfw.add(ByteCode.IINC, cp, width);
+            cfw.add(ByteCode.IINC, count, 1);
+            cfw.add(ByteCode.GOTO, attempt);
+        }
+
+        addFail(fail);
+        cfw.stopMethod(5);
+    }
+
+    private void addDecrement(int local, int amount) {
+        // IINC is only emitted with positive increments by ClassFileWriter
+        cfw.addILoad(local);
+        cfw.addPush(amount);
+        cfw.add(ByteCode.ISUB);
+        cfw.addIStore(local);
+    }
+
+    private void generateGroup(Group group, String continuation) {
+        cfw.startMethod(group.name, MATCH_SIGNATURE, ClassFileWriter.ACC_PRIVATE);
+        cfw.addALoad(0);
+        cfw.addPush(group.index);
+        cfw.addILoad(1);
+        cfw.addInvoke(ByteCode.INVOKEVIRTUAL, SUPER_CLASS, "openParen", "(II)V");
+        addCall(entry(group.kid, group.closeName), 1);
+        cfw.add(ByteCode.IRETURN);
+        cfw.stopMethod(2);
+
+        // Locals: 1 the position, 2-3 the previous capture
+        cfw.startMethod(group.closeName, MATCH_SIGNATURE, ClassFileWriter.ACC_PRIVATE);
+        cfw.addALoad(0);
+        cfw.addPush(group.index);
+        cfw.addILoad(1);
+        cfw.addInvoke(ByteCode.INVOKEVIRTUAL, SUPER_CLASS, "closeParen", "(II)J");
+        cfw.addLStore(2);
+        int fail = cfw.acquireLabel();
+        addCall(continuation, 1);
+        cfw.add(ByteCode.IFEQ, fail);
+        cfw.add(ByteCode.ICONST_1);
+        cfw.add(ByteCode.IRETURN);
+        cfw.markLabel(fail);
+        cfw.addALoad(0);
+        cfw.addPush(group.index);
+        cfw.addLLoad(2);
+        cfw.addInvoke(ByteCode.INVOKEVIRTUAL, SUPER_CLASS, "restoreParen", "(IJ)V");
+        cfw.add(ByteCode.ICONST_0);
+        cfw.add(ByteCode.IRETURN);
+        cfw.stopMethod(4);
+
+        generateSequence(group.kid, group.closeName);
+    }
+
+    private void generateAlternative(Alternative alt, String continuation) {
+        cfw.startMethod(alt.name, MATCH_SIGNATURE, ClassFileWriter.ACC_PRIVATE);
+        int second = cfw.acquireLabel();
+        addCall(entry(alt.first, continuation), 1);
+        cfw.add(ByteCode.IFEQ, second);
+        cfw.add(ByteCode.ICONST_1);
+        cfw.add(ByteCode.IRETURN);
+        cfw.markLabel(second);
+        addCall(entry(alt.second, continuation), 1);
+        cfw.add(ByteCode.IRETURN);
+        cfw.stopMethod(2);
+
+        generateSequence(alt.first, continuation);
+        generateSequence(alt.second, continuation);
+    }
+}
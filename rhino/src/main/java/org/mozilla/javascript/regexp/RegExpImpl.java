@@ -32,7 +32,7 @@ public class RegExpImpl implements RegExpProxy {
 
     @Override
     public Object compileRegExp(Context cx, String source, String flags) {
-        return NativeRegExp.compileRE(cx, source, flags, false);
+        return RegExpCache.compile(cx, source, flags, false);
     }
 
     @Override
@@ -177,7 +177,7 @@ public class RegExpImpl implements RegExpProxy {
         NativeRegExp re;
         Scriptable topScope = ScriptableObject.getTopLevelScope(scope);
         if (args.length == 0 || args[0] == Undefined.instance) {
-            RECompiled compiled = NativeRegExp.compileRE(cx, "", "", false);
+            RECompiled compiled = RegExpCache.compile(cx, "", "", false);
             re =
                     NativeRegExpInstantiator.withLanguageVersionScopeCompiled(
                             cx.getLanguageVersion(), topScope, compiled);
@@ -192,7 +192,7 @@ public class RegExpImpl implements RegExpProxy {
             } else {
                 opt = null;
             }
-            RECompiled compiled = NativeRegExp.compileRE(cx, src, opt, forceFlat);
+            RECompiled compiled = RegExpCache.compile(cx, src, opt, forceFlat);
             re =
                     NativeRegExpInstantiator.withLanguageVersionScopeCompiled(
                             cx.getLanguageVersion(), topScope, compiled);
@@ -45,12 +45,20 @@ public class ByteIo {
         return Short.valueOf(doReadInt16(buf, offset, littleEndian));
     }
 
+    public static short readInt16Primitive(byte[] buf, int offset, boolean littleEndian) {
+        return doReadInt16(buf, offset, littleEndian);
+    }
+
     public static void writeInt16(byte[] buf, int offset, int val, boolean littleEndian) {
         doWriteInt16(buf, offset, val, littleEndian);
     }
 
     public static Integer readUint16(byte[] buf, int offset, boolean littleEndian) {
-        return Integer.valueOf(doReadInt16(buf, offset, littleEndian) & 0xffff);
+        return Integer.valueOf(readUint16Primitive(buf, offset, littleEndian));
+    }
+
+    public static int readUint16Primitive(byte[] buf, int offset, boolean littleEndian) {
+        return doReadInt16(buf, offset, littleEndian) & 0xffff;
     }
 
     public static void writeUint16(byte[] buf, int offset, int val, boolean littleEndian) {
@@ -58,18 +66,20 @@ public class ByteIo {
     }
 
     public static Integer readInt32(byte[] buf, int offset, boolean littleEndian) {
+        return Integer.valueOf(readInt32Primitive(buf, offset, littleEndian));
+    }
+
+    public static int readInt32Primitive(byte[] buf, int offset, boolean littleEndian) {
         if (littleEndian) {
-            return Integer.valueOf(
-                    (buf[offset] & 0xff)
-                            | ((buf[offset + 1] & 0xff) << 8)
-                            | ((buf[offset + 2] & 0xff) << 16)
-                            | ((buf[offset + 3] & 0xff) << 24));
+            return (buf[offset] & 0xff)
+                    | ((buf[offset + 1] & 0xff) << 8)
+                    | ((buf[offset + 2] & 0xff) << 16)
+                    | ((buf[offset + 3] & 0xff) << 24);
         }
-        return Integer.valueOf(
-                ((buf[offset] & 0xff) << 24)
-                        | ((buf[offset + 1] & 0xff) << 16)
-                        | ((buf[offset + 2] & 0xff) << 8)
-                        | (buf[offset + 3] & 0xff));
+        return ((buf[offset] & 0xff) << 24)
+                | ((buf[offset + 1] & 0xff) << 16)
+                | ((buf[offset + 2] & 0xff) << 8)
+                | (buf[offset + 3] & 0xff);
     }
 
     public static void writeInt32(byte[] buf, int offset, int val, boolean littleEndian) {
@@ -163,18 +173,23 @@ public class ByteIo {
     }
 
     public static Float readFloat32(byte[] buf, int offset, boolean littleEndian) {
-        long base = readUint32Primitive(buf, offset, littleEndian);
-        return Float.valueOf(Float.intBitsToFloat((int) base));
+        return Float.valueOf(readFloat32Primitive(buf, offset, littleEndian));
+    }
+
+    public static float readFloat32Primitive(byte[] buf, int offset, boolean littleEndian) {
+        return Float.intBitsToFloat(readInt32Primitive(buf, offset, littleEndian));
     }
 
     public static void writeFloat32(byte[] buf, int offset, double val, boolean littleEndian) {
-        long base = Float.floatToIntBits((float) val);
-        writeUint32(buf, offset, base, littleEndian);
+        writeInt32(buf, offset, Float.floatToIntBits((float) val), littleEndian);
     }
 
     public static Double readFloat64(byte[] buf, int offset, boolean littleEndian) {
-        long base = readUint64Primitive(buf, offset, littleEndian);
-        return Double.valueOf(Double.longBitsToDouble(base));
+        return Double.valueOf(readFloat64Primitive(buf, offset, littleEndian));
+    }
+
+    public static double readFloat64Primitive(byte[] buf, int offset, boolean littleEndian) {
+        return Double.longBitsToDouble(readUint64Primitive(buf, offset, littleEndian));
     }
 
     public static void writeFloat64(byte[] buf, int offset, double val, boolean littleEndian) {
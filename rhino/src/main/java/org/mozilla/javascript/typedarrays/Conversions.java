@@ -14,12 +14,23 @@ public class Conversions {
         return (byte) ScriptRuntime.toInt32(arg);
     }
 
+    public static int toInt8(double arg) {
+        return (byte) ScriptRuntime.toInt32(arg);
+    }
+
     public static int toUint8(Object arg) {
         return ScriptRuntime.toInt32(arg) & 0xff;
     }
 
+    public static int toUint8(double arg) {
+        return ScriptRuntime.toInt32(arg) & 0xff;
+    }
+
     public static int toUint8Clamp(Object arg) {
-        double d = ScriptRuntime.toNumber(arg);
+        return toUint8Clamp(ScriptRuntime.toNumber(arg));
+    }
+
+    public static int toUint8Clamp(double d) {
         if (d <= 0.0) {
             return 0;
         }
@@ -45,15 +56,31 @@ public class Conversions {
         return (short) ScriptRuntime.toInt32(arg);
     }
 
+    public static int toInt16(double arg) {
+        return (short) ScriptRuntime.toInt32(arg);
+    }
+
     public static int toUint16(Object arg) {
         return ScriptRuntime.toInt32(arg) & 0xffff;
     }
 
+    public static int toUint16(double arg) {
+        return ScriptRuntime.toInt32(arg) & 0xffff;
+    }
+
     public static int toInt32(Object arg) {
         return ScriptRuntime.toInt32(arg);
     }
 
+    public static int toInt32(double arg) {
+        return ScriptRuntime.toInt32(arg);
+    }
+
     public static long toUint32(Object arg) {
         return ScriptRuntime.toUint32(arg);
     }
+
+    public static long toUint32(double arg) {
+        return ScriptRuntime.toUint32(arg);
+    }
 }
@@ -16,4 +16,14 @@ public abstract class NativeBigIntArrayView extends NativeTypedArrayView<BigInte
     protected Object toNumeric(Object num) {
         return ScriptRuntime.toBigInt(num);
     }
+
+    @Override
+    public boolean hasNumberElement(int index) {
+        return false;
+    }
+
+    @Override
+    public boolean setNumberElement(int index, double value) {
+        return false;
+    }
 }
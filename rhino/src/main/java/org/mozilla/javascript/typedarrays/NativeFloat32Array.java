@@ -97,6 +97,22 @@ public class NativeFloat32Array extends NativeTypedArrayView<Float> {
         return null;
     }
 
+    @Override
+    public double getNumberElement(int index) {
+        return ByteIo.readFloat32Primitive(
+                arrayBuffer.buffer, (index * BYTES_PER_ELEMENT) + offset, useLittleEndian());
+    }
+
+    @Override
+    public boolean setNumberElement(int index, double value) {
+        if (checkIndex(index)) {
+            return false;
+        }
+        ByteIo.writeFloat32(
+                arrayBuffer.buffer, (index * BYTES_PER_ELEMENT) + offset, value, useLittleEndian());
+        return true;
+    }
+
     @Override
     public Float get(int i) {
         ensureIndex(i);
@@ -102,6 +102,22 @@ public class NativeFloat64Array extends NativeTypedArrayView<Double> {
         return null;
     }
 
+    @Override
+    public double getNumberElement(int index) {
+        return ByteIo.readFloat64Primitive(
+                arrayBuffer.buffer, (index * BYTES_PER_ELEMENT) + offset, useLittleEndian());
+    }
+
+    @Override
+    public boolean setNumberElement(int index, double value) {
+        if (checkIndex(index)) {
+            return false;
+        }
+        ByteIo.writeFloat64(
+                arrayBuffer.buffer, (index * BYTES_PER_ELEMENT) + offset, value, useLittleEndian());
+        return true;
+    }
+
     @Override
     public Double get(int i) {
         ensureIndex(i);
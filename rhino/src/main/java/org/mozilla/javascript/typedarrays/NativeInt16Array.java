@@ -96,6 +96,25 @@ public class NativeInt16Array extends NativeTypedArrayView<Short> {
         return null;
     }
 
+    @Override
+    public double getNumberElement(int index) {
+        return ByteIo.readInt16Primitive(
+                arrayBuffer.buffer, (index * BYTES_PER_ELEMENT) + offset, useLittleEndian());
+    }
+
+    @Override
+    public boolean setNumberElement(int index, double value) {
+        if (checkIndex(index)) {
+            return false;
+        }
+        ByteIo.writeInt16(
+                arrayBuffer.buffer,
+                (index * BYTES_PER_ELEMENT) + offset,
+                Conversions.toInt16(value),
+                useLittleEndian());
+        return true;
+    }
+
     @Override
     public Short get(int i) {
         ensureIndex(i);
@@ -97,6 +97,25 @@ public class NativeInt32Array extends NativeTypedArrayView<Integer> {
         return null;
     }
 
+    @Override
+    public double getNumberElement(int index) {
+        return ByteIo.readInt32Primitive(
+                arrayBuffer.buffer, (index * BYTES_PER_ELEMENT) + offset, useLittleEndian());
+    }
+
+    @Override
+    public boolean setNumberElement(int index, double value) {
+        if (checkIndex(index)) {
+            return false;
+        }
+        ByteIo.writeInt32(
+                arrayBuffer.buffer,
+                (index * BYTES_PER_ELEMENT) + offset,
+                ScriptRuntime.toInt32(value),
+                useLittleEndian());
+        return true;
+    }
+
     @Override
     public Integer get(int i) {
         ensureIndex(i);
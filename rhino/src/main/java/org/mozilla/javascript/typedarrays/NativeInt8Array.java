@@ -90,6 +90,20 @@ public class NativeInt8Array extends NativeTypedArrayView<Byte> {
 
     // List implementation (much of it handled by the superclass)
 
+    @Override
+    public double getNumberElement(int index) {
+        return arrayBuffer.buffer[index + offset];
+    }
+
+    @Override
+    public boolean setNumberElement(int index, double value) {
+        if (checkIndex(index)) {
+            return false;
+        }
+        ByteIo.writeInt8(arrayBuffer.buffer, index + offset, Conversions.toInt8(value));
+        return true;
+    }
+
     @Override
     public Byte get(int i) {
         ensureIndex(i);
@@ -320,6 +320,37 @@ public abstract class NativeTypedArrayView<T> extends NativeArrayBufferView
 
     protected abstract Object js_set(int index, Object c);
 
+    /**
+     * Return true if the index is in bounds and the elements of this array are numbers, so that
+     * {@link #getNumberElement} may read it.
+     */
+    public boolean hasNumberElement(int index) {
+        return !checkIndex(index);
+    }
+
+    /**
+     * Return the element at an index for which {@link #hasNumberElement} is true. Arrays of numbers
+     * override this to read the element without boxing it.
+     */
+    public double getNumberElement(int index) {
+        return ScriptRuntime.toNumber(js_get(index));
+    }
+
+    /**
+     * Store a number at an index. Arrays of numbers override this to write the element without
+     * boxing it.
+     *
+     * @return false if the index is out of bounds or the elements are not numbers, in which case
+     *     the caller should fall back to {@link #put(int, Scriptable, Object)}
+     */
+    public boolean setNumberElement(int index, double value) {
+        if (checkIndex(index)) {
+            return false;
+        }
+        js_set(index, ScriptRuntime.wrapNumber(value));
+        return true;
+    }
+
     protected Object toNumeric(Object num) {
         return ScriptRuntime.toNumber(num);
     }
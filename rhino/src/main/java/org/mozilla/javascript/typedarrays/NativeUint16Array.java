@@ -96,6 +96,25 @@ public class NativeUint16Array extends NativeTypedArrayView<Integer> {
         return null;
     }
 
+    @Override
+    public double getNumberElement(int index) {
+        return ByteIo.readUint16Primitive(
+                arrayBuffer.buffer, (index * BYTES_PER_ELEMENT) + offset, useLittleEndian());
+    }
+
+    @Override
+    public boolean setNumberElement(int index, double value) {
+        if (checkIndex(index)) {
+            return false;
+        }
+        ByteIo.writeUint16(
+                arrayBuffer.buffer,
+                (index * BYTES_PER_ELEMENT) + offset,
+                Conversions.toUint16(value),
+                useLittleEndian());
+        return true;
+    }
+
     @Override
     public Integer get(int i) {
         ensureIndex(i);
@@ -96,6 +96,25 @@ public class NativeUint32Array extends NativeTypedArrayView<Long> {
         return null;
     }
 
+    @Override
+    public double getNumberElement(int index) {
+        return ByteIo.readUint32Primitive(
+                arrayBuffer.buffer, (index * BYTES_PER_ELEMENT) + offset, useLittleEndian());
+    }
+
+    @Override
+    public boolean setNumberElement(int index, double value) {
+        if (checkIndex(index)) {
+            return false;
+        }
+        ByteIo.writeUint32(
+                arrayBuffer.buffer,
+                (index * BYTES_PER_ELEMENT) + offset,
+                Conversions.toUint32(value),
+                useLittleEndian());
+        return true;
+    }
+
     @Override
     public Long get(int i) {
         ensureIndex(i);
@@ -90,6 +90,20 @@ public class NativeUint8ClampedArray extends NativeTypedArrayView<Integer> {
         return null;
     }
 
+    @Override
+    public double getNumberElement(int index) {
+        return arrayBuffer.buffer[index + offset] & 0xff;
+    }
+
+    @Override
+    public boolean setNumberElement(int index, double value) {
+        if (checkIndex(index)) {
+            return false;
+        }
+        ByteIo.writeUint8(arrayBuffer.buffer, index + offset, Conversions.toUint8Clamp(value));
+        return true;
+    }
+
     @Override
     public Integer get(int i) {
         ensureIndex(i);
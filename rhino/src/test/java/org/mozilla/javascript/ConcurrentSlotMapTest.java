@@ -0,0 +1,163 @@
+package org.mozilla.javascript;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.mozilla.javascript.testutils.Utils;
+
+public class ConcurrentSlotMapTest {
+
+    private static final int COUNT = 20000;
+
+    private static final class TestScriptableObject extends ScriptableObject {
+        @Override
+        public String getClassName() {
+            return "foo";
+        }
+    }
+
+    /** Start a thread that runs the reader, recording the first failure of any reader. */
+    private static Thread startReader(AtomicReference<Throwable> failure, Runnable reader) {
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try {
+                                reader.run();
+                            } catch (Throwable t) {
+                                failure.compareAndSet(null, t);
+                            }
+                        });
+        thread.start();
+        return thread;
+    }
+
+    private static void assertNoFailure(AtomicReference<Throwable> failure) {
+        Throwable t = failure.get();
+        if (t != null) {
+            throw new AssertionError("reader failed", t);
+        }
+    }
+
+    @Test
+    public void selectedByFeature() {
+        ContextFactory factory =
+                Utils.contextFactoryWithFeatures(
+                        Context.FEATURE_THREAD_SAFE_OBJECTS, Context.FEATURE_LOCK_FREE_READS);
+        try (Context cx = factory.enterContext()) {
+            ScriptableObject obj = new TestScriptableObject();
+            assertSame(ConcurrentSlotMap.EMPTY, obj.getMap());
+            obj.put("a", obj, 1);
+            assertTrue(obj.getMap() instanceof ConcurrentSlotMap);
+            assertTrue(new NativeObject(10).getMap() instanceof ConcurrentSlotMap);
+
+            Scriptable scope = cx.initStandardObjects();
+            Object result =
+                    cx.evaluateString(
+                            scope,
+                            "var o = {a: 1, b: 2};\n"
+                                    + "Object.defineProperty(o, 'c',\n"
+                                    + "  {get: function() { return 3; }, enumerable: true});\n"
+                                    + "delete o.a; o.d = 4; o[0] = 0;\n"
+                                    + "JSON.stringify(o) + ' ' + Object.keys(o)",
+                            "test.js",
+                            1,
+                            null);
+            assertEquals("{\"0\":0,\"b\":2,\"c\":3,\"d\":4} 0,b,c,d", result);
+        }
+    }
+
+    @Test
+    public void readersSeeEveryAddedSlot() throws Exception {
+        ScriptableObject obj = new TestScriptableObject();
+        obj.setMap(new ConcurrentSlotMap());
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            readers.add(
+                    startReader(
+                            failure,
+                            () -> {
+                                while (!done.get() && failure.get() == null) {
+                                    SlotMap map = obj.getMap();
+                                    int size = map.size();
+                                    // Slots are added in order, so all of the first "size" exist
+                                    for (int i = Math.max(0, size - 50); i < size; i++) {
+                                        Slot slot = map.query("k" + i, 0);
+                                        assertNotNull("k" + i + " of " + size, slot);
+                                        assertEquals(i, slot.value);
+                                    }
+                                    int n = 0;
+                                    for (Iterator<Slot> it = map.iterator(); it.hasNext(); n++) {
+                                        assertNotNull(it.next());
+                                    }
+                                    assertTrue("iterated " + n + " of " + size, n >= size);
+                                }
+                            }));
+        }
+
+        for (int i = 0; i < COUNT; i++) {
+            // Set the value inside the computer, so that readers never see the slot without it
+            final int value = i;
+            obj.getMap()
+                    .compute(
+                            obj,
+                            "k" + i,
+                            0,
+                            (k, ix, existing, m, o) -> {
+                                Slot slot = new Slot(k, ix, 0);
+                                slot.value = value;
+                                return slot;
+                            });
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNoFailure(failure);
+        assertEquals(COUNT, obj.getMap().size());
+    }
+
+    @Test
+    public void readersSeeSlotsThatAreNotChanged() throws Exception {
+        ScriptableObject obj = new TestScriptableObject();
+        obj.setMap(new ConcurrentSlotMap());
+        for (int i = 0; i < 100; i++) {
+            obj.put("stable" + i, obj, i);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread reader =
+                startReader(
+                        failure,
+                        () -> {
+                            while (!done.get() && failure.get() == null) {
+                                for (int i = 0; i < 100; i++) {
+                                    assertEquals("stable" + i, i, obj.get("stable" + i, obj));
+                                }
+                            }
+                        });
+        // Add, replace and remove other slots, which rebuilds the table
+        for (int i = 0; i < 2000; i++) {
+            obj.put("temp" + i, obj, i);
+            obj.defineProperty("temp" + i, i, ScriptableObject.READONLY);
+            if (i % 2 == 0) {
+                obj.delete("temp" + i);
+            }
+        }
+        done.set(true);
+        reader.join();
+        assertNoFailure(failure);
+        assertEquals(1100, obj.getMap().size());
+    }
+}
@@ -0,0 +1,52 @@
+package org.mozilla.javascript;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/** Tests for the instruction caches that hold the bindings of names. */
+public class NameBindingCacheTest {
+
+    @Test
+    public void nameDefinedAfterAMissIsBound() {
+        try (Context cx = Context.enter()) {
+            ScriptableObject scope = cx.initStandardObjects();
+            Object[] caches = new Object[1];
+            try {
+                NameBinding.name(cx, scope, "g", caches, 0);
+                fail();
+            } catch (EcmaError e) {
+                assertEquals("ReferenceError", e.getName());
+            }
+            assertFalse(caches[0] instanceof NameBinding);
+
+            scope.put("g", scope, 1);
+            for (int i = 0; i < 100; i++) {
+                assertEquals(1, NameBinding.name(cx, scope, "g", caches, 0));
+            }
+            assertTrue(caches[0] instanceof NameBinding);
+        }
+    }
+
+    @Test
+    public void nameInAnotherScopeIsBound() {
+        try (Context cx = Context.enter()) {
+            Object[] caches = new Object[1];
+            // Not an ordinary top-level scope, so the name can't be bound there
+            ScriptableObject dynamic = new NativeArray(0);
+            dynamic.put("g", dynamic, 1);
+            assertEquals(1, NameBinding.name(cx, dynamic, "g", caches, 0));
+            assertFalse(caches[0] instanceof NameBinding);
+
+            ScriptableObject scope = cx.initStandardObjects();
+            scope.put("g", scope, 2);
+            for (int i = 0; i < 100; i++) {
+                assertEquals(2, NameBinding.name(cx, scope, "g", caches, 0));
+            }
+            assertTrue(caches[0] instanceof NameBinding);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.mozilla.javascript;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.mozilla.javascript.testutils.Utils;
+
+public class ShapeTest {
+
+    private static NativeObject newObject(String... keys) {
+        NativeObject obj = new NativeObject();
+        for (String key : keys) {
+            obj.put(key, obj, key);
+        }
+        return obj;
+    }
+
+    @Test
+    public void sameKeysSameOrderShareShape() {
+        NativeObject o1 = newObject("x", "y", "z");
+        NativeObject o2 = newObject("x", "y", "z");
+        Shape shape = Shape.getShape(o1);
+        assertNotNull(shape);
+        assertSame(shape, Shape.getShape(o2));
+        assertEquals(3, shape.getPropertyCount());
+        assertEquals(0, shape.getOffset("x"));
+        assertEquals(2, shape.getOffset("z"));
+        assertEquals(-1, shape.getOffset("w"));
+        assertEquals("z", Shape.getValue(o2, 2));
+    }
+
+    @Test
+    public void differentOrderDifferentShape() {
+        Shape s1 = Shape.getShape(newObject("x", "y"));
+        Shape s2 = Shape.getShape(newObject("y", "x"));
+        assertNotNull(s1);
+        assertNotNull(s2);
+        assertEquals(1, s1.getOffset("y"));
+        assertEquals(0, s2.getOffset("y"));
+        assertEquals(false, s1 == s2);
+    }
+
+    @Test
+    public void singleProperty() {
+        NativeObject obj = newObject("x");
+        Shape shape = Shape.getShape(obj);
+        assertNotNull(shape);
+        assertSame(shape, Shape.getShape(newObject("x")));
+        assertEquals(0, shape.getOffset("x"));
+        assertEquals("x", Shape.getValue(obj, 0));
+    }
+
+    @Test
+    public void deleteDropsShape() {
+        NativeObject obj = newObject("x", "y");
+        obj.delete("x");
+        assertNull(Shape.getShape(obj));
+        obj.put("x", obj, 1);
+        assertNull(Shape.getShape(obj));
+    }
+
+    @Test
+    public void accessorDropsShape() {
+        NativeObject obj = newObject("x", "y");
+        obj.defineProperty("z", 1, ScriptableObject.READONLY);
+        assertNotNull(Shape.getShape(obj));
+        obj.defineProperty("y", () -> "getter", null, 0);
+        assertNull(Shape.getShape(obj));
+    }
+
+    @Test
+    public void indexDropsShape() {
+        NativeObject obj = newObject("x", "y");
+        obj.put(0, obj, "zero");
+        assertNull(Shape.getShape(obj));
+    }
+
+    @Test
+    public void tooManyProperties() {
+        NativeObject obj = new NativeObject();
+        for (int i = 0; i < Shape.MAX_PROPERTIES; i++) {
+            obj.put("p" + i, obj, i);
+        }
+        assertNotNull(Shape.getShape(obj));
+        assertEquals(Shape.MAX_PROPERTIES - 1, Shape.getValue(obj, Shape.MAX_PROPERTIES - 1));
+        obj.put("overflow", obj, 0);
+        assertNull(Shape.getShape(obj));
+    }
+
+    @Test
+    public void threadSafeMapsHaveNoShape() {
+        NativeObject obj = new NativeObject();
+        obj.setMap(new ThreadSafeEmbeddedSlotMap());
+        obj.put("x", obj, 1);
+        assertNull(Shape.getShape(obj));
+    }
+
+    @Test
+    public void inlineCachedAccess() {
+        final String script =
+                "function P(x, y) { this.x = x; this.y = y; }\n"
+                        + "function sum(a) {\n"
+                        + "  var s = 0;\n"
+                        + "  for (var i = 0; i < a.length; i++) { s += a[i].x + a[i].y; }\n"
+                        + "  return s;\n"
+                        + "}\n"
+                        + "function setX(o, v) { o.x = v; return o.x; }\n"
+                        + "var a = [];\n"
+                        + "for (var i = 0; i < 20; i++) {\n"
+                        + "  a.push(i % 2 ? new P(i, 1) : {x: i, y: 2, z: 3});\n"
+                        + "}\n"
+                        + "var res = [sum(a), sum(a)];\n"
+                        + "var o = {x: 1, y: 2};\n"
+                        + "res.push(setX(o, 5));\n"
+                        + "Object.freeze(o);\n"
+                        + "res.push(setX(o, 7));\n"
+                        + "var o2 = {x: 1, y: 2}; delete o2.y; res.push(setX(o2, 9));\n"
+                        + "var o3 = {x: 1, y: 2};\n"
+                        + "Object.defineProperty(o3, 'x', {get: function() { return 42; }});\n"
+                        + "res.push(setX(o3, 9));\n"
+                        + "res.join(',')";
+        Utils.assertWithAllModes_ES6("220,220,5,5,9,42", script);
+    }
+}
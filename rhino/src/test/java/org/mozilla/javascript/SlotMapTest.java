@@ -55,7 +55,9 @@ public class SlotMapTest {
                                 new SlotMapOwner.ThreadSafeSingleEntrySlotMap(
                                         new Slot(new Object(), 0, 0)),
                         () -> new ThreadSafeEmbeddedSlotMap(),
-                        () -> new ThreadSafeHashSlotMap());
+                        () -> new ThreadSafeHashSlotMap(),
+                        () -> ConcurrentSlotMap.EMPTY,
+                        () -> new ConcurrentSlotMap());
         return suppliers.stream().map(i -> new Object[] {i}).collect(Collectors.toList());
     }
 
@@ -72,6 +74,25 @@ public class SlotMapTest {
         }
     }
 
+    @Test
+    public void slotsAtOffsets() {
+        for (String name : new String[] {"a", "b", "c"}) {
+            obj.getMap().modify(obj, name, 0, 0);
+        }
+        SlotMap map = obj.getMap();
+        int i = 0;
+        for (Slot slot : map) {
+            assertSame(slot, map.getSlotAt(i++));
+        }
+        assertNull(map.getSlotAt(i));
+        Shape shape = map.getShape();
+        if (shape != null) {
+            for (String name : new String[] {"a", "b", "c"}) {
+                assertSame(map.query(name, 0), map.getSlotAt(shape.getOffset(name)));
+            }
+        }
+    }
+
     @Test
     public void crudOneString() {
         assertNull(obj.getMap().query("foo", 0));
@@ -0,0 +1,163 @@
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import org.junit.Test;
+import org.mozilla.javascript.AllocationProfiler;
+import org.mozilla.javascript.AllocationProfiler.Kind;
+import org.mozilla.javascript.AllocationProfiler.Site;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Scriptable;
+
+/** The allocation profiler attributes allocations to the lines of the scripts that made them. */
+public class AllocationProfilerTest {
+
+    private static final String SOURCE =
+            "function Point(x) { this.x = x; }\n"
+                    + "function make(i) {\n"
+                    + "  var o = {i: i};\n"
+                    + "  var a = [i, i];\n"
+                    + "  var s = 'x' + o.i;\n"
+                    + "  var f = function() { return i; };\n"
+                    + "  return new Point(i);\n"
+                    + "}\n"
+                    + "for (var i = 0; i < 100; i++) { make(i); }\n";
+
+    private static AllocationProfiler profile(boolean interpreted) {
+        ContextFactory factory = new ContextFactory();
+        AllocationProfiler profiler = new AllocationProfiler(1);
+        profiler.attach(factory);
+        try (Context cx = factory.enterContext()) {
+            cx.setInterpretedMode(interpreted);
+            Scriptable scope = cx.initStandardObjects();
+            profiler.reset();
+            cx.evaluateString(scope, SOURCE, "alloc.js", 1, null);
+        }
+        profiler.detach(factory);
+        return profiler;
+    }
+
+    private static long count(AllocationProfiler profiler, Kind kind, String source, int line) {
+        Map<Site, Long> histogram = profiler.getHistogram(kind);
+        long count = 0;
+        for (Map.Entry<Site, Long> entry : histogram.entrySet()) {
+            assertEquals(kind, entry.getKey().getKind());
+            assertEquals(source, entry.getKey().getSourceName());
+            if (entry.getKey().getLineNumber() == line) {
+                count += entry.getValue();
+            }
+        }
+        return count;
+    }
+
+    private static void checkProfile(AllocationProfiler profiler) {
+        assertEquals(100, count(profiler, Kind.OBJECT, "alloc.js", 3));
+        assertEquals(100, count(profiler, Kind.ARRAY, "alloc.js", 4));
+        assertEquals(100, count(profiler, Kind.STRING, "alloc.js", 5));
+        assertEquals(100, count(profiler, Kind.FUNCTION, "alloc.js", 6));
+        assertEquals(100, count(profiler, Kind.OBJECT, "alloc.js", 7));
+        // The activation of each call to make() is attributed to the line of the call
+        assertEquals(100, count(profiler, Kind.ACTIVATION, "alloc.js", 9));
+        assertTrue(profiler.getSampleCount() >= 600);
+
+        long previous = Long.MAX_VALUE;
+        for (long samples : profiler.getHistogram().values()) {
+            assertTrue(samples <= previous);
+            previous = samples;
+        }
+    }
+
+    @Test
+    public void interpreted() {
+        checkProfile(profile(true));
+    }
+
+    @Test
+    public void compiled() {
+        checkProfile(profile(false));
+    }
+
+    @Test
+    public void sampling() {
+        ContextFactory factory = new ContextFactory();
+        AllocationProfiler profiler = new AllocationProfiler(10);
+        profiler.attach(factory);
+        try (Context cx = factory.enterContext()) {
+            Scriptable scope = cx.initStandardObjects();
+            profiler.reset();
+            cx.evaluateString(
+                    scope, "for (var i = 0; i < 10000; i++) { [i]; }", "loop.js", 1, null);
+        }
+        long samples = count(profiler, Kind.ARRAY, "loop.js", 1);
+        assertTrue(String.valueOf(samples), samples > 700 && samples < 1300);
+    }
+
+    @Test
+    public void contextEnteredTwice() {
+        ContextFactory factory = new ContextFactory();
+        AllocationProfiler profiler = new AllocationProfiler(1);
+        profiler.attach(factory);
+        Context cx = new Context(factory) {};
+        Scriptable scope;
+        try (Context entered = factory.enterContext(cx)) {
+            scope = entered.initStandardObjects();
+            profiler.reset();
+            entered.evaluateString(scope, "[1]", "first.js", 1, null);
+        }
+        assertEquals(1, count(profiler, Kind.ARRAY, "first.js", 1));
+
+        profiler.reset();
+        try (Context entered = factory.enterContext(cx)) {
+            entered.evaluateString(scope, "[2]", "second.js", 1, null);
+        }
+        profiler.detach(factory);
+        assertEquals(1, count(profiler, Kind.ARRAY, "second.js", 1));
+    }
+
+    @Test
+    public void detachWhileEntered() {
+        ContextFactory factory = new ContextFactory();
+        AllocationProfiler profiler = new AllocationProfiler(1);
+        profiler.attach(factory);
+        try (Context cx = factory.enterContext()) {
+            Scriptable scope = cx.initStandardObjects();
+            cx.evaluateString(scope, "[1]", "before.js", 1, null);
+            assertEquals(1, count(profiler, Kind.ARRAY, "before.js", 1));
+
+            profiler.detach(factory);
+            profiler.reset();
+            cx.evaluateString(scope, "[{}, 'a' + Math.PI]", "after.js", 1, null);
+        }
+        assertEquals(0, profiler.getSampleCount());
+
+        // Attaching again profiles the contexts that are entered from then on
+        profiler.attach(factory);
+        try (Context cx = factory.enterContext()) {
+            Scriptable scope = cx.initStandardObjects();
+            profiler.reset();
+            cx.evaluateString(scope, "[1]", "again.js", 1, null);
+        }
+        profiler.detach(factory);
+        assertEquals(1, count(profiler, Kind.ARRAY, "again.js", 1));
+    }
+
+    @Test
+    public void otherFactoriesAreNotProfiled() {
+        AllocationProfiler profiler = new AllocationProfiler(1);
+        profiler.attach(new ContextFactory());
+        try (Context cx = new ContextFactory().enterContext()) {
+            Scriptable scope = cx.initStandardObjects();
+            cx.evaluateString(scope, "[{}, 'a' + Math.PI]", "other.js", 1, null);
+        }
+        assertEquals(0, profiler.getSampleCount());
+    }
+
+    @Test
+    public void invalidInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new AllocationProfiler(0));
+    }
+}
@@ -0,0 +1,91 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.mozilla.javascript.BackgroundCompiler;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.JSFunction;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.optimizer.OptJSCode;
+
+/** Tests for hot functions that are compiled off the thread that runs them. */
+public class BackgroundCompilerTest {
+
+    private static final String SCRIPT =
+            "function sum(n) {\n"
+                    + "  var s = 0;\n"
+                    + "  for (var i = 0; i < n; i++) s += i;\n"
+                    + "  return s;\n"
+                    + "}\n";
+
+    @Test
+    public void hotFunctionIsCompiledInBackground() throws InterruptedException {
+        try (BackgroundCompiler compiler = new BackgroundCompiler(1, 4)) {
+            ContextFactory factory = new ContextFactory();
+            factory.setBackgroundCompiler(compiler);
+            try (Context cx = enterTiered(factory, 10)) {
+                Scriptable scope = cx.initStandardObjects();
+                cx.evaluateString(scope, SCRIPT, "test.js", 1, null);
+                Function sum = (Function) scope.get("sum", scope);
+
+                // The function keeps running in the interpreter while it is compiled
+                for (int i = 0; i < 1000 && !isCompiled(sum); i++) {
+                    assertEquals(4950, sum(cx, scope, sum), 0);
+                    Thread.sleep(10);
+                }
+                assertTrue(isCompiled(sum));
+                assertEquals(4950, sum(cx, scope, sum), 0);
+
+                assertEquals(1, compiler.getCompiledCount());
+                assertEquals(0, compiler.getFailedCount());
+                assertEquals(0, compiler.getQueueDepth());
+                assertTrue(compiler.getCompileTimeNanos() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void closedCompilerLeavesFunctionsInterpreted() {
+        BackgroundCompiler compiler = new BackgroundCompiler(1, 1);
+        compiler.close();
+        ContextFactory factory = new ContextFactory();
+        factory.setBackgroundCompiler(compiler);
+        try (Context cx = enterTiered(factory, 10)) {
+            Scriptable scope = cx.initStandardObjects();
+            cx.evaluateString(scope, SCRIPT, "test.js", 1, null);
+            Function sum = (Function) scope.get("sum", scope);
+            for (int i = 0; i < 5; i++) {
+                assertEquals(4950, sum(cx, scope, sum), 0);
+            }
+            assertFalse(isCompiled(sum));
+            // Queued again after each threshold of calls and loop iterations
+            assertTrue(compiler.getRejectedCount() > 1);
+            assertEquals(0, compiler.getCompiledCount());
+        }
+    }
+
+    private static Context enterTiered(ContextFactory factory, int threshold) {
+        Context cx = factory.enterContext();
+        cx.setLanguageVersion(Context.VERSION_ES6);
+        cx.setInterpretedMode(false);
+        cx.setTierUpThreshold(threshold);
+        return cx;
+    }
+
+    private static double sum(Context cx, Scriptable scope, Function sum) {
+        return Context.toNumber(sum.call(cx, scope, scope, new Object[] {100}));
+    }
+
+    private static boolean isCompiled(Function f) {
+        return ((JSFunction) f).getDescriptor().getCode() instanceof OptJSCode;
+    }
+}
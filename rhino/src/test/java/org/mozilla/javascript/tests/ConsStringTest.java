@@ -2,14 +2,21 @@ package org.mozilla.javascript.tests;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mozilla.javascript.ConsString;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.annotations.JSFunction;
+import org.mozilla.javascript.testutils.Utils;
 
 public class ConsStringTest {
 
@@ -54,6 +61,97 @@ public class ConsStringTest {
         }
     }
 
+    @Test
+    public void charAtAndSubSequence() {
+        ConsString current = new ConsString(new ConsString("ab", "cd"), new ConsString("e", "fgh"));
+        String expected = "abcdefgh";
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.charAt(i), current.charAt(i));
+            for (int j = i; j <= expected.length(); j++) {
+                assertEquals(expected.substring(i, j), current.subSequence(i, j).toString());
+            }
+        }
+        assertEquals(expected, current.toString());
+        assertEquals('c', current.charAt(2));
+    }
+
+    @Test
+    public void deepRopeIsFlattenedOnce() {
+        ConsString current = new ConsString("a", "b");
+        StringBuilder expected = new StringBuilder("ab");
+        for (int i = 0; i < 100; i++) {
+            current = new ConsString(current, String.valueOf(i % 10));
+            expected.append(i % 10);
+        }
+        assertEquals(expected.charAt(50), current.charAt(50));
+        assertEquals(expected.substring(10, 20), current.subSequence(10, 20).toString());
+        // The result of flattening is kept
+        assertSame(current.toString(), current.toString());
+    }
+
+    @Test
+    public void concurrentFlatten() throws Exception {
+        ConsString current = new ConsString("a", "b");
+        for (int i = 0; i < 10000; i++) {
+            current = new ConsString(current, "c");
+        }
+        final ConsString shared = current;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(shared::toString));
+            }
+            for (Future<String> result : results) {
+                assertEquals(10002, result.get().length());
+                assertEquals('c', shared.charAt(10001));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void searchWithoutFlattening() {
+        // Compare the results for ropes of different shapes against a flattened copy
+        Utils.assertWithAllModes_ES6(
+                "ok",
+                "function rope(n) {\n"
+                        + "  var s = '';\n"
+                        + "  for (var i = 0; i < n; i++) s = s + 'ab' + (i % 3) + 'c';\n"
+                        + "  return ('x' + s) + ('y' + s);\n"
+                        + "}\n"
+                        + "var r = rope(6), flat = rope(6).slice(0);\n"
+                        + "var bad = [];\n"
+                        + "function check(name, arg, n, i) {\n"
+                        + "  if (r[name](n, i) !== flat[name](n, i)) bad.push(name + arg);\n"
+                        + "}\n"
+                        + "var needles = ['', 'a', 'b0', 'ca', '2cab', 'xab', 'cyab', flat];\n"
+                        + "var names = ['indexOf', 'includes', 'startsWith', 'endsWith'];\n"
+                        + "for (var n of needles) {\n"
+                        + "  for (var i = -1; i <= flat.length + 1; i++) {\n"
+                        + "    for (var name of names) {\n"
+                        + "      check(name, n + i, n, i);\n"
+                        + "    }\n"
+                        + "  }\n"
+                        + "}\n"
+                        + "for (var i = 0; i < flat.length; i++) {\n"
+                        + "  check('charCodeAt', i, i);\n"
+                        + "  check('codePointAt', i, i);\n"
+                        + "}\n"
+                        + "if ([...r].join('|') !== [...flat].join('|')) bad.push('iterator');\n"
+                        + "bad.length === 0 ? 'ok' : bad.join()");
+    }
+
+    @Test
+    public void iterateSurrogatePairs() {
+        Utils.assertWithAllModes_ES6(
+                "\ud83d\ude00|a|\ud83d\ude00|\ud83d",
+                "var s = '\\ud83d';\n"
+                        + "var r = s + '\\ude00' + 'a' + s + ('\\ude00' + s);\n"
+                        + "[...r].join('|')");
+    }
+
     @Test
     public void doNotLeakConsStringIntoSetter() throws Exception {
         try (Context cx = Context.enter()) {
@@ -0,0 +1,191 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.mozilla.javascript.CompilerEnvirons;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.IRFactory;
+import org.mozilla.javascript.JSDescriptor;
+import org.mozilla.javascript.Parser;
+import org.mozilla.javascript.ast.AstRoot;
+import org.mozilla.javascript.ast.FunctionNode;
+import org.mozilla.javascript.ast.ScriptNode;
+import org.mozilla.javascript.optimizer.Codegen;
+import org.mozilla.javascript.optimizer.OptFunctionNode;
+import org.mozilla.javascript.optimizer.OptJSCode;
+import org.mozilla.javascript.testutils.Utils;
+
+/** Tests for the objects that the optimizer does not allocate, see EscapeAnalysis. */
+public class EscapeAnalysisTest {
+
+    @Test
+    public void argumentsReadDirectly() {
+        FunctionNode fn =
+                compile(
+                        "function f(a) {\n"
+                                + "  var s = 0;\n"
+                                + "  for (var i = 0; i < arguments.length; i++) {\n"
+                                + "    s += arguments[i];\n"
+                                + "  }\n"
+                                + "  return s;\n"
+                                + "}");
+        assertTrue(fn.readsArgumentsDirectly());
+        assertFalse(fn.requiresActivation());
+
+        Utils.assertWithAllModes_ES6(
+                "10 1 undefined",
+                "function sum() {\n"
+                        + "  var s = 0;\n"
+                        + "  for (var i = 0; i < arguments.length; i++) s += arguments[i];\n"
+                        + "  return s;\n"
+                        + "}\n"
+                        + "function len(a, b) { return arguments.length; }\n"
+                        + "function third(a) { return arguments[2]; }\n"
+                        + "sum(1, 2, 3, 4) + ' ' + len(1) + ' ' + third(1, 2)");
+    }
+
+    @Test
+    public void argumentsPropertiesOtherThanElements() {
+        Utils.assertWithAllModes_ES6(
+                "2 function 5 x",
+                "Object.prototype[5] = 5;\n"
+                        + "function f() {\n"
+                        + "  return arguments['length'] + ' ' + typeof arguments['callee']\n"
+                        + "      + ' ' + arguments[5] + ' ' + arguments['0'];\n"
+                        + "}\n"
+                        + "var r = f('x', 'y');\n"
+                        + "delete Object.prototype[5];\n"
+                        + "r");
+    }
+
+    @Test
+    public void argumentsThatEscape() {
+        assertTrue(compile("function f() { return arguments; }").requiresActivation());
+        assertTrue(compile("function f() { return arguments[0](); }").requiresActivation());
+        assertTrue(compile("function f() { arguments[0] = 1; }").requiresActivation());
+
+        Utils.assertWithAllModes_ES6(
+                "object object 1",
+                "function f() { return typeof arguments; }\n"
+                        + "function g() { return arguments[0](); }\n"
+                        + "function h(a) { arguments[0] = 1; return a; }\n"
+                        + "f() + ' ' + g(function() { return typeof this; }) + ' ' + h(0)");
+    }
+
+    @Test
+    public void parameterWrites() {
+        // Outside strict mode the arguments follow the parameters
+        assertTrue(compile("function f(a) { a = 2; return arguments[0]; }").requiresActivation());
+        assertFalse(
+                compile("'use strict'; function f(a) { a = 2; return arguments[0]; }")
+                        .requiresActivation());
+
+        Utils.assertWithAllModes_ES6(
+                "2 3 5",
+                "function f(a) { a = 2; return arguments[0]; }\n"
+                        + "function g(a) { a++; a++; return arguments[0]; }\n"
+                        + "function h(a) { [a] = [5]; return arguments[0]; }\n"
+                        + "f(1) + ' ' + g(1) + ' ' + h(1)");
+        Utils.assertWithAllModes_ES6(
+                "1",
+                "'use strict';\n"
+                        + "function f(a) { a = 2; return arguments[0]; }\n"
+                        + "'' + f(1)");
+    }
+
+    @Test
+    public void literalReplacedByFields() {
+        FunctionNode fn =
+                compile(
+                        "function f(n) {\n"
+                                + "  var p = {x: 0, y: 1};\n"
+                                + "  for (var i = 0; i < n; i++) {\n"
+                                + "    p = {x: p.x + p.y, y: p.y};\n"
+                                + "    p.y *= 2;\n"
+                                + "  }\n"
+                                + "  return p.x;\n"
+                                + "}");
+        OptFunctionNode opt = OptFunctionNode.get(fn);
+        List<String> numberVars = new ArrayList<>();
+        for (int i = fn.getParamCount(); i < opt.getVarCount(); i++) {
+            if (opt.isNumberVar(i)) {
+                numberVars.add(opt.getVarName(i));
+            }
+        }
+        assertEquals("[i, p$x, p$y]", numberVars.toString());
+
+        Utils.assertWithAllModes_ES6(
+                "31 12",
+                "function f(n) {\n"
+                        + "  var p = {x: 0, y: 1};\n"
+                        + "  for (var i = 0; i < n; i++) {\n"
+                        + "    p = {x: p.x + p.y, y: p.y};\n"
+                        + "    p.y *= 2;\n"
+                        + "  }\n"
+                        + "  return p.x;\n"
+                        + "}\n"
+                        + "function g() {\n"
+                        + "  var t = [1, 2];\n"
+                        + "  t[0] += t.length;\n"
+                        + "  t[1]++;\n"
+                        + "  return t[0] * 4;\n"
+                        + "}\n"
+                        + "f(5) + ' ' + g()");
+    }
+
+    @Test
+    public void literalsThatEscape() {
+        Utils.assertWithAllModes_ES6(
+                "2,1 3 2 true object TypeError",
+                "function swap() {\n"
+                        + "  var p = {x: 1, y: 2};\n"
+                        + "  p = {x: p.y, y: p.x};\n"
+                        + "  return p.x + ',' + p.y;\n"
+                        + "}\n"
+                        + "function alias() { var o = {x: 1}; var o2 = o; o2.x = 3; return o.x; }\n"
+                        + "function other(c) {\n"
+                        + "  var o;\n"
+                        + "  if (c) o = {x: 1}; else o = {y: 2};\n"
+                        + "  return o.y;\n"
+                        + "}\n"
+                        + "function has() { var o = {x: 1}; return 'x' in o; }\n"
+                        + "function self() { var o = {x: 1}; o.x = o; return typeof o.x; }\n"
+                        + "function undef(c) { var o; if (c) o = {x: 1}; return o.x; }\n"
+                        + "var r = [swap(), alias(), other(false), has(), self()];\n"
+                        + "try { undef(false); } catch (e) { r.push(e.name); }\n"
+                        + "r.join(' ')");
+    }
+
+    private static FunctionNode compile(String source) {
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            CompilerEnvirons compilerEnv = new CompilerEnvirons();
+            compilerEnv.initFromContext(cx);
+            Parser p = new Parser(compilerEnv, compilerEnv.getErrorReporter());
+            AstRoot ast = p.parse(source, "<eval>", 1);
+            IRFactory irf = new IRFactory(compilerEnv, source);
+            ScriptNode tree = irf.transformTree(ast);
+
+            Codegen codegen = new Codegen();
+            codegen.setMainMethodClass("Main");
+            codegen.compileToClassFile(
+                    compilerEnv,
+                    new JSDescriptor.Builder(),
+                    new OptJSCode.BuilderEnv("Main"),
+                    "Main",
+                    tree,
+                    tree.getRawSource(),
+                    false);
+            return tree.getFunctionNode(0);
+        }
+    }
+}
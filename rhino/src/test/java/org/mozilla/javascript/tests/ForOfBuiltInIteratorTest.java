@@ -0,0 +1,115 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.tests;
+
+import org.junit.Test;
+import org.mozilla.javascript.testutils.Utils;
+
+/** Tests for "for...of" loops that step built-in iterators without calling "next." */
+public class ForOfBuiltInIteratorTest {
+
+    @Test
+    public void arraySeesChanges() {
+        Utils.assertWithAllModes_ES6(
+                "1,2,3,,9,4",
+                "var a = [1, 2, 3];\n"
+                        + "var r = [];\n"
+                        + "for (var v of a) { r.push(v); if (v == 3) a.push(4); a[4] = 9; }\n"
+                        + "r.join()");
+    }
+
+    @Test
+    public void mapAndSet() {
+        Utils.assertWithAllModes_ES6(
+                "a1 c3 | 1 3 4",
+                "var m = new Map([['a', 1], ['b', 2], ['c', 3]]);\n"
+                        + "var r = [];\n"
+                        + "for (var [k, v] of m) { r.push(k + v); m.delete('b'); }\n"
+                        + "var s = new Set([1, 2, 3]);\n"
+                        + "var q = [];\n"
+                        + "for (var v of s) { q.push(v); s.delete(2); if (v == 3) s.add(4); }\n"
+                        + "r.join(' ') + ' | ' + q.join(' ')");
+    }
+
+    @Test
+    public void stringsAndTypedArrays() {
+        Utils.assertWithAllModes_ES6(
+                "a,\ud83d\ude00,b 1,2,3",
+                "var r = [];\n"
+                        + "for (var c of 'a\\ud83d\\ude00b') r.push(c);\n"
+                        + "var t = [];\n"
+                        + "for (var v of new Int8Array([1, 2, 3])) t.push(v);\n"
+                        + "r.join() + ' ' + t.join()");
+    }
+
+    @Test
+    public void iteratorContinuesAfterBreak() {
+        Utils.assertWithAllModes_ES6(
+                "1 2,3",
+                "var it = [1, 2, 3][Symbol.iterator]();\n"
+                        + "var r = [];\n"
+                        + "for (var v of it) { r.push(v); break; }\n"
+                        + "var q = [];\n"
+                        + "for (var v of it) q.push(v);\n"
+                        + "for (var v of it) q.push(v);\n"
+                        + "r.join() + ' ' + q.join()");
+    }
+
+    @Test
+    public void replacedNextIsCalled() {
+        Utils.assertWithAllModes_ES6(
+                "x",
+                "var proto = Object.getPrototypeOf([][Symbol.iterator]());\n"
+                        + "var next = proto.next;\n"
+                        + "var calls = 0;\n"
+                        + "proto.next = function() {\n"
+                        + "  return calls++ == 0 ? { value: 'x', done: false } : { done: true };\n"
+                        + "};\n"
+                        + "var r = [];\n"
+                        + "try {\n"
+                        + "  for (var v of [1, 2, 3]) r.push(v);\n"
+                        + "} finally {\n"
+                        + "  proto.next = next;\n"
+                        + "}\n"
+                        + "r.join()");
+    }
+
+    @Test
+    public void nextIsReadOnce() {
+        Utils.assertWithAllModes_ES6(
+                "1,2,3 1 | 1,2 1 | 1,2,3",
+                "var it = [1, 2, 3][Symbol.iterator]();\n"
+                        + "var next = it.next, reads = 0;\n"
+                        + "Object.defineProperty(it, 'next', {\n"
+                        + "  get: function() { reads++; return next; }\n"
+                        + "});\n"
+                        + "var r = [];\n"
+                        + "for (var v of it) r.push(v);\n"
+                        + "var n = 0, own = { [Symbol.iterator]: function() { return this; } };\n"
+                        + "Object.defineProperty(own, 'next', { get: function() {\n"
+                        + "  own.reads = (own.reads || 0) + 1;\n"
+                        + "  return function() { return { value: ++n, done: n > 2 }; };\n"
+                        + "} });\n"
+                        + "var q = [];\n"
+                        + "for (var v of own) q.push(v);\n"
+                        + "var s = [], a = [1, 2, 3], it2 = a[Symbol.iterator]();\n"
+                        + "a[Symbol.iterator] = function() { return it2; };\n"
+                        + "for (var v of a) { s.push(v); it2.next = null; }\n"
+                        + "r + ' ' + reads + ' | ' + q + ' ' + own.reads + ' | ' + s");
+    }
+
+    @Test
+    public void replacedSymbolIteratorIsCalled() {
+        Utils.assertWithAllModes_ES6(
+                "c,b,a",
+                "var a = ['a', 'b', 'c'];\n"
+                        + "a[Symbol.iterator] = function() {\n"
+                        + "  return this.slice().reverse()[Symbol.iterator]();\n"
+                        + "};\n"
+                        + "var r = [];\n"
+                        + "for (var v of a) r.push(v);\n"
+                        + "r.join()");
+    }
+}
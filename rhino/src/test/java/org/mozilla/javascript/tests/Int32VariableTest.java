@@ -0,0 +1,143 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.mozilla.javascript.CompilerEnvirons;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.IRFactory;
+import org.mozilla.javascript.JSDescriptor;
+import org.mozilla.javascript.Parser;
+import org.mozilla.javascript.ast.AstRoot;
+import org.mozilla.javascript.ast.FunctionNode;
+import org.mozilla.javascript.ast.ScriptNode;
+import org.mozilla.javascript.optimizer.Codegen;
+import org.mozilla.javascript.optimizer.OptFunctionNode;
+import org.mozilla.javascript.optimizer.OptJSCode;
+import org.mozilla.javascript.testutils.Utils;
+
+/** Tests for the number variables that the optimizer keeps in int registers. */
+public class Int32VariableTest {
+
+    @Test
+    public void bitwiseVariablesAreInt32() {
+        FunctionNode fn =
+                compile(
+                        "function f(s) {\n"
+                                + "  var h = 0, c = 0, d = 0.5, u = 0;\n"
+                                + "  for (var i = 0; i < s.length; i++) {\n"
+                                + "    c = s.charCodeAt(i) & 0xff;\n"
+                                + "    h = (h * 31 + c) | 0;\n"
+                                + "    u = h >>> 1;\n"
+                                + "    d = d * 2;\n"
+                                + "  }\n"
+                                + "  return h + u + d;\n"
+                                + "}");
+        assertEquals("[h, c]", int32Vars(fn).toString());
+    }
+
+    @Test
+    public void int32Arithmetic() {
+        Utils.assertWithAllModes_ES6(
+                "-2147483648 0 -498937336 -2147483648 2147483647 -1 3 6 number",
+                "function f() {\n"
+                        + "  var a = 0x7fffffff, b = 1;\n"
+                        + "  a = a + b | 0;\n"
+                        + "  var m = (a * a) | 0;\n"
+                        + "  var m2 = (0x12345678 * 0x9abcdef) | 0;\n"
+                        + "  var s = 1 << 31, t = ~s, big = 4294967295 | 0;\n"
+                        + "  var sh = 7 >> 33, q = 5;\n"
+                        + "  q = q ^ 3;\n"
+                        + "  return [a, m, m2, s, t, big, sh, q, typeof q].join(' ');\n"
+                        + "}\n"
+                        + "f()");
+    }
+
+    @Test
+    public void hashLoop() {
+        Utils.assertWithAllModes_ES6(
+                "1575827561 1961098049",
+                "function hash(s) {\n"
+                        + "  var h = 0;\n"
+                        + "  for (var i = 0; i < s.length; i++) {\n"
+                        + "    h = (h * 31 + s.charCodeAt(i)) | 0;\n"
+                        + "  }\n"
+                        + "  return h;\n"
+                        + "}\n"
+                        + "function crc(n) {\n"
+                        + "  var c = -1;\n"
+                        + "  for (var i = 0; i < n; i++) {\n"
+                        + "    var x = (c ^ i) & 0xff;\n"
+                        + "    for (var k = 0; k < 8; k++) {\n"
+                        + "      x = (x & 1) ? (x >>> 1) ^ 0xEDB88320 : x >>> 1;\n"
+                        + "    }\n"
+                        + "    c = (c >>> 8) ^ x;\n"
+                        + "  }\n"
+                        + "  return (c ^ -1) >>> 0;\n"
+                        + "}\n"
+                        + "hash('hello world, this is a hashing test') + ' ' + crc(1000)");
+    }
+
+    @Test
+    public void nonInt32Values() {
+        FunctionNode fn =
+                compile(
+                        "function f(c) {\n"
+                                + "  var z = -0, x = c ? 1 : 0.5, n = 1;\n"
+                                + "  n++;\n"
+                                + "  var y = c ? 1 : 2;\n"
+                                + "  return 1 / z + x + n + y;\n"
+                                + "}");
+        assertEquals("[y]", int32Vars(fn).toString());
+
+        Utils.assertWithAllModes_ES6(
+                "-Infinity 0.5 2147483648 2",
+                "function f(c) {\n"
+                        + "  var z = -0, x = c ? 1 : 0.5, n = 0x7fffffff, y = c ? 1 : 2;\n"
+                        + "  n++;\n"
+                        + "  return [1 / z, x, n, y].join(' ');\n"
+                        + "}\n"
+                        + "f(false)");
+    }
+
+    private static List<String> int32Vars(FunctionNode fn) {
+        OptFunctionNode opt = OptFunctionNode.get(fn);
+        List<String> result = new ArrayList<>();
+        for (int i = fn.getParamCount(); i < opt.getVarCount(); i++) {
+            if (opt.isInt32Var(i)) {
+                result.add(opt.getVarName(i));
+            }
+        }
+        return result;
+    }
+
+    private static FunctionNode compile(String source) {
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            CompilerEnvirons compilerEnv = new CompilerEnvirons();
+            compilerEnv.initFromContext(cx);
+            Parser p = new Parser(compilerEnv, compilerEnv.getErrorReporter());
+            AstRoot ast = p.parse(source, "<eval>", 1);
+            IRFactory irf = new IRFactory(compilerEnv, source);
+            ScriptNode tree = irf.transformTree(ast);
+
+            Codegen codegen = new Codegen();
+            codegen.setMainMethodClass("Main");
+            codegen.compileToClassFile(
+                    compilerEnv,
+                    new JSDescriptor.Builder(),
+                    new OptJSCode.BuilderEnv("Main"),
+                    "Main",
+                    tree,
+                    tree.getRawSource(),
+                    false);
+            return tree.getFunctionNode(0);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.tests;
+
+import org.junit.Test;
+import org.mozilla.javascript.testutils.Utils;
+
+/** Tests for the superinstructions and quickened instructions of the interpreter. */
+public class InterpreterSuperinstructionTest {
+
+    @Test
+    public void comparisonsAndJumps() {
+        Utils.assertWithAllModes_ES6(
+                "3 3 4 4 | 0 0 1 1 | 0 0 0 0 | 1 1",
+                "function count(a, b) {\n"
+                        + "  var r = [0, 0, 0, 0];\n"
+                        + "  for (var i = 0; i < 3; i++) {\n"
+                        + "    if (a < b) r[0]++;\n"
+                        + "    if (a <= b) r[1]++;\n"
+                        + "    if (a > b) r[2]++;\n"
+                        + "    if (a >= b) r[3]++;\n"
+                        + "  }\n"
+                        + "  return r.map(function(x) { return x / 3; }).join(' ');\n"
+                        + "}\n"
+                        + "var n = 0, m = 0;\n"
+                        + "while (n < 3) n++;\n"
+                        + "do m++; while (m <= 3);\n"
+                        + "var o = { valueOf: function() { return 2; } };\n"
+                        + "[n, n, m, m].join(' ') + ' | ' + count('a', o + 'b') + ' | '\n"
+                        + "    + count(NaN, 1) + ' | ' + count(2, o).split(' ')[1]\n"
+                        + "    + ' ' + count(2n, 2).split(' ')[3]");
+    }
+
+    @Test
+    public void incrementsOfLocals() {
+        Utils.assertWithAllModes_ES6(
+                "3 2 5 11 3 2",
+                "function f() {\n"
+                        + "  var i = 0, s = '1', b = 10n, d = 5;\n"
+                        + "  i++; i++; ++i;\n"
+                        + "  s++;\n"
+                        + "  b++;\n"
+                        + "  const c = 5;\n"
+                        + "  try { c++; } catch (e) {}\n"
+                        + "  d--; d--; --d;\n"
+                        + "  return [i, s, c, b, i, d].join(' ');\n"
+                        + "}\n"
+                        + "f()");
+    }
+
+    @Test
+    public void localsInActivation() {
+        Utils.assertWithAllModes_ES6(
+                "4 4 6",
+                "function f() {\n"
+                        + "  var i = 0, x = [1, 2, 3, 4], s = 0;\n"
+                        + "  eval('');\n"
+                        + "  while (i < x.length) { s += x[i]; i++; }\n"
+                        + "  return [i, x.length, s - i].join(' ');\n"
+                        + "}\n"
+                        + "f()");
+    }
+
+    @Test
+    public void lengthOfManyTypes() {
+        Utils.assertWithAllModes_ES6(
+                "3 2 5 7 4 2 undefined 2 TypeError",
+                "function len(x) { return x.length; }\n"
+                        + "function args() { return len(arguments); }\n"
+                        + "var r = [];\n"
+                        + "r.push(len([1, 2, 3]));\n"
+                        + "r.push(len('ab'));\n"
+                        + "r.push(len({ length: 5 }));\n"
+                        + "r.push(len('abc' + 'defg'));\n"
+                        + "r.push(len(new Int8Array(4)));\n"
+                        + "r.push(args(0, 0));\n"
+                        + "r.push(String(len(1)));\n"
+                        + "r.push(len(function(a, b) {}));\n"
+                        + "try { len(null); } catch (e) { r.push(e.name); }\n"
+                        + "r.join(' ')");
+    }
+
+    @Test
+    public void lengthAfterQuickening() {
+        Utils.assertWithAllModes_ES6(
+                "0 1 2 3 7 7 3",
+                "function lengths(a) {\n"
+                        + "  var r = [];\n"
+                        + "  for (var i = 0; i < a.length; i++) r.push(a[i].length);\n"
+                        + "  return r.join(' ');\n"
+                        + "}\n"
+                        + "var p = { get length() { return 7; } };\n"
+                        + "lengths([[], 'a', [1, 2], 'abc', p, Object.create(p), [, , ,]])");
+    }
+
+    @Test
+    public void exceptionsInFusedInstructions() {
+        Utils.assertWithAllModes_ES6(
+                "TypeError 3 caught done",
+                "function f(o) {\n"
+                        + "  try {\n"
+                        + "    return o.x;\n"
+                        + "  } catch (e) {\n"
+                        + "    return e.name + ' ' + e.lineNumber;\n"
+                        + "  }\n"
+                        + "}\n"
+                        + "function g(a, b) {\n"
+                        + "  try { if (a < b) return 'no'; } catch (e) { return 'caught'; }\n"
+                        + "  return 'done';\n"
+                        + "}\n"
+                        + "var bad = { valueOf: function() { throw 1; } };\n"
+                        + "[f(null), g(bad, 1), g(2, 1)].join(' ')");
+    }
+}
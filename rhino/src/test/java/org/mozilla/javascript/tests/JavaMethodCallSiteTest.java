@@ -0,0 +1,129 @@
+package org.mozilla.javascript.tests;
+
+import org.junit.Test;
+import org.mozilla.javascript.WrappedException;
+import org.mozilla.javascript.testutils.Utils;
+
+/**
+ * Calls into Java methods from the same call site, which the compiled mode links directly to the
+ * Java method when it is not overloaded.
+ */
+public class JavaMethodCallSiteTest {
+
+    @Test
+    public void sameMethodInLoop() {
+        Utils.assertWithAllModes(
+                "15|abcde",
+                "var n = 0;\n"
+                        + "for (var i = 0; i < 10; i++) { n += java.lang.Integer.bitCount(i); }\n"
+                        + "var sb = new java.lang.StringBuilder('abcdefgh');\n"
+                        + "for (var i = 8; i > 5; i--) { sb.setLength(i - 1); }\n"
+                        + "n + '|' + sb");
+    }
+
+    @Test
+    public void overloadedMethodInLoop() {
+        Utils.assertWithAllModes(
+                "0123456789",
+                "var sb = new java.lang.StringBuilder();\n"
+                        + "for (var i = 0; i < 10; i++) { sb.append(String(i)); }\n"
+                        + "String(sb.toString())");
+    }
+
+    @Test
+    public void differentMethodsAtSameSite() {
+        Utils.assertWithAllModes(
+                "ff,11111111,377,8",
+                "var I = java.lang.Integer;\n"
+                        + "var fns = [I.toHexString, I.toBinaryString,\n"
+                        + "           I.toOctalString, I.bitCount];\n"
+                        + "var r = [];\n"
+                        + "for (var f of fns) { r.push(String(f(255))); }\n"
+                        + "r.join()");
+    }
+
+    @Test
+    public void overloadChangesWithArgumentTypes() {
+        Utils.assertWithAllModes(
+                "1.5|x|true|x|1.5|true",
+                "var sb = new java.lang.StringBuilder();\n"
+                        + "var values = [1.5, 'x', true, 'x', 1.5, true];\n"
+                        + "for (var i = 0; i < values.length; i++) {\n"
+                        + "  if (i > 0) sb.append('|');\n"
+                        + "  sb.append(values[i]);\n"
+                        + "}\n"
+                        + "String(sb)");
+    }
+
+    @Test
+    public void overloadedMethodsAtSameSite() {
+        Utils.assertWithAllModes(
+                "x,2.5,x,2.5",
+                "var fns = [java.lang.String.valueOf, java.lang.Math.abs];\n"
+                        + "var args = ['x', -2.5];\n"
+                        + "var r = [];\n"
+                        + "for (var k = 0; k < 2; k++) {\n"
+                        + "  for (var i = 0; i < 2; i++) { r.push(String(fns[i](args[i]))); }\n"
+                        + "}\n"
+                        + "r.join()");
+    }
+
+    @Test
+    public void argumentsAreConverted() {
+        Utils.assertWithAllModes(
+                "2a:x:7:2:3",
+                "var s = java.lang.Integer.toHexString(42);\n"
+                        + "var c = new java.lang.StringBuilder('x').charAt(0);\n"
+                        + "var r = [s, String.fromCharCode(c)];\n"
+                        + "r.push(java.lang.Math.toIntExact(7.9));\n"
+                        + "r.push(java.lang.Integer.bitCount(3.7));\n"
+                        + "r.push(java.lang.Integer.bitCount(java.lang.Long.valueOf(7)));\n"
+                        + "r.join(':')");
+    }
+
+    @Test
+    public void nullIsNotConvertedToPrimitive() {
+        Utils.assertWithAllModes(
+                "caught,caught,caught|abc",
+                "var sb = new java.lang.StringBuilder('abc');\n"
+                        + "var r = [];\n"
+                        + "for (var i = 0; i < 3; i++) {\n"
+                        + "  try { sb.setLength(null); r.push('not caught'); }\n"
+                        + "  catch (e) { r.push('caught'); }\n"
+                        + "}\n"
+                        + "r + '|' + sb");
+    }
+
+    @Test
+    public void valuesAreNotNarrowed() {
+        Utils.assertWithAllModes(
+                "caught,caught,caught",
+                "var big = java.lang.Long.valueOf('1099511627779');\n"
+                        + "var r = [];\n"
+                        + "for (var i = 0; i < 3; i++) {\n"
+                        + "  var x = [Math.pow(2, 40) + 3, big, Math.pow(2, 40)][i];\n"
+                        + "  try {\n"
+                        + "    r.push(i < 2 ? java.lang.Integer.bitCount(x)\n"
+                        + "                 : java.lang.Math.toIntExact(x));\n"
+                        + "  } catch (e) { r.push('caught'); }\n"
+                        + "}\n"
+                        + "r.join()");
+    }
+
+    @Test
+    public void badArgumentsAreReported() {
+        Utils.assertWithAllModes(
+                "caught",
+                "var sb = new java.lang.StringBuilder();\n"
+                        + "try { sb.setLength(); 'not caught' } catch (e) { 'caught' }");
+    }
+
+    @Test
+    public void exceptionsFromJavaAreWrapped() {
+        Utils.assertException(
+                -1,
+                WrappedException.class,
+                "Wrapped java.lang.NumberFormatException",
+                "java.lang.Integer.parseInt('not a number')");
+    }
+}
@@ -0,0 +1,121 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.testutils.Utils;
+
+/** Tests for the caches of names that are found in the top-level scope. */
+public class NameBindingTest {
+
+    @Test
+    public void globalsInLoop() {
+        Utils.assertWithAllModes_ES6(
+                "3 3 300",
+                "var g = 1;\n"
+                        + "function helper(x) { return x; }\n"
+                        + "function f() {\n"
+                        + "  var s = 0;\n"
+                        + "  for (var i = 0; i < 100; i++) s += Math.abs(-g) + helper(2);\n"
+                        + "  return s;\n"
+                        + "}\n"
+                        + "var a = f() / 100;\n"
+                        + "function inner() { return function() { return Math.max(g, 2) + 1; }; }\n"
+                        + "var c = inner();\n"
+                        + "var b = 0;\n"
+                        + "for (var i = 0; i < 100; i++) b = c();\n"
+                        + "a + ' ' + b + ' ' + f()");
+    }
+
+    @Test
+    public void assignmentIsSeen() {
+        Utils.assertWithAllModes_ES6(
+                "1 2 3",
+                "var g = 1;\n"
+                        + "function get() { return g; }\n"
+                        + "var r = [];\n"
+                        + "for (var i = 0; i < 3; i++) { r.push(get()); g++; }\n"
+                        + "r.join(' ')");
+    }
+
+    @Test
+    public void deletedGlobalIsNotFound() {
+        Utils.assertWithAllModes_ES6(
+                "1 1 ReferenceError",
+                "this.g = 1;\n"
+                        + "function get() { return g; }\n"
+                        + "var r = [get(), get()];\n"
+                        + "delete this.g;\n"
+                        + "try { r.push(get()); } catch (e) { r.push(e.name); }\n"
+                        + "r.join(' ')");
+    }
+
+    @Test
+    public void accessorReplacesValue() {
+        Utils.assertWithAllModes_ES6(
+                "1 1 42",
+                "this.g = 1;\n"
+                        + "function get() { return g; }\n"
+                        + "var r = [get(), get()];\n"
+                        + "Object.defineProperty(this, 'g', { get: function() { return 42; } });\n"
+                        + "r.push(get());\n"
+                        + "r.join(' ')");
+    }
+
+    @Test
+    public void functionReplacedByAnother() {
+        Utils.assertWithAllModes_ES6(
+                "1 1 2",
+                "function helper() { return 1; }\n"
+                        + "function call() { return helper(); }\n"
+                        + "var r = [call(), call()];\n"
+                        + "helper = function() { return 2; };\n"
+                        + "r.push(call());\n"
+                        + "r.join(' ')");
+    }
+
+    @Test
+    public void evalShadowsGlobal() {
+        Utils.assertWithAllModes_ES6(
+                "1 1 2",
+                "var g = 1;\n"
+                        + "function outer() {\n"
+                        + "  var f = function() { return g; };\n"
+                        + "  var r = [f(), f()];\n"
+                        + "  eval('var g = 2');\n"
+                        + "  r.push(f());\n"
+                        + "  return r.join(' ');\n"
+                        + "}\n"
+                        + "outer()");
+    }
+
+    @Test
+    public void sameScriptInSeveralScopes() {
+        Utils.runWithAllModes(
+                cx -> {
+                    cx.setLanguageVersion(Context.VERSION_ES6);
+                    Script script =
+                            cx.compileString(
+                                    "function get() { return g; }\n"
+                                            + "var s = 0;\n"
+                                            + "for (var i = 0; i < 10; i++) s += get();\n"
+                                            + "s",
+                                    "test.js",
+                                    1,
+                                    null);
+                    for (int i = 1; i <= 3; i++) {
+                        Scriptable scope = cx.initStandardObjects();
+                        scope.put("g", scope, i);
+                        assertEquals(10 * i, Context.toNumber(script.exec(cx, scope)), 0);
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,156 @@
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.testutils.Utils;
+
+/**
+ * Arrays whose elements are all numbers keep them unboxed, and move to a general store the first
+ * time that a value does not fit.
+ */
+public class NativeArrayElementKindsTest {
+
+    @Test
+    public void integers() {
+        Utils.assertWithAllModes(
+                "4950|100|true",
+                "var a = [];\n"
+                        + "for (var i = 0; i < 100; i++) { a[i] = i; }\n"
+                        + "var s = 0;\n"
+                        + "for (var i = 0; i < a.length; i++) { s += a[i]; }\n"
+                        + "s + '|' + a.length + '|' + (99 in a)");
+    }
+
+    @Test
+    public void integersToDoubles() {
+        Utils.assertWithAllModes(
+                "1,2.5,NaN,4|true|-Infinity",
+                "var a = [1, 2, 3, 4];\n"
+                        + "a[1] = 2.5; a[2] = NaN; a[3] = 4;\n"
+                        + "var b = [0, 1]; b[0] = -0;\n"
+                        + "a.join() + '|' + isNaN(a[2]) + '|' + (1 / b[0])");
+    }
+
+    @Test
+    public void numbersToObjects() {
+        Utils.assertWithAllModes(
+                "x,1.5,2,y|4",
+                "var a = [1.5, 2];\n"
+                        + "a.push('y');\n"
+                        + "a.unshift('x');\n"
+                        + "a.join() + '|' + a.length");
+    }
+
+    @Test
+    public void holes() {
+        Utils.assertWithAllModes(
+                "1,,3,,|false|false|true|NaN",
+                "var a = [1, 2, 3];\n"
+                        + "a.length = 5;\n"
+                        + "delete a[1];\n"
+                        + "var b = new Array(3); b[0] = NaN;\n"
+                        + "a.join() + '|' + (1 in a) + '|' + (4 in a)\n"
+                        + "  + '|' + (0 in b) + '|' + b[0]");
+    }
+
+    @Test
+    public void pop() {
+        Utils.assertWithAllModes(
+                "3|1,2|2|2.5|1|1,4|undefined|0",
+                "var a = [1, 2, 3];\n"
+                        + "var r = a.pop() + '|' + a.join() + '|' + a.length;\n"
+                        + "var d = [1, 2.5];\n"
+                        + "r += '|' + d.pop() + '|' + d.length;\n"
+                        + "d.push(4);\n"
+                        + "r += '|' + d.join();\n"
+                        + "var h = [1, 2]; h.length = 3;\n"
+                        + "h.pop(); h.pop(); h.pop();\n"
+                        + "r + '|' + h.pop() + '|' + h.length");
+    }
+
+    @Test
+    public void frozen() {
+        Utils.assertWithAllModes(
+                "1,2,3",
+                "var a = [1, 2, 3];\n" + "Object.freeze(a);\n" + "a[0] = 42;\n" + "a.join()");
+    }
+
+    @Test
+    public void builtins() {
+        Utils.assertWithAllModes(
+                "3,2,1|2,3|1,2,3,4.5|1|[1,2.5,null]",
+                "var a = [1, 2, 3];\n"
+                        + "var r = a.slice().reverse().join();\n"
+                        + "r += '|' + a.slice(1).join();\n"
+                        + "r += '|' + a.concat([4.5]).join();\n"
+                        + "r += '|' + a.indexOf(2);\n"
+                        + "r + '|' + JSON.stringify([1, 2.5, NaN])");
+    }
+
+    @Test
+    public void javaGetsTheStoredType() {
+        try (Context cx = Context.enter()) {
+            Scriptable scope = cx.initStandardObjects();
+            NativeArray a = (NativeArray) cx.newArray(scope, new Object[] {1, 2.5, 3});
+            a.put(5, a, 4);
+            a.put(1, a, 5);
+            a.put(2, a, 6.0);
+            assertEquals(Integer.valueOf(1), a.get(0));
+            assertEquals(Integer.valueOf(5), a.get(1));
+            assertEquals(Double.valueOf(6.0), a.get(2));
+            assertNull(a.get(3));
+            assertEquals(Integer.valueOf(4), a.get(5));
+
+            NativeArray b = (NativeArray) cx.newArray(scope, new Object[] {1, 2});
+            b.delete(0);
+            assertNull(b.get(0));
+            assertEquals(Integer.valueOf(2), b.get(1));
+        }
+    }
+
+    @Test
+    public void subclassesKeepTheirOverrides() {
+        Utils.runWithAllModes(
+                cx -> {
+                    Scriptable scope = cx.initStandardObjects();
+                    NativeArray a =
+                            new NativeArray(new Object[] {1, 2}) {
+                                @Override
+                                public Object get(int index, Scriptable start) {
+                                    return "g" + super.get(index, start);
+                                }
+
+                                @Override
+                                public void put(int index, Scriptable start, Object value) {
+                                    super.put(index, start, ((Number) value).intValue() * 2);
+                                }
+                            };
+                    a.setPrototype(ScriptableObject.getArrayPrototype(scope));
+                    a.setParentScope(scope);
+                    ScriptableObject.putProperty(scope, "a", a);
+                    assertEquals(
+                            "g1|g0g2",
+                            cx.evaluateString(
+                                    scope,
+                                    "function f(a) {\n"
+                                            + "  var s = a[1 - 1] + '|';\n"
+                                            + "  for (var i = 0; i < 2; i++) {\n"
+                                            + "    a[i] = i + 0.5;\n"
+                                            + "    s += a[i];\n"
+                                            + "  }\n"
+                                            + "  return s;\n"
+                                            + "}\n"
+                                            + "f(a)",
+                                    "test.js",
+                                    1,
+                                    null));
+                    return null;
+                });
+    }
+}
@@ -6,9 +6,17 @@
 package org.mozilla.javascript.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import org.junit.Test;
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.NativeJSON;
 import org.mozilla.javascript.Scriptable;
 
 /**
@@ -28,4 +36,62 @@ public class NativeJsonTest {
             assertEquals("java.lang.String", result.getClass().getName());
         }
     }
+
+    @Test
+    public void stringifyToWriter() throws IOException {
+        String jsScript =
+                "var o = {a: [1, 'x', null], b: {c: true}, d: undefined}; o.list = [];\n"
+                        + "for (var i = 0; i < 5000; i++) o.list.push({i: i, s: 'v' + i});\n"
+                        + "o";
+        try (Context cx = Context.enter()) {
+            Scriptable scope = cx.initStandardObjects();
+            Object value = cx.evaluateString(scope, jsScript, "myscript.js", 1, null);
+            for (Object space : new Object[] {null, 2}) {
+                Object expected = NativeJSON.stringify(cx, scope, value, null, space);
+                StringWriter writer = new StringWriter();
+                assertTrue(NativeJSON.stringify(cx, scope, value, null, space, writer));
+                assertEquals(expected, writer.toString());
+                StringBuilder sb = new StringBuilder();
+                assertTrue(NativeJSON.stringify(cx, scope, value, null, space, sb));
+                assertEquals(expected, sb.toString());
+            }
+        }
+    }
+
+    @Test
+    public void stringifyUndefinedToWriter() throws IOException {
+        try (Context cx = Context.enter()) {
+            Scriptable scope = cx.initStandardObjects();
+            Object undefined = Context.getUndefinedValue();
+            StringWriter writer = new StringWriter();
+            assertFalse(NativeJSON.stringify(cx, scope, undefined, null, null, writer));
+            assertEquals("", writer.toString());
+        }
+    }
+
+    @Test
+    public void stringifyToWriterReportsIOException() {
+        IOException failure = new IOException("disk full");
+        Writer writer =
+                new Writer() {
+                    @Override
+                    public void write(char[] cbuf, int off, int len) throws IOException {
+                        throw failure;
+                    }
+
+                    @Override
+                    public void flush() {}
+
+                    @Override
+                    public void close() {}
+                };
+        try (Context cx = Context.enter()) {
+            Scriptable scope = cx.initStandardObjects();
+            Object value = cx.evaluateString(scope, "[1, 2, 3]", "myscript.js", 1, null);
+            NativeJSON.stringify(cx, scope, value, null, null, writer);
+            fail();
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+    }
 }
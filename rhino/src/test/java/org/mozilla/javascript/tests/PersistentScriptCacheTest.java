@@ -0,0 +1,213 @@
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.LruScriptCache;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.optimizer.PersistentScriptCache;
+
+public class PersistentScriptCacheTest {
+
+    private static final String SCRIPT =
+            "function* gen(n) { for (var i = 0; i < n; i++) yield i; }\n"
+                    + "function sum(...xs) { return xs.reduce((a, b) => a + b, 0); }\n"
+                    + "var m = /b+/.exec('abbbc')[0];\n"
+                    + "var t = 0; for (var v of gen(5)) t += v;\n"
+                    + "`${m}:${sum(t)}:${sum.length}`";
+
+    private Path dir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("rhino-cache");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        for (Path file : files()) {
+            Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    private List<Path> files() throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            stream.forEach(result::add);
+        }
+        return result;
+    }
+
+    /** Compile and run the script with a new factory and cache, as a new process would. */
+    private Object run(PersistentScriptCache cache, String source) {
+        ContextFactory factory = new ContextFactory();
+        factory.setScriptCache(cache);
+        try (Context cx = factory.enterContext()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            cx.setInterpretedMode(false);
+            Scriptable scope = cx.initStandardObjects();
+            Script script = cx.compileString(source, "test.js", 1, null);
+            return script.exec(cx, scope, scope);
+        }
+    }
+
+    @Test
+    public void scriptIsLoadedFromDisk() throws IOException {
+        PersistentScriptCache first = new PersistentScriptCache(dir);
+        assertEquals("bbb:10:0", run(first, SCRIPT));
+        assertEquals(0, first.getHitCount());
+        assertEquals(1, first.getMissCount());
+        assertEquals(1, files().size());
+
+        PersistentScriptCache second = new PersistentScriptCache(dir);
+        assertEquals("bbb:10:0", run(second, SCRIPT));
+        assertEquals(1, second.getHitCount());
+        assertEquals(0, second.getMissCount());
+    }
+
+    @Test
+    public void functionIsLoadedFromDisk() throws IOException {
+        String source = "function f(a, b) { return a * b + 1; }";
+        for (int i = 0; i < 2; i++) {
+            PersistentScriptCache cache = new PersistentScriptCache(dir);
+            ContextFactory factory = new ContextFactory();
+            factory.setScriptCache(cache);
+            try (Context cx = factory.enterContext()) {
+                cx.setInterpretedMode(false);
+                Scriptable scope = cx.initStandardObjects();
+                Function f = cx.compileFunction(scope, source, "f.js", 1, null);
+                assertEquals(7.0, f.call(cx, scope, scope, new Object[] {2, 3}));
+            }
+            assertEquals(i, cache.getHitCount());
+        }
+    }
+
+    @Test
+    public void memoryCacheIsCheckedFirst() throws IOException {
+        LruScriptCache memory = new LruScriptCache(10);
+        PersistentScriptCache cache = new PersistentScriptCache(dir, memory);
+        run(cache, SCRIPT);
+        run(cache, SCRIPT);
+        assertEquals(1, memory.getHitCount());
+        assertEquals(0, cache.getHitCount());
+
+        memory.clear();
+        assertEquals("bbb:10:0", run(cache, SCRIPT));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, memory.size());
+    }
+
+    @Test
+    public void corruptEntriesAreReplaced() throws IOException {
+        run(new PersistentScriptCache(dir), SCRIPT);
+        Path file = files().get(0);
+        byte[] valid = Files.readAllBytes(file);
+
+        byte[] truncated = new byte[valid.length / 2];
+        System.arraycopy(valid, 0, truncated, 0, truncated.length);
+        Files.write(file, truncated);
+        PersistentScriptCache cache = new PersistentScriptCache(dir);
+        assertEquals("bbb:10:0", run(cache, SCRIPT));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        Files.write(file, "garbage".getBytes(StandardCharsets.UTF_8));
+        assertEquals("bbb:10:0", run(cache, SCRIPT));
+        assertEquals(0, cache.getHitCount());
+
+        // Each miss wrote a valid entry back
+        assertEquals(1, files().size());
+        assertEquals("bbb:10:0", run(cache, SCRIPT));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void modifiedEntriesAreReplaced() throws IOException {
+        run(new PersistentScriptCache(dir), SCRIPT);
+        Path file = files().get(0);
+        // Change one byte of the contents, leaving the file readable
+        byte[] modified = Files.readAllBytes(file);
+        modified[modified.length - 5] ^= 1;
+        Files.write(file, modified);
+        PersistentScriptCache cache = new PersistentScriptCache(dir);
+        assertEquals("bbb:10:0", run(cache, SCRIPT));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // The miss wrote a valid entry back
+        assertEquals("bbb:10:0", run(cache, SCRIPT));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void entriesForOtherScriptsAreNotLoaded() throws IOException {
+        PersistentScriptCache cache = new PersistentScriptCache(dir);
+        assertEquals(2, run(cache, "1 + 1"));
+        Path other = files().get(0);
+        byte[] otherEntry = Files.readAllBytes(other);
+        Files.delete(other);
+
+        run(cache, SCRIPT);
+        Path file = files().get(0);
+        Files.write(file, otherEntry);
+        cache = new PersistentScriptCache(dir);
+        assertEquals("bbb:10:0", run(cache, SCRIPT));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void tieredScriptsAreStored() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            PersistentScriptCache cache = new PersistentScriptCache(dir);
+            ContextFactory factory = new ContextFactory();
+            factory.setScriptCache(cache);
+            try (Context cx = factory.enterContext()) {
+                cx.setLanguageVersion(Context.VERSION_ES6);
+                cx.setInterpretedMode(false);
+                cx.setTierUpThreshold(100);
+                Scriptable scope = cx.initStandardObjects();
+                Script script = cx.compileString(SCRIPT, "test.js", 1, null);
+                assertEquals("bbb:10:0", script.exec(cx, scope, scope));
+            }
+            assertEquals(i, cache.getHitCount());
+            assertEquals(1, files().size());
+        }
+    }
+
+    @Test
+    public void interpretedScriptsAreNotStored() throws IOException {
+        PersistentScriptCache cache = new PersistentScriptCache(dir);
+        ContextFactory factory = new ContextFactory();
+        factory.setScriptCache(cache);
+        try (Context cx = factory.enterContext()) {
+            cx.setInterpretedMode(true);
+            cx.compileString("1 + 1", "test.js", 1, null);
+        }
+        assertEquals(0, files().size());
+    }
+
+    @Test
+    public void clearRemovesFiles() throws IOException {
+        PersistentScriptCache cache = new PersistentScriptCache(dir);
+        run(cache, SCRIPT);
+        run(cache, "1 + 1");
+        assertEquals(2, files().size());
+        cache.clear();
+        assertEquals(0, files().size());
+    }
+}
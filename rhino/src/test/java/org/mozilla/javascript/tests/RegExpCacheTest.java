@@ -0,0 +1,80 @@
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.EcmaError;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.regexp.RegExpCache;
+import org.mozilla.javascript.testutils.Utils;
+
+public class RegExpCacheTest {
+
+    @Test
+    public void stringPatternsAreCompiledOnce() {
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            Scriptable scope = cx.initStandardObjects();
+            String tag = "cache-test-" + System.nanoTime();
+            long hits = RegExpCache.getHitCount();
+            long misses = RegExpCache.getMissCount();
+            Object result =
+                    cx.evaluateString(
+                            scope,
+                            "var tag = '"
+                                    + tag
+                                    + "';\n"
+                                    + "var p = tag + '(\\\\d+)';\n"
+                                    + "var n = 0;\n"
+                                    + "for (var i = 0; i < 10; i++) {\n"
+                                    + "  if ((tag + i).match(p)[1] == i) n++;\n"
+                                    + "  if (('a ' + tag + i).search(p) === 2) n++;\n"
+                                    + "}\n"
+                                    + "n",
+                            "test.js",
+                            1,
+                            null);
+            assertEquals(20, Context.toNumber(result), 0.0);
+            // Other tests may use the cache at the same time, so only check the lower bounds
+            assertTrue(RegExpCache.getMissCount() - misses >= 1);
+            assertTrue(RegExpCache.getHitCount() - hits >= 19);
+        }
+    }
+
+    @Test
+    public void flagsArePartOfTheKey() {
+        Utils.assertWithAllModes_ES6(
+                "true|false|true",
+                "var s = 'ABC';\n"
+                        + "[new RegExp('abc', 'i').test(s), new RegExp('abc').test(s),\n"
+                        + "  new RegExp('abc', 'i').test(s)].join('|')");
+    }
+
+    @Test
+    public void errorsAreNotCached() {
+        for (int i = 0; i < 2; i++) {
+            try (Context cx = Context.enter()) {
+                Scriptable scope = cx.initStandardObjects();
+                try {
+                    cx.evaluateString(scope, "'abc'.match('(')", "test.js", 1, null);
+                    throw new AssertionError("expected a SyntaxError");
+                } catch (EcmaError e) {
+                    assertEquals("SyntaxError", e.getName());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void setMaxEntries() {
+        int max = RegExpCache.getMaxEntries();
+        try {
+            RegExpCache.setMaxEntries(1);
+            assertTrue(RegExpCache.size() <= 1);
+        } finally {
+            RegExpCache.setMaxEntries(max);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.mozilla.javascript.tests;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.regexp.CompiledRegExp;
+import org.mozilla.javascript.testutils.Utils;
+
+/**
+ * Regular expressions compiled to bytecode must match exactly like interpreted ones, including the
+ * ones that the compiler does not support and leaves to the interpreter.
+ */
+public class RegExpCompilerTest {
+    private int threshold;
+
+    @Before
+    public void compileEverything() {
+        threshold = CompiledRegExp.getCompileThreshold();
+        CompiledRegExp.setCompileThreshold(0);
+    }
+
+    @After
+    public void restoreThreshold() {
+        CompiledRegExp.setCompileThreshold(threshold);
+    }
+
+    @Test
+    public void flatAndClasses() {
+        Utils.assertWithAllModes_ES6(
+                "abc|JOE@EXAMPLE.COM|HeLLo|v1.2.3|def|Éé",
+                "['xxabcxx'.match(/abc/)[0],\n"
+                        + " 'Mail: JOE@EXAMPLE.COM'.match(/[a-z]+@[a-z]+\\.com/i)[0],\n"
+                        + " 'HeLLo'.match(/hello/i)[0],\n"
+                        + " 'v1.2.3'.match(/v[\\d.]+/)[0],\n"
+                        + " 'abcdefabc'.match(/[^abc]+/)[0],\n"
+                        + " 'Éé'.match(/é+/i)[0]].join('|')");
+    }
+
+    @Test
+    public void quantifiers() {
+        Utils.assertWithAllModes_ES6(
+                "aaab|aaab|xxx|xx|xxxxx|color,colour|ab",
+                "['caaab'.match(/a+b/)[0], 'aaab'.match(/a*?b/)[0],\n"
+                        + " 'xxxxx'.match(/x{2,3}/)[0], 'xxxxx'.match(/x{2,3}?/)[0],\n"
+                        + " 'xxxxx'.match(/x{2,}/)[0], 'color colour'.match(/colou?r/g).join(),\n"
+                        + " 'ab'.match(/a??b/)[0]].join('|')");
+    }
+
+    @Test
+    public void anchors() {
+        Utils.assertWithAllModes_ES6(
+                "2|2|1|3|ab|5",
+                "['x\\nfoo\\ny'.search(/^foo$/m), 'a foo b'.search(/\\bfoo\\b/),\n"
+                        + " 'foo'.search(/\\Bo\\B/), 'abc'.search(/$/),\n"
+                        + " 'ab\\ncd'.match(/.+/)[0], 'ab\\ncd'.match(/.+/s)[0].length].join('|')");
+    }
+
+    @Test
+    public void groupsAndAlternatives() {
+        Utils.assertWithAllModes_ES6(
+                "123-4567,123,4567|abcd,a,bcd,|b,,b|abc,ab,a|y,|cde",
+                "['tel 123-4567!'.match(/(\\d+)-(\\d+)/), 'abcd'.match(/(a|ab)(c|bcd)(d*)/),\n"
+                        + " 'b'.match(/(a)|(b)/), 'abc'.match(/((a)b)c/), 'y'.match(/(x)?y/),\n"
+                        + " 'cde'.match(/(?:ab|cd)e/)].join('|')");
+    }
+
+    @Test
+    public void replaceAndSplit() {
+        Utils.assertWithAllModes_ES6(
+                "Smith, John|a,b,c",
+                "['John Smith'.replace(/(\\w+)\\s(\\w+)/, '$2, $1'),\n"
+                        + " 'a1b22c'.split(/\\d+/).join()].join('|')");
+    }
+
+    @Test
+    public void unsupportedPatternsAreInterpreted() {
+        Utils.assertWithAllModes_ES6(
+                "aa|a|abcd|😀",
+                "['aa'.match(/(a)\\1/)[0], 'a'.match(/(?=a)a/)[0],\n"
+                        + " 'abcd'.match(/((ab)|(cd))+/)[0], '😀'.match(/./u)[0]]\n"
+                        + "  .join('|')");
+    }
+}
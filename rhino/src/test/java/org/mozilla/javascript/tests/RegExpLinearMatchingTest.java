@@ -0,0 +1,103 @@
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.regexp.NativeRegExp;
+import org.mozilla.javascript.regexp.RegExpCache;
+import org.mozilla.javascript.testutils.Utils;
+
+/**
+ * Patterns without back references or lookaround can be matched in linear time, with the same
+ * results as the backtracking matcher.
+ */
+public class RegExpLinearMatchingTest {
+    private boolean linearMatching;
+
+    @Before
+    public void enableLinearMatching() {
+        linearMatching = NativeRegExp.isLinearMatching();
+        NativeRegExp.setLinearMatching(true);
+        RegExpCache.clear();
+    }
+
+    @After
+    public void restoreLinearMatching() {
+        NativeRegExp.setLinearMatching(linearMatching);
+        RegExpCache.clear();
+    }
+
+    private static boolean isLinearTime(String regexp) {
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            Scriptable scope = cx.initStandardObjects();
+            Object re = cx.evaluateString(scope, regexp, "test.js", 1, null);
+            return ((NativeRegExp) re).isLinearTime();
+        }
+    }
+
+    @Test
+    public void introspection() {
+        assertTrue(isLinearTime("/(a+)+b/"));
+        assertTrue(isLinearTime("/^(\\w+)\\s(\\w+)$/im"));
+        assertTrue(isLinearTime("new RegExp('[a-z]+', 'g')"));
+        assertFalse(isLinearTime("/(a)\\1/"));
+        assertFalse(isLinearTime("/a(?=b)/"));
+        assertFalse(isLinearTime("/(a*)*/"));
+        assertFalse(isLinearTime("/./u"));
+    }
+
+    @Test
+    public void cachedPatternsFollowTheSetting() {
+        String regexp = "new RegExp('(a+)+b')";
+        NativeRegExp.setLinearMatching(false);
+        assertFalse(isLinearTime(regexp));
+        NativeRegExp.setLinearMatching(true);
+        assertTrue(isLinearTime(regexp));
+        NativeRegExp.setLinearMatching(false);
+        assertFalse(isLinearTime(regexp));
+    }
+
+    @Test
+    public void catastrophicBacktracking() {
+        Utils.assertWithAllModes_ES6(
+                "false|false",
+                "var s = 'aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa!';\n"
+                        + "/(a+)+b/.test(s) + '|' + /^(a|aa)+$/.test(s)");
+    }
+
+    @Test
+    public void captures() {
+        Utils.assertWithAllModes_ES6(
+                "123-4567,123,4567|abcd,a,bcd,|b,,b|abc,ab,a|y,|ab,|zab,b",
+                "['tel 123-4567!'.match(/(\\d+)-(\\d+)/), 'abcd'.match(/(a|ab)(c|bcd)(d*)/),\n"
+                        + " 'b'.match(/(a)|(b)/), 'abc'.match(/((a)b)c/), 'y'.match(/(x)?y/),\n"
+                        + " 'ab'.match(/(?:(a)|b)+/), 'zab'.match(/z(?:a|(b))+/)].join('|')");
+    }
+
+    @Test
+    public void quantifiers() {
+        Utils.assertWithAllModes_ES6(
+                "aaab|aaab|xxx|xx|xxxxx|color,colour|ab|",
+                "['caaab'.match(/a+b/)[0], 'aaab'.match(/a*?b/)[0],\n"
+                        + " 'xxxxx'.match(/x{2,3}/)[0], 'xxxxx'.match(/x{2,3}?/)[0],\n"
+                        + " 'xxxxx'.match(/x{2,}/)[0], 'color colour'.match(/colou?r/g).join(),\n"
+                        + " 'ab'.match(/a??b/)[0], 'abc'.match(/x{0}/)[0]].join('|')");
+    }
+
+    @Test
+    public void anchorsAndFlags() {
+        Utils.assertWithAllModes_ES6(
+                "2|2|1|3|HeLLo|null|2,2",
+                "['x\\nfoo\\ny'.search(/^foo$/m), 'a foo b'.search(/\\bfoo\\b/),\n"
+                        + " 'foo'.search(/\\Bo\\B/), 'abc'.search(/$/), 'HeLLo'.match(/hello/i)[0],\n"
+                        + " String('xab'.match(/ab/y)), [/b/y, /b/g].map(function(re) {\n"
+                        + "   re.lastIndex = 1; re.test('abcb'); return re.lastIndex; })]\n"
+                        + "  .join('|')");
+    }
+}
@@ -0,0 +1,143 @@
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.SamplingProfiler;
+import org.mozilla.javascript.Scriptable;
+
+/** The sampling profiler attributes samples to the script functions that were running. */
+public class SamplingProfilerTest {
+
+    private static final String SOURCE =
+            "function spin(ms) {\n"
+                    + "  var end = Date.now() + ms, n = 0;\n"
+                    + "  while (Date.now() < end) { n++; }\n"
+                    + "  return n;\n"
+                    + "}\n"
+                    + "function outer() { return spin(300); }\n"
+                    + "outer();\n";
+
+    private static SamplingProfiler profile(boolean interpreted) throws InterruptedException {
+        ContextFactory factory = new ContextFactory();
+        SamplingProfiler profiler = new SamplingProfiler(1);
+        profiler.attach(factory);
+        profiler.start();
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try (Context cx = factory.enterContext()) {
+                                cx.setInterpretedMode(interpreted);
+                                Scriptable scope = cx.initStandardObjects();
+                                cx.evaluateString(scope, SOURCE, "spin.js", 1, null);
+                            }
+                        });
+        thread.start();
+        thread.join();
+        profiler.stop();
+        profiler.detach(factory);
+        return profiler;
+    }
+
+    private static void checkProfile(SamplingProfiler profiler) throws Exception {
+        assertFalse(profiler.isRunning());
+        assertTrue(profiler.getSampleCount() > 0);
+
+        List<Map.Entry<String, Long>> top = profiler.getTopFrames(1);
+        assertEquals(1, top.size());
+        assertTrue(top.get(0).getKey(), top.get(0).getKey().startsWith("spin (spin.js:"));
+
+        boolean found = false;
+        for (String stack : profiler.getCollapsedStacks().keySet()) {
+            if (stack.startsWith("(spin.js:7);outer (spin.js:6);spin (spin.js:")) {
+                found = true;
+            }
+        }
+        assertTrue(profiler.getCollapsedStacks().toString(), found);
+
+        StringWriter out = new StringWriter();
+        profiler.writeCollapsedStacks(out);
+        assertTrue(out.toString().matches("(?s)(.*;)?spin \\(spin\\.js:\\d+\\) \\d+\n.*"));
+
+        profiler.reset();
+        assertEquals(0, profiler.getSampleCount());
+        assertTrue(profiler.getCollapsedStacks().isEmpty());
+    }
+
+    @Test
+    public void interpreted() throws Exception {
+        checkProfile(profile(true));
+    }
+
+    @Test
+    public void compiled() throws Exception {
+        checkProfile(profile(false));
+    }
+
+    @Test
+    public void contextEnteredOnAnotherThread() throws Exception {
+        ContextFactory factory = new ContextFactory();
+        SamplingProfiler profiler = new SamplingProfiler(1);
+        profiler.attach(factory);
+        Context cx = factory.enterContext();
+        Scriptable scope = cx.initStandardObjects();
+        cx.setInterpretedMode(true);
+        cx.close();
+
+        profiler.start();
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try (Context entered = factory.enterContext(cx)) {
+                                entered.evaluateString(scope, SOURCE, "spin.js", 1, null);
+                            }
+                        });
+        thread.start();
+        thread.join();
+        profiler.stop();
+        profiler.detach(factory);
+        checkProfile(profiler);
+    }
+
+    @Test
+    public void detachWhileEntered() throws Exception {
+        ContextFactory factory = new ContextFactory();
+        SamplingProfiler profiler = new SamplingProfiler(1);
+        profiler.attach(factory);
+        profiler.start();
+        CountDownLatch entered = new CountDownLatch(1);
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try (Context cx = factory.enterContext()) {
+                                Scriptable scope = cx.initStandardObjects();
+                                entered.countDown();
+                                cx.evaluateString(scope, SOURCE, "spin.js", 1, null);
+                            }
+                        });
+        thread.start();
+        entered.await();
+        profiler.detach(factory);
+        // Let a sample that was being taken at the time finish
+        Thread.sleep(20);
+        profiler.reset();
+        Thread.sleep(50);
+        assertEquals(0, profiler.getSampleCount());
+        thread.join();
+        profiler.stop();
+    }
+
+    @Test
+    public void invalidInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new SamplingProfiler(0));
+    }
+}
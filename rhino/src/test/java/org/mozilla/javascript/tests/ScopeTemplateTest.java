@@ -0,0 +1,336 @@
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.EcmaError;
+import org.mozilla.javascript.EvaluatorException;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.ScopeTemplate;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.TopLevel;
+
+/** Scopes created from a template share its standard objects, but not their global variables. */
+public class ScopeTemplateTest {
+
+    private static Object eval(Context cx, Scriptable scope, String source) {
+        return cx.evaluateString(scope, source, "test.js", 1, null);
+    }
+
+    @Test
+    public void builtins() {
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            Scriptable scope = template.newScope();
+            assertEquals(
+                    "2,4,6|{\"a\":1}|3|true|1|RegExp|object",
+                    eval(
+                            cx,
+                            scope,
+                            "[[1, 2, 3].map(function(x) { return x * 2; }).join(),\n"
+                                    + " JSON.stringify({a: 1}), Math.max(1, 3),\n"
+                                    + " new Map([[1, 2]]).has(1), new Set([1]).size,\n"
+                                    + " /a/.constructor.name, typeof new Int8Array(2)].join('|')"));
+        }
+    }
+
+    @Test
+    public void globalsAreNotShared() {
+        try (Context cx = Context.enter()) {
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            Scriptable s1 = template.newScope();
+            Scriptable s2 = template.newScope();
+            eval(cx, s1, "var x = 1; function f() { return x; } Array = 5; parseInt = null;");
+            assertEquals(
+                    "number|function|number",
+                    eval(cx, s1, "[typeof x, typeof f, typeof Array].join('|')"));
+            assertEquals(
+                    "undefined|undefined|function|42",
+                    eval(cx, s2, "[typeof x, typeof f, typeof Array, parseInt('42')].join('|')"));
+            assertEquals("function", eval(cx, template.getSharedScope(), "typeof Array"));
+        }
+    }
+
+    @Test
+    public void globalThis() {
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            TopLevel s1 = template.newScope();
+            TopLevel s2 = template.newScope();
+            assertSame(s1, eval(cx, s1, "globalThis.y = 1; this"));
+            assertSame(s1, eval(cx, s1, "globalThis"));
+            assertEquals(1, eval(cx, s1, "y"));
+            assertEquals("undefined", eval(cx, s2, "typeof y"));
+            assertNotNull(s1.getBuiltinCtor(TopLevel.Builtins.Array));
+            assertSame(
+                    s1.getBuiltinCtor(TopLevel.Builtins.Array),
+                    s2.getBuiltinCtor(TopLevel.Builtins.Array));
+        }
+    }
+
+    @Test
+    public void changesToStandardObjectsAreNotShared() {
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            Scriptable s1 = template.newScope();
+            Scriptable s2 = template.newScope();
+            assertEquals(
+                    "3|x|1|hi|undefined",
+                    eval(
+                            cx,
+                            s1,
+                            "Array.prototype.last = function() { return this[this.length - 1]; };\n"
+                                    + "Array.prototype.indexOf = function() { return 'x'; };\n"
+                                    + "Math.max = Math.min; Object.prototype.greeting = 'hi';\n"
+                                    + "delete String.prototype.trim;\n"
+                                    + "[[1, 2, 3].last(), [1].indexOf(1), Math.max(1, 2),\n"
+                                    + " ({}).greeting, typeof ''.trim].join('|')"));
+            assertEquals(
+                    "undefined|1|2||function",
+                    eval(
+                            cx,
+                            s2,
+                            "[typeof [].last, [1, 2].indexOf(2), Math.max(1, 2), ({}).greeting,\n"
+                                    + " typeof ''.trim].join('|')"));
+            assertEquals("x", eval(cx, s1, "[1, 2].indexOf(2)"));
+        }
+    }
+
+    @Test
+    public void changesToReachableObjectsAreNotShared() {
+        String tags =
+                "[Math.max.tag, [].map.tag,\n"
+                        + " Object.getOwnPropertyDescriptor(Object.prototype, '__proto__').get.tag,\n"
+                        + " Date.prototype.getTime.tag, Object.getPrototypeOf([].keys()).tag,\n"
+                        + " ({}).fromFunction, ({}).fromEval].join('|')";
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            Scriptable s1 = template.newScope();
+            Scriptable s2 = template.newScope();
+            eval(
+                    cx,
+                    s1,
+                    "Math.max.tag = 1;\n"
+                            + "Object.defineProperty([].map, 'tag', { value: 2 });\n"
+                            + "Object.getOwnPropertyDescriptor(Object.prototype, '__proto__')\n"
+                            + "    .get.tag = 3;\n"
+                            + "Date.prototype.getTime.tag = 4;\n"
+                            + "Object.getPrototypeOf([].keys()).tag = 5;\n"
+                            + "Function(\"Object.defineProperty(Object.prototype, 'fromFunction',"
+                            + " { value: 6 })\")();\n"
+                            + "(0, eval)(\"Object.defineProperty(Object.prototype, 'fromEval',"
+                            + " { value: 7 })\");");
+            assertEquals("1|2|3|4|5|6|7", eval(cx, s1, tags));
+            assertEquals("||||||", eval(cx, s2, tags));
+        }
+    }
+
+    @Test
+    public void prototypesOfSharedObjectsCannotChange() {
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            Scriptable s1 = template.newScope();
+            assertThrows(
+                    EvaluatorException.class,
+                    () -> eval(cx, s1, "Object.setPrototypeOf(Array.prototype, null)"));
+            assertEquals(
+                    true,
+                    eval(
+                            cx,
+                            template.newScope(),
+                            "Object.getPrototypeOf(Array.prototype) === Object.prototype"));
+        }
+    }
+
+    @Test
+    public void extensibilityIsNotShared() {
+        String state =
+                "[Object.isExtensible(Math), Object.isFrozen(JSON),"
+                        + " Object.isFrozen(Array.prototype)].join('|')";
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            Scriptable s1 = template.newScope();
+            Scriptable s2 = template.newScope();
+            eval(
+                    cx,
+                    s1,
+                    "Object.preventExtensions(Math); Object.freeze(JSON);"
+                            + " Object.freeze(Array.prototype);");
+            assertEquals("false|true|true", eval(cx, s1, state));
+            assertEquals(
+                    "TypeError|undefined|function",
+                    eval(
+                            cx,
+                            s1,
+                            "var r = [];\n"
+                                    + "try {\n"
+                                    + "  (function() { 'use strict'; Array.prototype.x = 1; })();\n"
+                                    + "  r.push('ok');\n"
+                                    + "} catch (e) { r.push(e.name); }\n"
+                                    + "Math.y = 1; Array.prototype.map = null;\n"
+                                    + "r.push(typeof Math.y, typeof [].map); r.join('|')"));
+            assertEquals("true|false|false", eval(cx, s2, state));
+            assertEquals("1", eval(cx, s2, "Array.prototype.x = 1; String([].x)"));
+        }
+    }
+
+    @Test
+    public void elementsOfSharedArraysAreNotShared() {
+        String state =
+                "[Array.prototype.length, Array.prototype[0], 0 in Array.prototype,\n"
+                        + " Object.keys(Array.prototype).length].join('|')";
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            Scriptable s1 = template.newScope();
+            Scriptable s2 = template.newScope();
+            assertEquals(
+                    "p|p",
+                    eval(cx, s1, "Array.prototype[0] = 'p'; [[, 1][0], [].concat()[0]].join('|')"));
+            assertEquals("1|p|true|1", eval(cx, s1, state));
+            assertEquals(
+                    "5|3",
+                    eval(
+                            cx,
+                            s1,
+                            "Array.prototype.length = 5; var l = Array.prototype.length;\n"
+                                    + "Array.prototype.length = 2; Array.prototype.push('q');\n"
+                                    + "[l, Array.prototype.length].join('|')"));
+            assertEquals("0||false|0", eval(cx, s2, state));
+            assertEquals("undefined", eval(cx, s2, "String([, 1][0])"));
+        }
+    }
+
+    @Test
+    public void methodsOutsideOfPropertyMapsAreNotShared() {
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            Scriptable s1 = template.newScope();
+            Scriptable s2 = template.newScope();
+            assertEquals(
+                    "7|undefined",
+                    eval(
+                            cx,
+                            s1,
+                            "Date.prototype.getTime = function() { return 7; };\n"
+                                    + "delete String.prototype.charAt;\n"
+                                    + "[new Date(0).getTime(), typeof ''.charAt].join('|')"));
+            assertEquals(
+                    "0|function",
+                    eval(cx, s2, "[new Date(0).getTime(), typeof ''.charAt].join('|')"));
+        }
+    }
+
+    @Test
+    public void embeddingSeesTheChangesOfTheScope() {
+        try (Context cx = Context.enter()) {
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            TopLevel s1 = template.newScope();
+            TopLevel s2 = template.newScope();
+            eval(cx, s1, "Array.prototype.last = function() { return 1; }; Math.y = 2;");
+
+            Scriptable proto = ScriptableObject.getClassPrototype(s1, "Array");
+            assertTrue(ScriptableObject.getProperty(proto, "last") instanceof Function);
+            Scriptable math = (Scriptable) ScriptableObject.getProperty(s1, "Math");
+            assertEquals(2, ScriptableObject.getProperty(math, "y"));
+            assertEquals(
+                    Scriptable.NOT_FOUND,
+                    ScriptableObject.getProperty(
+                            ScriptableObject.getClassPrototype(s2, "Array"), "last"));
+
+            ScriptableObject.putProperty(proto, "z", 1);
+            assertEquals(
+                    true, ScriptableObject.callMethod(proto, "hasOwnProperty", new Object[] {"z"}));
+            Scriptable returned = (Scriptable) eval(cx, s1, "Array.prototype");
+            ScriptableObject.putProperty(returned, "w", 3);
+            assertEquals("1|3|function", eval(cx, s1, "[[].z, [].w, typeof [].last].join('|')"));
+            assertEquals(
+                    "undefined|undefined", eval(cx, s2, "[typeof [].z, typeof [].w].join('|')"));
+        }
+    }
+
+    @Test
+    public void sharedScopeCannotBeModifiedOutsideOfScripts() {
+        try (Context cx = Context.enter()) {
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            Scriptable math =
+                    (Scriptable) ScriptableObject.getProperty(template.getSharedScope(), "Math");
+            assertThrows(
+                    EvaluatorException.class, () -> ScriptableObject.putProperty(math, "x", 1));
+        }
+    }
+
+    @Test
+    public void scopesThatInheritFromAScope() {
+        try (Context cx = Context.enter()) {
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            TopLevel scope = template.newScope();
+            eval(cx, scope, "Array.prototype.last = function() { return this[this.length - 1]; };");
+            Scriptable request = cx.newObject(scope);
+            request.setPrototype(scope);
+            request.setParentScope(null);
+            assertEquals(
+                    "function|3|1",
+                    eval(
+                            cx,
+                            request,
+                            "Array.prototype.z = 1;\n"
+                                    + "[typeof Array.prototype.last, [1, 2, 3].last(), [].z]"
+                                    + ".join('|')"));
+            assertEquals(1, eval(cx, scope, "[].z"));
+            assertEquals(
+                    1,
+                    ScriptableObject.getProperty(
+                            ScriptableObject.getClassPrototype(request, "Array"), "z"));
+            assertEquals("undefined", eval(cx, template.newScope(), "typeof [].z"));
+        }
+    }
+
+    @Test
+    public void javaAccess() {
+        try (Context cx = Context.enter()) {
+            ScopeTemplate template = ScopeTemplate.create(cx, false);
+            assertEquals(
+                    "3",
+                    eval(
+                            cx,
+                            template.newScope(),
+                            "String(new java.lang.StringBuilder('abc').length())"));
+        }
+    }
+
+    @Test
+    public void dynamicScope() {
+        ContextFactory factory =
+                new ContextFactory() {
+                    @Override
+                    protected boolean hasFeature(Context cx, int featureIndex) {
+                        if (featureIndex == Context.FEATURE_DYNAMIC_SCOPE) {
+                            return true;
+                        }
+                        return super.hasFeature(cx, featureIndex);
+                    }
+                };
+        try (Context cx = factory.enterContext()) {
+            ScopeTemplate template = ScopeTemplate.create(cx, true);
+            Scriptable s1 = template.newScope();
+            Scriptable s2 = template.newScope();
+            assertEquals(2, eval(cx, s1, "var z = 2; Function('return z')()"));
+            assertEquals(3, eval(cx, s2, "var z = 3; (0, eval)('z')"));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.JSFunction;
+import org.mozilla.javascript.JSScript;
+import org.mozilla.javascript.LruScriptCache;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.ScriptCache;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.testutils.Utils;
+
+public class ScriptCacheTest {
+
+    @Test
+    public void sameSourceIsCompiledOnce() {
+        ContextFactory factory = new ContextFactory();
+        LruScriptCache cache = new LruScriptCache(10);
+        factory.setScriptCache(cache);
+
+        Utils.runWithAllModes(
+                factory,
+                cx -> {
+                    cache.clear();
+                    Scriptable scope = cx.initStandardObjects();
+                    Script s1 = cx.compileString("var x = 1; x + 1", "test.js", 1, null);
+                    Script s2 = cx.compileString("var x = 1; x + 1", "test.js", 1, null);
+                    assertNotSame(s1, s2);
+                    assertSame(
+                            ((JSScript) s1).getDescriptor(), ((JSScript) s2).getDescriptor());
+                    assertEquals(2, Context.toNumber(s2.exec(cx, scope, scope)), 0.0);
+                    assertEquals(1, cache.size());
+                    return null;
+                });
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void settingsArePartOfTheKey() {
+        ContextFactory factory = new ContextFactory();
+        LruScriptCache cache = new LruScriptCache(10);
+        factory.setScriptCache(cache);
+
+        try (Context cx = factory.enterContext()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            cx.compileString("1 + 1", "test.js", 1, null);
+            cx.setLanguageVersion(Context.VERSION_1_8);
+            cx.compileString("1 + 1", "test.js", 1, null);
+            cx.setInterpretedMode(!cx.isInterpretedMode());
+            cx.compileString("1 + 1", "test.js", 1, null);
+            cx.compileString("1 + 1", "other.js", 1, null);
+            cx.compileString("1 + 1", "other.js", 2, null);
+        }
+        assertEquals(0, cache.getHitCount());
+        assertEquals(5, cache.size());
+    }
+
+    @Test
+    public void functionsAreCreatedInTheirOwnScope() {
+        ContextFactory factory = new ContextFactory();
+        LruScriptCache cache = new LruScriptCache(10);
+        factory.setScriptCache(cache);
+
+        Utils.runWithAllModes(
+                factory,
+                cx -> {
+                    cache.clear();
+                    String src = "function f() { return typeof g; }";
+                    Scriptable scope1 = cx.initStandardObjects();
+                    Scriptable scope2 = cx.initStandardObjects();
+                    cx.evaluateString(scope2, "function g() {}", "g.js", 1, null);
+                    Function f1 = cx.compileFunction(scope1, src, "f.js", 1, null);
+                    Function f2 = cx.compileFunction(scope2, src, "f.js", 1, null);
+                    assertSame(
+                            ((JSFunction) f1).getDescriptor(), ((JSFunction) f2).getDescriptor());
+                    assertEquals("undefined", f1.call(cx, scope1, scope1, new Object[0]));
+                    assertEquals("function", f2.call(cx, scope2, scope2, new Object[0]));
+                    return null;
+                });
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        ContextFactory factory = new ContextFactory();
+        LruScriptCache cache = new LruScriptCache(2);
+        factory.setScriptCache(cache);
+
+        try (Context cx = factory.enterContext()) {
+            cx.compileString("1", "test.js", 1, null);
+            cx.compileString("2", "test.js", 1, null);
+            cx.compileString("1", "test.js", 1, null);
+            cx.compileString("3", "test.js", 1, null);
+            assertEquals(2, cache.size());
+            assertEquals(1, cache.getHitCount());
+            cx.compileString("1", "test.js", 1, null);
+            assertEquals(2, cache.getHitCount());
+            cx.compileString("2", "test.js", 1, null);
+            assertEquals(2, cache.getHitCount());
+        }
+    }
+
+    @Test
+    public void entriesOfTheWrongKindAreCompiledAgain() {
+        // A cache that ignores the key, and so returns a function for a script
+        ScriptCache cache =
+                new ScriptCache() {
+                    private Entry last;
+
+                    @Override
+                    public Entry get(Key key) {
+                        return last;
+                    }
+
+                    @Override
+                    public void put(Key key, Entry entry) {
+                        last = entry;
+                    }
+
+                    @Override
+                    public void clear() {
+                        last = null;
+                    }
+                };
+        ContextFactory factory = new ContextFactory();
+        factory.setScriptCache(cache);
+
+        try (Context cx = factory.enterContext()) {
+            Scriptable scope = cx.initStandardObjects();
+            cx.compileFunction(scope, "function f() { return 1; }", "f.js", 1, null);
+            Script script = cx.compileString("1 + 1", "test.js", 1, null);
+            assertEquals(2, Context.toNumber(script.exec(cx, scope, scope)), 0.0);
+        }
+    }
+}
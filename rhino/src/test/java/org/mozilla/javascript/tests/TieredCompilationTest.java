@@ -0,0 +1,182 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+
+package org.mozilla.javascript.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.JSFunction;
+import org.mozilla.javascript.JSScript;
+import org.mozilla.javascript.PolicySecurityController;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.optimizer.OptJSCode;
+
+/** Tests for functions that start in the interpreter and switch to compiled code when hot. */
+public class TieredCompilationTest {
+
+    @Test
+    public void hotFunctionIsCompiled() {
+        try (Context cx = enterTiered(100)) {
+            Scriptable scope = cx.initStandardObjects();
+            cx.evaluateString(
+                    scope,
+                    "function sum(n) {\n"
+                            + "  var s = 0;\n"
+                            + "  for (var i = 0; i < n; i++) s += i;\n"
+                            + "  return s;\n"
+                            + "}\n"
+                            + "function cold() { return 1; }",
+                    "test.js",
+                    1,
+                    null);
+            Function sum = (Function) scope.get("sum", scope);
+            assertFalse(isCompiled(sum));
+
+            assertEquals(45, Context.toNumber(sum.call(cx, scope, scope, new Object[] {10})), 0);
+            assertFalse(isCompiled(sum));
+            assertEquals(4950, Context.toNumber(sum.call(cx, scope, scope, new Object[] {100})), 0);
+            assertTrue(isCompiled(sum));
+            assertEquals(4950, Context.toNumber(sum.call(cx, scope, scope, new Object[] {100})), 0);
+
+            assertFalse(isCompiled((Function) scope.get("cold", scope)));
+        }
+    }
+
+    @Test
+    public void closuresSwitchWithTheirFunction() {
+        try (Context cx = enterTiered(10)) {
+            Scriptable scope = cx.initStandardObjects();
+            Object result =
+                    cx.evaluateString(
+                            scope,
+                            "function counter() {\n"
+                                    + "  var n = 0;\n"
+                                    + "  return { inc: function() { return ++n; },"
+                                    + " get: function() { return n; } };\n"
+                                    + "}\n"
+                                    + "var c = counter(), d = counter();\n"
+                                    + "for (var i = 0; i < 50; i++) c.inc();\n"
+                                    + "d.inc();\n"
+                                    + "c.get() + ' ' + d.get()",
+                            "test.js",
+                            1,
+                            null);
+            assertEquals("50 1", result);
+            Scriptable c = (Scriptable) scope.get("c", scope);
+            assertTrue(isCompiled((Function) c.get("inc", c)));
+            assertFalse(isCompiled((Function) c.get("get", c)));
+        }
+    }
+
+    @Test
+    public void hotScriptIsCompiledForItsNextRun() {
+        try (Context cx = enterTiered(100)) {
+            Scriptable scope = cx.initStandardObjects();
+            Script script =
+                    cx.compileString(
+                            "var s = 0;\n"
+                                    + "for (var i = 0; i < 1000; i++) s += i;\n"
+                                    + "function f() { return s; }\n"
+                                    + "f()",
+                            "test.js",
+                            1,
+                            null);
+            assertFalse(isCompiled(script));
+            assertEquals(499500, Context.toNumber(script.exec(cx, scope, scope)), 0);
+            assertTrue(isCompiled(script));
+            assertEquals(499500, Context.toNumber(script.exec(cx, scope, scope)), 0);
+            assertTrue(isCompiled((Function) scope.get("f", scope)));
+        }
+    }
+
+    @Test
+    public void generatorsStayInterpreted() {
+        try (Context cx = enterTiered(0)) {
+            Scriptable scope = cx.initStandardObjects();
+            Object result =
+                    cx.evaluateString(
+                            scope,
+                            "function* gen() { for (var i = 0; i < 20; i++) yield i; }\n"
+                                    + "var s = 0;\n"
+                                    + "for (var k = 0; k < 3; k++) for (var v of gen()) s += v;\n"
+                                    + "s",
+                            "test.js",
+                            1,
+                            null);
+            assertEquals(570, Context.toNumber(result), 0);
+            assertFalse(isCompiled((Function) scope.get("gen", scope)));
+        }
+    }
+
+    @Test
+    public void compiledFunction() {
+        try (Context cx = enterTiered(0)) {
+            Scriptable scope = cx.initStandardObjects();
+            Function f =
+                    cx.compileFunction(
+                            scope, "function f(a, b) { return a * b; }", "test.js", 1, null);
+            assertEquals(6, Context.toNumber(f.call(cx, scope, scope, new Object[] {2, 3})), 0);
+            assertTrue(isCompiled(f));
+            assertEquals(12, Context.toNumber(f.call(cx, scope, scope, new Object[] {3, 4})), 0);
+        }
+    }
+
+    @Test
+    public void callerContextIsNotChanged() {
+        ContextFactory factory = new ContextFactory();
+        Scriptable scope;
+        try (Context cx = factory.enterContext()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            cx.setInterpretedMode(false);
+            cx.setTierUpThreshold(1);
+            cx.setSecurityController(new PolicySecurityController());
+            scope = cx.initStandardObjects();
+            cx.evaluateString(scope, "function f(a) { return a + 1; }", "test.js", 1, null);
+        }
+        Function f = (Function) scope.get("f", scope);
+        try (Context cx = factory.enterContext()) {
+            Object key = new Object();
+            cx.seal(key);
+            // The function cannot be compiled without the script's security controller
+            assertEquals(2, Context.toNumber(f.call(cx, scope, scope, new Object[] {1})), 0);
+            assertEquals(3, Context.toNumber(f.call(cx, scope, scope, new Object[] {2})), 0);
+            assertFalse(isCompiled(f));
+            cx.unseal(key);
+            cx.setSecurityController(new PolicySecurityController());
+        }
+    }
+
+    @Test
+    public void disabledByDefault() {
+        try (Context cx = Context.enter()) {
+            cx.setLanguageVersion(Context.VERSION_ES6);
+            Scriptable scope = cx.initStandardObjects();
+            cx.evaluateString(scope, "function f() { return 1; }", "test.js", 1, null);
+            assertTrue(isCompiled((Function) scope.get("f", scope)));
+        }
+    }
+
+    private static Context enterTiered(int threshold) {
+        Context cx = Context.enter();
+        cx.setLanguageVersion(Context.VERSION_ES6);
+        cx.setInterpretedMode(false);
+        cx.setTierUpThreshold(threshold);
+        return cx;
+    }
+
+    private static boolean isCompiled(Function f) {
+        return ((JSFunction) f).getDescriptor().getCode() instanceof OptJSCode;
+    }
+
+    private static boolean isCompiled(Script script) {
+        return ((JSScript) script).getDescriptor().getCode() instanceof OptJSCode;
+    }
+}
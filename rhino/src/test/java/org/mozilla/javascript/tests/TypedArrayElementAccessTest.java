@@ -0,0 +1,53 @@
+package org.mozilla.javascript.tests;
+
+import org.junit.Test;
+import org.mozilla.javascript.testutils.Utils;
+
+/**
+ * Indexed reads and writes of typed arrays, which read and write the array buffer without boxing
+ * the elements when the index and value are numbers.
+ */
+public class TypedArrayElementAccessTest {
+
+    @Test
+    public void float64() {
+        Utils.assertWithAllModes_ES6(
+                "0,1.5,3,4.5|4|undefined|499500",
+                "var f = new Float64Array(4);\n"
+                        + "for (var i = 0; i < 4; i++) { f[i] = i * 1.5; }\n"
+                        + "f[10] = 3;\n"
+                        + "var big = new Float64Array(1000), sum = 0;\n"
+                        + "for (var i = 0; i < 1000; i++) { big[i] = i; }\n"
+                        + "for (var i = 0; i < 1000; i++) { sum += big[i]; }\n"
+                        + "Array.prototype.join.call(f) + '|' + f.length + '|' + f[10] + '|' + sum");
+    }
+
+    @Test
+    public void integerConversions() {
+        Utils.assertWithAllModes_ES6(
+                "2,-1,1|44,255,1|255,0,2|-25536|65535|4294967295|-56",
+                "var a = new Int32Array(3); a[0] = 2.7; a[1] = -1; a[2] = 4294967297;\n"
+                        + "var u = new Uint8Array(3); u[0] = 300; u[1] = -1; u[2] = 1.9;\n"
+                        + "var c = new Uint8ClampedArray(3); c[0] = 300; c[1] = -1; c[2] = 2.5;\n"
+                        + "var s = new Int16Array(1); s[0] = 40000;\n"
+                        + "var us = new Uint16Array(1); us[0] = -1;\n"
+                        + "var u32 = new Uint32Array(1); u32[0] = -1;\n"
+                        + "var i8 = new Int8Array(1); i8[0] = 200;\n"
+                        + "[Array.prototype.join.call(a), Array.prototype.join.call(u),\n"
+                        + "  Array.prototype.join.call(c), s[0], us[0], u32[0], i8[0]].join('|')");
+    }
+
+    @Test
+    public void float32() {
+        Utils.assertWithAllModes_ES6(
+                "0.10000000149011612|NaN",
+                "var f = new Float32Array(2); f[0] = 0.1; f[1] = NaN;\n" + "f[0] + '|' + f[1]");
+    }
+
+    @Test
+    public void bigInt() {
+        Utils.assertWithAllModes_ES6(
+                "5",
+                "var b = new BigInt64Array(1);\n" + "b[0] = 5n;\n" + "String(b[0])");
+    }
+}
@@ -7,6 +7,11 @@ package org.mozilla.javascript.tests.json;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -269,6 +274,87 @@ public class JsonParserTest {
         parser.parseValue("1.");
     }
 
+    @Test
+    public void shouldParseFromReaderOneCharAtATime() throws Exception {
+        String json =
+                "{\"a\": [1, -2.5e3, true, false, null], "
+                        + "\"esc\\u0041\": \"x\\n\\u00e9y\", \"2\": {}}";
+        NativeObject actual = (NativeObject) parser.parseReader(new OneCharReader(json));
+        assertArrayEquals(new Object[] {2, "a", "escA"}, actual.getIds());
+        NativeArray a = (NativeArray) actual.get("a", actual);
+        assertArrayEquals(new Object[] {1, -2500, true, false, null}, a.toArray());
+        assertEquals("x\n\u00e9y", actual.get("escA", actual));
+    }
+
+    @Test
+    public void shouldParseValuesLongerThanTheBuffer() throws Exception {
+        StringBuilder sb = new StringBuilder("[\"");
+        for (int i = 0; i < 10000; i++) {
+            sb.append(i % 100 == 0 ? "\\t" : "ab");
+        }
+        sb.append("\", ");
+        for (int i = 0; i < 3000; i++) {
+            sb.append(i).append(", ");
+        }
+        sb.append("0]");
+        NativeArray fromString = (NativeArray) parser.parseValue(sb.toString());
+        NativeArray fromReader = (NativeArray) parser.parseReader(new StringReader(sb.toString()));
+        assertEquals(3002, fromString.getLength());
+        assertArrayEquals(fromString.toArray(), fromReader.toArray());
+        assertEquals(2999, fromReader.get(3000, fromReader));
+    }
+
+    @Test
+    public void shouldParseUtf8FromChannel() throws Exception {
+        byte[] json = "{\"k\u00e9\": \"\u20ac\ud83d\ude00\"}".getBytes(StandardCharsets.UTF_8);
+        NativeObject actual =
+                (NativeObject)
+                        parser.parseChannel(Channels.newChannel(new ByteArrayInputStream(json)));
+        assertEquals("\u20ac\ud83d\ude00", actual.get("k\u00e9", actual));
+    }
+
+    @Test(expected = ParseException.class)
+    public void shouldFailToParseMoreThanOneValueFromReader() throws Exception {
+        parser.parseReader(new OneCharReader("[1] 2"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void shouldFailToParseTruncatedNumberFromReader() throws Exception {
+        parser.parseReader(new OneCharReader("[1e"));
+    }
+
+    @Test
+    public void shouldBeReusableAfterFailure() throws Exception {
+        try {
+            parser.parseReader(new OneCharReader("[\"abc"));
+        } catch (ParseException e) {
+            // expected
+        }
+        assertEquals("abc", parser.parseValue("\"abc\""));
+    }
+
+    /** A reader that returns a single character from each call to "read". */
+    private static class OneCharReader extends Reader {
+        private final String s;
+        private int pos;
+
+        OneCharReader(String s) {
+            this.s = s;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (pos == s.length()) {
+                return -1;
+            }
+            cbuf[off] = s.charAt(pos++);
+            return 1;
+        }
+
+        @Override
+        public void close() {}
+    }
+
     private String str(char... chars) {
         return new String(chars);
     }